@@ -0,0 +1,125 @@
+package ru.anyforms.config.http;
+
+import io.netty.channel.ChannelOption;
+import io.netty.resolver.DefaultAddressResolverGroup;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Общая фабрика исходящих HTTP-клиентов: у каждого внешнего сервиса свой именованный пул соединений
+ * (amo, СДЭК, NotiSend, эквайринги), а таймауты, keep-alive и кэш DNS — одни на всех.
+ * <p>
+ * Пул ограничен {@code max-connections}; запросы сверх него ждут в очереди не дольше
+ * {@code pending-acquire-timeout-ms}, а очередь длиннее {@code pending-acquire-max-count} сразу
+ * получает ошибку — насыщение видно в метриках {@code reactor.netty.connection.provider.*}
+ * (тег {@code name=outbound-<пул>}) раньше, чем вырастут задержки. Простаивающие соединения
+ * закрываются фоновой чисткой, живые переиспользуются без повторного TLS-рукопожатия.
+ * <p>
+ * Настройки: {@code outbound-http.<ключ>} — для всех пулов, {@code outbound-http.pools.<пул>.<ключ>} —
+ * для одного.
+ */
+@Slf4j
+@Component
+public class OutboundHttpClients {
+
+    public static final String AMO = "amo";
+    public static final String CDEK = "cdek";
+    public static final String NOTISEND = "notisend";
+    public static final String TINKOFF = "tinkoff";
+    public static final String YOOKASSA = "yookassa";
+
+    /**
+     * @param systemResolver true — резолвер JDK (кэширует по настройкам JVM) вместо резолвера Netty
+     */
+    record PoolSettings(int maxConnections, int pendingAcquireMaxCount, Duration pendingAcquireTimeout,
+                        Duration maxIdleTime, Duration maxLifeTime, Duration evictInterval,
+                        Duration connectTimeout, Duration responseTimeout,
+                        Duration dnsCacheMinTtl, Duration dnsCacheMaxTtl, Duration dnsCacheNegativeTtl,
+                        boolean systemResolver) {
+    }
+
+    private final Environment env;
+    private final Map<String, ConnectionProvider> providers = new ConcurrentHashMap<>();
+    private final Map<String, HttpClient> clients = new ConcurrentHashMap<>();
+
+    public OutboundHttpClients(Environment env) {
+        this.env = env;
+    }
+
+    /**
+     * Новый {@link WebClient.Builder} поверх пула {@code pool}: база, заголовки, кодеки и фильтры —
+     * на стороне вызывающего. Один пул на хост: клиенты одного сервиса должны брать одно имя.
+     */
+    public WebClient.Builder builder(String pool) {
+        return WebClient.builder().clientConnector(new ReactorClientHttpConnector(httpClient(pool)));
+    }
+
+    HttpClient httpClient(String pool) {
+        return clients.computeIfAbsent(pool, this::create);
+    }
+
+    PoolSettings settings(String pool) {
+        return new PoolSettings(
+                setting(pool, "max-connections", Integer.class, 50),
+                setting(pool, "pending-acquire-max-count", Integer.class, 200),
+                Duration.ofMillis(setting(pool, "pending-acquire-timeout-ms", Long.class, 10_000L)),
+                Duration.ofMillis(setting(pool, "max-idle-time-ms", Long.class, 30_000L)),
+                Duration.ofMillis(setting(pool, "max-life-time-ms", Long.class, 300_000L)),
+                Duration.ofMillis(setting(pool, "evict-interval-ms", Long.class, 30_000L)),
+                Duration.ofMillis(setting(pool, "connect-timeout-ms", Long.class, 5_000L)),
+                Duration.ofMillis(setting(pool, "response-timeout-ms", Long.class, 30_000L)),
+                Duration.ofSeconds(setting(pool, "dns.cache-min-ttl-seconds", Long.class, 60L)),
+                Duration.ofSeconds(setting(pool, "dns.cache-max-ttl-seconds", Long.class, 300L)),
+                Duration.ofSeconds(setting(pool, "dns.cache-negative-ttl-seconds", Long.class, 10L)),
+                setting(pool, "dns.system-resolver", Boolean.class, false));
+    }
+
+    private <T> T setting(String pool, String key, Class<T> type, T defaultValue) {
+        T common = env.getProperty("outbound-http." + key, type, defaultValue);
+        return env.getProperty("outbound-http.pools." + pool + "." + key, type, common);
+    }
+
+    private HttpClient create(String pool) {
+        PoolSettings s = settings(pool);
+        ConnectionProvider provider = providers.computeIfAbsent(pool, name -> ConnectionProvider.builder("outbound-" + name)
+                .maxConnections(s.maxConnections())
+                .pendingAcquireMaxCount(s.pendingAcquireMaxCount())
+                .pendingAcquireTimeout(s.pendingAcquireTimeout())
+                .maxIdleTime(s.maxIdleTime())
+                .maxLifeTime(s.maxLifeTime())
+                .evictInBackground(s.evictInterval())
+                .metrics(true)
+                .build());
+        HttpClient client = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) s.connectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(s.responseTimeout())
+                .keepAlive(true)
+                .compress(true);
+        client = s.systemResolver()
+                ? client.resolver(DefaultAddressResolverGroup.INSTANCE)
+                : client.resolver(spec -> spec
+                        .cacheMinTimeToLive(s.dnsCacheMinTtl())
+                        .cacheMaxTimeToLive(s.dnsCacheMaxTtl())
+                        .cacheNegativeTimeToLive(s.dnsCacheNegativeTtl()));
+        log.info("Outbound HTTP pool '{}': max {} connections, pending {}, connect {} ms, response {} ms",
+                pool, s.maxConnections(), s.pendingAcquireMaxCount(),
+                s.connectTimeout().toMillis(), s.responseTimeout().toMillis());
+        return client;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        providers.values().forEach(ConnectionProvider::dispose);
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.WebClient;
+import ru.anyforms.config.http.OutboundHttpClients;
 
 @Configuration
 public class TinkoffWebClientConfig {
@@ -14,8 +15,8 @@ public class TinkoffWebClientConfig {
     private String apiUrl;
 
     @Bean("tinkoffWebClient")
-    public WebClient tinkoffWebClient() {
-        return WebClient.builder()
+    public WebClient tinkoffWebClient(OutboundHttpClients http) {
+        return http.builder(OutboundHttpClients.TINKOFF)
                 .baseUrl(apiUrl)
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
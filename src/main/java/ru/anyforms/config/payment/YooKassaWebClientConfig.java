@@ -6,6 +6,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.WebClient;
+import ru.anyforms.config.http.OutboundHttpClients;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
@@ -20,12 +21,12 @@ public class YooKassaWebClientConfig {
     private String apiKey;
 
     @Bean("yooKassaWebClient")
-    public WebClient yooKassaWebClient() {
+    public WebClient yooKassaWebClient(OutboundHttpClients http) {
         String credentials = shopId + ":" + apiKey;
         String encodedCredentials = Base64.getEncoder()
                 .encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
 
-        return WebClient.builder()
+        return http.builder(OutboundHttpClients.YOOKASSA)
                 .baseUrl("https://api.yookassa.ru/v3")
                 .defaultHeader(HttpHeaders.AUTHORIZATION, "Basic " + encodedCredentials)
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
@@ -7,6 +7,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.anyforms.dto.amo.AmoProductDTO;
@@ -31,9 +32,22 @@ public class AmoProductController {
     )
     @GetMapping("/products")
     public ResponseEntity<List<AmoProductDTO>> products() {
-        List<AmoProductDTO> products = amoCrmGateway.getCatalogElements(productsCatalogId).stream()
+        return ResponseEntity.ok(catalogProducts());
+    }
+
+    @Operation(
+            summary = "Перечитать каталог АМО (после правки товаров в amo) и вернуть свежий список",
+            security = @SecurityRequirement(name = "Bearer")
+    )
+    @PostMapping("/products/refresh")
+    public ResponseEntity<List<AmoProductDTO>> refreshProducts() {
+        amoCrmGateway.invalidateCatalog(productsCatalogId);
+        return ResponseEntity.ok(catalogProducts());
+    }
+
+    private List<AmoProductDTO> catalogProducts() {
+        return amoCrmGateway.getCatalogElements(productsCatalogId).stream()
                 .map(p -> new AmoProductDTO(p.getId(), p.getName()))
                 .toList();
-        return ResponseEntity.ok(products);
     }
 }
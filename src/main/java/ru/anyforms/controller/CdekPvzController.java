@@ -26,4 +26,12 @@ public class CdekPvzController {
     public ResponseEntity<List<CdekPvzDTO>> pvz(@RequestParam(required = false) String query) {
         return ResponseEntity.ok(cdekPvzService.search(query));
     }
+
+    @Operation(summary = "Ближайшие к точке ПВЗ СДЭК (выбор пункта на карте)")
+    @GetMapping("/pvz/nearest")
+    public ResponseEntity<List<CdekPvzDTO>> nearest(@RequestParam double lat,
+                                                    @RequestParam double lon,
+                                                    @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(cdekPvzService.nearest(lat, lon, limit));
+    }
 }
@@ -0,0 +1,32 @@
+package ru.anyforms.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.anyforms.model.task.TaskType;
+import ru.anyforms.service.task.TaskRequeuer;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/tasks")
+@RequiredArgsConstructor
+@Tag(name = "Tasks", description = "Очередь фоновых тасок: ручное управление")
+public class TaskAdminController {
+
+    private final TaskRequeuer taskRequeuer;
+
+    @Operation(summary = "Вернуть в очередь таски, исчерпавшие попытки (DEAD)",
+            description = "Без type — все типы. Счётчик попыток обнуляется, таски берутся в работу в ближайший прогон.",
+            security = @SecurityRequirement(name = "Bearer"))
+    @PostMapping("/dead/requeue")
+    public ResponseEntity<Map<String, Integer>> requeueDead(@RequestParam(required = false) TaskType type) {
+        return ResponseEntity.ok(Map.of("requeued", taskRequeuer.requeueDead(type)));
+    }
+}
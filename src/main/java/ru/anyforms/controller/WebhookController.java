@@ -5,7 +5,8 @@ import ru.anyforms.service.amo.AmoCrmCalculateService;
 import ru.anyforms.service.amo.AmoCrmWebhookService;
 import ru.anyforms.service.amo.AmoNewMessageProcessor;
 import ru.anyforms.service.amo.AmoNewMessageWebhookParser;
-import ru.anyforms.service.CdekWebhookService;
+import ru.anyforms.model.webhook.WebhookSource;
+import ru.anyforms.service.WebhookIntake;
 import ru.anyforms.util.WebhookParserService;
 import ru.anyforms.util.amo.JsonLeadIdExtractionService;
 import ru.anyforms.service.impl.HorseDeliveryCalculationService;
@@ -13,6 +14,8 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -25,7 +28,7 @@ import java.util.stream.Collectors;
 @Slf4j
 public class WebhookController {
     private final AmoCrmWebhookService webhookProcessingService;
-    private final CdekWebhookService cdekWebhookService;
+    private final WebhookIntake webhookIntake;
     private final AmoCrmCalculateService amoCrmCalculateService;
     private final WebhookParserService webhookParserService;
     private final JsonLeadIdExtractionService jsonLeadIdExtractionService;
@@ -34,7 +37,7 @@ public class WebhookController {
     private final AmoNewMessageWebhookParser amoNewMessageWebhookParser;
 
     public WebhookController(AmoCrmWebhookService webhookProcessingService,
-                             CdekWebhookService cdekWebhookService,
+                             WebhookIntake webhookIntake,
                              AmoCrmCalculateService amoCrmCalculateService,
                              WebhookParserService webhookParserService,
                              JsonLeadIdExtractionService jsonLeadIdExtractionService,
@@ -42,7 +45,7 @@ public class WebhookController {
                              AmoNewMessageProcessor amoNewMessageProcessor,
                              AmoNewMessageWebhookParser amoNewMessageWebhookParser) {
         this.webhookProcessingService = webhookProcessingService;
-        this.cdekWebhookService = cdekWebhookService;
+        this.webhookIntake = webhookIntake;
         this.amoCrmCalculateService = amoCrmCalculateService;
         this.webhookParserService = webhookParserService;
         this.jsonLeadIdExtractionService = jsonLeadIdExtractionService;
@@ -67,12 +70,13 @@ public class WebhookController {
                         formDataString.append(key).append("=").append(value);
                     });
                 });
-                webhookProcessingService.processFormDataWebhook(formDataString.toString());
+                // Обработка — асинхронно из webhook_inbox, amo получает ответ сразу
+                webhookIntake.accept(WebhookSource.AMO, formDataString.toString());
             }  else {
                 return ResponseEntity.badRequest().body("No data received");
             }
             
-            return ResponseEntity.ok("Webhook processed successfully");
+            return ResponseEntity.ok("Webhook accepted");
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body("Error processing webhook: " + e.getMessage());
@@ -147,8 +151,8 @@ public class WebhookController {
                 return ResponseEntity.badRequest().body("No data received");
             }
             
-            cdekWebhookService.processWebhook(body);
-            return ResponseEntity.ok("Webhook processed successfully");
+            webhookIntake.accept(WebhookSource.CDEK, body);
+            return ResponseEntity.ok("Webhook accepted");
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body("Error processing webhook: " + e.getMessage());
@@ -156,7 +160,7 @@ public class WebhookController {
     }
 
     @PostMapping(value = "/amocrm/calculate", consumes = {MediaType.APPLICATION_FORM_URLENCODED_VALUE, MediaType.APPLICATION_JSON_VALUE})
-    public ResponseEntity<String> handleAmoCrmCalculate(
+    public Mono<ResponseEntity<String>> handleAmoCrmCalculate(
             @RequestParam(required = false) MultiValueMap<String, String> formData,
             @RequestBody(required = false) String body) {
         try {
@@ -179,10 +183,10 @@ public class WebhookController {
                 if (!body.trim().startsWith("{")) {
                     formDataString = body;
                 } else {
-                    return ResponseEntity.badRequest().body("Only form-data format is supported for calculate endpoint");
+                    return Mono.just(ResponseEntity.badRequest().body("Only form-data format is supported for calculate endpoint"));
                 }
             } else {
-                return ResponseEntity.badRequest().body("No data received");
+                return Mono.just(ResponseEntity.badRequest().body("No data received"));
             }
             
             // Используем ту же логику парсинга, что и в /amocrm
@@ -190,10 +194,10 @@ public class WebhookController {
             Map<String, Object> leads = webhookParserService.extractLeadsFromFormData(parsed);
             
             if (leads == null) {
-                return ResponseEntity.badRequest().body("No leads data found in webhook");
+                return Mono.just(ResponseEntity.badRequest().body("No leads data found in webhook"));
             }
             
-            // Извлекаем lead IDs из всех типов событий (как в processFormDataWebhook)
+            // Извлекаем lead IDs из всех типов событий (как в acceptFormDataWebhook)
             List<Long> addLeadIds = jsonLeadIdExtractionService.extractLeadIdsFromFormDataAdd(leads);
             List<Long> eventLeadIds = jsonLeadIdExtractionService.extractLeadIdsFromFormDataEvents(leads);
             
@@ -203,29 +207,25 @@ public class WebhookController {
             allLeadIds.addAll(eventLeadIds);
             
             if (allLeadIds.isEmpty()) {
-                return ResponseEntity.badRequest().body("No lead IDs found in webhook");
+                return Mono.just(ResponseEntity.badRequest().body("No lead IDs found in webhook"));
             }
             
-            // Выполняем расчеты для каждого lead ID
-            int successCount = 0;
-            int failCount = 0;
-            for (Long leadId : allLeadIds) {
-                boolean success = amoCrmCalculateService.calculateAndUpdateLead(leadId);
-                if (success) {
-                    successCount++;
-                } else {
-                    failCount++;
-                }
-            }
-            
-            if (failCount == 0) {
-                return ResponseEntity.ok("Calculation completed successfully for " + successCount + " lead(s)");
-            } else {
-                return ResponseEntity.status(500).body("Calculation completed for " + successCount + " lead(s), failed for " + failCount + " lead(s)");
-            }
+            // Выполняем расчеты для всех lead ID параллельно: поток запроса не ждёт amo,
+            // а одновременность ограничивает лимитер amo
+            return Flux.fromIterable(allLeadIds)
+                    .flatMap(amoCrmCalculateService::calculateAndUpdateLead)
+                    .collectList()
+                    .map(results -> {
+                        long successCount = results.stream().filter(Boolean::booleanValue).count();
+                        long failCount = results.size() - successCount;
+                        if (failCount == 0) {
+                            return ResponseEntity.ok("Calculation completed successfully for " + successCount + " lead(s)");
+                        }
+                        return ResponseEntity.status(500).body("Calculation completed for " + successCount + " lead(s), failed for " + failCount + " lead(s)");
+                    });
         } catch (Exception e) {
             e.printStackTrace();
-            return ResponseEntity.status(500).body("Error processing calculation: " + e.getMessage());
+            return Mono.just(ResponseEntity.status(500).body("Error processing calculation: " + e.getMessage()));
         }
     }
 }
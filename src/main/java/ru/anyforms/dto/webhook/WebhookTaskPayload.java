@@ -0,0 +1,23 @@
+package ru.anyforms.dto.webhook;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Тело таски на обработку вебхука. Только ID записи {@code webhook_inbox} — само тело
+ * раннер читает из inbox, чтобы не дублировать его в таблице task.
+ * <p>
+ * Вебхук amo раскладывается на таски по сделкам ({@code leadId} задан): повтор после сбоя
+ * одной сделки не прогоняет заново уже обработанные.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class WebhookTaskPayload {
+    private Long inboxId;
+    /** Сделка amo из вебхука {@code inboxId}; {@code null} — таска на всю запись inbox. */
+    private Long leadId;
+}
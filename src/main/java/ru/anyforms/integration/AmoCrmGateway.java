@@ -2,6 +2,7 @@ package ru.anyforms.integration;
 
 import ru.anyforms.model.amo.AmoContact;
 import ru.anyforms.model.amo.AmoLead;
+import ru.anyforms.model.amo.AmoLeadAggregate;
 import ru.anyforms.model.amo.AmoLeadStatus;
 import ru.anyforms.model.amo.AmoProduct;
 
@@ -29,6 +30,24 @@ public interface AmoCrmGateway {
      */
     AmoLead getLead(Long leadId);
 
+    /**
+     * Получает сделку вместе с контактом и товарами: сама сделка, ID контакта и элементы каталога —
+     * одним запросом ({@code with=contacts,catalog_elements}), названия товаров — из кэша.
+     * Заменяет связку getLead + getContactIdFromLead + getContact + getLeadProducts.
+     *
+     * @return null, если сделка не найдена
+     */
+    AmoLeadAggregate getLeadAggregate(Long leadId);
+
+    /**
+     * Получает сделки по списку ID ({@code GET /api/v4/leads?filter[id][]=…}),
+     * по 250 штук за запрос (максимум страницы amo).
+     *
+     * @param leadIds ID сделок
+     * @return найденные сделки (удалённые/недоступные просто отсутствуют в ответе)
+     */
+    List<AmoLead> getLeadsByIds(List<Long> leadIds);
+
     /**
      * Получает контакт по ID
      */
@@ -64,7 +83,11 @@ public interface AmoCrmGateway {
     boolean updateLeadStatus(List<Long> leadIds, Long statusId, Long pipelineId);
 
     /**
-     * Обновляет кастомное поле сделки
+     * Обновляет кастомное поле сделки.
+     * <p>
+     * Правки сделок (поля, бюджет, статус, теги) отложенные: сливаются по сделке и уходят пачкой
+     * через доли секунды; {@code true} означает, что правка принята. Чтение сделки через шлюз
+     * сразу видит принятые правки. Где нужно подтверждение amo — {@link #flushLeadWrites}.
      */
     boolean updateLeadCustomField(Long leadId, Long fieldId, String value);
 
@@ -119,14 +142,13 @@ public interface AmoCrmGateway {
     List<Long> getLeadIdsOlderThanTwoWeeks(Long pipelineId, Long statusId, Long closedTo);
 
     /**
-     * Запрос №1 дрип-кампании: получить ID всех лидов в заданной воронке/статусе.
-     * <p>
-     * TODO(пагинация): сейчас один запрос без постраничной выборки (лидов десятки).
-     * При росте объёма добавить обход страниц amoCRM ({@code page}/{@code limit}).
+     * Получить ID всех лидов в заданной воронке/статусе (обходит все страницы amoCRM). Нужен, когда
+     * обработка сама выводит лиды из статуса (дрип-кампания): страницы идут по смещению и сдвинулись бы.
      *
      * @param pipelineId ID воронки
      * @param statusId   ID статуса
      * @return список lead_id (может быть пустым)
+     * @throws RuntimeException если страница не загрузилась и после повторов — неполный список не отдаётся
      */
     List<Long> getLeadIdsByStatus(Long pipelineId, Long statusId);
 
@@ -168,12 +190,29 @@ public interface AmoCrmGateway {
     Long createLead(String leadName, String contactName, String phone, String email,
                     Long pipelineId, Long statusId, Long responsibleUserId);
 
+    /**
+     * Ищет контакт по телефону или email ({@code GET /api/v4/contacts?query=…}).
+     * Найденные соответствия телефон/email → ID кэшируются.
+     */
     Long findContactIdByQuery(String query);
 
+    /**
+     * Сбрасывает закэшированный контакт — контакт изменён в amo (вебхук) или в обход шлюза.
+     */
+    void invalidateContact(Long contactId);
+
     List<Long> getLeadIdsByContact(Long contactId);
 
     boolean addTagToLead(Long leadId, String tagName);
 
+    /**
+     * Сразу отправляет накопленные правки сделки, не дожидаясь пачки. Если часть правок уже
+     * отправляется плановой пачкой, сначала дожидается её исхода.
+     *
+     * @return true, если правок не было или amo их принял; при ошибке правки остаются в очереди
+     */
+    boolean flushLeadWrites(Long leadId);
+
     /**
      * Привязывает товары каталога к сделке (POST /api/v4/leads/{id}/link).
      *
@@ -187,8 +226,16 @@ public interface AmoCrmGateway {
     /**
      * Возвращает все элементы (товары) каталога АМО: id + name (+ catalogId).
      * Для выпадающего списка товаров в админке маркетплейса.
+     * Отдаётся из копии каталога в памяти, которая дообновляется по {@code updated_at} в фоне,
+     * поэтому только что заведённый в amo товар может появиться с задержкой — см. {@link #invalidateCatalog}.
      *
      * @param catalogId ID каталога товаров
      */
     List<AmoProduct> getCatalogElements(Long catalogId);
+
+    /**
+     * Сбрасывает копию каталога: следующий {@link #getCatalogElements} перечитает его из amo целиком.
+     * Вызывается из админки товаров, когда каталог в amo правили только что.
+     */
+    void invalidateCatalog(Long catalogId);
 }
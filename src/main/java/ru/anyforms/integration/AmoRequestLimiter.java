@@ -0,0 +1,14 @@
+package ru.anyforms.integration;
+
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+
+/**
+ * Общий лимит запросов к amoCRM (лимит amo один на всю интеграцию) для клиентов, которые строят
+ * свой {@code WebClient} к amo вне шлюза
+ */
+public interface AmoRequestLimiter {
+    /**
+     * Фильтр для {@code WebClient.builder().filter(...)}: каждый HTTP-запрос занимает слот общего лимита
+     */
+    ExchangeFilterFunction filter();
+}
@@ -0,0 +1,12 @@
+package ru.anyforms.integration;
+
+/**
+ * Общий access-токен OAuth 2.0 к API СДЭК (client_credentials) для всех клиентов СДЭК
+ */
+public interface CdekTokenProvider {
+    /**
+     * Возвращает действующий токен. В штатном режиме — без сетевого запроса: токен обновляется
+     * в фоне заранее. {@code null}, если получить токен не удалось
+     */
+    String getAccessToken();
+}
@@ -26,6 +26,17 @@ public interface GoogleSheetsGateway {
      */
     List<List<Object>> readAllRows();
 
+    /**
+     * Возвращает число строк листа по колонке A (до последней заполненной ячейки A).
+     * Дешёвая проба длины: читается одна колонка
+     */
+    int countRows(String sheetName);
+
+    /**
+     * Читает строки {@code fromRow..toRow} (1-based, включительно), колонки A:Z
+     */
+    List<List<Object>> readRows(String sheetName, int fromRow, int toRow);
+
     /**
      * Получает значение ячейки из строки по индексу колонки
      */
@@ -56,6 +67,17 @@ public interface GoogleSheetsGateway {
      */
     void writeCell(int rowNumber, int columnIndex, String value);
 
+    /**
+     * Ставит запись ячейки в буфер вместо отдельного запроса. Буфер уходит одним batchUpdate
+     * при {@link #flushWrites()}, при наполнении или по таймеру; до сброса чтения видят старое значение
+     */
+    void bufferCell(String sheetName, int rowNumber, int columnIndex, String value);
+
+    /**
+     * Сразу отправляет накопленные {@link #bufferCell} записи
+     */
+    void flushWrites();
+
     /**
      * Находит строку по значению в указанной колонке и записывает значение в другую колонку
      */
@@ -0,0 +1,52 @@
+package ru.anyforms.integration;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.anyforms.model.amo.AmoContact;
+import ru.anyforms.model.amo.AmoLead;
+import ru.anyforms.model.amo.AmoLeadAggregate;
+import ru.anyforms.model.amo.AmoProduct;
+
+import java.util.List;
+
+/**
+ * Неблокирующий вариант чтений из amoCRM: те же запросы, что у {@link AmoCrmGateway}, но без
+ * {@code block()} — пока amo отвечает, поток не занят, а независимые запросы можно запускать
+ * параллельно и склеивать ({@code Mono.zip}, {@code flatMap}). Параллельность ограничивает лимитер
+ * amo (ожидание слота — тоже без блокировки), а не число потоков.
+ * <p>
+ * Реализуется тем же шлюзом, что и {@link AmoCrmGateway}: кэш контактов, копия каталога и
+ * отложенные правки сделок общие. Записи остаются в {@link AmoCrmGateway} — они и так копятся
+ * в буфере и уходят пачками в фоне.
+ */
+public interface ReactiveAmoCrmGateway {
+
+    /**
+     * @return сделка с наложенными ещё не отправленными правками; пусто, если amo ничего не вернул
+     */
+    Mono<AmoLead> lead(Long leadId);
+
+    /**
+     * Сделка с контактом и товарами: сделка со связями — одним запросом, затем контакт и недостающие
+     * названия товаров — параллельно.
+     *
+     * @return пусто, если сделка не найдена
+     */
+    Mono<AmoLeadAggregate> leadAggregate(Long leadId);
+
+    /**
+     * @return контакт (из кэша, если он свежий); пусто, если amo ничего не вернул
+     */
+    Mono<AmoContact> contact(Long contactId);
+
+    /**
+     * @return товары сделки; пустой список, если товаров нет
+     */
+    Mono<List<AmoProduct>> leadProducts(Long leadId);
+
+    /**
+     * ID лидов в воронке/статусе: страницы запрашиваются по мере чтения, следующая — пока разбирается
+     * текущая.
+     */
+    Flux<Long> leadIdsByStatus(Long pipelineId, Long statusId);
+}
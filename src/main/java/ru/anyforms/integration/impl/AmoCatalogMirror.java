@@ -0,0 +1,82 @@
+package ru.anyforms.integration.impl;
+
+import ru.anyforms.model.amo.AmoProduct;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Копия каталогов товаров amo в памяти: элемент по ID, в порядке выдачи amo.
+ * <p>
+ * Каталог загружается целиком один раз ({@link #replace}), дальше дополняется элементами,
+ * изменившимися после последнего {@code updated_at} ({@link #merge}). Удалённые в amo элементы
+ * пропадают только при следующей полной загрузке. Чтения идут без блокировок: каждое обновление
+ * публикует новый неизменяемый {@link Snapshot}.
+ */
+final class AmoCatalogMirror {
+
+    /**
+     * @param complete     каталог загружен целиком (иначе в нём только элементы, найденные по ID)
+     * @param maxUpdatedAt самый поздний {@code updated_at} среди загруженных элементов, секунды
+     * @param fullLoadAt   время последней полной загрузки, null — её не было
+     */
+    record Snapshot(Map<Long, AmoProduct> elements, boolean complete, long maxUpdatedAt, Instant fullLoadAt) {
+    }
+
+    /** Результат выгрузки страниц каталога. */
+    record Load(List<AmoProduct> elements, long maxUpdatedAt) {
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(Map.of(), false, 0, null);
+
+    private final Map<Long, Snapshot> catalogs = new ConcurrentHashMap<>();
+
+    Snapshot get(Long catalogId) {
+        return catalogs.getOrDefault(catalogId, EMPTY);
+    }
+
+    /** Каталоги, которые уже хоть раз загружались, — их обновляет плановая задача. */
+    Set<Long> catalogIds() {
+        return Set.copyOf(catalogs.keySet());
+    }
+
+    /** Полная загрузка: каталог заменяется целиком. */
+    void replace(Long catalogId, Load load, Instant loadedAt) {
+        Map<Long, AmoProduct> elements = new LinkedHashMap<>();
+        for (AmoProduct element : load.elements()) {
+            elements.put(element.getId(), element);
+        }
+        catalogs.put(catalogId, new Snapshot(Collections.unmodifiableMap(elements),
+                true, load.maxUpdatedAt(), loadedAt));
+    }
+
+    /**
+     * Добавляет или обновляет элементы, остальные не трогает.
+     * {@code maxUpdatedAt} сдвигается только вперёд.
+     */
+    void merge(Long catalogId, Collection<AmoProduct> changed, long maxUpdatedAt) {
+        if (changed.isEmpty() && maxUpdatedAt <= get(catalogId).maxUpdatedAt()) {
+            return;
+        }
+        catalogs.compute(catalogId, (id, current) -> {
+            Snapshot base = current != null ? current : EMPTY;
+            Map<Long, AmoProduct> elements = new LinkedHashMap<>(base.elements());
+            for (AmoProduct element : changed) {
+                elements.put(element.getId(), element);
+            }
+            return new Snapshot(Collections.unmodifiableMap(elements), base.complete(),
+                    Math.max(base.maxUpdatedAt(), maxUpdatedAt), base.fullLoadAt());
+        });
+    }
+
+    /** Следующее обращение загрузит каталог заново целиком. */
+    void invalidate(Long catalogId) {
+        catalogs.remove(catalogId);
+    }
+}
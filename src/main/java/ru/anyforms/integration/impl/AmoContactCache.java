@@ -0,0 +1,162 @@
+package ru.anyforms.integration.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.anyforms.model.amo.AmoContact;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Кэш контактов amo перед {@link AmoCrmHttpGateway}: контакт по ID и ID контакта по телефону/email.
+ * <p>
+ * Один и тот же контакт за секунды читается несколько раз (синк заказа, вебхук покупки, поиск
+ * покупателя при оплате), поэтому TTL короткий — {@code amocrm.contact-cache.ttl-seconds}.
+ * Соответствие «телефон/email → ID» меняется редко и живёт дольше
+ * ({@code amocrm.contact-cache.query-ttl-seconds}). Телефон сравнивается по последним 10 цифрам,
+ * email — без учёта регистра. Ненайденное не кэшируется: новый контакт должен находиться сразу.
+ * <p>
+ * Свои записи в контакт и вебхуки об изменении контакта вызывают {@link #invalidate}. Загрузка,
+ * начатая до сброса, в кэш не попадает: она могла прочитать контакт ещё до правки.
+ */
+@Component
+@ConditionalOnProperty(name = "amocrm.enabled", havingValue = "true", matchIfMissing = true)
+class AmoContactCache {
+
+    private static final int PHONE_KEY_DIGITS = 10;
+
+    private final Cache<Long, AmoContact> byId;
+    private final Cache<String, Long> idByQuery;
+    /** Счётчик сбросов: загрузка кладёт результат, только если за время запроса сбросов не было. */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    AmoContactCache(@Value("${amocrm.contact-cache.ttl-seconds:120}") long ttlSeconds,
+                    @Value("${amocrm.contact-cache.query-ttl-seconds:600}") long queryTtlSeconds,
+                    @Value("${amocrm.contact-cache.max-size:2000}") long maxSize) {
+        this.byId = CacheBuilder.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .build();
+        this.idByQuery = CacheBuilder.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(queryTtlSeconds))
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * @param loader загрузка из amo при промахе; null-результат не кэшируется
+     */
+    AmoContact getContact(Long contactId, Function<Long, AmoContact> loader) {
+        AmoContact cached = getIfPresent(contactId);
+        if (cached != null) {
+            return cached;
+        }
+        long version = version();
+        AmoContact loaded = loader.apply(contactId);
+        if (loaded != null) {
+            put(contactId, loaded, version);
+        }
+        return loaded;
+    }
+
+    /**
+     * Для неблокирующей загрузки: промах — null; перед запросом берётся {@link #version()},
+     * загруженное кладётся через {@link #put}.
+     */
+    AmoContact getIfPresent(Long contactId) {
+        return byId.getIfPresent(contactId);
+    }
+
+    long version() {
+        return invalidations.get();
+    }
+
+    /**
+     * @param version {@link #version()} на момент начала загрузки; если с тех пор был сброс, контакт не кладётся
+     */
+    void put(Long contactId, AmoContact contact, long version) {
+        if (invalidations.get() != version) {
+            return;
+        }
+        byId.put(contactId, contact);
+        rememberQueries(contactId, contact);
+        if (invalidations.get() != version) {
+            // сброс пришёл, пока клали, — снимаем то, что успели положить
+            invalidate(contactId);
+        }
+    }
+
+    /**
+     * @param query  телефон (в любом формате) или email; прочие запросы идут мимо кэша
+     * @param loader поиск в amo при промахе
+     */
+    Long findContactId(String query, Function<String, Long> loader) {
+        String key = queryKey(query);
+        if (key != null) {
+            Long cached = idByQuery.getIfPresent(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Long found = loader.apply(query);
+        if (key != null && found != null) {
+            idByQuery.put(key, found);
+        }
+        return found;
+    }
+
+    /** Контакт изменился — убираем его и все ведущие на него телефоны/email. */
+    void invalidate(Long contactId) {
+        if (contactId == null) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        byId.invalidate(contactId);
+        idByQuery.asMap().values().removeIf(contactId::equals);
+    }
+
+    /** Телефоны и email из загруженного контакта — следующий поиск по ним не пойдёт в amo. */
+    private void rememberQueries(Long contactId, AmoContact contact) {
+        if (contact.getCustomFieldsValues() == null) {
+            return;
+        }
+        for (AmoContact.CustomField field : contact.getCustomFieldsValues()) {
+            if (field.getValues() == null
+                    || !("PHONE".equals(field.getFieldCode()) || "EMAIL".equals(field.getFieldCode()))) {
+                continue;
+            }
+            for (AmoContact.CustomField.Value value : field.getValues()) {
+                String key = queryKey(value.getValue());
+                if (key != null) {
+                    idByQuery.put(key, contactId);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code email:<адрес>}, {@code phone:<последние 10 цифр>} или null, если запрос не похож
+     * ни на то, ни на другое
+     */
+    static String queryKey(String query) {
+        if (query == null || query.isBlank()) {
+            return null;
+        }
+        String trimmed = query.trim();
+        if (trimmed.indexOf('@') > 0) {
+            return "email:" + trimmed.toLowerCase(Locale.ROOT);
+        }
+        String digits = trimmed.replaceAll("\\D", "");
+        if (digits.length() < PHONE_KEY_DIGITS || digits.length() != trimmed.replaceAll("[\\s()+\\-]", "").length()) {
+            return null;
+        }
+        return "phone:" + digits.substring(digits.length() - PHONE_KEY_DIGITS);
+    }
+}
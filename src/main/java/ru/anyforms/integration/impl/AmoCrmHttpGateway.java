@@ -1,7 +1,11 @@
 package ru.anyforms.integration.impl;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import ru.anyforms.config.http.OutboundHttpClients;
 import ru.anyforms.integration.AmoCrmGateway;
+import ru.anyforms.integration.ReactiveAmoCrmGateway;
 import ru.anyforms.model.SalesbotRunRequest;
 import ru.anyforms.model.amo.*;
 import com.google.gson.Gson;
@@ -10,23 +14,48 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-
+import reactor.util.retry.Retry;
+
+import java.io.Reader;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 @Slf4j
 @Component
 @ConditionalOnProperty(name = "amocrm.enabled", havingValue = "true", matchIfMissing = true)
-class AmoCrmHttpGateway implements AmoCrmGateway {
+class AmoCrmHttpGateway implements AmoCrmGateway, ReactiveAmoCrmGateway {
     private WebClient webClient;
     private final Gson gson;
+    private final AmoRateLimiter rateLimiter;
+    private final AmoContactCache contactCache;
+    private final OutboundHttpClients http;
+    /** Отложенные правки сделок: сливаются по сделке и уходят пачками PATCH /api/v4/leads. */
+    private final AmoLeadWriteBuffer leadWrites = new AmoLeadWriteBuffer();
+    /** Копии каталогов товаров: названия нужны при каждой синхронизации заказа, а меняются редко. */
+    private final AmoCatalogMirror catalogMirror = new AmoCatalogMirror();
     
     @Value("${amocrm.subdomain}")
     private String subdomain;
@@ -46,22 +75,54 @@ class AmoCrmHttpGateway implements AmoCrmGateway {
     @Value("${amocrm.landing.status.id}")
     private Long landingStatusId;
 
-    public AmoCrmHttpGateway() {
+    /** false — каждая правка сделки отправляется сразу (буфер только склеивает её с ожидающими). */
+    @Value("${amocrm.lead-write-buffer.enabled:true}")
+    private boolean leadWriteBufferEnabled;
+
+    /** Сделок в одном PATCH; amo принимает до 50. */
+    @Value("${amocrm.lead-write-buffer.max-leads:50}")
+    private int leadWriteBatchSize;
+
+    @Value("${amocrm.lead-write-buffer.max-attempts:5}")
+    private int leadWriteMaxAttempts;
+
+    /** Как часто перечитывать каталог целиком, а не только изменившиеся элементы. */
+    @Value("${amocrm.catalog-mirror.full-reload-ms:21600000}")
+    private long catalogFullReloadMs;
+
+    public AmoCrmHttpGateway(AmoRateLimiter rateLimiter, AmoContactCache contactCache, OutboundHttpClients http) {
         this.gson = new Gson();
+        this.rateLimiter = rateLimiter;
+        this.contactCache = contactCache;
+        this.http = http;
     }
 
-    /** Лимит буфера ответа WebClient: ответы amo (списки лидов) превышают дефолтные 256 КБ. */
+    /**
+     * Лимит буфера ответа WebClient: ответы amo (списки лидов) превышают дефолтные 256 КБ.
+     * Тот же предел у тел, декодируемых через {@link #body}.
+     */
     private static final int MAX_IN_MEMORY_SIZE = 16 * 1024 * 1024; // 16 МБ
 
-    @jakarta.annotation.PostConstruct
+    @PostConstruct
     private void init() {
-        this.webClient = WebClient.builder()
+        this.webClient = http.builder(OutboundHttpClients.AMO)
                 .baseUrl("https://" + subdomain + ".amocrm.ru")
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(MAX_IN_MEMORY_SIZE))
+                // Лимит amo считается по каждому реальному HTTP-запросу, в т.ч. внутри составных методов.
+                .filter(rateLimiter.filter())
                 .build();
     }
 
+    /** Тело ответа разбирается Gson потоком прямо в {@code type} — см. {@link AmoResponses#decode}. */
+    private <T> Mono<T> body(WebClient.ResponseSpec spec, Class<T> type) {
+        return body(spec, reader -> gson.fromJson(reader, type));
+    }
+
+    private <T> Mono<T> body(WebClient.ResponseSpec spec, Function<Reader, T> decoder) {
+        return AmoResponses.decode(spec.bodyToFlux(DataBuffer.class), MAX_IN_MEMORY_SIZE, decoder);
+    }
+
     @Override
     public void setNewTask(Long responsibleUser, Long taskType, String taskMessage, Long leadId, int minutesToComplete) {
         try {
@@ -105,102 +166,168 @@ class AmoCrmHttpGateway implements AmoCrmGateway {
     @Override
     public AmoLead getLead(Long leadId) {
         try {
-            String url = "/api/v4/leads/" + leadId;
-            String response = webClient.get()
-                    .uri(url)
-                    .header("Authorization", "Bearer " + accessToken)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            // amoCRM API returns single entity directly or in _embedded.leads array
-            JsonObject jsonObject = JsonParser.parseString(response).getAsJsonObject();
-            if (jsonObject.has("_embedded")) {
-                JsonObject embedded = jsonObject.getAsJsonObject("_embedded");
-                if (embedded.has("leads")) {
-                    var leads = embedded.getAsJsonArray("leads");
-                    if (leads != null && leads.size() > 0) {
-                        return gson.fromJson(leads.get(0), AmoLead.class);
-                    }
-                }
+            AmoLead lead = lead(leadId).block();
+            if (lead == null) {
+                throw new IllegalStateException("Empty amoCRM response for lead " + leadId);
             }
-            // Try to parse as direct object
-            return gson.fromJson(jsonObject, AmoLead.class);
+            return lead;
         } catch (Exception e) {
             throw new RuntimeException("Failed to get lead from amoCRM", e);
         }
     }
 
     @Override
-    public AmoContact getContact(Long contactId) {
+    public Mono<AmoLead> lead(Long leadId) {
+        String url = "/api/v4/leads/" + leadId;
+        return body(webClient.get()
+                .uri(url)
+                .header("Authorization", "Bearer " + accessToken)
+                .retrieve(), AmoResponses.LeadResponse.class)
+                .map(response -> leadWrites.overlay(unwrapLead(response)));
+    }
+
+    @Override
+    public AmoLeadAggregate getLeadAggregate(Long leadId) {
         try {
-            String url = "/api/v4/contacts/" + contactId;
-            String response = webClient.get()
-                    .uri(url)
-                    .header("Authorization", "Bearer " + accessToken)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
+            return leadAggregate(leadId).block();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to get lead aggregate from amoCRM", e);
+        }
+    }
 
-            // amoCRM API returns single entity directly or in _embedded.contacts array
-            JsonObject jsonObject = JsonParser.parseString(response).getAsJsonObject();
-            AmoContact contact = null;
-            if (jsonObject.has("_embedded")) {
-                JsonObject embedded = jsonObject.getAsJsonObject("_embedded");
-                if (embedded.has("contacts")) {
-                    var contacts = embedded.getAsJsonArray("contacts");
-                    if (contacts != null && contacts.size() > 0) {
-                        contact = gson.fromJson(contacts.get(0), AmoContact.class);
-                    }
+    @Override
+    public Mono<AmoLeadAggregate> leadAggregate(Long leadId) {
+        String url = "/api/v4/leads/" + leadId + "?with=contacts,catalog_elements";
+        return body(webClient.get()
+                .uri(url)
+                .header("Authorization", "Bearer " + accessToken)
+                .retrieve(), AmoResponses.LeadResponse.class)
+                .flatMap(response -> {
+                    AmoLead lead = leadWrites.overlay(unwrapLead(response));
+                    Long contactId = firstContactId(response);
+                    // Контакт и недостающие названия товаров зависят только от сделки — запрашиваем параллельно
+                    Mono<Optional<AmoContact>> contact = contactId != null
+                            ? contact(contactId).map(Optional::of).defaultIfEmpty(Optional.empty())
+                            : Mono.just(Optional.empty());
+                    return Mono.zip(contact, products(catalogElementsMetadata(response)))
+                            .map(t -> new AmoLeadAggregate(lead, contactId, t.getT1().orElse(null), t.getT2()));
+                });
+    }
+
+    /** amoCRM отдаёт сделку либо напрямую, либо в {@code _embedded.leads}. */
+    private static AmoLead unwrapLead(AmoResponses.LeadResponse response) {
+        if (response.embedded != null && response.embedded.leads != null && !response.embedded.leads.isEmpty()) {
+            return response.embedded.leads.get(0);
+        }
+        return response;
+    }
+
+    /** ID первого контакта из {@code _embedded.contacts} сделки, запрошенной с {@code with=contacts}. */
+    private static Long firstContactId(AmoResponses.LeadResponse response) {
+        if (response.embedded == null || response.embedded.contacts == null || response.embedded.contacts.isEmpty()) {
+            return null;
+        }
+        return response.embedded.contacts.get(0).getId();
+    }
+
+    @Override
+    public List<AmoLead> getLeadsByIds(List<Long> leadIds) {
+        List<AmoLead> result = new ArrayList<>();
+        if (leadIds == null || leadIds.isEmpty()) {
+            return result;
+        }
+        try {
+            for (int i = 0; i < leadIds.size(); i += AMO_PAGE_LIMIT) {
+                List<Long> batch = leadIds.subList(i, Math.min(i + AMO_PAGE_LIMIT, leadIds.size()));
+
+                // Формат фильтра: filter[id][]=1&filter[id][]=2; limit обязателен — по умолчанию amo отдаёт 50.
+                StringBuilder urlBuilder = new StringBuilder("/api/v4/leads?limit=").append(AMO_PAGE_LIMIT);
+                for (Long leadId : batch) {
+                    urlBuilder.append("&filter[id][]=").append(leadId);
+                }
+
+                AmoResponses.Page page = body(webClient.get()
+                        .uri(urlBuilder.toString())
+                        .header("Authorization", "Bearer " + accessToken)
+                        .retrieve(), AmoResponses.Page.class)
+                        .block();
+
+                // amo отдаёт 204/пустое тело, если ни одна сделка не найдена.
+                if (page == null || page.embedded == null || page.embedded.leads == null) {
+                    continue;
+                }
+                for (AmoLead lead : page.embedded.leads) {
+                    result.add(leadWrites.overlay(lead));
                 }
             }
-            // Try to parse as direct object
+            return result;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to get leads by ids from amoCRM", e);
+        }
+    }
+
+    @Override
+    public AmoContact getContact(Long contactId) {
+        try {
+            AmoContact contact = contact(contactId).block();
             if (contact == null) {
-                contact = gson.fromJson(jsonObject, AmoContact.class);
-            }
-            
-            // Устанавливаем телефон из кастомного поля
-            if (contact != null) {
-                String phoneValue = contact.getCustomFieldValue(AmoCrmFieldId.PHONE_CONTACT.getId());
-                if (phoneValue != null) {
-                    AmoContact.Phone phone = new AmoContact.Phone();
-                    phone.setValue(phoneValue);
-                    contact.setPhone(java.util.Collections.singletonList(phone));
-                }
+                throw new IllegalStateException("Empty amoCRM response for contact " + contactId);
             }
-            
             return contact;
         } catch (Exception e) {
             throw new RuntimeException("Failed to get contact from amoCRM", e);
         }
     }
 
+    @Override
+    public Mono<AmoContact> contact(Long contactId) {
+        return Mono.defer(() -> {
+            AmoContact cached = contactCache.getIfPresent(contactId);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            long version = contactCache.version();
+            return body(webClient.get()
+                    .uri("/api/v4/contacts/" + contactId)
+                    .header("Authorization", "Bearer " + accessToken)
+                    .retrieve(), AmoResponses.ContactResponse.class)
+                    .map(AmoCrmHttpGateway::unwrapContact)
+                    .doOnNext(contact -> contactCache.put(contactId, contact, version));
+        });
+    }
+
+    private static AmoContact unwrapContact(AmoResponses.ContactResponse response) {
+        // amoCRM API returns single entity directly or in _embedded.contacts array
+        AmoContact contact = response;
+        if (response.embedded != null && response.embedded.contacts != null
+                && !response.embedded.contacts.isEmpty()) {
+            contact = response.embedded.contacts.get(0);
+        }
+
+        // Устанавливаем телефон из кастомного поля
+        String phoneValue = contact.getCustomFieldValue(AmoCrmFieldId.PHONE_CONTACT.getId());
+        if (phoneValue != null) {
+            AmoContact.Phone phone = new AmoContact.Phone();
+            phone.setValue(phoneValue);
+            contact.setPhone(Collections.singletonList(phone));
+        }
+        return contact;
+    }
+
     @Override
     public Long getContactIdFromLead(Long leadId) {
         try {
             String url = "/api/v4/leads/" + leadId + "?with=contacts";
-            String response = webClient.get()
+            AmoResponses.LeadResponse response = body(webClient.get()
                     .uri(url)
                     .header("Authorization", "Bearer " + accessToken)
-                    .retrieve()
-                    .bodyToMono(String.class)
+                    .retrieve(), AmoResponses.LeadResponse.class)
                     .block();
 
-            // Parse JSON to get contact ID from _embedded.contacts
-            JsonObject jsonObject = JsonParser.parseString(response).getAsJsonObject();
-            if (jsonObject.has("_embedded")) {
-                JsonObject embedded = jsonObject.getAsJsonObject("_embedded");
-                if (embedded.has("contacts")) {
-                    var contacts = embedded.getAsJsonArray("contacts");
-                    if (contacts != null && contacts.size() > 0) {
-                        JsonObject firstContact = contacts.get(0).getAsJsonObject();
-                        if (firstContact.has("id") && !firstContact.get("id").isJsonNull()) {
-                            return firstContact.get("id").getAsLong();
-                        }
-                    }
-                }
+            if (response == null) {
+                throw new IllegalStateException("Empty amoCRM response for lead " + leadId);
             }
-            return null;
+            return firstContactId(response);
         } catch (Exception e) {
             throw new RuntimeException("Failed to get contact ID from lead", e);
         }
@@ -241,7 +368,7 @@ class AmoCrmHttpGateway implements AmoCrmGateway {
     @Override
     public boolean updateLeadStatus(Long leadId, Long statusId, Long pipelineId, Long responsibleUserId) {
         try {
-            // Если pipelineId не указан, получаем текущую воронку сделки
+            // Если pipelineId не указан, получаем текущую воронку сделки (с учётом ещё не отправленных правок)
             if (pipelineId == null) {
                 AmoLead lead = getLead(leadId);
                 if (lead == null || lead.getPipelineId() == null) {
@@ -251,36 +378,11 @@ class AmoCrmHttpGateway implements AmoCrmGateway {
                 pipelineId = lead.getPipelineId();
             }
 
-            // Формируем JSON для обновления статуса
-            JsonObject leadUpdate = new JsonObject();
-            leadUpdate.addProperty("id", leadId);
-            leadUpdate.addProperty("status_id", statusId);
-            if (pipelineId != null) {
-                leadUpdate.addProperty("pipeline_id", pipelineId);
-            }
-            if (responsibleUserId != null) {
-                leadUpdate.addProperty("responsible_user_id", responsibleUserId);
-            }
-
-            JsonArray leadsArray = new JsonArray();
-            leadsArray.add(leadUpdate);
-
-            String url = "/api/v4/leads";
-            String response = webClient.patch()
-                    .uri(url)
-                    .header("Authorization", "Bearer " + accessToken)
-                    .bodyValue(leadsArray.toString())
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            // Пытаемся определить статус для логирования
-            AmoLeadStatus status = AmoLeadStatus.fromStatusId(statusId);
-            String statusDescription = status != AmoLeadStatus.UNKNOWN 
-                    ? status.getDescription() + " (" + statusId + ")"
-                    : String.valueOf(statusId);
-            log.info("Successfully updated status for lead {} to {}", leadId, statusDescription);
-            return true;
+            AmoLeadWriteBuffer.Mutation mutation = new AmoLeadWriteBuffer.Mutation(leadId);
+            mutation.statusId = statusId;
+            mutation.pipelineId = pipelineId;
+            mutation.responsibleUserId = responsibleUserId;
+            return enqueueLeadWrite(mutation);
         } catch (Exception e) {
             log.error("Failed to update lead status in amoCRM for lead {}", leadId, e);
             return false;
@@ -348,51 +450,9 @@ class AmoCrmHttpGateway implements AmoCrmGateway {
 
     @Override
     public boolean updateLeadCustomField(Long leadId, Long fieldId, String value) {
-        try {
-            // Получаем текущую сделку для сохранения других полей
-            AmoLead lead = getLead(leadId);
-            if (lead == null) {
-                log.error("Failed to get lead {}", leadId);
-                return false;
-            }
-
-            // Формируем JSON для обновления кастомного поля
-            JsonObject leadUpdate = new JsonObject();
-            leadUpdate.addProperty("id", leadId);
-
-            // Создаем массив кастомных полей
-            JsonArray customFieldsArray = new JsonArray();
-            JsonObject customField = new JsonObject();
-            customField.addProperty("field_id", fieldId);
-            
-            JsonArray valuesArray = new JsonArray();
-            JsonObject fieldValue = new JsonObject();
-            fieldValue.addProperty("value", value);
-            valuesArray.add(fieldValue);
-            
-            customField.add("values", valuesArray);
-            customFieldsArray.add(customField);
-            
-            leadUpdate.add("custom_fields_values", customFieldsArray);
-
-            JsonArray leadsArray = new JsonArray();
-            leadsArray.add(leadUpdate);
-
-            String url = "/api/v4/leads";
-            String response = webClient.patch()
-                    .uri(url)
-                    .header("Authorization", "Bearer " + accessToken)
-                    .bodyValue(leadsArray.toString())
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            log.info("Successfully updated custom field {} for lead {} with value: {}", fieldId, leadId, value);
-            return true;
-        } catch (Exception e) {
-            log.error("Failed to update custom field in amoCRM for lead {}, field {}", leadId, fieldId, e);
-            return false;
-        }
+        AmoLeadWriteBuffer.Mutation mutation = new AmoLeadWriteBuffer.Mutation(leadId);
+        mutation.customFields.put(fieldId, value);
+        return enqueueLeadWrite(mutation);
     }
 
 
@@ -402,6 +462,9 @@ class AmoCrmHttpGateway implements AmoCrmGateway {
         if (customFields == null || customFields.isEmpty()) {
             return true;
         }
+        // Сброс и до, и после PATCH: чтение, успевшее во время запроса положить старую копию, не переживёт
+        // запись. Даже при ошибке неизвестно, применил ли amo правку, — кэшу больше верить нельзя
+        contactCache.invalidate(contactId);
         try {
             JsonArray customFieldsArray = new JsonArray();
             for (Map.Entry<Long, String> entry : customFields.entrySet()) {
@@ -439,6 +502,8 @@ class AmoCrmHttpGateway implements AmoCrmGateway {
         } catch (Exception e) {
             log.error("Failed to update contact custom fields in amoCRM for contact {}", contactId, e);
             return false;
+        } finally {
+            contactCache.invalidate(contactId);
         }
     }
 
@@ -570,56 +635,12 @@ class AmoCrmHttpGateway implements AmoCrmGateway {
 
     @Override
     public boolean updateLeadFields(Long leadId, Long price, Map<Long, ?> customFields) {
-        try {
-            // Формируем JSON для обновления полей
-            JsonObject leadUpdate = new JsonObject();
-            leadUpdate.addProperty("id", leadId);
-            
-            // Добавляем price если указан
-            if (price != null) {
-                leadUpdate.addProperty("price", price);
-            }
-            
-            // Добавляем кастомные поля если есть
-            if (customFields != null && !customFields.isEmpty()) {
-                JsonArray customFieldsArray = new JsonArray();
-                for (Map.Entry<Long, ?> entry : customFields.entrySet()) {
-                    JsonObject customField = new JsonObject();
-                    customField.addProperty("field_id", entry.getKey());
-
-                    JsonArray valuesArray = new JsonArray();
-                    JsonObject fieldValue = new JsonObject();
-                    if (entry.getValue() instanceof Number number) {
-                        fieldValue.addProperty("value", number);
-                    } else {
-                        fieldValue.addProperty("value", String.valueOf(entry.getValue()));
-                    }
-                    valuesArray.add(fieldValue);
-                    
-                    customField.add("values", valuesArray);
-                    customFieldsArray.add(customField);
-                }
-                leadUpdate.add("custom_fields_values", customFieldsArray);
-            }
-
-            JsonArray leadsArray = new JsonArray();
-            leadsArray.add(leadUpdate);
-
-            String url = "/api/v4/leads";
-            String response = webClient.patch()
-                    .uri(url)
-                    .header("Authorization", "Bearer " + accessToken)
-                    .bodyValue(leadsArray.toString())
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            log.info("Successfully updated fields for lead {}", leadId);
-            return true;
-        } catch (Exception e) {
-            log.error("Failed to update lead fields in amoCRM for lead {}", leadId, e);
-            return false;
+        AmoLeadWriteBuffer.Mutation mutation = new AmoLeadWriteBuffer.Mutation(leadId);
+        mutation.price = price;
+        if (customFields != null) {
+            mutation.customFields.putAll(customFields);
         }
+        return enqueueLeadWrite(mutation);
     }
 
     /**
@@ -714,176 +735,252 @@ class AmoCrmHttpGateway implements AmoCrmGateway {
     @Override
     public List<AmoProduct> getLeadProducts(Long leadId) {
         try {
-            // Получаем сделку с товарами через параметр with=catalog_elements
-            String leadUrl = "/api/v4/leads/" + leadId + "?with=catalog_elements";
-            String leadResponse = webClient.get()
-                    .uri(leadUrl)
-                    .header("Authorization", "Bearer " + accessToken)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
+            List<AmoProduct> products = leadProducts(leadId).block();
+            return products != null ? products : new ArrayList<>();
+        } catch (Exception e) {
+            log.error("Failed to get products from lead {}", leadId, e);
+            return new ArrayList<>();
+        }
+    }
 
-            if (leadResponse == null || leadResponse.trim().isEmpty()) {
-                return new java.util.ArrayList<>();
-            }
+    @Override
+    public Mono<List<AmoProduct>> leadProducts(Long leadId) {
+        // Получаем сделку с товарами через параметр with=catalog_elements
+        String leadUrl = "/api/v4/leads/" + leadId + "?with=catalog_elements";
+        return body(webClient.get()
+                .uri(leadUrl)
+                .header("Authorization", "Bearer " + accessToken)
+                .retrieve(), AmoResponses.LeadResponse.class)
+                .flatMap(response -> products(catalogElementsMetadata(response)))
+                .defaultIfEmpty(List.of());
+    }
 
-            JsonObject leadJson = JsonParser.parseString(leadResponse).getAsJsonObject();
-            List<AmoProduct> products = new java.util.ArrayList<>();
-            java.util.Map<Long, JsonObject> productMetadataMap = new java.util.HashMap<>();
-
-            // Извлекаем товары из _embedded.catalog_elements
-            if (leadJson.has("_embedded")) {
-                JsonObject embedded = leadJson.getAsJsonObject("_embedded");
-                if (embedded.has("catalog_elements")) {
-                    JsonArray catalogElements = embedded.getAsJsonArray("catalog_elements");
-                    if (catalogElements != null) {
-                        for (int i = 0; i < catalogElements.size(); i++) {
-                            JsonObject catalogElement = catalogElements.get(i).getAsJsonObject();
-                            Long elementId = catalogElement.has("id") ? catalogElement.get("id").getAsLong() : null;
-                            
-                            if (elementId != null) {
-                                // Сохраняем metadata для этого товара
-                                productMetadataMap.put(elementId, catalogElement);
-                            }
-                        }
-                    }
-                }
+    /** Элементы {@code _embedded.catalog_elements} сделки по ID, в порядке сделки. */
+    private static Map<Long, AmoResponses.LinkedCatalogElement> catalogElementsMetadata(
+            AmoResponses.LeadResponse response) {
+        Map<Long, AmoResponses.LinkedCatalogElement> productMetadataMap = new LinkedHashMap<>();
+        if (response.embedded == null || response.embedded.catalogElements == null) {
+            return productMetadataMap;
+        }
+        for (AmoResponses.LinkedCatalogElement catalogElement : response.embedded.catalogElements) {
+            if (catalogElement != null && catalogElement.id != null) {
+                productMetadataMap.put(catalogElement.id, catalogElement);
             }
+        }
+        return productMetadataMap;
+    }
 
-            if (productMetadataMap.isEmpty()) {
-                return products;
+    /**
+     * Собирает товары сделки: количество и каталог — из metadata элемента сделки, название — из каталога.
+     * Названия берутся из {@link #catalogMirror}, в API идём только за отсутствующими (новые элементы,
+     * которых плановое обновление ещё не подтянуло) — они сразу попадают в копию.
+     * Элементы, которых нет в каталоге (удалены), пропускаются.
+     */
+    private Mono<List<AmoProduct>> products(Map<Long, AmoResponses.LinkedCatalogElement> productMetadataMap) {
+        if (productMetadataMap.isEmpty()) {
+            return Mono.just(new ArrayList<>());
+        }
+        Map<Long, AmoProduct> known = catalogMirror.get(productsCatalogId).elements();
+        Map<Long, String> names = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long elementId : productMetadataMap.keySet()) {
+            AmoProduct element = known.get(elementId);
+            if (element != null && element.getName() != null) {
+                names.put(elementId, element.getName());
+            } else {
+                missing.add(elementId);
             }
+        }
+        if (missing.isEmpty()) {
+            return Mono.just(toLeadProducts(productMetadataMap, names));
+        }
+        return fetchCatalogElementsById(missing).map(fetched -> {
+            catalogMirror.merge(productsCatalogId, fetched.elements(), 0);
+            fetched.elements().stream()
+                    .filter(element -> element.getName() != null)
+                    .forEach(element -> names.put(element.getId(), element.getName()));
+            return toLeadProducts(productMetadataMap, names);
+        });
+    }
 
-            // Получаем детали товаров (название и т.д.) из каталога
-            Long catalogId = productsCatalogId;
-            List<Long> productIds = new java.util.ArrayList<>(productMetadataMap.keySet());
-            
-            // AmoCRM API позволяет получить до 250 элементов за раз
-            // Разбиваем на батчи по 250 элементов
-            int batchSize = 250;
-            for (int i = 0; i < productIds.size(); i += batchSize) {
-                int endIndex = Math.min(i + batchSize, productIds.size());
-                List<Long> batch = productIds.subList(i, endIndex);
-                
-                // Формируем URL с фильтром по ID (формат: filter[id][]=1&filter[id][]=2)
-                StringBuilder urlBuilder = new StringBuilder("/api/v4/catalogs/");
-                urlBuilder.append(catalogId);
-                urlBuilder.append("/elements?");
-                for (int j = 0; j < batch.size(); j++) {
-                    if (j > 0) urlBuilder.append("&");
-                    urlBuilder.append("filter[id][]=").append(batch.get(j));
+    private static List<AmoProduct> toLeadProducts(Map<Long, AmoResponses.LinkedCatalogElement> productMetadataMap,
+                                                   Map<Long, String> names) {
+        List<AmoProduct> products = new ArrayList<>();
+        for (Map.Entry<Long, AmoResponses.LinkedCatalogElement> entry : productMetadataMap.entrySet()) {
+            Long elementId = entry.getKey();
+            if (!names.containsKey(elementId)) {
+                continue;
+            }
+            AmoProduct product = new AmoProduct();
+            product.setId(elementId);
+            product.setName(names.get(elementId));
+
+            // Получаем metadata из catalog_elements
+            AmoResponses.LinkedCatalogElement.Metadata metadata = entry.getValue().metadata;
+            if (metadata != null) {
+                if (metadata.quantity != null) {
+                    product.setQuantity(metadata.quantity.intValue());
                 }
-                
-                String catalogUrl = urlBuilder.toString();
-                String catalogResponse = webClient.get()
-                        .uri(catalogUrl)
-                        .header("Authorization", "Bearer " + accessToken)
-                        .retrieve()
-                        .bodyToMono(String.class)
-                        .block();
-
-                if (catalogResponse != null && !catalogResponse.trim().isEmpty()) {
-                    JsonObject catalogJson = JsonParser.parseString(catalogResponse).getAsJsonObject();
-                    
-                    // Парсим товары из каталога
-                    if (catalogJson.has("_embedded")) {
-                        JsonObject catalogEmbedded = catalogJson.getAsJsonObject("_embedded");
-                        if (catalogEmbedded.has("elements")) {
-                            JsonArray elements = catalogEmbedded.getAsJsonArray("elements");
-                            if (elements != null) {
-                                for (int j = 0; j < elements.size(); j++) {
-                                    JsonObject element = elements.get(j).getAsJsonObject();
-                                    Long elementId = element.has("id") ? element.get("id").getAsLong() : null;
-                                    
-                                    if (elementId != null && productMetadataMap.containsKey(elementId)) {
-                                        AmoProduct product = new AmoProduct();
-                                        product.setId(elementId);
-                                        product.setName(element.has("name") ? element.get("name").getAsString() : null);
-                                        
-                                        // Получаем metadata из catalog_elements
-                                        JsonObject catalogElement = productMetadataMap.get(elementId);
-                                        if (catalogElement.has("metadata")) {
-                                            JsonObject metadata = catalogElement.getAsJsonObject("metadata");
-                                            if (metadata.has("quantity")) {
-                                                product.setQuantity(metadata.get("quantity").getAsInt());
-                                            }
-                                            if (metadata.has("catalog_id")) {
-                                                product.setCatalogId(metadata.get("catalog_id").getAsLong());
-                                            }
-                                            // Цена может быть в metadata.price или нужно получать из price_id
-                                            // Пока оставляем null, если нужно - можно получить из каталога
-                                        }
-                                        
-                                        products.add(product);
-                                    }
-                                }
-                            }
-                        }
-                    }
+                if (metadata.catalogId != null) {
+                    product.setCatalogId(metadata.catalogId);
                 }
+                // Цена может быть в metadata.price или нужно получать из price_id
+                // Пока оставляем null, если нужно - можно получить из каталога
             }
+            products.add(product);
+        }
+        return products;
+    }
 
-            return products;
-        } catch (Exception e) {
-            log.error("Failed to get products from lead {}", leadId, e);
-            return new java.util.ArrayList<>();
+    /**
+     * Элементы каталога товаров по ID ({@code filter[id][]=…}, до 250 за запрос).
+     * {@code maxUpdatedAt} результата — 0: выборка по ID не сдвигает курсор инкрементального обновления.
+     */
+    private Mono<AmoCatalogMirror.Load> fetchCatalogElementsById(List<Long> productIds) {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < productIds.size(); i += AMO_PAGE_LIMIT) {
+            List<Long> batch = productIds.subList(i, Math.min(i + AMO_PAGE_LIMIT, productIds.size()));
+
+            // limit обязателен — по умолчанию amo отдаёт 50
+            StringBuilder urlBuilder = new StringBuilder("/api/v4/catalogs/")
+                    .append(productsCatalogId)
+                    .append("/elements?limit=").append(AMO_PAGE_LIMIT);
+            for (Long id : batch) {
+                urlBuilder.append("&filter[id][]=").append(id);
+            }
+            urls.add(urlBuilder.toString());
         }
+        return Flux.fromIterable(urls)
+                .concatMap(this::catalogPage)
+                .concatMapIterable(elements -> elements)
+                .mapNotNull(element -> toProduct(element, productsCatalogId))
+                .collectList()
+                .map(found -> new AmoCatalogMirror.Load(found, 0));
     }
 
+    /**
+     * Каталог отдаётся из {@link #catalogMirror}; если он ещё не загружен целиком (первое обращение или
+     * после {@link #invalidateCatalog}), загружается здесь же. При ошибке загрузки отдаём то, что есть.
+     */
     @Override
     public List<AmoProduct> getCatalogElements(Long catalogId) {
-        List<AmoProduct> products = new java.util.ArrayList<>();
         if (catalogId == null || catalogId <= 0) {
             log.warn("getCatalogElements: не задан catalogId");
-            return products;
+            return new ArrayList<>();
         }
-        try {
-            int limit = 250;
-            for (int page = 1; page <= 100; page++) { // страховочный потолок 25000 товаров
-                String url = "/api/v4/catalogs/" + catalogId + "/elements?limit=" + limit + "&page=" + page;
-                String response = webClient.get()
-                        .uri(url)
-                        .header("Authorization", "Bearer " + accessToken)
-                        .retrieve()
-                        .bodyToMono(String.class)
-                        .block();
+        if (!catalogMirror.get(catalogId).complete()) {
+            try {
+                reloadCatalog(catalogId);
+            } catch (Exception e) {
+                log.error("Failed to get catalog {} elements", catalogId, e);
+            }
+        }
+        return new ArrayList<>(catalogMirror.get(catalogId).elements().values());
+    }
 
-                if (response == null || response.trim().isEmpty()) {
-                    break;
-                }
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-                if (!json.has("_embedded")) {
-                    break;
-                }
-                JsonObject embedded = json.getAsJsonObject("_embedded");
-                if (!embedded.has("elements")) {
-                    break;
-                }
-                JsonArray elements = embedded.getAsJsonArray("elements");
-                if (elements == null || elements.isEmpty()) {
-                    break;
-                }
-                for (int i = 0; i < elements.size(); i++) {
-                    JsonObject element = elements.get(i).getAsJsonObject();
-                    if (!element.has("id") || element.get("id").isJsonNull()) {
-                        continue;
+    @Override
+    public void invalidateCatalog(Long catalogId) {
+        if (catalogId != null) {
+            catalogMirror.invalidate(catalogId);
+        }
+    }
+
+    /**
+     * Плановое обновление копий каталогов: каталог товаров и всё, что уже запрашивали через
+     * {@link #getCatalogElements}. Раз в {@code amocrm.catalog-mirror.full-reload-ms} каталог
+     * перечитывается целиком (так уходят удалённые элементы), в остальное время — только элементы
+     * с {@code updated_at} не раньше последнего виденного.
+     */
+    @Scheduled(fixedDelayString = "${amocrm.catalog-mirror.refresh-ms:300000}",
+            initialDelayString = "${amocrm.catalog-mirror.initial-delay-ms:30000}")
+    void refreshCatalogMirror() {
+        Set<Long> catalogIds = new LinkedHashSet<>();
+        if (productsCatalogId != null && productsCatalogId > 0) {
+            catalogIds.add(productsCatalogId);
+        }
+        catalogIds.addAll(catalogMirror.catalogIds());
+        for (Long catalogId : catalogIds) {
+            AmoCatalogMirror.Snapshot snapshot = catalogMirror.get(catalogId);
+            try {
+                if (!snapshot.complete() || snapshot.fullLoadAt() == null || Instant.now()
+                        .isAfter(snapshot.fullLoadAt().plusMillis(catalogFullReloadMs))) {
+                    reloadCatalog(catalogId);
+                } else {
+                    AmoCatalogMirror.Load changed = loadCatalogPages(catalogId, snapshot.maxUpdatedAt());
+                    catalogMirror.merge(catalogId, changed.elements(), changed.maxUpdatedAt());
+                    if (!changed.elements().isEmpty()) {
+                        log.debug("Каталог {}: обновлено {} элементов", catalogId, changed.elements().size());
                     }
-                    AmoProduct product = new AmoProduct();
-                    product.setId(element.get("id").getAsLong());
-                    product.setName(element.has("name") && !element.get("name").isJsonNull()
-                            ? element.get("name").getAsString() : null);
-                    product.setCatalogId(catalogId);
-                    products.add(product);
                 }
-                if (elements.size() < limit) {
-                    break; // последняя страница
+            } catch (Exception e) {
+                log.warn("Каталог {}: не удалось обновить копию: {}", catalogId, e.getMessage());
+            }
+        }
+    }
+
+    private void reloadCatalog(Long catalogId) {
+        Instant startedAt = Instant.now();
+        AmoCatalogMirror.Load load = loadCatalogPages(catalogId, null);
+        catalogMirror.replace(catalogId, load, startedAt);
+        log.info("Каталог {}: загружено {} элементов", catalogId, load.elements().size());
+    }
+
+    /**
+     * Постраничная выгрузка каталога. Ошибка запроса пробрасывается — частичный результат
+     * не должен заменить копию каталога.
+     *
+     * @param updatedFrom null — весь каталог, иначе только элементы с {@code updated_at >= updatedFrom}
+     */
+    private AmoCatalogMirror.Load loadCatalogPages(Long catalogId, Long updatedFrom) {
+        List<AmoProduct> products = new ArrayList<>();
+        long maxUpdatedAt = updatedFrom != null ? updatedFrom : 0;
+        for (int page = 1; page <= 100; page++) { // страховочный потолок 25000 товаров
+            String url = "/api/v4/catalogs/" + catalogId + "/elements?limit=" + AMO_PAGE_LIMIT + "&page=" + page
+                    + (updatedFrom != null ? "&filter[updated_at][from]=" + updatedFrom : "");
+            List<AmoResponses.CatalogElement> elements = fetchCatalogPage(url);
+            if (elements.isEmpty()) {
+                break;
+            }
+            for (AmoResponses.CatalogElement element : elements) {
+                AmoProduct product = toProduct(element, catalogId);
+                if (product == null) {
+                    continue;
+                }
+                products.add(product);
+                if (element.updatedAt != null) {
+                    maxUpdatedAt = Math.max(maxUpdatedAt, element.updatedAt);
                 }
             }
-            return products;
-        } catch (Exception e) {
-            log.error("Failed to get catalog {} elements", catalogId, e);
-            return products;
+            if (elements.size() < AMO_PAGE_LIMIT) {
+                break; // последняя страница
+            }
+        }
+        return new AmoCatalogMirror.Load(products, maxUpdatedAt);
+    }
+
+    private List<AmoResponses.CatalogElement> fetchCatalogPage(String url) {
+        return catalogPage(url).block();
+    }
+
+    /** {@code _embedded.elements} страницы каталога; пустой ответ (amo отдаёт 204, когда элементов нет) — пустой список. */
+    private Mono<List<AmoResponses.CatalogElement>> catalogPage(String url) {
+        return body(webClient.get()
+                .uri(url)
+                .header("Authorization", "Bearer " + accessToken)
+                .retrieve(), AmoResponses.Page.class)
+                .<List<AmoResponses.CatalogElement>>mapNotNull(page -> page.embedded != null ? page.embedded.elements : null)
+                .defaultIfEmpty(List.of());
+    }
+
+    private static AmoProduct toProduct(AmoResponses.CatalogElement element, Long catalogId) {
+        if (element == null || element.id == null) {
+            return null;
         }
+        AmoProduct product = new AmoProduct();
+        product.setId(element.id);
+        product.setName(element.name);
+        product.setCatalogId(catalogId);
+        return product;
     }
 
     @Override
@@ -898,36 +995,13 @@ class AmoCrmHttpGateway implements AmoCrmGateway {
                     + "&filter[closed_at][to]=" + closedTo
                     + "&limit=" + 50;
 
-            String response = webClient.get()
+            List<Long> result = body(webClient.get()
                     .uri(url)
                     .header("Authorization", "Bearer " + accessToken)
-                    .retrieve()
-                    .bodyToMono(String.class)
+                    .retrieve(), AmoLeadIdReader::readFrom)
                     .block();
 
-            List<Long> result = new java.util.ArrayList<>();
-
-            if (response == null || response.isEmpty()) {
-                return result;
-            }
-
-            JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-
-            if (json.has("_embedded")) {
-                JsonObject embedded = json.getAsJsonObject("_embedded");
-                if (embedded.has("leads")) {
-                    JsonArray leads = embedded.getAsJsonArray("leads");
-
-                    for (int i = 0; i < leads.size(); i++) {
-                        JsonObject lead = leads.get(i).getAsJsonObject();
-                        if (lead.has("id") && !lead.get("id").isJsonNull()) {
-                            result.add(lead.get("id").getAsLong());
-                        }
-                    }
-                }
-            }
-
-            return result;
+            return result != null ? result : new ArrayList<>();
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to get lead IDs", e);
@@ -938,61 +1012,59 @@ class AmoCrmHttpGateway implements AmoCrmGateway {
     private static final int AMO_PAGE_LIMIT = 250;
     /** Предохранитель от бесконечного цикла: 200 страниц = до 50 000 лидов. */
     private static final int MAX_PAGES = 200;
+    /** Сколько страниц лидов одновременно в полёте при обходе статуса. */
+    private static final int PAGE_PREFETCH = 2;
+    private static final int PAGE_RETRIES = 2;
+    private static final Duration PAGE_RETRY_BACKOFF = Duration.ofSeconds(1);
+    /** Сколько {@link #flushLeadWrites} ждёт PATCH, уже отправленный плановой пачкой (таймаут ответа amo — 30 с). */
+    private static final Duration LEAD_WRITE_AWAIT = Duration.ofSeconds(35);
 
     @Override
     public List<Long> getLeadIdsByStatus(Long pipelineId, Long statusId) {
+        // лид, сдвинутый между страницами на позицию следующей, пришёл бы дважды
+        List<Long> result = leadIdsByStatus(pipelineId, statusId).distinct().collectList().block();
+        log.info("getLeadIdsByStatus: pipeline={}, status={} -> {} lead(s)", pipelineId, statusId, result.size());
+        return result;
+    }
+
+    @Override
+    public Flux<Long> leadIdsByStatus(Long pipelineId, Long statusId) {
+        // Страница N+1 запрашивается, пока потребитель разбирает страницу N (PAGE_PREFETCH в полёте).
+        // Неполная страница — последняя: takeUntil отменяет остальное, лишним бывает максимум один запрос.
+        // concatMapIterable(.., 1) не забегает вперёд, поэтому в памяти не больше пары страниц.
+        return Flux.range(1, MAX_PAGES)
+                .flatMapSequential(page -> leadIdPage(pipelineId, statusId, page), PAGE_PREFETCH, 1)
+                .takeUntil(ids -> ids.size() < AMO_PAGE_LIMIT)
+                .concatMapIterable(ids -> ids, 1);
+    }
+
+    /**
+     * Одна страница лидов в статусе, по возрастанию ID. Сбой запроса повторяется
+     * ({@link #PAGE_RETRIES} раз, каждый повтор снова проходит лимитер), затем ошибка уходит
+     * потребителю: пустая страница молча оборвала бы обход воронки.
+     */
+    private Mono<List<Long>> leadIdPage(Long pipelineId, Long statusId, int page) {
         // amoCRM фильтрует по статусу ТОЛЬКО через массив filter[statuses][N][...].
         // Плоский filter[status_id] не работает (возвращает пусто).
-        // Пагинация: limit=250 (максимум amo), идём по page=1..N, пока страницы заполнены.
-        List<Long> result = new java.util.ArrayList<>();
-        for (int page = 1; page <= MAX_PAGES; page++) {
-            try {
-                String url = "/api/v4/leads"
-                        + "?filter[statuses][0][pipeline_id]=" + pipelineId
-                        + "&filter[statuses][0][status_id]=" + statusId
-                        + "&page=" + page
-                        + "&limit=" + AMO_PAGE_LIMIT;
-
-                String response = webClient.get()
-                        .uri(url)
-                        .header("Authorization", "Bearer " + accessToken)
-                        .retrieve()
-                        .bodyToMono(String.class)
-                        .block();
-
+        String url = "/api/v4/leads"
+                + "?filter[statuses][0][pipeline_id]=" + pipelineId
+                + "&filter[statuses][0][status_id]=" + statusId
+                + "&order[id]=asc"
+                + "&page=" + page
+                + "&limit=" + AMO_PAGE_LIMIT;
+
+        return body(webClient.get()
+                .uri(url)
+                .header("Authorization", "Bearer " + accessToken)
+                .retrieve(), AmoLeadIdReader::readFrom)
                 // amo отдаёт 204/пустое тело, когда страниц больше нет.
-                if (response == null || response.isEmpty()) {
-                    break;
-                }
-
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-                if (!json.has("_embedded")) {
-                    break;
-                }
-                JsonArray leads = json.getAsJsonObject("_embedded").getAsJsonArray("leads");
-                if (leads == null || leads.isEmpty()) {
-                    break;
-                }
-
-                for (int i = 0; i < leads.size(); i++) {
-                    JsonObject lead = leads.get(i).getAsJsonObject();
-                    if (lead.has("id") && !lead.get("id").isJsonNull()) {
-                        result.add(lead.get("id").getAsLong());
-                    }
-                }
-
-                // Неполная страница — значит последняя.
-                if (leads.size() < AMO_PAGE_LIMIT) {
-                    break;
-                }
-            } catch (Exception e) {
-                log.error("Failed to get leads by status: pipeline={}, status={}, page={}",
-                        pipelineId, statusId, page, e);
-                break;
-            }
-        }
-        log.info("getLeadIdsByStatus: pipeline={}, status={} -> {} lead(s)", pipelineId, statusId, result.size());
-        return result;
+                .defaultIfEmpty(List.of())
+                .retryWhen(Retry.backoff(PAGE_RETRIES, PAGE_RETRY_BACKOFF)
+                        .doBeforeRetry(signal -> log.warn("Leads by status page {} failed (pipeline={}, status={}), retry {}: {}",
+                                page, pipelineId, statusId, signal.totalRetries() + 1, signal.failure().getMessage()))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .onErrorMap(e -> new IllegalStateException("Failed to get leads by status: pipeline=" + pipelineId
+                        + ", status=" + statusId + ", page=" + page, e));
     }
 
     @Override
@@ -1123,8 +1195,17 @@ class AmoCrmHttpGateway implements AmoCrmGateway {
 
     @Override
     public Long findContactIdByQuery(String query) {
+        return contactCache.findContactId(query, this::searchContactId);
+    }
+
+    @Override
+    public void invalidateContact(Long contactId) {
+        contactCache.invalidate(contactId);
+    }
+
+    private Long searchContactId(String query) {
         try {
-            String response = webClient.get()
+            AmoResponses.Page page = body(webClient.get()
                     .uri(uriBuilder -> uriBuilder.path("/api/v4/contacts")
                             .queryParam("query", "{query}")
                             .queryParam("limit", 1)
@@ -1134,27 +1215,15 @@ class AmoCrmHttpGateway implements AmoCrmGateway {
                     .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
                             clientResponse -> clientResponse.bodyToMono(String.class)
                                     .flatMap(body -> Mono.error(new RuntimeException(
-                                            "AmoCRM contacts API " + clientResponse.statusCode() + ": " + body))))
-                    .bodyToMono(String.class)
+                                            "AmoCRM contacts API " + clientResponse.statusCode() + ": " + body)))),
+                            AmoResponses.Page.class)
                     .block();
 
-            if (response == null || response.isEmpty()) {
-                return null;
-            }
-
-            JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-            if (!json.has("_embedded")) {
-                return null;
-            }
-            JsonArray contacts = json.getAsJsonObject("_embedded").getAsJsonArray("contacts");
-            if (contacts == null || contacts.isEmpty()) {
+            if (page == null || page.embedded == null || page.embedded.contacts == null
+                    || page.embedded.contacts.isEmpty()) {
                 return null;
             }
-            JsonObject found = contacts.get(0).getAsJsonObject();
-            if (found.has("id") && !found.get("id").isJsonNull()) {
-                return found.get("id").getAsLong();
-            }
-            return null;
+            return page.embedded.contacts.get(0).getId();
         } catch (Exception e) {
             log.error("Failed to find contact by query in amoCRM", e);
             throw new RuntimeException("Failed to find contact in amoCRM", e);
@@ -1164,34 +1233,18 @@ class AmoCrmHttpGateway implements AmoCrmGateway {
     @Override
     public List<Long> getLeadIdsByContact(Long contactId) {
         try {
-            String response = webClient.get()
+            List<Long> leadIds = body(webClient.get()
                     .uri("/api/v4/contacts/" + contactId + "?with=leads")
                     .header("Authorization", "Bearer " + accessToken)
                     .retrieve()
                     .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
                             clientResponse -> clientResponse.bodyToMono(String.class)
                                     .flatMap(body -> Mono.error(new RuntimeException(
-                                            "AmoCRM contacts API " + clientResponse.statusCode() + ": " + body))))
-                    .bodyToMono(String.class)
+                                            "AmoCRM contacts API " + clientResponse.statusCode() + ": " + body)))),
+                            AmoLeadIdReader::readFrom)
                     .block();
 
-            if (response == null || response.isEmpty()) {
-                return List.of();
-            }
-
-            JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-            if (!json.has("_embedded") || !json.getAsJsonObject("_embedded").has("leads")) {
-                return List.of();
-            }
-            JsonArray leads = json.getAsJsonObject("_embedded").getAsJsonArray("leads");
-            List<Long> result = new java.util.ArrayList<>();
-            for (int i = 0; i < leads.size(); i++) {
-                JsonObject lead = leads.get(i).getAsJsonObject();
-                if (lead.has("id") && !lead.get("id").isJsonNull()) {
-                    result.add(lead.get("id").getAsLong());
-                }
-            }
-            return result;
+            return leadIds != null ? leadIds : List.of();
         } catch (Exception e) {
             log.error("Failed to get leads of contact {} from amoCRM", contactId, e);
             throw new RuntimeException("Failed to get leads of contact from amoCRM", e);
@@ -1200,63 +1253,204 @@ class AmoCrmHttpGateway implements AmoCrmGateway {
 
     @Override
     public boolean addTagToLead(Long leadId, String tagName) {
-        try {
-            String response = webClient.get()
-                    .uri("/api/v4/leads/" + leadId)
-                    .header("Authorization", "Bearer " + accessToken)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
+        AmoLeadWriteBuffer.Mutation mutation = new AmoLeadWriteBuffer.Mutation(leadId);
+        mutation.tagsToAdd.add(tagName);
+        return enqueueLeadWrite(mutation);
+    }
 
-            JsonArray tags = new JsonArray();
-            if (response != null && !response.isEmpty()) {
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-                if (json.has("_embedded") && json.getAsJsonObject("_embedded").has("tags")) {
-                    JsonArray currentTags = json.getAsJsonObject("_embedded").getAsJsonArray("tags");
-                    for (int i = 0; i < currentTags.size(); i++) {
-                        JsonObject currentTag = currentTags.get(i).getAsJsonObject();
-                        if (currentTag.has("name") && tagName.equals(currentTag.get("name").getAsString())) {
-                            return true;
-                        }
-                        JsonObject keptTag = new JsonObject();
-                        keptTag.addProperty("id", currentTag.get("id").getAsLong());
-                        tags.add(keptTag);
-                    }
-                }
-            }
+    @Override
+    public boolean flushLeadWrites(Long leadId) {
+        // Правки могла уже забрать плановая пачка: без ожидания вернули бы true, не зная исхода,
+        // а новый PATCH мог бы обогнать ещё не дошедший старый. Неудачная пачка вернёт правки в очередь —
+        // их заберёт drain ниже.
+        boolean delivered = awaitLeadWrites(leadId, leadWrites.sending(leadId));
+        AmoLeadWriteBuffer.Mutation mutation = leadWrites.drain(leadId);
+        if (mutation == null) {
+            // Пусто или правки между ожиданием и drain забрала другая отправка — дожидаемся и её
+            return awaitLeadWrites(leadId, leadWrites.sending(leadId)) && delivered;
+        }
+        return sendLeadWrite(mutation) && delivered;
+    }
 
-            JsonObject newTag = new JsonObject();
-            newTag.addProperty("name", tagName);
-            tags.add(newTag);
+    /** @return false, если часть правок выброшена после всех попыток или исход не дождались */
+    private boolean awaitLeadWrites(Long leadId, List<AmoLeadWriteBuffer.Mutation> sending) {
+        boolean delivered = true;
+        for (AmoLeadWriteBuffer.Mutation mutation : sending) {
+            try {
+                mutation.attempt.get(LEAD_WRITE_AWAIT.toMillis(), TimeUnit.MILLISECONDS);
+                delivered &= !mutation.dropped;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("Lead {} writes in flight did not finish in {} s", leadId, LEAD_WRITE_AWAIT.toSeconds());
+                return false;
+            }
+        }
+        return delivered;
+    }
 
-            JsonObject embedded = new JsonObject();
-            embedded.add("tags", tags);
+    /**
+     * Отправляет накопленные правки сделок пачками по {@code amocrm.lead-write-buffer.max-leads}.
+     * Число пачек ограничено тем, что лежало в буфере на старте: вернувшиеся после ошибки правки
+     * ждут следующего запуска.
+     */
+    @Scheduled(fixedDelayString = "${amocrm.lead-write-buffer.flush-ms:300}")
+    public void flushLeadWritesOnSchedule() {
+        int batches = (leadWrites.size() + leadWriteBatchSize - 1) / leadWriteBatchSize;
+        for (int i = 0; i < batches; i++) {
+            List<AmoLeadWriteBuffer.Mutation> batch = leadWrites.drain(leadWriteBatchSize);
+            if (batch.isEmpty()) {
+                return;
+            }
+            sendLeadWrites(batch);
+        }
+    }
 
-            JsonObject leadUpdate = new JsonObject();
-            leadUpdate.addProperty("id", leadId);
-            leadUpdate.add("_embedded", embedded);
+    @PreDestroy
+    void flushLeadWritesOnShutdown() {
+        while (leadWrites.size() > 0) {
+            List<AmoLeadWriteBuffer.Mutation> batch = leadWrites.drain(leadWriteBatchSize);
+            if (batch.isEmpty()) {
+                log.error("Lead writes lost on shutdown: {} lead(s) still waiting for writes in flight", leadWrites.size());
+                return;
+            }
+            try {
+                patchLeads(batch);
+                batch.forEach(leadWrites::complete);
+            } catch (Exception e) {
+                log.error("Lead writes lost on shutdown for leads {}", batch.stream().map(m -> m.leadId).toList(), e);
+                batch.forEach(leadWrites::drop);
+            }
+        }
+    }
 
-            JsonArray requestBody = new JsonArray();
-            requestBody.add(leadUpdate);
+    private boolean enqueueLeadWrite(AmoLeadWriteBuffer.Mutation mutation) {
+        if (mutation.leadId == null) {
+            log.error("Lead ID is null, write skipped");
+            return false;
+        }
+        leadWrites.put(mutation);
+        if (!leadWriteBufferEnabled) {
+            return flushLeadWrites(mutation.leadId);
+        }
+        if (leadWrites.size() >= leadWriteBatchSize) {
+            sendLeadWrites(leadWrites.drain(leadWriteBatchSize));
+        }
+        return true;
+    }
 
-            webClient.patch()
-                    .uri("/api/v4/leads")
-                    .header("Authorization", "Bearer " + accessToken)
-                    .bodyValue(requestBody.toString())
-                    .retrieve()
-                    .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
-                            clientResponse -> clientResponse.bodyToMono(String.class)
-                                    .flatMap(body -> Mono.error(new RuntimeException(
-                                            "AmoCRM leads API " + clientResponse.statusCode() + ": " + body))))
-                    .bodyToMono(String.class)
-                    .block();
+    /**
+     * Пачка уходит одним PATCH. Если amo отверг её целиком (4xx), виновата обычно одна сделка —
+     * отправляем по одной, чтобы остальные не ждали.
+     */
+    private void sendLeadWrites(List<AmoLeadWriteBuffer.Mutation> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            patchLeads(batch);
+            batch.forEach(leadWrites::complete);
+            log.info("Flushed writes for {} lead(s) to amoCRM", batch.size());
+        } catch (WebClientResponseException e) {
+            if (batch.size() > 1 && e.getStatusCode().is4xxClientError()) {
+                batch.forEach(this::sendLeadWrite);
+            } else {
+                log.error("amoCRM PATCH leads failed: status={}, response={}", e.getStatusCode(), e.getResponseBodyAsString());
+                batch.forEach(this::failLeadWrite);
+            }
+        } catch (Exception e) {
+            log.error("amoCRM PATCH leads failed for {} lead(s)", batch.size(), e);
+            batch.forEach(this::failLeadWrite);
+        }
+    }
 
-            log.info("Added tag '{}' to lead {}", tagName, leadId);
+    private boolean sendLeadWrite(AmoLeadWriteBuffer.Mutation mutation) {
+        try {
+            patchLeads(List.of(mutation));
+            leadWrites.complete(mutation);
+            log.info("Successfully updated lead {}", mutation.leadId);
             return true;
+        } catch (WebClientResponseException e) {
+            log.error("amoCRM PATCH lead {} failed: status={}, response={}",
+                    mutation.leadId, e.getStatusCode(), e.getResponseBodyAsString());
         } catch (Exception e) {
-            log.error("Failed to add tag '{}' to lead {}", tagName, leadId, e);
-            return false;
+            log.error("Failed to update lead {} in amoCRM", mutation.leadId, e);
+        }
+        failLeadWrite(mutation);
+        return false;
+    }
+
+    private void failLeadWrite(AmoLeadWriteBuffer.Mutation mutation) {
+        if (mutation.failures + 1 >= leadWriteMaxAttempts) {
+            leadWrites.drop(mutation);
+            log.error("Dropping lead {} writes after {} failed attempts: {}",
+                    mutation.leadId, leadWriteMaxAttempts, leadPatch(mutation));
+            return;
+        }
+        leadWrites.restore(mutation);
+    }
+
+    private void patchLeads(List<AmoLeadWriteBuffer.Mutation> batch) {
+        JsonArray leadsArray = new JsonArray();
+        for (AmoLeadWriteBuffer.Mutation mutation : batch) {
+            leadsArray.add(leadPatch(mutation));
+        }
+        webClient.patch()
+                .uri("/api/v4/leads")
+                .header("Authorization", "Bearer " + accessToken)
+                .bodyValue(leadsArray.toString())
+                .retrieve()
+                .bodyToMono(String.class)
+                .block();
+    }
+
+    private static JsonObject leadPatch(AmoLeadWriteBuffer.Mutation mutation) {
+        JsonObject leadUpdate = new JsonObject();
+        leadUpdate.addProperty("id", mutation.leadId);
+        if (mutation.price != null) {
+            leadUpdate.addProperty("price", mutation.price);
+        }
+        if (mutation.statusId != null) {
+            leadUpdate.addProperty("status_id", mutation.statusId);
+        }
+        if (mutation.pipelineId != null) {
+            leadUpdate.addProperty("pipeline_id", mutation.pipelineId);
+        }
+        if (mutation.responsibleUserId != null) {
+            leadUpdate.addProperty("responsible_user_id", mutation.responsibleUserId);
+        }
+        if (!mutation.customFields.isEmpty()) {
+            JsonArray customFieldsArray = new JsonArray();
+            for (Map.Entry<Long, Object> entry : mutation.customFields.entrySet()) {
+                JsonObject customField = new JsonObject();
+                customField.addProperty("field_id", entry.getKey());
+
+                JsonArray valuesArray = new JsonArray();
+                JsonObject fieldValue = new JsonObject();
+                if (entry.getValue() instanceof Number number) {
+                    fieldValue.addProperty("value", number);
+                } else {
+                    fieldValue.addProperty("value", entry.getValue() != null ? String.valueOf(entry.getValue()) : null);
+                }
+                valuesArray.add(fieldValue);
+
+                customField.add("values", valuesArray);
+                customFieldsArray.add(customField);
+            }
+            leadUpdate.add("custom_fields_values", customFieldsArray);
+        }
+        if (!mutation.tagsToAdd.isEmpty()) {
+            // tags_to_add дописывает теги к текущим — читать сделку ради списка тегов не нужно
+            JsonArray tags = new JsonArray();
+            for (String tagName : mutation.tagsToAdd) {
+                JsonObject tag = new JsonObject();
+                tag.addProperty("name", tagName);
+                tags.add(tag);
+            }
+            leadUpdate.add("tags_to_add", tags);
         }
+        return leadUpdate;
     }
 
     private JsonObject newLeadJson(String leadName, Long pipelineId, Long statusId,
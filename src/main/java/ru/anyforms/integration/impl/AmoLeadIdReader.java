@@ -0,0 +1,98 @@
+package ru.anyforms.integration.impl;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковое чтение {@code _embedded.leads[].id} из страницы {@code /api/v4/leads}
+ * (или из контакта, запрошенного с {@code with=leads}).
+ * <p>
+ * Дерево {@code JsonObject} не строится: {@link JsonReader} идёт по токенам и пропускает
+ * всё, кроме {@code id} (custom_fields_values, теги и прочее не материализуются).
+ */
+final class AmoLeadIdReader {
+
+    private AmoLeadIdReader() {
+    }
+
+    /**
+     * @param body тело ответа amo (может быть пустым — amo отдаёт 204, когда страниц больше нет)
+     * @return ID лидов страницы в порядке выдачи amo
+     * @throws JsonParseException если тело не JSON
+     */
+    static List<Long> read(String body) {
+        if (body == null || body.isBlank()) {
+            return new ArrayList<>();
+        }
+        return readFrom(new StringReader(body));
+    }
+
+    /**
+     * То же, но прямо из потока тела ответа (см. {@link AmoResponses#decode}).
+     * Пустой поток — пустой список.
+     */
+    static List<Long> readFrom(Reader body) {
+        List<Long> ids = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(body)) {
+            if (reader.peek() == JsonToken.END_DOCUMENT) {
+                return ids;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("_embedded".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    readEmbedded(reader, ids);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException e) {
+            throw new JsonParseException("Malformed amoCRM leads page", e);
+        }
+        return ids;
+    }
+
+    private static void readEmbedded(JsonReader reader, List<Long> ids) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("leads".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Long id = readLeadId(reader);
+                    if (id != null) {
+                        ids.add(id);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static Long readLeadId(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        Long id = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("id".equals(reader.nextName()) && reader.peek() == JsonToken.NUMBER) {
+                id = reader.nextLong();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return id;
+    }
+}
@@ -0,0 +1,215 @@
+package ru.anyforms.integration.impl;
+
+import ru.anyforms.model.amo.AmoLead;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Буфер отложенных правок сделок amo.
+ * <p>
+ * Правки одной сделки (кастомные поля, бюджет, статус/воронка/ответственный, теги) до сброса
+ * сливаются в одну {@link Mutation}: поле перезаписывается последним значением, теги копятся.
+ * {@link #drain} забирает до {@code limit} сделок для одного {@code PATCH /api/v4/leads}; пока запрос
+ * в полёте, правки числятся «в отправке» и по-прежнему видны через {@link #overlay}, чтобы чтение
+ * сделки сразу после записи не вернуло старые значения. У сделки в полёте не больше одной правки:
+ * новые ждут исхода, иначе {@link #restore} старой неудачной отправки перетёр бы уже принятые amo значения. Исход отправки виден через {@link Mutation#attempt}:
+ * {@link #sending} отдаёт правки сделки, которые уже в полёте, — их можно дождаться.
+ */
+final class AmoLeadWriteBuffer {
+
+    /** Накопленные правки одной сделки. Поля со значением null не меняются. */
+    static final class Mutation {
+        final Long leadId;
+        Long price;
+        Long statusId;
+        Long pipelineId;
+        Long responsibleUserId;
+        final Map<Long, Object> customFields = new LinkedHashMap<>();
+        final Set<String> tagsToAdd = new LinkedHashSet<>();
+        /** Сколько раз отправка уже не удалась. */
+        int failures;
+        /** Текущая отправка: завершается при {@link #complete}, {@link #restore} или {@link #drop}. */
+        CompletableFuture<Void> attempt = new CompletableFuture<>();
+        /** Правки выброшены после {@code max-attempts} неудач; читать после завершения {@link #attempt}. */
+        boolean dropped;
+
+        Mutation(Long leadId) {
+            this.leadId = leadId;
+        }
+
+        /** Накладывает более позднюю правку {@code newer} поверх этой. */
+        void merge(Mutation newer) {
+            if (newer.price != null) {
+                price = newer.price;
+            }
+            if (newer.statusId != null) {
+                statusId = newer.statusId;
+            }
+            if (newer.pipelineId != null) {
+                pipelineId = newer.pipelineId;
+            }
+            if (newer.responsibleUserId != null) {
+                responsibleUserId = newer.responsibleUserId;
+            }
+            customFields.putAll(newer.customFields);
+            tagsToAdd.addAll(newer.tagsToAdd);
+        }
+    }
+
+    private final Map<Long, Mutation> pending = new LinkedHashMap<>();
+    private final Map<Long, List<Mutation>> inFlight = new HashMap<>();
+
+    synchronized void put(Mutation mutation) {
+        Mutation existing = pending.get(mutation.leadId);
+        if (existing == null) {
+            pending.put(mutation.leadId, mutation);
+        } else {
+            existing.merge(mutation);
+        }
+    }
+
+    /** Сколько сделок ждёт отправки. */
+    synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Забирает до {@code limit} сделок в порядке первой правки; они считаются «в отправке»
+     * до {@link #complete}, {@link #restore} или {@link #drop}. Сделки, чьи правки уже в полёте, остаются в очереди.
+     */
+    synchronized List<Mutation> drain(int limit) {
+        List<Mutation> batch = new ArrayList<>(Math.min(limit, pending.size()));
+        Iterator<Mutation> it = pending.values().iterator();
+        while (it.hasNext() && batch.size() < limit) {
+            Mutation mutation = it.next();
+            if (inFlight.containsKey(mutation.leadId)) {
+                continue;
+            }
+            it.remove();
+            markInFlight(mutation);
+            batch.add(mutation);
+        }
+        return batch;
+    }
+
+    /** Забирает правки одной сделки (для синхронной отправки), null — правок нет или прежние ещё в полёте. */
+    synchronized Mutation drain(Long leadId) {
+        if (inFlight.containsKey(leadId)) {
+            return null;
+        }
+        Mutation mutation = pending.remove(leadId);
+        if (mutation != null) {
+            markInFlight(mutation);
+        }
+        return mutation;
+    }
+
+    /** Правки сделки, которые сейчас отправляются (например, плановой пачкой); пусто — в полёте ничего. */
+    synchronized List<Mutation> sending(Long leadId) {
+        List<Mutation> sent = inFlight.get(leadId);
+        return sent != null ? List.copyOf(sent) : List.of();
+    }
+
+    /** Отправка прошла: amo уже отдаёт новые значения сам. */
+    synchronized void complete(Mutation mutation) {
+        removeInFlight(mutation);
+        mutation.attempt.complete(null);
+    }
+
+    /** Отправка не удалась окончательно — правки выброшены. */
+    synchronized void drop(Mutation mutation) {
+        removeInFlight(mutation);
+        mutation.dropped = true;
+        mutation.attempt.complete(null);
+    }
+
+    /**
+     * Отправка не удалась — правка возвращается в очередь под более свежими правками той же сделки,
+     * сделанными за время отправки.
+     */
+    synchronized void restore(Mutation mutation) {
+        removeInFlight(mutation);
+        mutation.failures++;
+        Mutation newer = pending.remove(mutation.leadId);
+        if (newer != null) {
+            mutation.merge(newer);
+        }
+        pending.put(mutation.leadId, mutation);
+        mutation.attempt.complete(null);
+    }
+
+    /**
+     * Накладывает ещё не подтверждённые amo правки на прочитанную сделку (read-your-writes).
+     * Теги в {@link AmoLead} не читаются и не накладываются.
+     */
+    synchronized AmoLead overlay(AmoLead lead) {
+        if (lead == null || lead.getId() == null) {
+            return lead;
+        }
+        List<Mutation> sent = inFlight.get(lead.getId());
+        if (sent != null) {
+            sent.forEach(m -> apply(lead, m));
+        }
+        Mutation queued = pending.get(lead.getId());
+        if (queued != null) {
+            apply(lead, queued);
+        }
+        return lead;
+    }
+
+    private void markInFlight(Mutation mutation) {
+        if (mutation.attempt.isDone()) {
+            mutation.attempt = new CompletableFuture<>();
+        }
+        inFlight.computeIfAbsent(mutation.leadId, id -> new ArrayList<>(1)).add(mutation);
+    }
+
+    private void removeInFlight(Mutation mutation) {
+        List<Mutation> sent = inFlight.get(mutation.leadId);
+        if (sent != null) {
+            sent.remove(mutation);
+            if (sent.isEmpty()) {
+                inFlight.remove(mutation.leadId);
+            }
+        }
+    }
+
+    private static void apply(AmoLead lead, Mutation mutation) {
+        if (mutation.price != null) {
+            lead.setPrice(mutation.price);
+        }
+        if (mutation.statusId != null) {
+            lead.setStatusId(mutation.statusId);
+        }
+        if (mutation.pipelineId != null) {
+            lead.setPipelineId(mutation.pipelineId);
+        }
+        if (mutation.responsibleUserId != null) {
+            lead.setResponsibleUserId(mutation.responsibleUserId);
+        }
+        if (mutation.customFields.isEmpty()) {
+            return;
+        }
+        List<AmoLead.CustomField> fields = lead.getCustomFieldsValues() != null
+                ? new ArrayList<>(lead.getCustomFieldsValues())
+                : new ArrayList<>();
+        mutation.customFields.forEach((fieldId, value) -> {
+            fields.removeIf(f -> fieldId.equals(f.getFieldId()));
+            AmoLead.CustomField.Value fieldValue = new AmoLead.CustomField.Value();
+            fieldValue.setValue(value != null ? String.valueOf(value) : null);
+            AmoLead.CustomField field = new AmoLead.CustomField();
+            field.setFieldId(fieldId);
+            field.setValues(List.of(fieldValue));
+            fields.add(field);
+        });
+        lead.setCustomFieldsValues(fields);
+    }
+}
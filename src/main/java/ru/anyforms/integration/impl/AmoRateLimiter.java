@@ -0,0 +1,278 @@
+package ru.anyforms.integration.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import ru.anyforms.integration.AmoRequestLimiter;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Лимитер обращений к amoCRM по схеме token bucket. Подключается к {@code WebClient}
+ * {@link AmoCrmHttpGateway} (и устаревшего {@code AmoCrmService}) как {@link ExchangeFilterFunction},
+ * поэтому «платит» каждый реальный
+ * HTTP-запрос, включая составные вызовы ({@code getContactFromLead}, {@code getLeadProducts}).
+ * <p>
+ * Общий бакет: {@code amocrm.rate-limit.requests-per-second} (лимит amo — 7 req/s на интеграцию),
+ * ёмкость {@code amocrm.rate-limit.burst} — короткий всплеск проходит без ожидания. Всплеск не
+ * складывается с пополнением: каждый бакет ещё и держит скользящее окно, в любую секунду уходит не больше
+ * {@code requests-per-second} запросов, какой бы ни была ёмкость.
+ * Дополнительно можно задать бюджеты отдельных эндпоинтов
+ * ({@code amocrm.rate-limit.endpoint-budgets=/api/v2/salesbot=3,/api/v4/leads/complex=1}):
+ * запрос проходит по самому длинному подходящему префиксу пути, а затем — через общий бакет.
+ * <p>
+ * Ожидание не блокирует поток: слот резервируется под локом, а задержка — {@link Mono#delay}.
+ * На 429 общий бакет «замораживается» до {@code Retry-After}, и запрос повторяется
+ * (не больше {@link #MAX_TOO_MANY_REQUESTS_RETRIES} раз) — 429 означает, что amo запрос не выполнил.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "amocrm.enabled", havingValue = "true", matchIfMissing = true)
+class AmoRateLimiter implements AmoRequestLimiter {
+
+    static final int MAX_TOO_MANY_REQUESTS_RETRIES = 2;
+    /** Пауза на 429 без (или с нечитаемым) заголовком Retry-After. */
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final TokenBucket global;
+    /** Бюджеты эндпоинтов, отсортированы по убыванию длины префикса (побеждает самый точный). */
+    private final List<EndpointBudget> endpointBudgets;
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    AmoRateLimiter(@Value("${amocrm.rate-limit.requests-per-second}") double requestsPerSecond,
+                   @Value("${amocrm.rate-limit.burst}") int burst,
+                   @Value("${amocrm.rate-limit.endpoint-budgets:}") String endpointBudgets) {
+        this(requestsPerSecond, burst, endpointBudgets, System::nanoTime);
+    }
+
+    AmoRateLimiter(double requestsPerSecond, int burst, String endpointBudgets, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.global = new TokenBucket(requestsPerSecond, burst, nanoClock.getAsLong());
+        this.endpointBudgets = parseEndpointBudgets(endpointBudgets, nanoClock.getAsLong());
+    }
+
+    @Override
+    public ExchangeFilterFunction filter() {
+        return (request, next) -> exchange(request, next, 0);
+    }
+
+    private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, int attempt) {
+        return Mono.defer(() -> {
+                    Duration wait = reserve(request.url().getPath());
+                    Mono<ClientResponse> call = next.exchange(request);
+                    return wait.isZero() ? call : Mono.delay(wait).then(call);
+                })
+                .flatMap(response -> {
+                    if (response.statusCode().value() != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                        return Mono.just(response);
+                    }
+                    Duration pause = onTooManyRequests(response.headers().asHttpHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+                    if (attempt >= MAX_TOO_MANY_REQUESTS_RETRIES) {
+                        log.warn("amoCRM 429 on {} {}: retries exhausted", request.method(), request.url().getPath());
+                        return Mono.just(response);
+                    }
+                    log.warn("amoCRM 429 on {} {}: pausing all requests for {} ms, retry {}/{}",
+                            request.method(), request.url().getPath(), pause.toMillis(),
+                            attempt + 1, MAX_TOO_MANY_REQUESTS_RETRIES);
+                    return response.releaseBody().then(exchange(request, next, attempt + 1));
+                });
+    }
+
+    /**
+     * Резервирует слот под запрос к {@code path}: сначала в бюджете эндпоинта (если задан), затем
+     * в общем бакете не раньше, чем освободится эндпоинт.
+     *
+     * @return сколько подождать перед отправкой ({@link Duration#ZERO} — можно сразу)
+     */
+    Duration reserve(String path) {
+        long now = nanoClock.getAsLong();
+        long earliest = now;
+        TokenBucket endpoint = endpointBucketFor(path);
+        if (endpoint != null) {
+            earliest = endpoint.reserve(now, now);
+        }
+        long readyAt = global.reserve(now, earliest);
+        return readyAt > now ? Duration.ofNanos(readyAt - now) : Duration.ZERO;
+    }
+
+    /**
+     * Реакция на 429: ни один запрос не уйдёт раньше, чем через {@code Retry-After}
+     * (секунды или HTTP-дата), накопленный всплеск сгорает.
+     *
+     * @return пауза, которую выдержит лимитер
+     */
+    Duration onTooManyRequests(String retryAfter) {
+        Duration pause = parseRetryAfter(retryAfter);
+        long now = nanoClock.getAsLong();
+        global.blockUntil(now, now + pause.toNanos());
+        return pause;
+    }
+
+    private TokenBucket endpointBucketFor(String path) {
+        if (path == null) {
+            return null;
+        }
+        for (EndpointBudget budget : endpointBudgets) {
+            if (path.startsWith(budget.pathPrefix())) {
+                return budget.bucket();
+            }
+        }
+        return null;
+    }
+
+    static Duration parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return DEFAULT_RETRY_AFTER;
+        }
+        String value = retryAfter.trim();
+        try {
+            long seconds = Long.parseLong(value);
+            return seconds > 0 ? Duration.ofSeconds(seconds) : DEFAULT_RETRY_AFTER;
+        } catch (NumberFormatException ignored) {
+            // не число — значит HTTP-дата
+        }
+        try {
+            Duration untilDate = Duration.between(ZonedDateTime.now(),
+                    ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+            return untilDate.isNegative() || untilDate.isZero() ? DEFAULT_RETRY_AFTER : untilDate;
+        } catch (Exception e) {
+            log.debug("Unparseable Retry-After '{}', using default", value);
+            return DEFAULT_RETRY_AFTER;
+        }
+    }
+
+    private static List<EndpointBudget> parseEndpointBudgets(String raw, long nowNanos) {
+        List<EndpointBudget> budgets = new ArrayList<>();
+        if (raw == null || raw.isBlank()) {
+            return budgets;
+        }
+        for (String entry : raw.split(",")) {
+            String trimmed = entry.trim();
+            int eq = trimmed.lastIndexOf('=');
+            if (eq <= 0 || eq == trimmed.length() - 1) {
+                log.warn("Ignoring malformed amocrm.rate-limit.endpoint-budgets entry '{}'", trimmed);
+                continue;
+            }
+            double rps = Double.parseDouble(trimmed.substring(eq + 1).trim());
+            int burst = Math.max(1, (int) Math.ceil(rps));
+            budgets.add(new EndpointBudget(trimmed.substring(0, eq).trim(), new TokenBucket(rps, burst, nowNanos)));
+        }
+        budgets.sort(Comparator.comparingInt((EndpointBudget b) -> b.pathPrefix().length()).reversed());
+        return budgets;
+    }
+
+    private record EndpointBudget(String pathPrefix, TokenBucket bucket) {
+    }
+
+    /**
+     * Token bucket с резервированием «в долг»: жетоны могут уйти в минус, тогда запрос получает
+     * момент в будущем, когда долг погасится. Простаивающий бакет копит до {@code capacity} жетонов.
+     * <p>
+     * Поверх жетонов — скользящее окно: выданные моменты хранятся, и в любой интервал длиной
+     * в секунду попадает не больше {@code permitsPerSecond} (но хотя бы один) из них. Без окна
+     * после простоя за первую секунду ушло бы {@code capacity} + {@code permitsPerSecond} запросов.
+     */
+    static final class TokenBucket {
+
+        private static final long WINDOW_NANOS = 1_000_000_000L;
+
+        private final double intervalNanos;
+        private final double capacity;
+        private final int windowLimit;
+        /** Выданные моменты отправки не старше окна, по возрастанию. */
+        private final List<Long> slots = new ArrayList<>();
+
+        private double tokens;
+        private long refilledAtNanos;
+
+        TokenBucket(double permitsPerSecond, int capacity, long nowNanos) {
+            if (permitsPerSecond <= 0) {
+                throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+            }
+            this.intervalNanos = 1_000_000_000d / permitsPerSecond;
+            this.capacity = Math.max(1, capacity);
+            this.windowLimit = Math.max(1, (int) permitsPerSecond);
+            this.tokens = this.capacity;
+            this.refilledAtNanos = nowNanos;
+        }
+
+        /** @return момент (в нано), не раньше {@code earliestNanos}, когда запрос может уйти */
+        synchronized long reserve(long nowNanos, long earliestNanos) {
+            refill(nowNanos);
+            tokens -= 1;
+            long readyAt = tokens >= 0 ? nowNanos : nowNanos + (long) (-tokens * intervalNanos);
+            return takeSlot(nowNanos, Math.max(readyAt, earliestNanos));
+        }
+
+        /** Следующий запрос уйдёт не раньше {@code untilNanos}, дальше — с обычным интервалом. */
+        synchronized void blockUntil(long nowNanos, long untilNanos) {
+            refill(nowNanos);
+            tokens = Math.min(tokens, 1 - (untilNanos - nowNanos) / intervalNanos);
+        }
+
+        private void refill(long nowNanos) {
+            if (nowNanos > refilledAtNanos) {
+                tokens = Math.min(capacity, tokens + (nowNanos - refilledAtNanos) / intervalNanos);
+                refilledAtNanos = nowNanos;
+            }
+        }
+
+        /**
+         * Самый ранний момент не раньше {@code candidate}, при котором окно не переполнится, — сам
+         * {@code candidate} или секунда после одного из уже выданных слотов: только там окно освобождается.
+         */
+        private long takeSlot(long nowNanos, long candidate) {
+            while (!slots.isEmpty() && slots.get(0) <= nowNanos - WINDOW_NANOS) {
+                slots.remove(0);
+            }
+            long slot = candidate;
+            for (int i = 0; !fitsWindow(slot); i++) {
+                slot = Math.max(slot, slots.get(i) + WINDOW_NANOS);
+            }
+            int at = 0;
+            while (at < slots.size() && slots.get(at) <= slot) {
+                at++;
+            }
+            slots.add(at, slot);
+            return slot;
+        }
+
+        /** Ни одна секунда, содержащая {@code slot}, не получит больше {@link #windowLimit} запросов. */
+        private boolean fitsWindow(long slot) {
+            List<Long> near = new ArrayList<>();
+            for (Long s : slots) {
+                if (s > slot - WINDOW_NANOS && s < slot + WINDOW_NANOS) {
+                    near.add(s);
+                }
+            }
+            int at = 0;
+            while (at < near.size() && near.get(at) <= slot) {
+                at++;
+            }
+            near.add(at, slot);
+            // windowLimit + 1 подряд идущих моментов, включающих slot, должны растянуться на секунду
+            for (int from = Math.max(0, at - windowLimit); from <= at && from + windowLimit < near.size(); from++) {
+                if (near.get(from + windowLimit) - near.get(from) < WINDOW_NANOS) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.anyforms.integration.impl;
+
+import com.google.gson.annotations.SerializedName;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.anyforms.model.amo.AmoContact;
+import ru.anyforms.model.amo.AmoLead;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Типизированные ответы amo API и их декодирование прямо из байтов ответа.
+ * <p>
+ * Тело не превращается ни в {@code String}, ни в дерево {@code JsonObject}: буферы Netty склеиваются
+ * без копирования ({@link DataBufferUtils#join}), а Gson читает их потоком сразу в DTO, пропуская
+ * поля, которых в DTO нет. Конверты ниже описывают только то, что шлюз реально читает из
+ * {@code _embedded}.
+ */
+final class AmoResponses {
+
+    private AmoResponses() {
+    }
+
+    /** {@code _embedded} ответа amo: списки страницы или связанные сущности одной сделки/контакта. */
+    static final class Embedded {
+        List<AmoLead> leads;
+        List<AmoContact> contacts;
+        @SerializedName("catalog_elements")
+        List<LinkedCatalogElement> catalogElements;
+        List<CatalogElement> elements;
+    }
+
+    /** Страница списка ({@code /api/v4/leads}, {@code /api/v4/contacts}, элементы каталога). */
+    static final class Page {
+        @SerializedName("_embedded")
+        Embedded embedded;
+    }
+
+    /** Одна сделка; с {@code with=contacts,catalog_elements} — вместе со связями. */
+    static final class LeadResponse extends AmoLead {
+        @SerializedName("_embedded")
+        Embedded embedded;
+    }
+
+    static final class ContactResponse extends AmoContact {
+        @SerializedName("_embedded")
+        Embedded embedded;
+    }
+
+    /** Товар, привязанный к сделке: количество и каталог лежат в {@code metadata}. */
+    static final class LinkedCatalogElement {
+        Long id;
+        Metadata metadata;
+
+        static final class Metadata {
+            /** Number: amo может прислать дробное количество. */
+            Number quantity;
+            @SerializedName("catalog_id")
+            Long catalogId;
+        }
+    }
+
+    static final class CatalogElement {
+        Long id;
+        String name;
+        @SerializedName("updated_at")
+        Long updatedAt;
+    }
+
+    /**
+     * Склеивает тело ответа и отдаёт его {@code decoder} как поток символов; буферы освобождаются
+     * после разбора. Пустое тело (amo отдаёт 204, когда ничего не найдено) — пустой {@link Mono}.
+     *
+     * @param maxBytes предел размера тела, сверх него — {@code DataBufferLimitException}
+     */
+    static <T> Mono<T> decode(Flux<DataBuffer> body, int maxBytes, Function<Reader, T> decoder) {
+        return DataBufferUtils.join(body, maxBytes)
+                .mapNotNull(buffer -> {
+                    try (Reader reader = new InputStreamReader(buffer.asInputStream(true), StandardCharsets.UTF_8)) {
+                        return decoder.apply(reader);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+}
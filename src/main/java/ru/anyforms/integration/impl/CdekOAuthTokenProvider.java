@@ -0,0 +1,176 @@
+package ru.anyforms.integration.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import ru.anyforms.config.http.OutboundHttpClients;
+import ru.anyforms.integration.CdekTokenProvider;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Единственный держатель токена СДЭК.
+ * <p>
+ * Токен обновляется заранее: после {@code sdek.token.refresh-ratio} срока жизни (по умолчанию 80%)
+ * его обновляет фоновая проверка, а запрос, заставший «перезрелый» токен, получает его же и лишь
+ * запускает обновление. Ждут OAuth только запросы без действующего токена (старт, сбой СДЭК).
+ * Обновление одно на всех: параллельные вызовы ждут общий {@link CompletableFuture}.
+ */
+@Component
+class CdekOAuthTokenProvider implements CdekTokenProvider {
+    private static final Logger logger = LoggerFactory.getLogger(CdekOAuthTokenProvider.class);
+    private static final String CDEK_AUTH_URL = "https://api.cdek.ru/v2/oauth/token";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    /** Запас до фактического истечения: токен не отдаётся в последнюю минуту жизни. */
+    private static final long EXPIRY_MARGIN_SECONDS = 60;
+
+    record Token(String value, Instant refreshAfter, Instant expiresAt) {
+    }
+
+    /** Обновления идут по одному, поэтому хватает одного потока. */
+    private final Executor refresher = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("cdek-token-%d").setDaemon(true).build());
+
+    private final WebClient webClient;
+    private final Gson gson = new Gson();
+
+    @Value("${sdek.secret.key}")
+    private String sdekSecretKey;
+
+    @Value("${sdek.client.id}")
+    private String sdekClientId;
+
+    @Value("${sdek.token.refresh-ratio:0.8}")
+    private double refreshRatio;
+
+    private volatile Token current;
+    private final AtomicReference<CompletableFuture<Token>> inFlight = new AtomicReference<>();
+
+    CdekOAuthTokenProvider(OutboundHttpClients http) {
+        this.webClient = http.builder(OutboundHttpClients.CDEK)
+                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(10 * 1024 * 1024))
+                .build();
+    }
+
+    @Override
+    public String getAccessToken() {
+        Token token = current;
+        Instant now = Instant.now();
+        if (token != null && now.isBefore(token.expiresAt())) {
+            if (!now.isBefore(token.refreshAfter())) {
+                refreshAsync();
+            }
+            return token.value();
+        }
+        // Действующего токена нет — ждём общее обновление
+        try {
+            Token fresh = refreshAsync().get(REQUEST_TIMEOUT.toMillis() * 2, TimeUnit.MILLISECONDS);
+            return fresh != null ? fresh.value() : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            logger.error("Ошибка при получении токена доступа СДЭК: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Фоновое обновление: первый запуск сразу после старта (прогрев), дальше — проверка срока.
+     */
+    @Scheduled(fixedDelayString = "${sdek.token.check-ms:60000}")
+    public void refreshIfDue() {
+        Token token = current;
+        if (token == null || !Instant.now().isBefore(token.refreshAfter())) {
+            refreshAsync();
+        }
+    }
+
+    /**
+     * Запускает обновление, если оно ещё не идёт, и возвращает его результат
+     * ({@code null} внутри future — СДЭК не выдал токен).
+     */
+    private CompletableFuture<Token> refreshAsync() {
+        while (true) {
+            CompletableFuture<Token> running = inFlight.get();
+            if (running != null) {
+                return running;
+            }
+            CompletableFuture<Token> mine = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, mine)) {
+                CompletableFuture.supplyAsync(this::fetchToken, refresher)
+                        .whenComplete((token, error) -> {
+                            if (token != null) {
+                                current = token;
+                            }
+                            mine.complete(token);
+                            inFlight.compareAndSet(mine, null);
+                        });
+                return mine;
+            }
+        }
+    }
+
+    Token fetchToken() {
+        try {
+            // Если client_id не указан, используем secret.key как client_id (иногда это один и тот же ключ)
+            String clientId = (sdekClientId != null && !sdekClientId.isEmpty()) ? sdekClientId : sdekSecretKey;
+            String clientSecret = sdekSecretKey;
+
+            if (clientSecret == null || clientSecret.isEmpty()) {
+                logger.warn("Секретный ключ СДЭК не настроен");
+                return null;
+            }
+
+            String requestBody = String.format(
+                    "grant_type=client_credentials&client_id=%s&client_secret=%s",
+                    clientId, clientSecret
+            );
+
+            String response = webClient.post()
+                    .uri(CDEK_AUTH_URL)
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .timeout(REQUEST_TIMEOUT)
+                    .block();
+
+            if (response != null && !response.isEmpty()) {
+                JsonObject json = gson.fromJson(response, JsonObject.class);
+                if (json.has("access_token")) {
+                    // Получаем время жизни токена (обычно 3600 секунд)
+                    long expiresIn = json.has("expires_in") ? json.get("expires_in").getAsLong() : 3600;
+                    Token token = token(json.get("access_token").getAsString(), expiresIn, Instant.now());
+                    logger.debug("Токен доступа СДЭК обновлён, обновление после {}, действителен до {}",
+                            token.refreshAfter(), token.expiresAt());
+                    return token;
+                }
+                logger.error("Ошибка получения токена СДЭК: {}", response);
+            }
+        } catch (Exception e) {
+            logger.error("Ошибка при получении токена доступа СДЭК: {}", e.getMessage(), e);
+        }
+        return null;
+    }
+
+    Token token(String value, long expiresInSeconds, Instant issuedAt) {
+        long lifetime = Math.max(expiresInSeconds - EXPIRY_MARGIN_SECONDS, 1);
+        double ratio = refreshRatio > 0 && refreshRatio < 1 ? refreshRatio : 0.8;
+        return new Token(value,
+                issuedAt.plusSeconds((long) (lifetime * ratio)),
+                issuedAt.plusSeconds(lifetime));
+    }
+}
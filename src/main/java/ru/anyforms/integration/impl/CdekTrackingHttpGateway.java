@@ -1,40 +1,32 @@
 package ru.anyforms.integration.impl;
 
+import ru.anyforms.config.http.OutboundHttpClients;
+import ru.anyforms.integration.CdekTokenProvider;
 import ru.anyforms.integration.CdekTrackingGateway;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
-import java.time.Instant;
 
 @Component
 class CdekTrackingHttpGateway implements CdekTrackingGateway {
     private static final Logger logger = LoggerFactory.getLogger(CdekTrackingHttpGateway.class);
     private static final String CDEK_ORDERS_URL = "https://api.cdek.ru/v2/orders";
-    private static final String CDEK_AUTH_URL = "https://api.cdek.ru/v2/oauth/token";
     
     private final WebClient webClient;
     private final Gson gson;
     
-    @Value("${sdek.secret.key}")
-    private String sdekSecretKey;
-    
-    @Value("${sdek.client.id}")
-    private String sdekClientId;
-    
-    // Кэш для токена доступа
-    private String accessToken;
-    private Instant tokenExpiresAt;
+    private final CdekTokenProvider cdekTokenProvider;
 
-    public CdekTrackingHttpGateway() {
-        this.webClient = WebClient.builder()
+    public CdekTrackingHttpGateway(CdekTokenProvider cdekTokenProvider, OutboundHttpClients http) {
+        this.cdekTokenProvider = cdekTokenProvider;
+        this.webClient = http.builder(OutboundHttpClients.CDEK)
                 .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(10 * 1024 * 1024))
                 .build();
         this.gson = new Gson();
@@ -75,66 +67,7 @@ class CdekTrackingHttpGateway implements CdekTrackingGateway {
     
     @Override
     public String getAccessToken() {
-        // Проверяем, есть ли валидный токен в кэше
-        if (accessToken != null && tokenExpiresAt != null && Instant.now().isBefore(tokenExpiresAt)) {
-            return accessToken;
-        }
-        
-        try {
-            logger.debug("Получение токена доступа СДЭК через OAuth 2.0");
-            
-            // Если client_id не указан, используем secret.key как client_secret
-            // и пробуем использовать secret.key как client_id (иногда это один и тот же ключ)
-            String clientId = (sdekClientId != null && !sdekClientId.isEmpty()) 
-                    ? sdekClientId 
-                    : sdekSecretKey;
-            String clientSecret = sdekSecretKey;
-            
-            if (clientSecret == null || clientSecret.isEmpty()) {
-                logger.warn("Секретный ключ СДЭК не настроен");
-                return null;
-            }
-            
-            // Формируем тело запроса для OAuth
-            String requestBody = String.format(
-                    "grant_type=client_credentials&client_id=%s&client_secret=%s",
-                    clientId, clientSecret
-            );
-            
-            String response = webClient.post()
-                    .uri(CDEK_AUTH_URL)
-                    .header("Content-Type", "application/x-www-form-urlencoded")
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(Duration.ofSeconds(10))
-                    .block();
-            
-            if (response != null && !response.isEmpty()) {
-                JsonObject jsonResponse = gson.fromJson(response, JsonObject.class);
-                
-                if (jsonResponse.has("access_token")) {
-                    accessToken = jsonResponse.get("access_token").getAsString();
-                    
-                    // Получаем время истечения токена (обычно 3600 секунд)
-                    int expiresIn = jsonResponse.has("expires_in") 
-                            ? jsonResponse.get("expires_in").getAsInt() 
-                            : 3600;
-                    
-                    // Устанавливаем время истечения с запасом в 60 секунд
-                    tokenExpiresAt = Instant.now().plusSeconds(expiresIn - 60);
-                    
-                    logger.debug("Токен доступа СДЭК успешно получен, действителен до {}", tokenExpiresAt);
-                    return accessToken;
-                } else {
-                    logger.error("Ошибка получения токена СДЭК: {}", response);
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Ошибка при получении токена доступа СДЭК: {}", e.getMessage(), e);
-        }
-        
-        return null;
+        return cdekTokenProvider.getAccessToken();
     }
     
     /**
@@ -1,17 +1,21 @@
 package ru.anyforms.integration.impl;
 
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
 import ru.anyforms.integration.GoogleSheetsGateway;
 import ru.anyforms.util.sheets.GoogleSheetsColumnIndex;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.GoogleCredentials;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.googleapis.apache.v2.GoogleApacheHttpTransport;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.SheetsScopes;
+import com.google.api.services.sheets.v4.model.BatchUpdateValuesRequest;
 import com.google.api.services.sheets.v4.model.ValueRange;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.io.ByteArrayInputStream;
@@ -22,6 +26,16 @@ import java.security.GeneralSecurityException;
 import java.util.Collections;
 import java.util.List;
 
+/**
+ * Клиент {@link Sheets} создаётся один раз на весь сервис: транспорт с пулом keep-alive соединений
+ * и разобранные креды сервисного аккаунта переиспользуются (токен {@link GoogleCredentials}
+ * обновляет сам по истечении).
+ * <p>
+ * Записи через {@link #bufferCell} копятся в {@link SheetWriteBuffer} и уходят одним
+ * {@code values.batchUpdate}: по {@link #flushWrites()}, при наполнении буфера
+ * ({@code google.sheets.write-buffer.max-cells}) и по таймеру ({@code google.sheets.write-buffer.flush-ms}).
+ */
+@Log4j2
 @Component
 class GoogleSheetsApiGateway implements GoogleSheetsGateway {
     private static final String APPLICATION_NAME = "AmoCRM Webhook Service";
@@ -37,6 +51,14 @@ class GoogleSheetsApiGateway implements GoogleSheetsGateway {
     @Value("${google.sheets.credentials.json}")
     private String credentialsJson;
 
+    @Value("${google.sheets.write-buffer.max-cells:200}")
+    private int bufferMaxCells;
+
+    private final SheetWriteBuffer writeBuffer = new SheetWriteBuffer();
+
+    private volatile Sheets sheets;
+    private HttpTransport httpTransport;
+
     private GoogleCredentials getCredentials() throws IOException {
         InputStream credentialsStream = null;
         
@@ -57,11 +79,21 @@ class GoogleSheetsApiGateway implements GoogleSheetsGateway {
     }
 
     private Sheets getSheetsService() throws GeneralSecurityException, IOException {
-        final NetHttpTransport HTTP_TRANSPORT = GoogleNetHttpTransport.newTrustedTransport();
-        GoogleCredentials credentials = getCredentials();
-        return new Sheets.Builder(HTTP_TRANSPORT, JSON_FACTORY, new HttpCredentialsAdapter(credentials))
-                .setApplicationName(APPLICATION_NAME)
-                .build();
+        Sheets service = sheets;
+        if (service != null) {
+            return service;
+        }
+        synchronized (this) {
+            if (sheets == null) {
+                // Креды читаем до создания транспорта: при их отсутствии пул соединений не поднимается
+                GoogleCredentials credentials = getCredentials();
+                httpTransport = GoogleApacheHttpTransport.newTrustedTransport();
+                sheets = new Sheets.Builder(httpTransport, JSON_FACTORY, new HttpCredentialsAdapter(credentials))
+                        .setApplicationName(APPLICATION_NAME)
+                        .build();
+            }
+            return sheets;
+        }
     }
 
     /**
@@ -162,6 +194,34 @@ class GoogleSheetsApiGateway implements GoogleSheetsGateway {
         return readAllRows(sheetName);
     }
 
+    @Override
+    public int countRows(String sheetName) {
+        try {
+            ValueRange response = getSheetsService().spreadsheets().values()
+                    .get(spreadsheetId, sheetName + "!A:A")
+                    .execute();
+            return response.getValues() != null ? response.getValues().size() : 0;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to count rows in Google Sheets", e);
+        }
+    }
+
+    @Override
+    public List<List<Object>> readRows(String sheetName, int fromRow, int toRow) {
+        if (toRow < fromRow) {
+            return Collections.emptyList();
+        }
+        try {
+            String range = sheetName + "!A" + fromRow + ":Z" + toRow;
+            ValueRange response = getSheetsService().spreadsheets().values()
+                    .get(spreadsheetId, range)
+                    .execute();
+            return response.getValues() != null ? response.getValues() : Collections.emptyList();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read rows from Google Sheets", e);
+        }
+    }
+
     @Override
     public String getCellValue(List<Object> row, int columnIndex) {
         if (row == null || columnIndex < 0 || columnIndex >= row.size()) {
@@ -239,7 +299,7 @@ class GoogleSheetsApiGateway implements GoogleSheetsGateway {
             Sheets service = getSheetsService();
             
             // Преобразуем индекс колонки в букву (A, B, C, ..., J)
-            String columnLetter = getColumnLetter(columnIndex);
+            String columnLetter = SheetWriteBuffer.columnLetter(columnIndex);
             String range = sheetName + "!" + columnLetter + rowNumber;
             
             ValueRange body = new ValueRange()
@@ -299,19 +359,62 @@ class GoogleSheetsApiGateway implements GoogleSheetsGateway {
         return findAndWriteCell(sheetName, searchColumnIndex, searchValue, writeColumnIndex, writeValue);
     }
 
+    @Override
+    public void bufferCell(String sheetName, int rowNumber, int columnIndex, String value) {
+        writeBuffer.put(sheetName, rowNumber, columnIndex, value);
+        if (writeBuffer.size() >= bufferMaxCells) {
+            flushWrites();
+        }
+    }
+
+    @Override
+    public void flushWrites() {
+        List<ValueRange> ranges = writeBuffer.drain();
+        if (ranges.isEmpty()) {
+            return;
+        }
+        try {
+            BatchUpdateValuesRequest body = new BatchUpdateValuesRequest()
+                    .setValueInputOption("USER_ENTERED")
+                    .setData(ranges);
+            getSheetsService().spreadsheets().values()
+                    .batchUpdate(spreadsheetId, body)
+                    .execute();
+            log.debug("Flushed {} range(s) to Google Sheets", ranges.size());
+        } catch (Exception e) {
+            // Не теряем записи: уйдут со следующим сбросом
+            writeBuffer.restore(ranges);
+            throw new RuntimeException("Failed to flush buffered cells to Google Sheets", e);
+        }
+    }
+
     /**
-     * Преобразует индекс колонки в букву (A, B, C, ..., Z, AA, AB, ...)
+     * Сбрасывает буфер по таймеру, чтобы одиночные записи вне обхода таблицы не залеживались.
      */
-    private String getColumnLetter(int columnIndex) {
-        StringBuilder result = new StringBuilder();
-        columnIndex++; // Преобразуем в 1-based для расчета
-        
-        while (columnIndex > 0) {
-            columnIndex--;
-            result.insert(0, (char)('A' + (columnIndex % 26)));
-            columnIndex /= 26;
+    @Scheduled(fixedDelayString = "${google.sheets.write-buffer.flush-ms:5000}")
+    public void flushWritesOnSchedule() {
+        try {
+            flushWrites();
+        } catch (Exception e) {
+            log.error("Scheduled flush of Google Sheets buffer failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        try {
+            flushWrites();
+        } catch (Exception e) {
+            log.error("Failed to flush Google Sheets buffer on shutdown: {}", e.getMessage(), e);
+        }
+        synchronized (this) {
+            if (httpTransport != null) {
+                try {
+                    httpTransport.shutdown();
+                } catch (IOException e) {
+                    log.warn("Failed to shut down Google Sheets transport: {}", e.getMessage());
+                }
+            }
         }
-        
-        return result.toString();
     }
 }
@@ -3,9 +3,13 @@ package ru.anyforms.integration.impl;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.anyforms.integration.AmoCrmGateway;
+import ru.anyforms.integration.ReactiveAmoCrmGateway;
 import ru.anyforms.model.amo.AmoContact;
 import ru.anyforms.model.amo.AmoLead;
+import ru.anyforms.model.amo.AmoLeadAggregate;
 import ru.anyforms.model.amo.AmoLeadStatus;
 import ru.anyforms.model.amo.AmoProduct;
 
@@ -15,7 +19,7 @@ import java.util.Map;
 @Slf4j
 @Component
 @ConditionalOnProperty(name = "amocrm.enabled", havingValue = "false")
-class NoOpAmoCrmGateway implements AmoCrmGateway {
+class NoOpAmoCrmGateway implements AmoCrmGateway, ReactiveAmoCrmGateway {
 
     private void skip(String method) {
         log.debug("amoCRM disabled (amocrm.enabled=false), skipping {}", method);
@@ -32,6 +36,18 @@ class NoOpAmoCrmGateway implements AmoCrmGateway {
         return null;
     }
 
+    @Override
+    public AmoLeadAggregate getLeadAggregate(Long leadId) {
+        skip("getLeadAggregate");
+        return null;
+    }
+
+    @Override
+    public List<AmoLead> getLeadsByIds(List<Long> leadIds) {
+        skip("getLeadsByIds");
+        return List.of();
+    }
+
     @Override
     public AmoContact getContact(Long contactId) {
         skip("getContact");
@@ -166,6 +182,11 @@ class NoOpAmoCrmGateway implements AmoCrmGateway {
         return null;
     }
 
+    @Override
+    public void invalidateContact(Long contactId) {
+        skip("invalidateContact");
+    }
+
     @Override
     public List<Long> getLeadIdsByContact(Long contactId) {
         skip("getLeadIdsByContact");
@@ -178,6 +199,12 @@ class NoOpAmoCrmGateway implements AmoCrmGateway {
         return true;
     }
 
+    @Override
+    public boolean flushLeadWrites(Long leadId) {
+        skip("flushLeadWrites");
+        return true;
+    }
+
     @Override
     public boolean linkCatalogElementsToLead(Long leadId, Long catalogId, Map<Long, Integer> elementIdToQuantity) {
         skip("linkCatalogElementsToLead");
@@ -189,4 +216,39 @@ class NoOpAmoCrmGateway implements AmoCrmGateway {
         skip("getCatalogElements");
         return List.of();
     }
+
+    @Override
+    public void invalidateCatalog(Long catalogId) {
+        skip("invalidateCatalog");
+    }
+
+    @Override
+    public Mono<AmoLead> lead(Long leadId) {
+        skip("lead");
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<AmoLeadAggregate> leadAggregate(Long leadId) {
+        skip("leadAggregate");
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<AmoContact> contact(Long contactId) {
+        skip("contact");
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<List<AmoProduct>> leadProducts(Long leadId) {
+        skip("leadProducts");
+        return Mono.just(List.of());
+    }
+
+    @Override
+    public Flux<Long> leadIdsByStatus(Long pipelineId, Long statusId) {
+        skip("leadIdsByStatus");
+        return Flux.empty();
+    }
 }
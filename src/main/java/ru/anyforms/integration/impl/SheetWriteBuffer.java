@@ -0,0 +1,176 @@
+package ru.anyforms.integration.impl;
+
+import com.google.api.services.sheets.v4.model.ValueRange;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Буфер записей в ячейки Google Sheets.
+ * <p>
+ * Повторная запись в ту же ячейку до сброса перезаписывает значение. При {@link #drain()}
+ * соседние ячейки одной строки склеиваются в диапазон {@code J5:K5}, одиночные ячейки одной
+ * колонки в подряд идущих строках — в {@code J5:J9}; результат уходит одним
+ * {@code spreadsheets.values.batchUpdate}.
+ */
+final class SheetWriteBuffer {
+
+    private record Cell(String sheet, int row, int column) {
+    }
+
+    private static final Comparator<Cell> ORDER = Comparator.comparing(Cell::sheet)
+            .thenComparingInt(Cell::row)
+            .thenComparingInt(Cell::column);
+
+    /** Отрезок одной строки: {@code values} лежат в колонках {@code firstColumn..}. */
+    private record Run(String sheet, int row, int firstColumn, List<Object> values) {
+    }
+
+    private final TreeMap<Cell, String> pending = new TreeMap<>(ORDER);
+
+    synchronized void put(String sheet, int row, int column, String value) {
+        pending.put(new Cell(sheet, row, column), value);
+    }
+
+    synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Забирает все накопленные записи, склеенные в диапазоны. Буфер после вызова пуст.
+     */
+    synchronized List<ValueRange> drain() {
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+        List<Run> runs = rowRuns();
+        pending.clear();
+
+        List<ValueRange> ranges = new ArrayList<>();
+        // Одиночные ячейки группируем по колонке: sheet -> column -> row -> value
+        Map<String, Map<Integer, TreeMap<Integer, Object>>> singles = new TreeMap<>();
+        for (Run run : runs) {
+            if (run.values().size() == 1) {
+                singles.computeIfAbsent(run.sheet(), s -> new TreeMap<>())
+                        .computeIfAbsent(run.firstColumn(), c -> new TreeMap<>())
+                        .put(run.row(), run.values().get(0));
+            } else {
+                int lastColumn = run.firstColumn() + run.values().size() - 1;
+                ranges.add(new ValueRange()
+                        .setRange(run.sheet() + "!" + columnLetter(run.firstColumn()) + run.row()
+                                + ":" + columnLetter(lastColumn) + run.row())
+                        .setValues(List.of(run.values())));
+            }
+        }
+        singles.forEach((sheet, columns) -> columns.forEach((column, rows) ->
+                ranges.addAll(columnRuns(sheet, column, rows))));
+        return ranges;
+    }
+
+    /**
+     * Возвращает записи обратно, если сброс не удался. Более свежие записи в те же ячейки,
+     * сделанные за время сброса, не перетираются.
+     */
+    synchronized void restore(List<ValueRange> ranges) {
+        for (ValueRange range : ranges) {
+            String[] sheetAndCells = range.getRange().split("!", 2);
+            String[] bounds = sheetAndCells[1].split(":");
+            int firstColumn = columnIndex(bounds[0]);
+            int firstRow = rowNumber(bounds[0]);
+            List<List<Object>> values = range.getValues();
+            for (int r = 0; r < values.size(); r++) {
+                List<Object> row = values.get(r);
+                for (int c = 0; c < row.size(); c++) {
+                    Object value = row.get(c);
+                    pending.putIfAbsent(new Cell(sheetAndCells[0], firstRow + r, firstColumn + c),
+                            value != null ? value.toString() : null);
+                }
+            }
+        }
+    }
+
+    private List<Run> rowRuns() {
+        List<Run> runs = new ArrayList<>();
+        Run current = null;
+        for (Map.Entry<Cell, String> e : pending.entrySet()) {
+            Cell cell = e.getKey();
+            if (current != null
+                    && current.sheet().equals(cell.sheet())
+                    && current.row() == cell.row()
+                    && current.firstColumn() + current.values().size() == cell.column()) {
+                current.values().add(e.getValue());
+            } else {
+                current = new Run(cell.sheet(), cell.row(), cell.column(), new ArrayList<>());
+                current.values().add(e.getValue());
+                runs.add(current);
+            }
+        }
+        return runs;
+    }
+
+    private static List<ValueRange> columnRuns(String sheet, int column, TreeMap<Integer, Object> rows) {
+        List<ValueRange> ranges = new ArrayList<>();
+        String letter = columnLetter(column);
+        int firstRow = -1;
+        int lastRow = -1;
+        List<List<Object>> values = new ArrayList<>();
+        for (Map.Entry<Integer, Object> e : rows.entrySet()) {
+            if (firstRow >= 0 && e.getKey() != lastRow + 1) {
+                ranges.add(columnRange(sheet, letter, firstRow, lastRow, values));
+                values = new ArrayList<>();
+                firstRow = -1;
+            }
+            if (firstRow < 0) {
+                firstRow = e.getKey();
+            }
+            lastRow = e.getKey();
+            values.add(Collections.singletonList(e.getValue()));
+        }
+        ranges.add(columnRange(sheet, letter, firstRow, lastRow, values));
+        return ranges;
+    }
+
+    private static ValueRange columnRange(String sheet, String letter, int firstRow, int lastRow,
+                                          List<List<Object>> values) {
+        String range = firstRow == lastRow
+                ? sheet + "!" + letter + firstRow
+                : sheet + "!" + letter + firstRow + ":" + letter + lastRow;
+        return new ValueRange().setRange(range).setValues(values);
+    }
+
+    /**
+     * Преобразует индекс колонки в букву (A, B, C, ..., Z, AA, AB, ...)
+     */
+    static String columnLetter(int columnIndex) {
+        StringBuilder result = new StringBuilder();
+        columnIndex++; // Преобразуем в 1-based для расчета
+
+        while (columnIndex > 0) {
+            columnIndex--;
+            result.insert(0, (char) ('A' + (columnIndex % 26)));
+            columnIndex /= 26;
+        }
+
+        return result.toString();
+    }
+
+    private static int columnIndex(String a1) {
+        int index = 0;
+        for (int i = 0; i < a1.length() && Character.isLetter(a1.charAt(i)); i++) {
+            index = index * 26 + (a1.charAt(i) - 'A' + 1);
+        }
+        return index - 1;
+    }
+
+    private static int rowNumber(String a1) {
+        int i = 0;
+        while (i < a1.length() && Character.isLetter(a1.charAt(i))) {
+            i++;
+        }
+        return Integer.parseInt(a1.substring(i));
+    }
+}
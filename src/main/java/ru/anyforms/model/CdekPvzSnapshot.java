@@ -0,0 +1,30 @@
+package ru.anyforms.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Сохранённый список ПВЗ СДЭК — единственная строка с {@link #SINGLETON_ID}.
+ */
+@Entity
+@Table(name = "cdek_pvz_snapshot")
+@Data
+public class CdekPvzSnapshot {
+
+    public static final short SINGLETON_ID = 1;
+
+    @Id
+    private Short id;
+
+    /** Когда список был выгружен из СДЭК. */
+    @Column(name = "loaded_at", nullable = false)
+    private Instant loadedAt;
+
+    @Column(name = "points_count", nullable = false)
+    private Integer pointsCount;
+
+    @Column(name = "payload", nullable = false)
+    private byte[] payload;
+}
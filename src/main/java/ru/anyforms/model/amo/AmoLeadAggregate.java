@@ -0,0 +1,14 @@
+package ru.anyforms.model.amo;
+
+import java.util.List;
+
+/**
+ * Сделка со всем, что нужно для синхронизации заказа: одна выборка
+ * {@code GET /api/v4/leads/{id}?with=contacts,catalog_elements} плюс контакт и названия товаров.
+ *
+ * @param contactId ID первого контакта сделки, null — контакта нет
+ * @param contact   контакт сделки, null — контакта нет
+ * @param products  товары сделки с названиями из каталога
+ */
+public record AmoLeadAggregate(AmoLead lead, Long contactId, AmoContact contact, List<AmoProduct> products) {
+}
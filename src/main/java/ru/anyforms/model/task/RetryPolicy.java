@@ -0,0 +1,29 @@
+package ru.anyforms.model.task;
+
+import java.time.Duration;
+
+/**
+ * Расписание повторов таски: экспоненциальная пауза {@code baseDelay * 2^(attempt-1)},
+ * ограниченная {@code maxDelay}, с jitter в верхней половине интервала — после общего сбоя
+ * (NotiSend/amo лежали) упавшие таски не возвращаются одной волной.
+ *
+ * @param maxAttempts после стольких неудачных попыток таска уходит в {@link TaskStatus#DEAD}
+ */
+public record RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay) {
+
+    /** @return {@code true}, если после {@code attempts} попыток повторять больше не нужно */
+    public boolean exhausted(int attempts) {
+        return attempts >= maxAttempts;
+    }
+
+    /**
+     * @param attempt номер неудачной попытки (с 1)
+     * @param jitter  случайное число из {@code [0, 1)}
+     * @return пауза перед следующей попыткой, в пределах {@code [d/2, d)}, где {@code d} — экспонента с потолком
+     */
+    public Duration backoff(int attempt, double jitter) {
+        long exponential = baseDelay.toMillis() << Math.min(Math.max(attempt - 1, 0), 20);
+        long delay = Math.min(exponential, maxDelay.toMillis());
+        return Duration.ofMillis(delay / 2 + (long) (delay / 2 * jitter));
+    }
+}
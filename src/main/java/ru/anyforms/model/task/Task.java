@@ -38,7 +38,30 @@ public class Task {
     @Column(columnDefinition = "TEXT")
     private String comment;
 
+    /** Сколько раз таску брали в работу (захват = попытка). */
+    @Column(nullable = false)
+    private int attempts;
+
+    /** Когда таску можно брать в работу: для NEW — сразу, для FAILED — по расписанию повторов. */
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    /** Инстанс (pid@host), захвативший таску; {@code null}, пока таска не в работе. */
+    @Column(name = "locked_by")
+    private String lockedBy;
+
+    /** До какого момента таска за {@link #lockedBy}; после — её может перехватить другой воркер. */
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
     @CreationTimestamp
-    @Column(name = "created_at", updatable = false)
+    @Column(name = "created_at", updatable = false, nullable = false)
     private Instant createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (nextAttemptAt == null) {
+            nextAttemptAt = Instant.now();
+        }
+    }
 }
@@ -0,0 +1,15 @@
+package ru.anyforms.model.task;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Курсор keyset-пагинации тасок (от новых к старым): следующая страница начинается строго
+ * после {@code (createdAt, id)} — без OFFSET, поэтому стоимость не растёт с глубиной истории.
+ */
+public record TaskCursor(Instant createdAt, UUID id) {
+
+    public static TaskCursor after(Task task) {
+        return new TaskCursor(task.getCreatedAt(), task.getId());
+    }
+}
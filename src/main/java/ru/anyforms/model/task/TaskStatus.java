@@ -4,5 +4,8 @@ public enum TaskStatus {
     NEW,
     RUNNING,
     DONE,
-    FAILED
+    /** Попытка упала, следующая — не раньше {@code next_attempt_at}. */
+    FAILED,
+    /** Попытки исчерпаны ({@link RetryPolicy#maxAttempts()}); вернуть в очередь можно только вручную. */
+    DEAD
 }
@@ -5,27 +5,38 @@ import ru.anyforms.dto.amo.GuideAmoLeadTaskPayload;
 import ru.anyforms.dto.email.EmailTaskPayload;
 import ru.anyforms.dto.email.MarketplaceOrderEmailPayload;
 import ru.anyforms.dto.email.ReceiptEmailTaskPayload;
+import ru.anyforms.dto.webhook.WebhookTaskPayload;
+
+import java.time.Duration;
 
 public enum TaskType {
     /** Письмо о покупке курса/гайда. */
-    EMAIL(EmailTaskPayload.class),
+    EMAIL(EmailTaskPayload.class, Retries.EMAIL),
     /** Письмо-чек заказа маркетплейса. */
-    MARKETPLACE_ORDER_EMAIL(MarketplaceOrderEmailPayload.class),
+    MARKETPLACE_ORDER_EMAIL(MarketplaceOrderEmailPayload.class, Retries.EMAIL),
     /** Письмо со ссылкой на чек Юкассы. */
-    RECEIPT_EMAIL(ReceiptEmailTaskPayload.class),
-    AMO_GUIDE_LEAD(GuideAmoLeadTaskPayload.class),
-    AMO_COURSE_BOUGHT(CourseAmoLeadTaskPayload.class);
+    RECEIPT_EMAIL(ReceiptEmailTaskPayload.class, Retries.EMAIL),
+    AMO_GUIDE_LEAD(GuideAmoLeadTaskPayload.class, Retries.AMO),
+    AMO_COURSE_BOUGHT(CourseAmoLeadTaskPayload.class, Retries.AMO),
+    /** Обработка записи webhook_inbox (amoCRM/СДЭК); внутри — вызовы amo и запись в Sheets. */
+    WEBHOOK(WebhookTaskPayload.class, Retries.AMO);
 
     private final Class<?> payloadClass;
+    private final RetryPolicy retryPolicy;
 
-    TaskType(Class<?> payloadClass) {
+    TaskType(Class<?> payloadClass, RetryPolicy retryPolicy) {
         this.payloadClass = payloadClass;
+        this.retryPolicy = retryPolicy;
     }
 
     public Class<?> getPayloadClass() {
         return payloadClass;
     }
 
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
     public static TaskType fromObject(Object request) {
         if (request == null) {
             throw new IllegalArgumentException("Request не может быть null");
@@ -38,4 +49,12 @@ public enum TaskType {
         }
         throw new IllegalArgumentException("Неизвестный тип таски для класса: " + requestClass.getName());
     }
+
+    /** Расписания повторов; в отдельном классе, т.к. константы enum создаются раньше его static-полей. */
+    private static final class Retries {
+        /** NotiSend: сбои обычно минутные — 6 попыток, от 30 с до часа. */
+        static final RetryPolicy EMAIL = new RetryPolicy(6, Duration.ofSeconds(30), Duration.ofHours(1));
+        /** amoCRM: бывают многочасовые 5xx/429 — 8 попыток, от минуты до 2 ч. */
+        static final RetryPolicy AMO = new RetryPolicy(8, Duration.ofMinutes(1), Duration.ofHours(2));
+    }
 }
@@ -0,0 +1,40 @@
+package ru.anyforms.model.webhook;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "webhook_inbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString(exclude = "payload")
+public class WebhookInboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private WebhookSource source;
+
+    @Column(name = "payload_hash", nullable = false)
+    private String payloadHash;
+
+    /** Тело вебхука как пришло (для amo — склеенные form-параметры). */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "received_at", nullable = false, updatable = false)
+    private Instant receivedAt;
+
+    /** Когда запись обработана; {@code null} — ещё в очереди или обработка падала. */
+    @Column(name = "processed_at")
+    private Instant processedAt;
+}
@@ -0,0 +1,9 @@
+package ru.anyforms.model.webhook;
+
+/** Отправитель вебхука — определяет, каким сервисом обрабатывается запись inbox. */
+public enum WebhookSource {
+    /** {@code /webhook/amocrm}: form-urlencoded события сделок. */
+    AMO,
+    /** {@code /webhook/cdek}: JSON смены статуса заказа. */
+    CDEK
+}
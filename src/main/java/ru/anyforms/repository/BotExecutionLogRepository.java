@@ -26,6 +26,25 @@ public interface BotExecutionLogRepository extends JpaRepository<BotExecutionLog
             """)
     List<Integer> findSuccessPositions(@Param("leadId") Long leadId, @Param("type") OrderType type);
 
+    /**
+     * Все success-записи для пачки лидов одним запросом ({@code lead_id = ANY(?)}): из них
+     * прогон строит снимок прогресса пачки вместо двух запросов на каждого лида.
+     *
+     * @param leadIds  лиды пачки
+     * @param dayStart UTC-полночь текущих суток — граница для {@code sentToday}
+     */
+    @Query(value = """
+            SELECT l.lead_id AS leadId,
+                   l.type AS type,
+                   l.position AS position,
+                   (l.date_executed >= :dayStart) AS sentToday
+            FROM bot_execution_log l
+            WHERE l.lead_id = ANY(:leadIds)
+              AND l.status = 'SUCCESS'
+            """, nativeQuery = true)
+    List<BotExecutionProgressRow> findSuccessRows(@Param("leadIds") Long[] leadIds,
+                                                  @Param("dayStart") Instant dayStart);
+
     /**
      * Был ли у лида хоть один успешно запущенный бот начиная с {@code dayStart}
      * (UTC-полночь текущих суток). Будущих записей не бывает, поэтому это эквивалентно
@@ -0,0 +1,16 @@
+package ru.anyforms.repository;
+
+/**
+ * Проекция success-записи {@code bot_execution_log} для пакетной загрузки прогресса прогона.
+ */
+public interface BotExecutionProgressRow {
+
+    Long getLeadId();
+
+    String getType();
+
+    Integer getPosition();
+
+    /** Запись сделана начиная с UTC-полуночи текущих суток. */
+    Boolean getSentToday();
+}
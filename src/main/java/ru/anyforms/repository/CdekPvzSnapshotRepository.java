@@ -0,0 +1,9 @@
+package ru.anyforms.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ru.anyforms.model.CdekPvzSnapshot;
+
+@Repository
+public interface CdekPvzSnapshotRepository extends JpaRepository<CdekPvzSnapshot, Short> {
+}
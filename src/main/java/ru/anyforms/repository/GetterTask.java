@@ -1,6 +1,7 @@
 package ru.anyforms.repository;
 
 import ru.anyforms.model.task.Task;
+import ru.anyforms.model.task.TaskCursor;
 import ru.anyforms.model.task.TaskType;
 
 import java.util.List;
@@ -8,5 +9,10 @@ import java.util.List;
 public interface GetterTask {
     List<Task> getRecentByType(TaskType type, int limit);
 
-    List<Task> getAllByType(TaskType type);
+    /**
+     * Страница тасок типа от новых к старым.
+     *
+     * @param after курсор последней таски предыдущей страницы; {@code null} — первая страница
+     */
+    List<Task> getPageByType(TaskType type, TaskCursor after, int limit);
 }
@@ -0,0 +1,16 @@
+package ru.anyforms.repository;
+
+import ru.anyforms.model.task.TaskType;
+
+import java.time.Instant;
+import java.util.Collection;
+
+public interface TaskArchiver {
+
+    /**
+     * Переносит одну пачку DONE-тасок, созданных раньше {@code before}, из {@code task} в {@code task_archive}.
+     *
+     * @return сколько тасок перенесено (меньше {@code limit} — старых больше нет)
+     */
+    int archiveDone(Collection<TaskType> types, Instant before, int limit);
+}
@@ -0,0 +1,57 @@
+package ru.anyforms.repository;
+
+import ru.anyforms.model.task.Task;
+import ru.anyforms.model.task.TaskType;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Очередь тасок поверх таблицы {@code task}: захват пачки с lease, продление lease и
+ * пакетная фиксация результатов. Безопасна для нескольких инстансов приложения.
+ */
+public interface TaskQueue {
+
+    /** Канал PostgreSQL NOTIFY о новых тасках; payload — имя {@link TaskType}. */
+    String WAKEUP_CHANNEL = "task_added";
+
+    /**
+     * Захватывает до {@code batchSize} тасок типа: {@code NEW}/{@code FAILED}, чей срок попытки
+     * наступил, и {@code RUNNING} с истёкшим lease (воркер упал, не дочитав пачку). Захват считается попыткой. Строки, захваченные другим инстансом, пропускаются
+     * ({@code FOR UPDATE SKIP LOCKED}), поэтому одну таску два инстанса не возьмут. {@code RUNNING}
+     * с истёкшим lease на последней попытке ({@link ru.anyforms.model.task.RetryPolicy#maxAttempts()})
+     * не перезахватываются, а уходят в {@code DEAD}.
+     *
+     * @return захваченные таски в статусе {@code RUNNING}, владелец — {@code owner}
+     */
+    List<Task> claim(TaskType type, int batchSize, String owner, Duration lease);
+
+    /** Heartbeat: продлевает lease тасок, которые {@code owner} ещё исполняет. */
+    void extendLease(Collection<UUID> ids, String owner, Duration lease);
+
+    /** Одним запросом переводит таски {@code owner} в {@code DONE}. */
+    void markDone(Collection<UUID> ids, String owner);
+
+    /** Переводит таску {@code owner} в {@code FAILED}: следующая попытка — не раньше {@code nextAttemptAt}. */
+    void markFailed(UUID id, String owner, String comment, Instant nextAttemptAt);
+
+    /** Переводит таску {@code owner} в {@code DEAD}: попытки исчерпаны. */
+    void markDead(UUID id, String owner, String comment);
+
+    /**
+     * Возвращает DEAD-таски в очередь (NEW, счётчик попыток с нуля).
+     *
+     * @param type тип тасок; {@code null} — все типы
+     * @return сколько тасок возвращено
+     */
+    int requeueDead(TaskType type);
+
+    /**
+     * Шлёт {@code NOTIFY} в {@link #WAKEUP_CHANNEL}: раннер типа заберёт таску сразу,
+     * не дожидаясь планового опроса.
+     */
+    void notifyAdded(TaskType type);
+}
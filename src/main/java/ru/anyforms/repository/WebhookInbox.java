@@ -0,0 +1,31 @@
+package ru.anyforms.repository;
+
+import ru.anyforms.model.webhook.WebhookInboxEntry;
+import ru.anyforms.model.webhook.WebhookSource;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Таблица {@code webhook_inbox}: сырые тела входящих вебхуков с дедупликацией по хэшу.
+ */
+public interface WebhookInbox {
+
+    /**
+     * Сохраняет вебхук, если такого же тела от этого отправителя ещё не было.
+     *
+     * @return ID новой записи; пусто — дубликат (запись уже есть)
+     */
+    Optional<Long> accept(WebhookSource source, String payloadHash, String payload);
+
+    Optional<WebhookInboxEntry> getById(Long id);
+
+    void markProcessed(Long id, Instant processedAt);
+
+    /**
+     * Удаляет пачку обработанных записей, полученных раньше {@code before}.
+     *
+     * @return сколько удалено (меньше {@code limit} — старых больше нет)
+     */
+    int deleteProcessedBefore(Instant before, int limit);
+}
@@ -4,19 +4,26 @@ import lombok.AllArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.anyforms.model.task.Task;
+import ru.anyforms.model.task.TaskCursor;
 import ru.anyforms.model.task.TaskStatus;
 import ru.anyforms.model.task.TaskType;
 import ru.anyforms.repository.GetterTask;
-import ru.anyforms.repository.GetterTaskByStatus;
 import ru.anyforms.repository.SaverTask;
+import ru.anyforms.repository.TaskArchiver;
+import ru.anyforms.repository.TaskQueue;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
 
 @Component
 @AllArgsConstructor
 @Log4j2
-class TaskManager implements GetterTask, GetterTaskByStatus, SaverTask {
+class TaskManager implements GetterTask, SaverTask, TaskQueue, TaskArchiver {
 
     private final TaskRepo taskRepo;
 
@@ -31,9 +38,11 @@ class TaskManager implements GetterTask, GetterTaskByStatus, SaverTask {
     }
 
     @Override
-    public List<Task> getAllByType(TaskType type) {
+    public List<Task> getPageByType(TaskType type, TaskCursor after, int limit) {
         try {
-            return taskRepo.findByType(type);
+            return after == null
+                    ? taskRepo.findFirstPage(type.name(), limit)
+                    : taskRepo.findPageAfter(type.name(), after.createdAt(), after.id(), limit);
         } catch (Exception e) {
             log.error(e);
             throw new RuntimeException("Database exception", e);
@@ -41,9 +50,114 @@ class TaskManager implements GetterTask, GetterTaskByStatus, SaverTask {
     }
 
     @Override
-    public List<Task> getByTaskTypeAndStatus(TaskType taskType, TaskStatus taskStatus, int batchSize) {
+    @Transactional
+    public int archiveDone(Collection<TaskType> types, Instant before, int limit) {
+        if (types.isEmpty()) {
+            return 0;
+        }
+        try {
+            return taskRepo.archiveDone(types.stream().map(TaskType::name).toList(), before, limit);
+        } catch (Exception e) {
+            log.error(e);
+            throw new RuntimeException("Database exception", e);
+        }
+    }
+
+    @Override
+    @Transactional
+    public List<Task> claim(TaskType type, int batchSize, String owner, Duration lease) {
+        try {
+            Instant now = Instant.now();
+            int maxAttempts = type.getRetryPolicy().maxAttempts();
+            int dead = taskRepo.markExpiredExhaustedDead(type.name(), now, maxAttempts);
+            if (dead > 0) {
+                log.warn("{} task(s) {} lost their worker on the last attempt, moved to DEAD", dead, type);
+            }
+            List<Task> tasks = taskRepo.lockClaimable(type.name(), now, maxAttempts, batchSize);
+            if (tasks.isEmpty()) {
+                return tasks;
+            }
+            Instant leaseUntil = now.plus(lease);
+            taskRepo.markRunning(tasks.stream().map(Task::getId).toList(), owner, leaseUntil);
+            // markRunning очистил persistence context — правим уже отсоединённые копии для вызывающего.
+            for (Task task : tasks) {
+                task.setStatus(TaskStatus.RUNNING);
+                task.setAttempts(task.getAttempts() + 1);
+                task.setLockedBy(owner);
+                task.setLeaseUntil(leaseUntil);
+            }
+            return tasks;
+        } catch (Exception e) {
+            log.error(e);
+            throw new RuntimeException("Database exception", e);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void extendLease(Collection<UUID> ids, String owner, Duration lease) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            taskRepo.extendLease(ids, owner, Instant.now().plus(lease));
+        } catch (Exception e) {
+            log.error(e);
+            throw new RuntimeException("Database exception", e);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void markDone(Collection<UUID> ids, String owner) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            taskRepo.markDone(ids, owner);
+        } catch (Exception e) {
+            log.error(e);
+            throw new RuntimeException("Database exception", e);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void markFailed(UUID id, String owner, String comment, Instant nextAttemptAt) {
+        try {
+            taskRepo.markFailed(id, owner, comment, nextAttemptAt);
+        } catch (Exception e) {
+            log.error(e);
+            throw new RuntimeException("Database exception", e);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void markDead(UUID id, String owner, String comment) {
+        try {
+            taskRepo.markDead(id, owner, comment);
+        } catch (Exception e) {
+            log.error(e);
+            throw new RuntimeException("Database exception", e);
+        }
+    }
+
+    @Override
+    @Transactional
+    public int requeueDead(TaskType type) {
+        try {
+            return taskRepo.requeueDead(type == null ? null : type.name(), Instant.now());
+        } catch (Exception e) {
+            log.error(e);
+            throw new RuntimeException("Database exception", e);
+        }
+    }
+
+    @Override
+    public void notifyAdded(TaskType type) {
         try {
-            return taskRepo.findByTypeAndStatusOrderByCreatedAtAsc(taskType, taskStatus, PageRequest.of(0, batchSize));
+            taskRepo.notify(WAKEUP_CHANNEL, type.name());
         } catch (Exception e) {
             log.error(e);
             throw new RuntimeException("Database exception", e);
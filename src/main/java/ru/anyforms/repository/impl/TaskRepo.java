@@ -2,19 +2,168 @@ package ru.anyforms.repository.impl;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.anyforms.model.task.Task;
-import ru.anyforms.model.task.TaskStatus;
 import ru.anyforms.model.task.TaskType;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 interface TaskRepo extends JpaRepository<Task, UUID> {
-    List<Task> findByTypeAndStatusOrderByCreatedAtAsc(TaskType type, TaskStatus status, Pageable pageable);
 
     List<Task> findByTypeOrderByCreatedAtDesc(TaskType type, Pageable pageable);
 
-    List<Task> findByType(TaskType type);
+    @Query(value = """
+            SELECT * FROM task
+            WHERE type = :type
+            ORDER BY created_at DESC, id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Task> findFirstPage(@Param("type") String type, @Param("limit") int limit);
+
+    /** Keyset: строго после {@code (createdAt, id)} в порядке {@code created_at DESC, id DESC}. */
+    @Query(value = """
+            SELECT * FROM task
+            WHERE type = :type AND (created_at, id) < (:createdAt, :id)
+            ORDER BY created_at DESC, id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Task> findPageAfter(@Param("type") String type,
+                             @Param("createdAt") Instant createdAt,
+                             @Param("id") UUID id,
+                             @Param("limit") int limit);
+
+    /**
+     * Блокирует пачку тасок, доступных для захвата: NEW/FAILED, чей срок попытки наступил, и
+     * «осиротевшие» RUNNING с истёкшим lease, у которых ещё остались попытки. Строки, уже
+     * заблокированные другим инстансом, пропускаются. Вызывать только в транзакции — блокировка
+     * живёт до её конца.
+     */
+    @Query(value = """
+            SELECT * FROM task
+            WHERE type = :type
+              AND ((status IN ('NEW', 'FAILED') AND next_attempt_at <= :now)
+                   OR (status = 'RUNNING' AND lease_until < :now AND attempts < :maxAttempts))
+            ORDER BY created_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Task> lockClaimable(@Param("type") String type,
+                             @Param("now") Instant now,
+                             @Param("maxAttempts") int maxAttempts,
+                             @Param("limit") int limit);
+
+    /**
+     * «Осиротевшие» RUNNING, чья последняя попытка оборвалась вместе с воркером (lease истёк), а
+     * попытки исчерпаны, — в DEAD: иначе такая таска перезахватывалась бы бесконечно.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE task
+            SET status = 'DEAD', comment = 'lease expired on the last attempt',
+                locked_by = NULL, lease_until = NULL
+            WHERE id IN (
+                SELECT id FROM task
+                WHERE type = :type AND status = 'RUNNING' AND lease_until < :now AND attempts >= :maxAttempts
+                FOR UPDATE SKIP LOCKED
+            )
+            """, nativeQuery = true)
+    int markExpiredExhaustedDead(@Param("type") String type,
+                                 @Param("now") Instant now,
+                                 @Param("maxAttempts") int maxAttempts);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = """
+            UPDATE task
+            SET status = 'RUNNING', attempts = attempts + 1, locked_by = :owner, lease_until = :leaseUntil
+            WHERE id IN (:ids)
+            """, nativeQuery = true)
+    int markRunning(@Param("ids") Collection<UUID> ids,
+                    @Param("owner") String owner,
+                    @Param("leaseUntil") Instant leaseUntil);
+
+    @Modifying
+    @Query(value = """
+            UPDATE task
+            SET lease_until = :leaseUntil
+            WHERE id IN (:ids) AND status = 'RUNNING' AND locked_by = :owner
+            """, nativeQuery = true)
+    int extendLease(@Param("ids") Collection<UUID> ids,
+                    @Param("owner") String owner,
+                    @Param("leaseUntil") Instant leaseUntil);
+
+    /**
+     * Фиксирует результат, только пока таска ещё за {@code owner}: если lease истёк и таску
+     * перехватил другой инстанс, его результат не затираем.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE task
+            SET status = 'DONE', locked_by = NULL, lease_until = NULL
+            WHERE id IN (:ids) AND status = 'RUNNING' AND locked_by = :owner
+            """, nativeQuery = true)
+    int markDone(@Param("ids") Collection<UUID> ids, @Param("owner") String owner);
+
+    @Modifying
+    @Query(value = """
+            UPDATE task
+            SET status = 'FAILED', comment = :comment, next_attempt_at = :nextAttemptAt,
+                locked_by = NULL, lease_until = NULL
+            WHERE id = :id AND status = 'RUNNING' AND locked_by = :owner
+            """, nativeQuery = true)
+    int markFailed(@Param("id") UUID id,
+                   @Param("owner") String owner,
+                   @Param("comment") String comment,
+                   @Param("nextAttemptAt") Instant nextAttemptAt);
+
+    @Modifying
+    @Query(value = """
+            UPDATE task
+            SET status = 'DEAD', comment = :comment, locked_by = NULL, lease_until = NULL
+            WHERE id = :id AND status = 'RUNNING' AND locked_by = :owner
+            """, nativeQuery = true)
+    int markDead(@Param("id") UUID id, @Param("owner") String owner, @Param("comment") String comment);
+
+    /** Возвращает DEAD-таски в очередь с обнулёнными попытками; {@code type = null} — все типы. */
+    @Modifying
+    @Query(value = """
+            UPDATE task
+            SET status = 'NEW', attempts = 0, next_attempt_at = :now
+            WHERE status = 'DEAD' AND (CAST(:type AS VARCHAR) IS NULL OR type = :type)
+            """, nativeQuery = true)
+    int requeueDead(@Param("type") String type, @Param("now") Instant now);
+
+    /** {@code pg_notify} возвращает void — оборачиваем, чтобы драйверу было что прочитать. */
+    @Query(value = "SELECT 1 FROM (SELECT pg_notify(:channel, :payload)) n", nativeQuery = true)
+    Integer notify(@Param("channel") String channel, @Param("payload") String payload);
+
+    /**
+     * Переносит пачку старых DONE-тасок в {@code task_archive} одним statement'ом (DELETE … RETURNING).
+     * SKIP LOCKED — чтобы не ждать строки, которые прямо сейчас трогают раннеры.
+     */
+    @Modifying
+    @Query(value = """
+            WITH moved AS (
+                DELETE FROM task
+                WHERE id IN (
+                    SELECT id FROM task
+                    WHERE status = 'DONE' AND type IN (:types) AND created_at < :before
+                    ORDER BY created_at
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING id, type, payload, status, comment, created_at, attempts
+            )
+            INSERT INTO task_archive (id, type, payload, status, comment, created_at, attempts)
+            SELECT id, type, payload, status, comment, created_at, attempts FROM moved
+            """, nativeQuery = true)
+    int archiveDone(@Param("types") Collection<String> types,
+                    @Param("before") Instant before,
+                    @Param("limit") int limit);
 }
@@ -0,0 +1,66 @@
+package ru.anyforms.repository.impl;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.anyforms.model.webhook.WebhookInboxEntry;
+import ru.anyforms.model.webhook.WebhookSource;
+import ru.anyforms.repository.WebhookInbox;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Component
+@AllArgsConstructor
+@Log4j2
+class WebhookInboxManager implements WebhookInbox {
+
+    private final WebhookInboxRepo webhookInboxRepo;
+
+    @Override
+    @Transactional
+    public Optional<Long> accept(WebhookSource source, String payloadHash, String payload) {
+        try {
+            if (webhookInboxRepo.insertIfAbsent(source.name(), payloadHash, payload, Instant.now()) == 0) {
+                return Optional.empty();
+            }
+            return webhookInboxRepo.findId(source.name(), payloadHash);
+        } catch (Exception e) {
+            log.error(e);
+            throw new RuntimeException("Database exception", e);
+        }
+    }
+
+    @Override
+    public Optional<WebhookInboxEntry> getById(Long id) {
+        try {
+            return webhookInboxRepo.findById(id);
+        } catch (Exception e) {
+            log.error(e);
+            throw new RuntimeException("Database exception", e);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void markProcessed(Long id, Instant processedAt) {
+        try {
+            webhookInboxRepo.markProcessed(id, processedAt);
+        } catch (Exception e) {
+            log.error(e);
+            throw new RuntimeException("Database exception", e);
+        }
+    }
+
+    @Override
+    @Transactional
+    public int deleteProcessedBefore(Instant before, int limit) {
+        try {
+            return webhookInboxRepo.deleteProcessedBefore(before, limit);
+        } catch (Exception e) {
+            log.error(e);
+            throw new RuntimeException("Database exception", e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.anyforms.repository.impl;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.anyforms.model.webhook.WebhookInboxEntry;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+interface WebhookInboxRepo extends JpaRepository<WebhookInboxEntry, Long> {
+
+    /** @return 1 — запись вставлена, 0 — такой (source, payload_hash) уже есть */
+    @Modifying
+    @Query(value = """
+            INSERT INTO webhook_inbox (source, payload_hash, payload, received_at)
+            VALUES (:source, :hash, :payload, :receivedAt)
+            ON CONFLICT (source, payload_hash) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("source") String source,
+                       @Param("hash") String hash,
+                       @Param("payload") String payload,
+                       @Param("receivedAt") Instant receivedAt);
+
+    @Query(value = "SELECT id FROM webhook_inbox WHERE source = :source AND payload_hash = :hash", nativeQuery = true)
+    Optional<Long> findId(@Param("source") String source, @Param("hash") String hash);
+
+    @Modifying
+    @Query(value = "UPDATE webhook_inbox SET processed_at = :processedAt WHERE id = :id AND processed_at IS NULL",
+            nativeQuery = true)
+    int markProcessed(@Param("id") Long id, @Param("processedAt") Instant processedAt);
+
+    @Modifying
+    @Query(value = """
+            DELETE FROM webhook_inbox
+            WHERE id IN (
+                SELECT id FROM webhook_inbox
+                WHERE processed_at IS NOT NULL AND received_at < :before
+                ORDER BY received_at
+                LIMIT :limit
+            )
+            """, nativeQuery = true)
+    int deleteProcessedBefore(@Param("before") Instant before, @Param("limit") int limit);
+}
@@ -0,0 +1,23 @@
+package ru.anyforms.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Массовое получение статусов СДЭК для плановых обходов заказов
+ */
+public interface CdekStatusSweep {
+
+    /**
+     * Возвращает коды статусов по трекерам. Статус, пришедший недавно вебхуком или уже полученный
+     * другим обходом, берётся из кэша; остальные запрашиваются в СДЭК параллельно
+     * ({@code sdek.sweep.concurrency}). Трекеры, по которым СДЭК не ответил, в результат не попадают
+     * @return трекер (как передан) -> код статуса
+     */
+    Map<String, String> fetchStatuses(Collection<String> trackers);
+
+    /**
+     * Запоминает статус, пришедший вебхуком {@code /webhook/cdek}
+     */
+    void remember(String tracker, String statusCode);
+}
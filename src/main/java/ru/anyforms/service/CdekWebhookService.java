@@ -1,5 +1,10 @@
 package ru.anyforms.service;
 
 public interface CdekWebhookService {
+    /**
+     * Обрабатывает вебхук СДЭК (запись {@code webhook_inbox}). Нераспознанный или чужой тип вебхука пропускается.
+     *
+     * @throws RuntimeException если обработка не удалась — запись остаётся необработанной, таска уйдёт на повтор
+     */
     void processWebhook(String webhookJson);
 }
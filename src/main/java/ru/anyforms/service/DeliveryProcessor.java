@@ -2,6 +2,14 @@ package ru.anyforms.service;
 
 public interface DeliveryProcessor {
     void updateStatus(String trackerNumber, String statusText);
+
+    /**
+     * Как {@link #updateStatus(String, String)}, но ошибка amo/БД уходит вызывающему, а не в лог —
+     * для вебхука СДЭК, который при сбое должен уйти на повтор. Правки сделки дожидаются ответа amo,
+     * так что его отказ — тоже ошибка.
+     */
+    void applyStatus(String trackerNumber, String statusText);
+
     default void updateStatus(String trackerNumber) {
         updateStatus(trackerNumber, null);
     }
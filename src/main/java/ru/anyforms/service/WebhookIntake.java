@@ -0,0 +1,23 @@
+package ru.anyforms.service;
+
+import ru.anyforms.model.webhook.WebhookSource;
+
+import java.util.List;
+
+/**
+ * Приём входящих вебхуков: тело сохраняется в {@code webhook_inbox}, обработка — асинхронно
+ * таской {@code WEBHOOK}, поэтому ответ отправителю не зависит от скорости amo и Sheets.
+ */
+public interface WebhookIntake {
+
+    /**
+     * @return true — вебхук поставлен в обработку, false — такое же тело уже принималось (ретрай отправителя)
+     */
+    boolean accept(WebhookSource source, String payload);
+
+    /**
+     * Раскладывает запись inbox на таски {@code WEBHOOK} по сделкам и отмечает её обработанной —
+     * одной транзакцией: либо все сделки в очереди, либо запись обработается заново.
+     */
+    void splitByLeads(Long inboxId, List<Long> leadIds);
+}
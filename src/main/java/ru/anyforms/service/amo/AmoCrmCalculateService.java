@@ -1,5 +1,12 @@
 package ru.anyforms.service.amo;
 
+import reactor.core.publisher.Mono;
+
 public interface AmoCrmCalculateService {
-    boolean calculateAndUpdateLead(Long leadId);
+    /**
+     * Без блокировки потока: сделка читается неблокирующим шлюзом amo.
+     *
+     * @return true, если расчёт выполнен и amo принял новые поля сделки
+     */
+    Mono<Boolean> calculateAndUpdateLead(Long leadId);
 }
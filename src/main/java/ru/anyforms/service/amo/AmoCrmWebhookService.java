@@ -1,6 +1,21 @@
 package ru.anyforms.service.amo;
 
+import java.util.List;
+
 public interface AmoCrmWebhookService {
-    void processFormDataWebhook(String formData);
+    /**
+     * Разбирает form-data вебхук amo (запись {@code webhook_inbox}): сбрасывает кэш изменённых
+     * контактов и возвращает сделки, каждую из которых потом обрабатывает {@link #processLead}.
+     *
+     * @return ID сделок без повторов, в порядке появления в вебхуке
+     */
+    List<Long> acceptFormDataWebhook(String formData);
+
+    /**
+     * Обрабатывает одну сделку из вебхука: синк заказа, счётчики контакта, перевод в «готов к отправке».
+     *
+     * @throws RuntimeException если обработка не удалась — таска сделки уйдёт на повтор
+     */
+    void processLead(Long leadId);
     void processFormDataSyncOrderWebhook(String formData);
 }
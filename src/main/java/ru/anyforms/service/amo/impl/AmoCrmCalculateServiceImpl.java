@@ -1,9 +1,13 @@
 package ru.anyforms.service.amo.impl;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import ru.anyforms.integration.AmoCrmGateway;
+import ru.anyforms.integration.ReactiveAmoCrmGateway;
 import ru.anyforms.model.amo.AmoCrmFieldId;
 import ru.anyforms.model.amo.AmoLead;
 import ru.anyforms.service.amo.AmoCrmCalculateService;
@@ -11,10 +15,12 @@ import ru.anyforms.service.amo.AmoCrmCalculateService;
 import java.util.HashMap;
 import java.util.Map;
 
+@Log4j2
 @Service
 @RequiredArgsConstructor
 class AmoCrmCalculateServiceImpl implements AmoCrmCalculateService {
     private final AmoCrmGateway amoCrmService;
+    private final ReactiveAmoCrmGateway reactiveAmoCrmGateway;
     
     @Value("${amocrm.calculate.price.base.amount}")
     private Long baseAmount;
@@ -29,22 +35,30 @@ class AmoCrmCalculateServiceImpl implements AmoCrmCalculateService {
      * @param leadId ID сделки
      * @return true если расчеты выполнены успешно, false в противном случае
      */
-    public boolean calculateAndUpdateLead(Long leadId) {
-        try {
-            // Получаем сделку
-            AmoLead lead = amoCrmService.getLead(leadId);
-            if (lead == null) {
-                System.err.println("Failed to get lead " + leadId);
-                return false;
-            }
+    public Mono<Boolean> calculateAndUpdateLead(Long leadId) {
+        return reactiveAmoCrmGateway.lead(leadId)
+                // Запись полей идёт через буфер блокирующего шлюза и ждёт ответа amo — уходим с потока Netty
+                .publishOn(Schedulers.boundedElastic())
+                .map(lead -> calculateAndUpdateLead(leadId, lead))
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.error("Failed to get lead {}", leadId);
+                    return false;
+                }))
+                .onErrorResume(e -> {
+                    log.error("Error calculating and updating lead {}", leadId, e);
+                    return Mono.just(false);
+                });
+    }
 
+    private boolean calculateAndUpdateLead(Long leadId, AmoLead lead) {
+        try {
             // Получаем значения полей
             String projectPriceStr = lead.getCustomFieldValue(AmoCrmFieldId.PROJECT_PRICE.getId());
             String formPriceStr = lead.getCustomFieldValue(AmoCrmFieldId.FORM_PRICE.getId());
             
             if (projectPriceStr == null || formPriceStr == null) {
-                System.err.println("Required fields are missing for lead " + leadId);
-                System.err.println("Project price: " + projectPriceStr + ", Form price: " + formPriceStr);
+                log.error("Required fields are missing for lead {}: project price {}, form price {}",
+                        leadId, projectPriceStr, formPriceStr);
                 return false;
             }
 
@@ -55,15 +69,15 @@ class AmoCrmCalculateServiceImpl implements AmoCrmCalculateService {
                 projectPrice = Long.parseLong(projectPriceStr.trim());
                 formPrice = Long.parseLong(formPriceStr.trim());
             } catch (NumberFormatException e) {
-                System.err.println("Failed to parse numeric values for lead " + leadId);
-                System.err.println("Project price: " + projectPriceStr + ", Form price: " + formPriceStr);
+                log.error("Failed to parse numeric values for lead {}: project price {}, form price {}",
+                        leadId, projectPriceStr, formPriceStr);
                 return false;
             }
 
 
             // Проверяем, что форма не равна нулю (деление на ноль)
             if (formPrice == 0) {
-                System.err.println("Form price cannot be zero for lead " + leadId);
+                log.error("Form price cannot be zero for lead {}", leadId);
                 return false;
             }
 
@@ -90,10 +104,11 @@ class AmoCrmCalculateServiceImpl implements AmoCrmCalculateService {
             customFields.put(AmoCrmFieldId.MIN_FORMS_COUNT.getId(), String.valueOf(minFormsCount));
             customFields.put(AmoCrmFieldId.FORMS_COUNT.getId(), String.valueOf(formsCount));
 
-            return amoCrmService.updateLeadFields(leadId, budget, customFields);
+            // Поля копятся в буфере шлюза: без сброса отказ amo не попал бы в ответ вебхука
+            return amoCrmService.updateLeadFields(leadId, budget, customFields)
+                    && amoCrmService.flushLeadWrites(leadId);
         } catch (Exception e) {
-            System.err.println("Error calculating and updating lead " + leadId + ": " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error calculating and updating lead {}", leadId, e);
             return false;
         }
     }
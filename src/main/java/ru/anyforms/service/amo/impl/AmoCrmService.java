@@ -1,5 +1,7 @@
 package ru.anyforms.service.amo.impl;
 
+import ru.anyforms.config.http.OutboundHttpClients;
+import ru.anyforms.integration.AmoRequestLimiter;
 import ru.anyforms.model.amo.*;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
@@ -19,6 +21,8 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 public class AmoCrmService {
     private WebClient webClient;
     private final Gson gson;
+    private final OutboundHttpClients http;
+    private final AmoRequestLimiter rateLimiter;
     
     @Value("${amocrm.subdomain}")
     private String subdomain;
@@ -29,15 +33,19 @@ public class AmoCrmService {
     @Value("${amocrm.products.catalog.id}")
     private Long productsCatalogId;
 
-    public AmoCrmService() {
+    public AmoCrmService(OutboundHttpClients http, AmoRequestLimiter rateLimiter) {
         this.gson = new Gson();
+        this.http = http;
+        this.rateLimiter = rateLimiter;
     }
 
     @jakarta.annotation.PostConstruct
     private void init() {
-        this.webClient = WebClient.builder()
+        this.webClient = http.builder(OutboundHttpClients.AMO)
                 .baseUrl("https://" + subdomain + ".amocrm.ru")
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                // общий с AmoCrmHttpGateway бакет: лимит amo один на всю интеграцию
+                .filter(rateLimiter.filter())
                 .build();
     }
 
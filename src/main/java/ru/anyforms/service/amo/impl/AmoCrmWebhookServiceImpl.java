@@ -1,5 +1,7 @@
 package ru.anyforms.service.amo.impl;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.log4j.Log4j2;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,14 +14,17 @@ import ru.anyforms.repository.OrderRepository;
 import ru.anyforms.service.amo.AmoCrmWebhookService;
 import ru.anyforms.service.amo.LeadAmoCrmStatusUpdater;
 import ru.anyforms.service.OrderService;
-import ru.anyforms.service.impl.CacheService;
 import ru.anyforms.service.telegram.TelegramNotificationQueue;
+import ru.anyforms.util.KeyedDebouncer;
 import ru.anyforms.util.WebhookParserService;
 import ru.anyforms.util.amo.JsonLeadIdExtractionService;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Log4j2
 @Service
@@ -31,35 +36,71 @@ class AmoCrmWebhookServiceImpl implements AmoCrmWebhookService {
     private final LeadAmoCrmStatusUpdater leadAmoCrmStatusUpdater;
     private final OrderService orderService;
     private final AmoCrmGateway amoCrmGateway;
-    private final CacheService cacheService;
     private final OrderRepository orderRepository;
     private final TelegramNotificationQueue telegramNotificationQueue;
     @Value("${amocrm.subdomain}")
     private String subdomain;
 
+    /** Тишина по сделке, после которой запускается синк заказа. */
+    @Value("${amocrm.sync-order.debounce-ms:5000}")
+    private long syncOrderDebounceMs;
+
+    /** Предел откладывания синка, если правки по сделке идут без пауз. */
+    @Value("${amocrm.sync-order.max-wait-ms:60000}")
+    private long syncOrderMaxWaitMs;
+
+    @Value("${amocrm.sync-order.workers:2}")
+    private int syncOrderWorkers;
+
+    /**
+     * Вебхуки sync-order по одной сделке приходят пачкой, пока менеджер её редактирует:
+     * склеиваем их в один синк после последнего события.
+     */
+    private KeyedDebouncer<Long> syncOrderDebouncer;
+
+    @PostConstruct
+    void startSyncOrderDebouncer() {
+        syncOrderDebouncer = new KeyedDebouncer<>("amo-sync-order",
+                Duration.ofMillis(syncOrderDebounceMs), Duration.ofMillis(syncOrderMaxWaitMs), syncOrderWorkers);
+    }
+
+    @PreDestroy
+    void stopSyncOrderDebouncer() {
+        syncOrderDebouncer.close();
+    }
+
     @Override
-    public void processFormDataWebhook(String formData) {
-        try {
-            Map<String, Object> parsed = webhookParserService.parseFormDataWebhook(formData);
-            Map<String, Object> leads = webhookParserService.extractLeadsFromFormData(parsed);
-            
-            if (leads != null) {
-                // Extract lead IDs from "add" events
-                List<Long> addLeadIds = jsonLeadIdExtraction.extractLeadIdsFromFormDataAdd(leads);
-                for (Long leadId : addLeadIds) {
-                    log.info("extract from add event for lead {}", leadId);
-                    handlePerchance(leadId);
-                }
-                
-                // Extract lead IDs from other event types (status, mail_in, etc.)
-                List<Long> eventLeadIds = jsonLeadIdExtraction.extractLeadIdsFromFormDataEvents(leads);
-                for (Long leadId : eventLeadIds) {
-                    log.info("IDs from other event types {}", leadId);
-                    handlePerchance(leadId);
-                }
-            }
-        } catch (Exception e) {
-            log.error("Error processing form-data webhook: " + e);
+    public List<Long> acceptFormDataWebhook(String formData) {
+        Map<String, Object> parsed = webhookParserService.parseFormDataWebhook(formData);
+
+        // Контакт поменяли в amo — закэшированная копия устарела
+        Map<String, Object> contacts = webhookParserService.extractContactsFromFormData(parsed);
+        for (Long contactId : jsonLeadIdExtraction.extractContactIdsFromFormDataChanges(contacts)) {
+            amoCrmGateway.invalidateContact(contactId);
+        }
+
+        Map<String, Object> leads = webhookParserService.extractLeadsFromFormData(parsed);
+        Set<Long> leadIds = new LinkedHashSet<>();
+        if (leads != null) {
+            // Extract lead IDs from "add" events
+            List<Long> addLeadIds = jsonLeadIdExtraction.extractLeadIdsFromFormDataAdd(leads);
+            log.info("extract from add event for leads {}", addLeadIds);
+            leadIds.addAll(addLeadIds);
+
+            // Extract lead IDs from other event types (status, mail_in, etc.)
+            List<Long> eventLeadIds = jsonLeadIdExtraction.extractLeadIdsFromFormDataEvents(leads);
+            log.info("IDs from other event types {}", eventLeadIds);
+            leadIds.addAll(eventLeadIds);
+        }
+        return List.copyOf(leadIds);
+    }
+
+    @Override
+    public void processLead(Long leadId) {
+        handlePerchance(leadId);
+        // Статус сделки копится в буфере шлюза — дожидаемся подтверждения amo, иначе таска не повторится
+        if (!amoCrmGateway.flushLeadWrites(leadId)) {
+            throw new IllegalStateException("amo не принял правки сделки " + leadId);
         }
     }
 
@@ -72,12 +113,7 @@ class AmoCrmWebhookServiceImpl implements AmoCrmWebhookService {
             if (leads != null) {
                 List<Long> addLeadIds = jsonLeadIdExtraction.extractLeadIdsFromFormDataAdd(leads);
                 for (Long leadId : addLeadIds) {
-                    if (cacheService.containsSyncOrderLead(leadId)) {
-                        log.info("Skip duplicate sync-order webhook for lead {}", leadId);
-                        continue;
-                    }
-                    cacheService.addSyncOrderLead(leadId);
-                    orderService.syncOrder(leadId);
+                    syncOrderDebouncer.submit(leadId, () -> orderService.syncOrder(leadId));
                 }
             }
         } catch (Exception e) {
@@ -87,7 +123,9 @@ class AmoCrmWebhookServiceImpl implements AmoCrmWebhookService {
 
     private void handlePerchance(Long leadId) {
         var result = orderService.syncOrder(leadId);
-        var contact = amoCrmGateway.getContactFromLead(leadId);
+        // Сделка и контакт одной выборкой; контакт после синка заказа уже в кэше шлюза
+        var aggregate = amoCrmGateway.getLeadAggregate(leadId);
+        var contact = aggregate.contact();
 
         String newLeadUrl = String.format("https://%s.amocrm.ru/leads/detail/%s", subdomain, leadId);
         String listReleasedLeads = contact.getCustomFieldValue(AmoCrmFieldId.RELEASED_LEADS_LIST_CONTACT);
@@ -105,8 +143,7 @@ class AmoCrmWebhookServiceImpl implements AmoCrmWebhookService {
                     ? newLeadUrl
                     : listReleasedLeads + "\n" + newLeadUrl;
 
-            var lead = amoCrmGateway.getLead(leadId);
-            var price = lead.getPrice();
+            var price = aggregate.lead().getPrice();
             var priceForAllTime = parseLong(contact.getCustomFieldValue(AmoCrmFieldId.BUDGET_FOR_ALL_TIME_CONTACT));
             var wholeBudget = price + priceForAllTime;
 
@@ -1,15 +1,13 @@
 package ru.anyforms.service.email.impl;
 
 import com.google.gson.Gson;
-import io.netty.resolver.DefaultAddressResolverGroup;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.netty.http.client.HttpClient;
+import ru.anyforms.config.http.OutboundHttpClients;
 import ru.anyforms.service.email.EmailService;
 
 import java.util.Map;
@@ -30,10 +28,8 @@ class NotiSendEmailService implements EmailService {
     @Value("${email.notisend.from.name}")
     private String fromName;
 
-    NotiSendEmailService() {
-        HttpClient http = HttpClient.create().resolver(DefaultAddressResolverGroup.INSTANCE);
-        this.webClient = WebClient.builder()
-                .clientConnector(new ReactorClientHttpConnector(http))
+    NotiSendEmailService(OutboundHttpClients http) {
+        this.webClient = http.builder(OutboundHttpClients.NOTISEND)
                 .baseUrl(NOTISEND_BASE_URL)
                 .build();
     }
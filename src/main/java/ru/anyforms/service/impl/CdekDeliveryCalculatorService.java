@@ -1,5 +1,8 @@
 package ru.anyforms.service.impl;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
@@ -9,36 +12,50 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import ru.anyforms.config.http.OutboundHttpClients;
+import ru.anyforms.integration.CdekTokenProvider;
 
 import java.time.Duration;
-import java.time.Instant;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Расчёт доставки СДЭК от нашего ПВЗ в Санкт-Петербурге.
+ * <p>
+ * Отправитель фиксирован, поэтому успешные расчёты кэшируются по получателю (индекс, город) и
+ * размерам посылки на {@code sdek.tariff-cache.ttl-minutes}. Вес округляется вверх до
+ * {@code sdek.tariff-cache.weight-step-g} — и в ключе, и в запросе, чтобы близкие веса делили запись.
+ * Одновременные одинаковые расчёты ждут один запрос к СДЭК; ошибки не кэшируются.
+ */
 @Service
 public class CdekDeliveryCalculatorService {
     private static final Logger logger = LoggerFactory.getLogger(CdekDeliveryCalculatorService.class);
     private static final String CDEK_CALCULATOR_URL = "https://api.cdek.ru/v2/calculator/tarifflist";
-    private static final String CDEK_AUTH_URL = "https://api.cdek.ru/v2/oauth/token";
     
     private final WebClient webClient;
     private final Gson gson;
     
-    @Value("${sdek.secret.key}")
-    private String sdekSecretKey;
-    
-    @Value("${sdek.client.id}")
-    private String sdekClientId;
-    
-    // Кэш для токена доступа
-    private String accessToken;
-    private Instant tokenExpiresAt;
+    private final CdekTokenProvider cdekTokenProvider;
+    private final Cache<TariffKey, DeliveryCalculationResult> tariffCache;
+    private final int weightStep;
     
     // Адрес отправки (ПВЗ)
     private static final String FROM_LOCATION = "Санкт-Петербург";
     private static final String FROM_ADDRESS = "ул. Трефолева, 9, корп. 2";
     private static final int FROM_POSTAL_CODE = 192076; // Примерный почтовый индекс для этого адреса
     
-    public CdekDeliveryCalculatorService() {
-        this.webClient = WebClient.builder()
+    public CdekDeliveryCalculatorService(CdekTokenProvider cdekTokenProvider,
+                                         OutboundHttpClients http,
+                                         @Value("${sdek.tariff-cache.ttl-minutes:360}") long ttlMinutes,
+                                         @Value("${sdek.tariff-cache.max-size:2000}") long maxSize,
+                                         @Value("${sdek.tariff-cache.weight-step-g:100}") int weightStep) {
+        this.cdekTokenProvider = cdekTokenProvider;
+        this.weightStep = Math.max(1, weightStep);
+        this.tariffCache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .build();
+        this.webClient = http.builder(OutboundHttpClients.CDEK)
                 .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(10 * 1024 * 1024))
                 .build();
         this.gson = new Gson();
@@ -111,67 +128,6 @@ public class CdekDeliveryCalculatorService {
         }
     }
     
-    /**
-     * Получает токен доступа через OAuth 2.0
-     */
-    private String getAccessToken() {
-        // Проверяем, есть ли валидный токен в кэше
-        if (accessToken != null && tokenExpiresAt != null && Instant.now().isBefore(tokenExpiresAt)) {
-            return accessToken;
-        }
-        
-        try {
-            logger.info("Получение токена доступа СДЭК через OAuth 2.0");
-            
-            String clientId = (sdekClientId != null && !sdekClientId.isEmpty()) 
-                    ? sdekClientId 
-                    : sdekSecretKey;
-            String clientSecret = sdekSecretKey;
-            
-            if (clientSecret == null || clientSecret.isEmpty()) {
-                logger.warn("Секретный ключ СДЭК не настроен");
-                return null;
-            }
-            
-            String requestBody = String.format(
-                    "grant_type=client_credentials&client_id=%s&client_secret=%s",
-                    clientId, clientSecret
-            );
-            
-            String response = webClient.post()
-                    .uri(CDEK_AUTH_URL)
-                    .header("Content-Type", "application/x-www-form-urlencoded")
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(Duration.ofSeconds(10))
-                    .block();
-            
-            if (response != null && !response.isEmpty()) {
-                JsonObject jsonResponse = gson.fromJson(response, JsonObject.class);
-                
-                if (jsonResponse.has("access_token")) {
-                    accessToken = jsonResponse.get("access_token").getAsString();
-                    
-                    int expiresIn = jsonResponse.has("expires_in") 
-                            ? jsonResponse.get("expires_in").getAsInt() 
-                            : 3600;
-                    
-                    tokenExpiresAt = Instant.now().plusSeconds(expiresIn - 60);
-                    
-                    logger.info("Токен доступа СДЭК успешно получен");
-                    return accessToken;
-                } else {
-                    logger.error("Ошибка получения токена СДЭК: {}", response);
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Ошибка при получении токена доступа СДЭК: {}", e.getMessage(), e);
-        }
-        
-        return null;
-    }
-    
     /**
      * Рассчитывает стоимость и время доставки
      * @param toCity город получателя
@@ -189,11 +145,46 @@ public class CdekDeliveryCalculatorService {
             int length, 
             int width, 
             int height) {
+        int billedWeight = roundUp(weight);
+        TariffKey key = new TariffKey(toPostalCode, toCity == null ? "" : toCity.trim().toLowerCase(),
+                billedWeight, length, width, height);
+        try {
+            return tariffCache.get(key, () -> {
+                DeliveryCalculationResult result =
+                        requestTariff(toCity, toPostalCode, billedWeight, length, width, height);
+                if (!result.isSuccess()) {
+                    throw new NotCacheable(result);
+                }
+                return result;
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof NotCacheable notCacheable) {
+                return notCacheable.result;
+            }
+            logger.error("Неожиданная ошибка при расчете доставки СДЭК: {}", e.getMessage(), e);
+            return new DeliveryCalculationResult("Ошибка при расчете: " + e.getMessage());
+        }
+    }
+
+    private int roundUp(int weight) {
+        return weight <= 0 ? weight : ((weight + weightStep - 1) / weightStep) * weightStep;
+    }
+
+    /**
+     * Запрос к калькулятору СДЭК без кэша
+     */
+    DeliveryCalculationResult requestTariff(
+            String toCity,
+            Integer toPostalCode,
+            int weight,
+            int length,
+            int width,
+            int height) {
         try {
             logger.info("Расчет доставки СДЭК: город={}, вес={}г, размеры={}x{}x{}см", 
                     toCity, weight, length, width, height);
             
-            String token = getAccessToken();
+            String token = cdekTokenProvider.getAccessToken();
             if (token == null) {
                 return new DeliveryCalculationResult("Не удалось получить токен доступа СДЭК");
             }
@@ -411,5 +402,18 @@ public class CdekDeliveryCalculatorService {
             return errorJson.toString();
         }
     }
-}
 
+    /** Ключ кэша: получатель и посылка (вес уже округлён). */
+    private record TariffKey(Integer postalCode, String city, int weight, int length, int width, int height) {
+    }
+
+    /** Ошибочный результат расчёта — выносится из загрузчика кэша, чтобы не попасть в кэш. */
+    private static final class NotCacheable extends Exception {
+        private final DeliveryCalculationResult result;
+
+        private NotCacheable(DeliveryCalculationResult result) {
+            super(result.getError(), null, false, false);
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ru.anyforms.service.impl;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import ru.anyforms.dto.cdek.CdekPvzDTO;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Потоковое чтение ответа {@code /v2/deliverypoints}.
+ * <p>
+ * Ответ по всей России — десятки мегабайт; {@link JsonReader} идёт по токенам прямо из сокета,
+ * из каждого пункта берутся только поля {@link CdekPvzDTO}, остальное (фото, габариты, расписание
+ * по дням и т.п.) пропускается и не попадает в heap.
+ */
+final class CdekPvzReader {
+
+    private CdekPvzReader() {
+    }
+
+    /**
+     * @return пункты в порядке выдачи СДЭК; пункты без {@code code} пропускаются
+     * @throws JsonParseException если тело не JSON-массив пунктов
+     */
+    static List<CdekPvzDTO> read(Reader body) {
+        List<CdekPvzDTO> points = new ArrayList<>();
+        Map<String, String> cities = new HashMap<>();
+        try (JsonReader reader = new JsonReader(body)) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                CdekPvzDTO point = readPoint(reader, cities);
+                if (point != null) {
+                    points.add(point);
+                }
+            }
+            reader.endArray();
+        } catch (IOException | IllegalStateException e) {
+            throw new JsonParseException("Malformed CDEK delivery points response", e);
+        }
+        return points;
+    }
+
+    private static CdekPvzDTO readPoint(JsonReader reader, Map<String, String> cities) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        CdekPvzDTO point = new CdekPvzDTO();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "code" -> point.setCode(nextString(reader));
+                case "name" -> point.setName(nextString(reader));
+                case "work_time" -> point.setWorkTime(nextString(reader));
+                case "location" -> readLocation(reader, point, cities);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return point.getCode() != null ? point : null;
+    }
+
+    private static void readLocation(JsonReader reader, CdekPvzDTO point, Map<String, String> cities) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                // Городов на порядки меньше, чем пунктов — держим по одной копии строки
+                case "city" -> point.setCity(PvzSnapshotCodec.dedupe(cities, nextString(reader)));
+                case "address" -> point.setAddress(nextString(reader));
+                case "address_full" -> point.setFullAddress(nextString(reader));
+                case "longitude" -> point.setLongitude(nextDouble(reader));
+                case "latitude" -> point.setLatitude(nextDouble(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static Double nextDouble(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NUMBER) {
+            return reader.nextDouble();
+        }
+        reader.skipValue();
+        return null;
+    }
+}
@@ -1,27 +1,38 @@
 package ru.anyforms.service.impl;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import ru.anyforms.dto.cdek.CdekPvzDTO;
+import ru.anyforms.integration.CdekTokenProvider;
+import ru.anyforms.model.CdekPvzSnapshot;
+import ru.anyforms.repository.CdekPvzSnapshotRepository;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Саджест ПВЗ СДЭК «как в Яндексе»: пользователь пишет улицу/город («Грибоедова»),
  * в ответ — все подходящие пункты по всей России («ул. Грибоедова 135, г. Пермь» и т.д.).
  * У API СДЭК нет текстового поиска по deliverypoints (только city_code/postal_code и структурные
- * фильтры), поэтому полный список ПВЗ страны кэшируется в памяти и фильтруется подстрокой.
+ * фильтры), поэтому полный список ПВЗ страны кэшируется в памяти в виде {@link PvzSearchIndex}:
+ * префиксный поиск по словам и поиск ближайших пунктов к точке на карте.
+ * <p>
+ * Запросы поиска никогда не ждут СДЭК: индекс обновляет только плановая задача
+ * ({@code sdek.pvz.check-ms}) — при старте поднимает его из снимка в БД ({@link CdekPvzSnapshot}),
+ * а когда список старше {@link #CACHE_TTL}, выгружает новый потоковым парсером, подменяет индекс
+ * одной записью volatile-поля и перезаписывает снимок.
  */
 @Service
 @RequiredArgsConstructor
@@ -32,137 +43,132 @@ public class CdekPvzService {
     private static final Duration CACHE_TTL = Duration.ofHours(6);
     private static final int MAX_RESULTS = 50;
 
-    private final CdekAuthService cdekAuthService;
-    // Полный список ПВЗ России — десятки мегабайт JSON, буфер с запасом.
-    private final WebClient webClient = WebClient.builder()
-            .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(256 * 1024 * 1024))
+    private final CdekTokenProvider cdekTokenProvider;
+    private final CdekPvzSnapshotRepository snapshotRepository;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
             .build();
-    private final Gson gson = new Gson();
 
-    private volatile List<CdekPvzDTO> cache = List.of();
+    /** Индекс по всем ПВЗ, пересобирается целиком при каждой загрузке списка. */
+    private volatile PvzSearchIndex index = PvzSearchIndex.EMPTY;
+    /** Когда текущий список был выгружен из СДЭК (для поднятого из снимка — время снимка). */
     private volatile Instant cacheLoadedAt;
 
     /**
      * @param query улица/город/часть адреса, слова через пробел или запятую («грибоедова 135 пермь»).
-     * @return до {@value #MAX_RESULTS} ПВЗ, у которых адрес/город/название содержат все слова запроса.
+     * @return до {@value #MAX_RESULTS} ПВЗ, у которых в адресе/городе/названии есть слова, начинающиеся
+     * с каждого слова запроса; порядок — по городу, внутри города по адресу.
      */
     public List<CdekPvzDTO> search(String query) {
         if (query == null || query.trim().length() < 3) {
             return List.of();
         }
-        List<CdekPvzDTO> points = getAllPoints();
-        if (points.isEmpty()) {
+        return index.search(query, MAX_RESULTS);
+    }
+
+    /**
+     * @return до {@code limit} (не больше {@value #MAX_RESULTS}) ближайших к точке ПВЗ, от ближнего к дальнему
+     */
+    public List<CdekPvzDTO> nearest(double latitude, double longitude, int limit) {
+        if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
             return List.of();
         }
+        return index.nearest(latitude, longitude, Math.min(limit, MAX_RESULTS));
+    }
 
-        String[] tokens = query.trim().toLowerCase().split("[\\s,]+");
-        List<CdekPvzDTO> matched = new ArrayList<>();
-        for (CdekPvzDTO p : points) {
-            if (matches(p, tokens)) {
-                matched.add(p);
-            }
+    /**
+     * Поднимает индекс из снимка (если он ещё пуст) и обновляет список из СДЭК, когда он устарел.
+     * При ошибке выгрузки продолжаем отдавать прежний индекс — следующая проверка попробует снова.
+     */
+    @Scheduled(fixedDelayString = "${sdek.pvz.check-ms:600000}", initialDelayString = "${sdek.pvz.initial-delay-ms:0}")
+    public void refreshIfStale() {
+        if (cacheLoadedAt == null) {
+            restoreSnapshot();
         }
-        // Стабильный порядок: сначала по городу, внутри города — по адресу.
-        matched.sort(Comparator
-                .comparing((CdekPvzDTO p) -> p.getCity() == null ? "" : p.getCity())
-                .thenComparing(p -> p.getAddress() == null ? "" : p.getAddress()));
-        return matched.size() > MAX_RESULTS ? matched.subList(0, MAX_RESULTS) : matched;
+        if (cacheLoadedAt != null && Instant.now().isBefore(cacheLoadedAt.plus(CACHE_TTL))) {
+            return;
+        }
+        List<CdekPvzDTO> fresh = loadAllPoints();
+        if (fresh.isEmpty()) {
+            return;
+        }
+        Instant loadedAt = Instant.now();
+        index = new PvzSearchIndex(fresh);
+        cacheLoadedAt = loadedAt;
+        saveSnapshot(fresh, loadedAt);
     }
 
-    private boolean matches(CdekPvzDTO p, String[] tokens) {
-        String haystack = ((p.getAddress() == null ? "" : p.getAddress()) + " "
-                + (p.getFullAddress() == null ? "" : p.getFullAddress()) + " "
-                + (p.getCity() == null ? "" : p.getCity()) + " "
-                + (p.getName() == null ? "" : p.getName())).toLowerCase();
-        for (String token : tokens) {
-            if (!token.isBlank() && !haystack.contains(token)) {
-                return false;
+    private void restoreSnapshot() {
+        try {
+            CdekPvzSnapshot snapshot = snapshotRepository.findById(CdekPvzSnapshot.SINGLETON_ID).orElse(null);
+            if (snapshot == null) {
+                logger.info("ПВЗ СДЭК: снимка в БД нет, ждём выгрузку из СДЭК");
+                return;
+            }
+            List<CdekPvzDTO> points = PvzSnapshotCodec.decode(snapshot.getPayload());
+            if (points.isEmpty()) {
+                return;
             }
+            index = new PvzSearchIndex(points);
+            cacheLoadedAt = snapshot.getLoadedAt();
+            logger.info("ПВЗ СДЭК: поднято {} пунктов из снимка от {}", points.size(), snapshot.getLoadedAt());
+        } catch (Exception e) {
+            logger.error("ПВЗ СДЭК: не удалось прочитать снимок: {}", e.getMessage());
         }
-        return true;
     }
 
-    private List<CdekPvzDTO> getAllPoints() {
-        if (cacheLoadedAt != null && Instant.now().isBefore(cacheLoadedAt.plus(CACHE_TTL)) && !cache.isEmpty()) {
-            return cache;
-        }
-        synchronized (this) {
-            if (cacheLoadedAt != null && Instant.now().isBefore(cacheLoadedAt.plus(CACHE_TTL)) && !cache.isEmpty()) {
-                return cache;
-            }
-            List<CdekPvzDTO> fresh = loadAllPoints();
-            if (!fresh.isEmpty()) {
-                cache = fresh;
-                cacheLoadedAt = Instant.now();
-            }
-            // При ошибке загрузки продолжаем отдавать устаревший кэш, если он есть.
-            return cache;
+    private void saveSnapshot(List<CdekPvzDTO> points, Instant loadedAt) {
+        try {
+            CdekPvzSnapshot snapshot = new CdekPvzSnapshot();
+            snapshot.setId(CdekPvzSnapshot.SINGLETON_ID);
+            snapshot.setLoadedAt(loadedAt);
+            snapshot.setPointsCount(points.size());
+            snapshot.setPayload(PvzSnapshotCodec.encode(points));
+            snapshotRepository.save(snapshot);
+            logger.info("ПВЗ СДЭК: снимок сохранён, {} КБ", snapshot.getPayload().length / 1024);
+        } catch (Exception e) {
+            logger.error("ПВЗ СДЭК: не удалось сохранить снимок: {}", e.getMessage());
         }
     }
 
+    /**
+     * Ответ читается потоком прямо из сокета ({@link CdekPvzReader}), без буфера на весь JSON.
+     */
     private List<CdekPvzDTO> loadAllPoints() {
-        String token = cdekAuthService.getAccessToken();
+        String token = cdekTokenProvider.getAccessToken();
         if (token == null) {
             logger.warn("ПВЗ СДЭК: не удалось получить токен доступа");
             return List.of();
         }
         try {
             long started = System.currentTimeMillis();
-            String response = webClient.get()
-                    .uri(DELIVERY_POINTS_URL + "?type=PVZ&country_code=RU")
+            HttpRequest request = HttpRequest.newBuilder(URI.create(DELIVERY_POINTS_URL + "?type=PVZ&country_code=RU"))
                     .header("Authorization", "Bearer " + token)
                     .header("Accept", "application/json")
-                    .retrieve()
-                    .bodyToMono(String.class)
+                    .header("Accept-Encoding", "gzip")
                     .timeout(Duration.ofSeconds(60))
-                    .block();
-            if (response == null || response.isBlank()) {
-                return List.of();
-            }
-            JsonArray points = gson.fromJson(response, JsonArray.class);
-            if (points == null) {
-                return List.of();
-            }
-            List<CdekPvzDTO> result = new ArrayList<>(points.size());
-            for (JsonElement el : points) {
-                CdekPvzDTO dto = mapPoint(el.getAsJsonObject());
-                if (dto != null) {
-                    result.add(dto);
+                    .GET()
+                    .build();
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream raw = response.body()) {
+                if (response.statusCode() != 200) {
+                    logger.error("ПВЗ СДЭК: ошибка загрузки полного списка, HTTP {}", response.statusCode());
+                    return List.of();
                 }
+                boolean gzip = response.headers().firstValue("Content-Encoding")
+                        .map(v -> v.equalsIgnoreCase("gzip"))
+                        .orElse(false);
+                InputStream body = gzip ? new GZIPInputStream(raw) : raw;
+                List<CdekPvzDTO> result = CdekPvzReader.read(new InputStreamReader(body, StandardCharsets.UTF_8));
+                logger.info("ПВЗ СДЭК: загружено {} пунктов за {} мс", result.size(), System.currentTimeMillis() - started);
+                return result;
             }
-            logger.info("ПВЗ СДЭК: загружено {} пунктов за {} мс", result.size(), System.currentTimeMillis() - started);
-            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
         } catch (Exception e) {
             logger.error("ПВЗ СДЭК: ошибка загрузки полного списка: {}", e.getMessage());
             return List.of();
         }
     }
-
-    private CdekPvzDTO mapPoint(JsonObject point) {
-        String code = asString(point, "code");
-        if (code == null) {
-            return null;
-        }
-        JsonObject location = point.has("location") && point.get("location").isJsonObject()
-                ? point.getAsJsonObject("location")
-                : null;
-        return CdekPvzDTO.builder()
-                .code(code)
-                .name(asString(point, "name"))
-                .workTime(asString(point, "work_time"))
-                .city(location != null ? asString(location, "city") : null)
-                .address(location != null ? asString(location, "address") : null)
-                .fullAddress(location != null ? asString(location, "address_full") : null)
-                .longitude(location != null ? asDouble(location, "longitude") : null)
-                .latitude(location != null ? asDouble(location, "latitude") : null)
-                .build();
-    }
-
-    private static String asString(JsonObject obj, String key) {
-        return obj.has(key) && !obj.get(key).isJsonNull() ? obj.get(key).getAsString() : null;
-    }
-
-    private static Double asDouble(JsonObject obj, String key) {
-        return obj.has(key) && !obj.get(key).isJsonNull() ? obj.get(key).getAsDouble() : null;
-    }
 }
@@ -0,0 +1,124 @@
+package ru.anyforms.service.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.anyforms.integration.CdekTrackingGateway;
+import ru.anyforms.service.CdekStatusSweep;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запросы в СДЭК идут пулом из {@code sdek.sweep.concurrency} потоков, заводимым на один обход:
+ * параллелизм ограничен, чтобы не упереться в лимиты API.
+ * <p>
+ * Кэш статусов ключуется трекером без пробелов и дефисов и живёт {@code sdek.status-cache.ttl-minutes}:
+ * вебхук и уже прошедший обход избавляют следующий обход от запроса по этому трекеру.
+ */
+@Log4j2
+@Service
+class CdekStatusSweepImpl implements CdekStatusSweep {
+
+    private final CdekTrackingGateway cdekTrackingGateway;
+    private final Cache<String, String> recentStatuses;
+    private final int concurrency;
+
+    CdekStatusSweepImpl(CdekTrackingGateway cdekTrackingGateway,
+                        @Value("${sdek.sweep.concurrency:8}") int concurrency,
+                        @Value("${sdek.status-cache.ttl-minutes:30}") long ttlMinutes) {
+        this.cdekTrackingGateway = cdekTrackingGateway;
+        this.concurrency = Math.max(1, concurrency);
+        this.recentStatuses = CacheBuilder.newBuilder()
+                .maximumSize(10000)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    @Override
+    public Map<String, String> fetchStatuses(Collection<String> trackers) {
+        // Один запрос на трекер, даже если он записан у нескольких заказов по-разному
+        Map<String, List<String>> byKey = new LinkedHashMap<>();
+        for (String tracker : trackers) {
+            String key = normalize(tracker);
+            if (!key.isEmpty()) {
+                byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(tracker);
+            }
+        }
+
+        Map<String, String> statusByKey = new ConcurrentHashMap<>();
+        List<String> toFetch = new ArrayList<>();
+        for (String key : byKey.keySet()) {
+            String cached = recentStatuses.getIfPresent(key);
+            if (cached != null) {
+                statusByKey.put(key, cached);
+            } else {
+                toFetch.add(key);
+            }
+        }
+
+        long startedAt = System.currentTimeMillis();
+        if (!toFetch.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, toFetch.size()),
+                    new ThreadFactoryBuilder().setNameFormat("cdek-sweep-%d").setDaemon(true).build());
+            for (String key : toFetch) {
+                executor.execute(() -> {
+                    try {
+                        String code = cdekTrackingGateway.getOrderStatus(key);
+                        if (code != null && !code.isEmpty()) {
+                            statusByKey.put(key, code);
+                            recentStatuses.put(key, code);
+                        }
+                    } catch (Exception e) {
+                        log.warn("Не удалось получить статус СДЭК для трекера {}: {}", key, e.getMessage());
+                    }
+                });
+            }
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("Статусы СДЭК: {} трекер(ов), из кэша {}, запрошено {}, получено {} за {} мс",
+                byKey.size(), byKey.size() - toFetch.size(), toFetch.size(),
+                statusByKey.size() - (byKey.size() - toFetch.size()), System.currentTimeMillis() - startedAt);
+
+        Map<String, String> result = new HashMap<>();
+        byKey.forEach((key, originals) -> {
+            String code = statusByKey.get(key);
+            if (code != null) {
+                originals.forEach(tracker -> result.put(tracker, code));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void remember(String tracker, String statusCode) {
+        String key = normalize(tracker);
+        if (!key.isEmpty() && statusCode != null && !statusCode.isBlank()) {
+            recentStatuses.put(key, statusCode.trim());
+        }
+    }
+
+    /**
+     * Очищаем трекер для сравнения (убираем пробелы и дефисы)
+     */
+    private static String normalize(String tracker) {
+        return tracker == null ? "" : tracker.trim().replaceAll("[\\s-]", "");
+    }
+}
@@ -1,9 +1,11 @@
 package ru.anyforms.service.impl;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
 import ru.anyforms.model.CdekWebhook;
+import ru.anyforms.service.CdekStatusSweep;
 import ru.anyforms.service.CdekWebhookService;
 import ru.anyforms.service.DeliveryProcessor;
 
@@ -13,58 +15,65 @@ import ru.anyforms.service.DeliveryProcessor;
 class CdekWebhookServiceImpl implements CdekWebhookService {
 
     private final DeliveryProcessor deliveryProcessor;
+    private final CdekStatusSweep cdekStatusSweep;
     private final Gson gson;
 
-    public CdekWebhookServiceImpl(DeliveryProcessor deliveryProcessor) {
+    public CdekWebhookServiceImpl(DeliveryProcessor deliveryProcessor, CdekStatusSweep cdekStatusSweep) {
         this.deliveryProcessor = deliveryProcessor;
+        this.cdekStatusSweep = cdekStatusSweep;
         this.gson = new Gson();
     }
 
     /**
-     * Обрабатывает вебхук от СДЭК
+     * Обрабатывает вебхук от СДЭК. Ошибки обработки не глушатся — таска вебхука уйдёт на повтор
      * @param webhookJson JSON строка с вебхуком
      */
     public void processWebhook(String webhookJson) {
+        CdekWebhook webhook;
         try {
-            CdekWebhook webhook = gson.fromJson(webhookJson, CdekWebhook.class);
-            
-            if (webhook == null) {
-                log.warn("Не удалось распарсить вебхук СДЭК");
-                return;
-            }
-            
-            // Обрабатываем только вебхуки типа ORDER_STATUS
-            if (!"ORDER_STATUS".equals(webhook.getType())) {
-                log.debug("Пропускаем вебхук типа: {}", webhook.getType());
-                return;
-            }
-            
-            CdekWebhook.Attributes attributes = webhook.getAttributes();
-            if (attributes == null) {
-                log.warn("Вебхук не содержит атрибутов");
-                return;
-            }
-            
-            String cdekNumber = attributes.getCdekNumber();
-            if (cdekNumber == null || cdekNumber.trim().isEmpty()) {
-                log.warn("Вебхук не содержит номера заказа СДЭК");
-                return;
-            }
-            
-            // Получаем статус из атрибутов
-            String statusName = attributes.getName();
-            String statusCode = attributes.getCode();
-            
-            // Формируем строку статуса
-            String statusText = statusName != null && !statusName.isEmpty() 
-                    ? statusName 
-                    : (statusCode != null ? statusCode : "Неизвестный статус");
+            webhook = gson.fromJson(webhookJson, CdekWebhook.class);
+        } catch (JsonSyntaxException e) {
+            // битое тело повтором не исправить
+            log.warn("Вебхук СДЭК не JSON: {}", e.getMessage());
+            return;
+        }
 
-            deliveryProcessor.updateStatus(cdekNumber, statusText);
-            
-        } catch (Exception e) {
-            log.error("Ошибка при обработке вебхука СДЭК: {}", e.getMessage(), e);
+        if (webhook == null) {
+            log.warn("Не удалось распарсить вебхук СДЭК");
+            return;
+        }
+        
+        // Обрабатываем только вебхуки типа ORDER_STATUS
+        if (!"ORDER_STATUS".equals(webhook.getType())) {
+            log.debug("Пропускаем вебхук типа: {}", webhook.getType());
+            return;
+        }
+        
+        CdekWebhook.Attributes attributes = webhook.getAttributes();
+        if (attributes == null) {
+            log.warn("Вебхук не содержит атрибутов");
+            return;
         }
+        
+        String cdekNumber = attributes.getCdekNumber();
+        if (cdekNumber == null || cdekNumber.trim().isEmpty()) {
+            log.warn("Вебхук не содержит номера заказа СДЭК");
+            return;
+        }
+        
+        // Получаем статус из атрибутов
+        String statusName = attributes.getName();
+        String statusCode = attributes.getCode();
+        
+        // Формируем строку статуса
+        String statusText = statusName != null && !statusName.isEmpty() 
+                ? statusName 
+                : (statusCode != null ? statusCode : "Неизвестный статус");
+
+        // Плановый обход не будет запрашивать этот трекер, пока статус свежий
+        cdekStatusSweep.remember(cdekNumber, statusCode);
+
+        deliveryProcessor.applyStatus(cdekNumber, statusText);
     }
 }
 
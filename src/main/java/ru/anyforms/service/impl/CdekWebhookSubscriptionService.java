@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import jakarta.annotation.PostConstruct;
+import ru.anyforms.config.http.OutboundHttpClients;
 import ru.anyforms.integration.CdekTrackingGateway;
 
 import java.time.Duration;
@@ -33,9 +34,9 @@ public class CdekWebhookSubscriptionService {
     @Value("${sdek.auto.subscribe}")
     private boolean autoSubscribe;
 
-    public CdekWebhookSubscriptionService(CdekTrackingGateway cdekTrackingService) {
+    public CdekWebhookSubscriptionService(CdekTrackingGateway cdekTrackingService, OutboundHttpClients http) {
         this.cdekTrackingService = cdekTrackingService;
-        this.webClient = WebClient.builder()
+        this.webClient = http.builder(OutboundHttpClients.CDEK)
                 .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(10 * 1024 * 1024))
                 .build();
         this.gson = new Gson();
@@ -6,7 +6,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.anyforms.integration.AmoCrmGateway;
 import ru.anyforms.integration.CdekTrackingGateway;
-import ru.anyforms.integration.GoogleSheetsGateway;
 import ru.anyforms.model.Order;
 import ru.anyforms.model.amo.AmoCrmFieldId;
 import ru.anyforms.model.amo.AmoLeadStatus;
@@ -17,12 +16,14 @@ import ru.anyforms.service.CustomProductItemService;
 import ru.anyforms.service.DeliveryBotNotifier;
 import ru.anyforms.service.DeliveryProcessor;
 import ru.anyforms.service.OrderService;
+import ru.anyforms.service.sheets.OrderSheetMirror;
+import ru.anyforms.service.sheets.SheetRow;
 import ru.anyforms.util.CdekStatusHelper;
 import ru.anyforms.util.TrackerCustomFields;
 import ru.anyforms.util.sheets.GoogleSheetsColumnIndex;
 import ru.anyforms.util.LeadUrlExtractor;
 
-import java.util.List;
+import java.util.Optional;
 
 /**
  * Сервис для обработки статусов доставки и обновления AmoCRM и Google Sheets
@@ -31,7 +32,7 @@ import java.util.List;
 @Service
 class DeliveryProcessorImpl implements DeliveryProcessor {
 
-    private final GoogleSheetsGateway googleSheetsService;
+    private final OrderSheetMirror orderSheet;
     private final AmoCrmGateway amoCrmService;
     private final OrderService orderService;
     private final GetterOrderByTracker getterOrder;
@@ -40,17 +41,14 @@ class DeliveryProcessorImpl implements DeliveryProcessor {
     private final CustomProductItemService customProductItemService;
     private final DeliveryBotNotifier deliveryBotNotifier;
 
-    @Value("${google.sheets.sheet.name}")
-    private String sheetName;
-
     @Value("${amocrm.retail.pipeline.id}")
     private Long retailPipelineId;
 
     @Value("${amocrm.status.ready.to.ship.id}")
     private Long readyToShipStatusId;
 
-    public DeliveryProcessorImpl(GoogleSheetsGateway googleSheetsService, AmoCrmGateway amoCrmService, OrderService orderService, GetterOrderByTracker getterOrder, CdekTrackingGateway cdekTrackingGateway, SaverOrder saverOrder, CustomProductItemService customProductItemService, DeliveryBotNotifier deliveryBotNotifier) {
-        this.googleSheetsService = googleSheetsService;
+    public DeliveryProcessorImpl(OrderSheetMirror orderSheet, AmoCrmGateway amoCrmService, OrderService orderService, GetterOrderByTracker getterOrder, CdekTrackingGateway cdekTrackingGateway, SaverOrder saverOrder, CustomProductItemService customProductItemService, DeliveryBotNotifier deliveryBotNotifier) {
+        this.orderSheet = orderSheet;
         this.amoCrmService = amoCrmService;
         this.orderService = orderService;
         this.getterOrder = getterOrder;
@@ -63,81 +61,98 @@ class DeliveryProcessorImpl implements DeliveryProcessor {
     @Override
     public void updateStatus(String trackerNumber, @Nullable String webhookStatusCdek) {
         try {
-            if (TrackerCustomFields.READY_KEYWORDS.contains(trackerNumber)) {
-                return;
-            }
-            var optionalOrder = getterOrder.getOptionalOrderByTracker(trackerNumber);
-            if (optionalOrder.isEmpty()) {
-                log.warn("Order not found with tracker: {}", trackerNumber);
-                return;
-            }
-            var order = optionalOrder.get();
-            var leadId = order.getLeadId();
-            if (leadId == null) {
-                leadId = createLeadForOrder(order, trackerNumber);
-                if (leadId == null) {
-                    return;
-                }
-            }
-            var currentStatus = CdekOrderStatus.fromCode(order.getDeliveryStatus());
-            var statusFromCdek = webhookStatusCdek != null ? webhookStatusCdek : cdekTrackingGateway.getOrderStatus(trackerNumber);
-
-            var orderStatus = CdekOrderStatus.fromCode(statusFromCdek);
-            if (currentStatus == orderStatus) {
-                return;
-            }
-
-            amoCrmService.updateLeadCustomField(leadId, AmoCrmFieldId.DELIVERY_STATUS.getId(), currentStatus.getCode());
-            if (CdekStatusHelper.isAcceptedForDelivery(orderStatus)) {
-                amoCrmService.updateLeadStatus(leadId, AmoLeadStatus.SENT.getStatusId(), retailPipelineId);
-                deliveryBotNotifier.notifyShipped(leadId, trackerNumber);
-            }
-            else if (CdekStatusHelper.isReadyToPickUp(orderStatus)) {
-                amoCrmService.updateLeadStatus(leadId, AmoLeadStatus.DELIVERED.getStatusId(), retailPipelineId);
-                deliveryBotNotifier.notifyCdekReadyToPickup(leadId);
-            }
-            else if (CdekStatusHelper.isDelivered(orderStatus)) {
-                amoCrmService.updateLeadStatus(leadId, AmoLeadStatus.REALIZED.getStatusId(), retailPipelineId);
-                customProductItemService.completeOrder(order.getId());
-            }
-            order.setDeliveryStatus(orderStatus.getCode());
-            saverOrder.save(order);
+            applyStatus(trackerNumber, webhookStatusCdek);
         } catch (Exception e) {
             log.error("Ошибка при обновлении статуса в таблице и AmoCRM для трекера {}: {}",
                     trackerNumber, e.getMessage(), e);
         }
     }
 
+    @Override
+    public void applyStatus(String trackerNumber, @Nullable String webhookStatusCdek) {
+        if (TrackerCustomFields.READY_KEYWORDS.contains(trackerNumber)) {
+            return;
+        }
+        var optionalOrder = getterOrder.getOptionalOrderByTracker(trackerNumber);
+        if (optionalOrder.isEmpty()) {
+            log.warn("Order not found with tracker: {}", trackerNumber);
+            return;
+        }
+        var order = optionalOrder.get();
+        var leadId = order.getLeadId();
+        if (leadId == null) {
+            leadId = createLeadForOrder(order, trackerNumber);
+        }
+        var currentStatus = CdekOrderStatus.fromCode(order.getDeliveryStatus());
+        var statusFromCdek = webhookStatusCdek != null ? webhookStatusCdek : cdekTrackingGateway.getOrderStatus(trackerNumber);
+
+        var orderStatus = CdekOrderStatus.fromCode(statusFromCdek);
+        if (currentStatus == orderStatus) {
+            return;
+        }
+
+        amoCrmService.updateLeadCustomField(leadId, AmoCrmFieldId.DELIVERY_STATUS.getId(), currentStatus.getCode());
+        if (CdekStatusHelper.isAcceptedForDelivery(orderStatus)) {
+            amoCrmService.updateLeadStatus(leadId, AmoLeadStatus.SENT.getStatusId(), retailPipelineId);
+        }
+        else if (CdekStatusHelper.isReadyToPickUp(orderStatus)) {
+            amoCrmService.updateLeadStatus(leadId, AmoLeadStatus.DELIVERED.getStatusId(), retailPipelineId);
+        }
+        else if (CdekStatusHelper.isDelivered(orderStatus)) {
+            amoCrmService.updateLeadStatus(leadId, AmoLeadStatus.REALIZED.getStatusId(), retailPipelineId);
+        }
+        // Поле и статус копятся в буфере шлюза — дожидаемся подтверждения amo до уведомлений и сохранения
+        // заказа, иначе вебхук СДЭК не уйдёт на повтор
+        if (!amoCrmService.flushLeadWrites(leadId)) {
+            throw new IllegalStateException("amo не принял правки сделки " + leadId + " (трекер " + trackerNumber + ")");
+        }
+        if (CdekStatusHelper.isAcceptedForDelivery(orderStatus)) {
+            deliveryBotNotifier.notifyShipped(leadId, trackerNumber);
+        }
+        else if (CdekStatusHelper.isReadyToPickUp(orderStatus)) {
+            deliveryBotNotifier.notifyCdekReadyToPickup(leadId);
+        }
+        else if (CdekStatusHelper.isDelivered(orderStatus)) {
+            customProductItemService.completeOrder(order.getId());
+        }
+        order.setDeliveryStatus(orderStatus.getCode());
+        saverOrder.save(order);
+    }
+
+    /**
+     * Правки сделки уходят в буфер шлюза и {@code true} означает лишь постановку в очередь —
+     * для лога обходов дожидаемся ответа amo
+     */
+    private boolean confirmed(Long leadId, boolean queued) {
+        return queued && amoCrmService.flushLeadWrites(leadId);
+    }
+
     private Long createLeadForOrder(Order order, String trackerNumber) {
-        try {
-            var contactName = order.getContactName() != null ? order.getContactName() : "Клиент";
-            var leadId = amoCrmService.createLead("Маркетплейс — " + contactName, contactName,
-                    order.getContactPhone(), retailPipelineId, readyToShipStatusId);
-            if (leadId == null) {
-                log.error("АМО не вернула id сделки для заказа #{} (трекер {})", order.getId(), trackerNumber);
-                return null;
-            }
-            order.setLeadId(leadId);
-            saverOrder.save(order);
-            log.info("Создана сделка {} для заказа #{} без lead_id (трекер {})", leadId, order.getId(), trackerNumber);
-            return leadId;
-        } catch (Exception e) {
-            log.error("Не удалось создать сделку в АМО для заказа #{} (трекер {}): {}",
-                    order.getId(), trackerNumber, e.getMessage(), e);
-            return null;
+        var contactName = order.getContactName() != null ? order.getContactName() : "Клиент";
+        var leadId = amoCrmService.createLead("Маркетплейс — " + contactName, contactName,
+                order.getContactPhone(), retailPipelineId, readyToShipStatusId);
+        if (leadId == null) {
+            throw new IllegalStateException("АМО не вернула id сделки для заказа #" + order.getId()
+                    + " (трекер " + trackerNumber + ")");
         }
+        order.setLeadId(leadId);
+        saverOrder.save(order);
+        log.info("Создана сделка {} для заказа #{} без lead_id (трекер {})", leadId, order.getId(), trackerNumber);
+        return leadId;
     }
 
     /**
-     * Обновляет статус в таблице и в AmoCRM одновременно (по номеру строки)
+     * Обновляет статус в таблице и в AmoCRM одновременно (по номеру строки).
+     * Запись в таблицу буферизуется — вызывающий обход сбрасывает её через
+     * {@link ru.anyforms.integration.GoogleSheetsGateway#flushWrites()}
      * @param rowNumber номер строки в таблице (1-based)
      * @param statusText текст статуса для записи
      */
     public void updateStatus(int rowNumber, String statusText) {
         try {
             // Сначала обновляем в таблице
-            googleSheetsService.writeCell(sheetName, rowNumber, GoogleSheetsColumnIndex.COLUMN_J_INDEX, statusText);
-            log.info("Статус '{}' записан в колонку J для строки {}", statusText, rowNumber);
+            orderSheet.bufferCell(rowNumber, GoogleSheetsColumnIndex.COLUMN_J_INDEX, statusText);
+            log.info("Статус '{}' поставлен в запись в колонку J для строки {}", statusText, rowNumber);
 
             // Теперь обновляем в AmoCRM
             updateDeliveryStatusInAmoCrmAndBDByRowNumber(rowNumber, statusText);
@@ -155,59 +170,39 @@ class DeliveryProcessorImpl implements DeliveryProcessor {
      */
     private void updateDeliveryStatusInAmoCrmByTracker(String trackerNumber, String statusText) {
         try {
-            // Читаем все строки из таблицы
-            List<List<Object>> allRows = googleSheetsService.readAllRows(sheetName);
-            
-            if (allRows == null || allRows.isEmpty()) {
-                log.warn("Таблица '{}' пуста, не удалось обновить статус доставки в amoCRM", sheetName);
+            Optional<SheetRow> row = orderSheet.findByTracker(trackerNumber);
+            if (row.isEmpty()) {
+                log.warn("Не найдена строка с трекером {} в таблице заказов, не удалось обновить статус доставки в amoCRM", trackerNumber);
                 return;
             }
-            
-            // Ищем строку с нужным трекером (начиная со второй строки, пропуская заголовок)
-            for (int i = 1; i < allRows.size(); i++) {
-                List<Object> row = allRows.get(i);
-                String cellValue = googleSheetsService.getCellValue(row, GoogleSheetsColumnIndex.COLUMN_I_INDEX);
-                
-                // Очищаем значения для сравнения (убираем пробелы и дефисы)
-                String cleanedSearchValue = trackerNumber.trim().replaceAll("[\\s-]", "");
-                String cleanedCellValue = cellValue.trim().replaceAll("[\\s-]", "");
-                
-                if (cleanedCellValue.equals(cleanedSearchValue)) {
-                    // Нашли строку с трекером
-                    // Получаем ссылку на сделку из столбца E
-                    String dealLink = googleSheetsService.getCellValue(row, GoogleSheetsColumnIndex.COLUMN_E_INDEX);
-                    
-                    if (dealLink == null || dealLink.trim().isEmpty()) {
-                        log.warn("Не найдена ссылка на сделку в столбце E для трекера {}, не удалось обновить статус доставки в amoCRM", trackerNumber);
-                        return;
-                    }
-                    
-                    // Извлекаем ID сделки из ссылки
-                    Long leadId = LeadUrlExtractor.extract(dealLink);
-                    if (leadId == null) {
-                        log.warn("Не удалось извлечь ID сделки из ссылки: {} для трекера {}, не удалось обновить статус доставки в amoCRM", dealLink, trackerNumber);
-                        return;
-                    }
-                    
-                    // Обновляем поле статуса доставки в amoCRM
-                    boolean updated = amoCrmService.updateLeadCustomField(leadId, AmoCrmFieldId.DELIVERY_STATUS.getId(), statusText);
-                    if (updated) {
-                        log.info("Статус доставки '{}' успешно обновлен в amoCRM (поле {}) для сделки {} (трекер {})",
-                                statusText, AmoCrmFieldId.DELIVERY_STATUS.getId(), leadId, trackerNumber);
-                    } else {
-                        log.error("Не удалось обновить статус доставки '{}' в amoCRM (поле {}) для сделки {} (трекер {})",
-                                statusText, AmoCrmFieldId.DELIVERY_STATUS.getId(), leadId, trackerNumber);
-                    }
-                    
-                    // Обновляем статус в БД
-                    orderService.updateDeliveryStatus(leadId, statusText);
-                    
-                    return;
-                }
+
+            // Получаем ссылку на сделку из столбца E
+            String dealLink = row.get().cell(GoogleSheetsColumnIndex.COLUMN_E_INDEX);
+
+            if (dealLink.isEmpty()) {
+                log.warn("Не найдена ссылка на сделку в столбце E для трекера {}, не удалось обновить статус доставки в amoCRM", trackerNumber);
+                return;
             }
-            
-            log.warn("Не найдена строка с трекером {} в таблице '{}', не удалось обновить статус доставки в amoCRM", trackerNumber, sheetName);
-            
+
+            // Извлекаем ID сделки из ссылки
+            Long leadId = LeadUrlExtractor.extract(dealLink);
+            if (leadId == null) {
+                log.warn("Не удалось извлечь ID сделки из ссылки: {} для трекера {}, не удалось обновить статус доставки в amoCRM", dealLink, trackerNumber);
+                return;
+            }
+
+            // Обновляем поле статуса доставки в amoCRM
+            boolean updated = confirmed(leadId, amoCrmService.updateLeadCustomField(leadId, AmoCrmFieldId.DELIVERY_STATUS.getId(), statusText));
+            if (updated) {
+                log.info("Статус доставки '{}' успешно обновлен в amoCRM (поле {}) для сделки {} (трекер {})",
+                        statusText, AmoCrmFieldId.DELIVERY_STATUS.getId(), leadId, trackerNumber);
+            } else {
+                log.error("Не удалось обновить статус доставки '{}' в amoCRM (поле {}) для сделки {} (трекер {})",
+                        statusText, AmoCrmFieldId.DELIVERY_STATUS.getId(), leadId, trackerNumber);
+            }
+
+            // Обновляем статус в БД
+            orderService.updateDeliveryStatus(leadId, statusText);
         } catch (Exception e) {
             log.error("Ошибка при обновлении статуса доставки в amoCRM для трекера {}: {}",
                     trackerNumber, e.getMessage(), e);
@@ -221,21 +216,16 @@ class DeliveryProcessorImpl implements DeliveryProcessor {
      */
     private void updateDeliveryStatusInAmoCrmAndBDByRowNumber(int rowNumber, String statusText) {
         try {
-            // Читаем все строки из таблицы
-            List<List<Object>> allRows = googleSheetsService.readAllRows(sheetName);
-            
-            if (allRows == null || allRows.isEmpty() || rowNumber > allRows.size()) {
+            Optional<SheetRow> row = orderSheet.findByRowNumber(rowNumber);
+            if (row.isEmpty()) {
                 log.warn("Не удалось обновить статус доставки в amoCRM: строка {} не найдена в таблице", rowNumber);
                 return;
             }
             
-            // Получаем строку (rowNumber - 1, так как rowNumber 1-based, а список 0-based)
-            List<Object> row = allRows.get(rowNumber - 1);
-            
             // Получаем ссылку на сделку из столбца E
-            String dealLink = googleSheetsService.getCellValue(row, GoogleSheetsColumnIndex.COLUMN_E_INDEX);
+            String dealLink = row.get().cell(GoogleSheetsColumnIndex.COLUMN_E_INDEX);
             
-            if (dealLink == null || dealLink.trim().isEmpty()) {
+            if (dealLink.isEmpty()) {
                 log.warn("Не найдена ссылка на сделку в столбце E для строки {}, не удалось обновить статус доставки в amoCRM", rowNumber);
                 return;
             }
@@ -248,7 +238,7 @@ class DeliveryProcessorImpl implements DeliveryProcessor {
             }
             
             // Обновляем поле статуса доставки в amoCRM
-            boolean updated = amoCrmService.updateLeadCustomField(leadId, AmoCrmFieldId.DELIVERY_STATUS.getId(), statusText);
+            boolean updated = confirmed(leadId, amoCrmService.updateLeadCustomField(leadId, AmoCrmFieldId.DELIVERY_STATUS.getId(), statusText));
             if (updated) {
                 log.info("Статус доставки '{}' успешно обновлен в amoCRM (поле {}) для сделки {} в строке {}",
                         statusText, AmoCrmFieldId.DELIVERY_STATUS.getId(), leadId, rowNumber);
@@ -276,7 +266,7 @@ class DeliveryProcessorImpl implements DeliveryProcessor {
     public void updateAmoCrmStatusIfNeeded(Long leadId, String trackingNumber, String statusCode) {
         try {
             // Сначала обновляем поле статуса доставки в AmoCRM
-            boolean deliveryStatusUpdated = amoCrmService.updateLeadCustomField(leadId, AmoCrmFieldId.DELIVERY_STATUS.getId(), statusCode);
+            boolean deliveryStatusUpdated = confirmed(leadId, amoCrmService.updateLeadCustomField(leadId, AmoCrmFieldId.DELIVERY_STATUS.getId(), statusCode));
             if (deliveryStatusUpdated) {
                 log.info("Статус доставки '{}' успешно обновлен в amoCRM (поле {}) для сделки {} (трекер {})",
                         statusCode, AmoCrmFieldId.DELIVERY_STATUS.getId(), leadId, trackingNumber);
@@ -309,7 +299,7 @@ class DeliveryProcessorImpl implements DeliveryProcessor {
             
             // Обновляем статус в AmoCRM, если нужно
             if (targetAmoStatus != null) {
-                boolean statusUpdated = amoCrmService.updateLeadStatus(leadId, targetAmoStatus, null);
+                boolean statusUpdated = confirmed(leadId, amoCrmService.updateLeadStatus(leadId, targetAmoStatus, null));
                 if (statusUpdated) {
                     log.info("Статус сделки {} успешно обновлен на '{}' ({}) для трекера {} (статус CDEK: {})",
                             leadId, targetAmoStatus.getDescription(), targetAmoStatus.getStatusId(), trackingNumber, statusCode);
@@ -349,7 +339,7 @@ class DeliveryProcessorImpl implements DeliveryProcessor {
             deliveryBotNotifier.notifyShipped(leadId, trackerNumber);
             orderService.setTrackerAndCommentForOrder(leadId, trackerNumber, null);
 
-            boolean statusUpdated = amoCrmService.updateLeadStatus(leadId, AmoLeadStatus.SENT, null);
+            boolean statusUpdated = confirmed(leadId, amoCrmService.updateLeadStatus(leadId, AmoLeadStatus.SENT, null));
             if (statusUpdated) {
                 log.info("Статус сделки {} успешно обновлен на '{}' ({})",
                         leadId, AmoLeadStatus.SENT.getDescription(), AmoLeadStatus.SENT.getStatusId());
@@ -380,7 +370,7 @@ class DeliveryProcessorImpl implements DeliveryProcessor {
         
         try {
             // Обновляем статус сделки на "доставлен"
-            boolean statusUpdated = amoCrmService.updateLeadStatus(leadId, AmoLeadStatus.DELIVERED, null);
+            boolean statusUpdated = confirmed(leadId, amoCrmService.updateLeadStatus(leadId, AmoLeadStatus.DELIVERED, null));
             if (statusUpdated) {
                 log.info("Статус сделки {} успешно обновлен на '{}' ({})",
                         leadId, AmoLeadStatus.DELIVERED.getDescription(), AmoLeadStatus.DELIVERED.getStatusId());
@@ -412,7 +402,7 @@ class DeliveryProcessorImpl implements DeliveryProcessor {
         
         try {
             // Обновляем статус сделки на "реализовано"
-            boolean statusUpdated = amoCrmService.updateLeadStatus(leadId, AmoLeadStatus.REALIZED, null);
+            boolean statusUpdated = confirmed(leadId, amoCrmService.updateLeadStatus(leadId, AmoLeadStatus.REALIZED, null));
             if (statusUpdated) {
                 log.info("Статус сделки {} успешно обновлен на '{}' ({})",
                         leadId, AmoLeadStatus.REALIZED.getDescription(), AmoLeadStatus.REALIZED.getStatusId());
@@ -433,50 +423,30 @@ class DeliveryProcessorImpl implements DeliveryProcessor {
      */
     private Long findLeadIdByTracker(String trackerNumber) {
         try {
-            // Читаем все строки из таблицы
-            List<List<Object>> allRows = googleSheetsService.readAllRows(sheetName);
-            
-            if (allRows == null || allRows.isEmpty()) {
-                log.warn("Таблица '{}' пуста", sheetName);
+            Optional<SheetRow> row = orderSheet.findByTracker(trackerNumber);
+            if (row.isEmpty()) {
+                log.warn("Не найдена строка с трекером {} в таблице заказов", trackerNumber);
                 return null;
             }
-            
-            // Ищем строку с нужным трекером (начиная со второй строки, пропуская заголовок)
-            for (int i = 1; i < allRows.size(); i++) {
-                List<Object> row = allRows.get(i);
-                String cellValue = googleSheetsService.getCellValue(row, GoogleSheetsColumnIndex.COLUMN_I_INDEX);
-                
-                // Очищаем значения для сравнения (убираем пробелы и дефисы)
-                String cleanedSearchValue = trackerNumber.trim().replaceAll("[\\s-]", "");
-                String cleanedCellValue = cellValue.trim().replaceAll("[\\s-]", "");
-                
-                if (cleanedCellValue.equals(cleanedSearchValue)) {
-                    // Нашли строку с трекером
-                    log.info("Найдена строка с трекером {} в таблице", trackerNumber);
-                    
-                    // Получаем ссылку на сделку из столбца E
-                    String dealLink = googleSheetsService.getCellValue(row, GoogleSheetsColumnIndex.COLUMN_E_INDEX);
-                    
-                    if (dealLink == null || dealLink.trim().isEmpty()) {
-                        log.warn("Не найдена ссылка на сделку в столбце E для трекера {}", trackerNumber);
-                        return null;
-                    }
-                    
-                    // Извлекаем ID сделки из ссылки
-                    Long leadId = LeadUrlExtractor.extract(dealLink);
-                    if (leadId == null) {
-                        log.warn("Не удалось извлечь ID сделки из ссылки: {}", dealLink);
-                        return null;
-                    }
-                    
-                    log.info("Извлечен ID сделки: {} из ссылки: {}", leadId, dealLink);
-                    return leadId;
-                }
+            log.info("Найдена строка {} с трекером {} в таблице", row.get().rowNumber(), trackerNumber);
+
+            // Получаем ссылку на сделку из столбца E
+            String dealLink = row.get().cell(GoogleSheetsColumnIndex.COLUMN_E_INDEX);
+
+            if (dealLink.isEmpty()) {
+                log.warn("Не найдена ссылка на сделку в столбце E для трекера {}", trackerNumber);
+                return null;
             }
-            
-            log.warn("Не найдена строка с трекером {} в таблице '{}'", trackerNumber, sheetName);
-            return null;
-            
+
+            // Извлекаем ID сделки из ссылки
+            Long leadId = LeadUrlExtractor.extract(dealLink);
+            if (leadId == null) {
+                log.warn("Не удалось извлечь ID сделки из ссылки: {}", dealLink);
+                return null;
+            }
+
+            log.info("Извлечен ID сделки: {} из ссылки: {}", leadId, dealLink);
+            return leadId;
         } catch (Exception e) {
             log.error("Ошибка при поиске ID сделки по трекеру {}: {}",
                     trackerNumber, e.getMessage(), e);
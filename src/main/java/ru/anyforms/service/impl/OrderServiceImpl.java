@@ -2,7 +2,6 @@ package ru.anyforms.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.anyforms.dto.ApiResponseDTO;
@@ -11,12 +10,14 @@ import ru.anyforms.dto.SetTrackerAndCommentRequestDTO;
 import ru.anyforms.dto.SyncOrderRequestDTO;
 import ru.anyforms.integration.AmoCrmGateway;
 import ru.anyforms.integration.CdekTrackingGateway;
-import ru.anyforms.integration.GoogleSheetsGateway;
+import ru.anyforms.integration.ReactiveAmoCrmGateway;
 import ru.anyforms.model.*;
 import ru.anyforms.model.amo.*;
 import ru.anyforms.repository.OrderRepository;
 import ru.anyforms.service.DeliveryBotNotifier;
 import ru.anyforms.service.OrderService;
+import ru.anyforms.service.sheets.OrderSheetMirror;
+import ru.anyforms.service.sheets.SheetRow;
 import ru.anyforms.util.PickupAddressDetector;
 import ru.anyforms.util.TrackerCustomFields;
 import ru.anyforms.util.sheets.GoogleSheetsColumnIndex;
@@ -24,61 +25,62 @@ import ru.anyforms.util.sheets.GoogleSheetsColumnIndex;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
 
 @Log4j2
 @Service
 @RequiredArgsConstructor
 class OrderServiceImpl implements OrderService  {
 
-    // Паттерн для извлечения ID сделки из URL
-    private static final Pattern LEAD_ID_PATTERN = Pattern.compile("leads/detail/(\\d+)");
-
     // Значение трекера для самовывоза (входит в TrackerCustomFields.READY_KEYWORDS → сделка уходит в «Отправлено»)
     private static final String PICKUP_TRACKER = "лично";
 
     private final OrderRepository orderRepository;
     private final AmoCrmGateway amoCrmGateway;
-    private final GoogleSheetsGateway googleSheetsGateway;
+    private final ReactiveAmoCrmGateway reactiveAmoCrmGateway;
+    private final OrderSheetMirror orderSheet;
     private final CdekTrackingGateway cdekTrackingGateway;
     private final DeliveryBotNotifier deliveryBotNotifier;
-    
-    @Value("${google.sheets.sheet.name}")
-    private String sheetName;
 
     /**
      * Синхронизирует заказ из AmoCRM в БД
-     * Если заказ уже существует, обновляет его данные
+     * Если заказ уже существует, обновляет его данные.
+     * Сделка, контакт и товары читаются одной выборкой {@link ReactiveAmoCrmGateway#leadAggregate},
+     * которая идёт параллельно с чтением заказа из БД;
+     * обратно в сделку пишутся только поля, значение которых действительно изменилось.
      */
     @Transactional
     public Order syncOrderFromAmoCrm(Long leadId) {
         try {
-            // Получаем данные сделки
-            AmoLead lead = amoCrmGateway.getLead(leadId);
-            if (lead == null) {
+            // Сделка с контактом и товарами: запрос в amo уходит сразу, заказ из БД читаем, пока он в полёте
+            CompletableFuture<AmoLeadAggregate> pendingAggregate = reactiveAmoCrmGateway.leadAggregate(leadId).toFuture();
+            Optional<Order> existingOrder = orderRepository.findByLeadId(leadId);
+            AmoLeadAggregate aggregate = pendingAggregate.join();
+            if (aggregate == null || aggregate.lead() == null) {
                 log.warn("Lead {} not found in AmoCRM", leadId);
                 return null;
             }
+            AmoLead lead = aggregate.lead();
 
-            // Получаем контакт
-            Long contactId = amoCrmGateway.getContactIdFromLead(leadId);
+            Long contactId = aggregate.contactId();
             if (contactId == null) {
                 log.warn("Contact not found for lead {}", leadId);
                 return null;
             }
 
-            AmoContact contact = amoCrmGateway.getContact(contactId);
+            AmoContact contact = aggregate.contact();
             if (contact == null) {
                 log.warn("Contact {} not found in AmoCRM", contactId);
                 return null;
             }
 
-            List<AmoProduct> products = amoCrmGateway.getLeadProducts(leadId);
+            List<AmoProduct> products = aggregate.products();
 
-            Order order = orderRepository.findByLeadId(leadId)
+            Order order = existingOrder
                     .orElseGet(() -> {
                         Order created = new Order();
                         created.setSource(OrderSource.AMO);
@@ -96,10 +98,13 @@ class OrderServiceImpl implements OrderService  {
                         : null);
             }
 
+            // Изменившиеся поля сделки — уходят одним PATCH
+            Map<Long, String> changedFields = new LinkedHashMap<>();
+
             String tracker = lead.getCustomFieldValue(AmoCrmFieldId.TRACKER.getId());
             if (tracker == null || tracker.equals("...")) {
                 tracker = "";
-                amoCrmGateway.updateLeadCustomField(leadId, AmoCrmFieldId.TRACKER.getId(), tracker);
+                changedFields.put(AmoCrmFieldId.TRACKER.getId(), tracker);
             }
             order.setTracker(tracker);
 
@@ -108,26 +113,33 @@ class OrderServiceImpl implements OrderService  {
 
             String comment = buildComment(commentFromCrm, commentFromOrder);
             if (comment != null && !comment.equals(commentFromCrm)) {
-                amoCrmGateway.updateLeadCustomField(leadId, AmoCrmFieldId.COMMENT_TO_ORDER.getId(), comment);
+                changedFields.put(AmoCrmFieldId.COMMENT_TO_ORDER.getId(), comment);
             }
             if (comment != null && !comment.equals(commentFromOrder)) {
                 order.setComment(comment);
             }
 
             String deliveryStatus;
+            boolean realized = AmoLeadStatus.REALIZED.getStatusId().equals(lead.getStatusId());
             if (!tracker.isEmpty()) {
-                if (lead.getStatusId().equals(AmoLeadStatus.REALIZED.getStatusId())) {
+                if (realized) {
                     deliveryStatus = CdekOrderStatus.DELIVERED.getCode();
                 } else {
                     deliveryStatus = cdekTrackingGateway.getOrderStatus(tracker);
                 }
-                amoCrmGateway.updateLeadCustomField(leadId, AmoCrmFieldId.DELIVERY_STATUS.getId(), deliveryStatus);
-                if (deliveryStatus.equals(CdekOrderStatus.DELIVERED.getCode())) {
-                    amoCrmGateway.updateLeadStatus(leadId, AmoLeadStatus.REALIZED);
+                if (!deliveryStatus.equals(lead.getCustomFieldValue(AmoCrmFieldId.DELIVERY_STATUS.getId()))) {
+                    changedFields.put(AmoCrmFieldId.DELIVERY_STATUS.getId(), deliveryStatus);
                 }
             } else {
                 deliveryStatus = CdekOrderStatus.UNKNOWN.getCode();
             }
+
+            if (!changedFields.isEmpty()) {
+                amoCrmGateway.updateLeadFields(leadId, changedFields);
+            }
+            if (deliveryStatus.equals(CdekOrderStatus.DELIVERED.getCode()) && !realized) {
+                amoCrmGateway.updateLeadStatus(leadId, AmoLeadStatus.REALIZED);
+            }
             order.setDeliveryStatus(deliveryStatus);
 
             if (!backendOwned) {
@@ -382,66 +394,22 @@ class OrderServiceImpl implements OrderService  {
         }
 
         try {
-            // Читаем все строки из таблицы
-            List<List<Object>> allRows = googleSheetsGateway.readAllRows(sheetName);
-
-            if (allRows == null || allRows.isEmpty()) {
-                log.warn("Таблица '{}' пуста, не удалось записать трекер для leadId {}", sheetName, leadId);
-                return;
-            }
-
-            // Ищем строку с нужным leadId (начиная со второй строки, пропуская заголовок)
-            for (int i = 1; i < allRows.size(); i++) {
-                List<Object> row = allRows.get(i);
-                String dealLink = googleSheetsGateway.getCellValue(row, GoogleSheetsColumnIndex.COLUMN_E_INDEX);
-
-                if (dealLink == null || dealLink.trim().isEmpty()) {
-                    continue;
-                }
-
-                // Извлекаем ID сделки из ссылки
-                Long rowLeadId = extractLeadIdFromUrl(dealLink);
-                if (rowLeadId == null || !rowLeadId.equals(leadId)) {
-                    continue;
-                }
-
-                // Нашли строку с нужным leadId, записываем трекер в столбец I
-                int rowNumber = i + 1; // Номер строки в таблице (1-based)
-                googleSheetsGateway.writeCell(sheetName, rowNumber, GoogleSheetsColumnIndex.COLUMN_I_INDEX, tracker.trim());
-                log.info("Tracker written to Google Sheet: leadId={}, tracker={}, row={}", leadId, tracker, rowNumber);
+            Optional<SheetRow> row = orderSheet.findByLeadId(leadId);
+            if (row.isEmpty()) {
+                log.warn("Строка с leadId {} не найдена в таблице заказов", leadId);
                 return;
             }
 
-            log.warn("Строка с leadId {} не найдена в таблице '{}'", leadId, sheetName);
+            // Нашли строку с нужным leadId, записываем трекер в столбец I
+            int rowNumber = row.get().rowNumber();
+            orderSheet.writeCell(rowNumber, GoogleSheetsColumnIndex.COLUMN_I_INDEX, tracker.trim());
+            log.info("Tracker written to Google Sheet: leadId={}, tracker={}, row={}", leadId, tracker, rowNumber);
         } catch (Exception e) {
             log.error("Ошибка при записи трекера в Google таблицу для leadId {}: {}",
                     leadId, e.getMessage(), e);
         }
     }
 
-    /**
-     * Извлекает ID сделки из URL
-     * @param url ссылка на сделку (например, https://hairdoskeels38.amocrm.ru/leads/detail/123456)
-     * @return ID сделки или null, если не удалось извлечь
-     */
-    private Long extractLeadIdFromUrl(String url) {
-        if (url == null || url.trim().isEmpty()) {
-            return null;
-        }
-
-        Matcher matcher = LEAD_ID_PATTERN.matcher(url);
-        if (matcher.find()) {
-            try {
-                return Long.parseLong(matcher.group(1));
-            } catch (NumberFormatException e) {
-                log.warn("Не удалось преобразовать ID сделки в число: {}", matcher.group(1));
-                return null;
-            }
-        }
-
-        return null;
-    }
-
     private String buildComment(String commentFromCrm, String commentFromOrder) {
         // Нормализуем: обрезаем пробелы и пустые строки превращаем в null
         commentFromCrm = normalize(commentFromCrm);
@@ -5,12 +5,17 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.anyforms.dto.SetTrackerAndCommentRequestDTO;
 import ru.anyforms.model.CdekOrderStatus;
+import ru.anyforms.service.CdekStatusSweep;
 import ru.anyforms.service.DeliveryProcessor;
 import ru.anyforms.service.OrderService;
+import ru.anyforms.service.sheets.OrderSheetMirror;
+import ru.anyforms.service.sheets.SheetRow;
 import ru.anyforms.util.sheets.GoogleSheetsColumnIndex;
 import ru.anyforms.util.sheets.SheetRowExtractorUtil;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Log4j2
 @Service
@@ -21,18 +26,23 @@ public class OrderShipmentCheckerService {
     private final DeliveryProcessor deliveryProcessor;
     private final OrderService orderService;
     private final SheetRowExtractorUtil sheetRowExtractorUtil;
+    private final OrderSheetMirror orderSheet;
+    private final CdekStatusSweep cdekStatusSweep;
     
     @Value("${google.sheets.sheet.name}")
     private String sheetName;
 
     public OrderShipmentCheckerService(ru.anyforms.integration.GoogleSheetsGateway googleSheetsGateway,
                                        ru.anyforms.integration.CdekTrackingGateway cdekTrackingGateway,
-                                       DeliveryProcessor deliveryProcessor, OrderService orderService, SheetRowExtractorUtil sheetRowExtractorUtil) {
+                                       DeliveryProcessor deliveryProcessor, OrderService orderService, SheetRowExtractorUtil sheetRowExtractorUtil,
+                                       OrderSheetMirror orderSheet, CdekStatusSweep cdekStatusSweep) {
         this.googleSheetsGateway = googleSheetsGateway;
         this.cdekTrackingGateway = cdekTrackingGateway;
         this.deliveryProcessor = deliveryProcessor;
         this.orderService = orderService;
         this.sheetRowExtractorUtil = sheetRowExtractorUtil;
+        this.orderSheet = orderSheet;
+        this.cdekStatusSweep = cdekStatusSweep;
     }
 
     /**
@@ -41,37 +51,59 @@ public class OrderShipmentCheckerService {
      * - Колонка J пустая или содержит "CREATED"
      * - Колонка I содержит трекер
      * - Статус в СДЭК более чем RECEIVED_AT_SHIPMENT_WAREHOUSE
+     * Статусы СДЭК запрашиваются параллельно для всех отобранных строк; дальше обрабатываются
+     * только строки с изменившимся статусом.
+     * Статусы в колонку J пишутся через буфер и уходят одним batchUpdate в конце обхода
      */
     public void checkAllOrdersForShipment() {
         try {
             log.info("Начало проверки всех заказов на отправку в таблице '{}'", sheetName);
             
-            // Читаем все строки из таблицы
-            List<List<Object>> allRows = googleSheetsGateway.readAllRows(sheetName);
+            // Читаем лист целиком одним запросом — заодно освежаем зеркало для поиска строк по сделке и трекеру
+            List<SheetRow> rows = orderSheet.reload();
             
-            if (allRows == null || allRows.isEmpty()) {
+            if (rows.isEmpty()) {
                 log.info("В таблице '{}' нет строк", sheetName);
                 return;
             }
             
-            // Обрабатываем строки начиная со второй (пропускаем заголовок)
-            for (int i = 1; i < allRows.size(); i++) {
-                List<Object> row = allRows.get(i);
-                int rowNumber = i + 1; // Номер строки в таблице (1-based)
-                
-                // Проверяем условия
-                if (shouldProcessRow(row, rowNumber)) {
-                    String trackingNumber = googleSheetsGateway.getCellValue(row, GoogleSheetsColumnIndex.COLUMN_I_INDEX);
-                    
-                    log.info("Проверка заказа в строке {}: трекер {}", rowNumber, trackingNumber);
-                    checkAndProcessShippedOrder(row, rowNumber, trackingNumber);
+            // Заголовок зеркало не возвращает; отбираем строки по условиям
+            List<SheetRow> candidates = new ArrayList<>();
+            for (SheetRow sheetRow : rows) {
+                if (shouldProcessRow(sheetRow.cells(), sheetRow.rowNumber())) {
+                    candidates.add(sheetRow);
                 }
             }
+
+            // Статусы всех трекеров — одним параллельным проходом по СДЭК
+            Map<String, String> statuses = cdekStatusSweep.fetchStatuses(candidates.stream()
+                    .map(sheetRow -> sheetRow.cell(GoogleSheetsColumnIndex.COLUMN_I_INDEX))
+                    .toList());
+
+            for (SheetRow sheetRow : candidates) {
+                List<Object> row = sheetRow.cells();
+                int rowNumber = sheetRow.rowNumber();
+                String trackingNumber = googleSheetsGateway.getCellValue(row, GoogleSheetsColumnIndex.COLUMN_I_INDEX);
+
+                log.debug("Проверка заказа в строке {}: трекер {}", rowNumber, trackingNumber);
+                checkAndProcessShippedOrder(row, rowNumber, trackingNumber, statuses.get(trackingNumber));
+            }
             
             log.info("Проверка завершена. ");
             
         } catch (Exception e) {
             log.error("Ошибка при проверке заказов на отправку: {}", e.getMessage(), e);
+        } finally {
+            flushStatuses();
+        }
+    }
+
+    private void flushStatuses() {
+        try {
+            googleSheetsGateway.flushWrites();
+        } catch (Exception e) {
+            log.error("Не удалось записать статусы в таблицу '{}', повтор при следующем сбросе: {}",
+                    sheetName, e.getMessage(), e);
         }
     }
     
@@ -107,17 +139,16 @@ public class OrderShipmentCheckerService {
     
     /**
      * Проверяет статус заказа и обрабатывает его, если статус изменился
+     * @param newStatusCode статус из СДЭК, полученный обходом ({@code null}, если СДЭК не ответил)
      * @return true если заказ был обработан
      */
-    private boolean checkAndProcessShippedOrder(List<Object> row, int rowNumber, String trackingNumber) {
+    private boolean checkAndProcessShippedOrder(List<Object> row, int rowNumber, String trackingNumber,
+                                                String newStatusCode) {
         try {
             // Получаем текущий статус из колонки J
             String currentStatus = googleSheetsGateway.getCellValue(row, GoogleSheetsColumnIndex.COLUMN_J_INDEX);
             String currentStatusUpper = currentStatus.toUpperCase().trim();
             
-            // Получаем новый статус из СДЭК
-            String newStatusCode = cdekTrackingGateway.getOrderStatus(trackingNumber);
-            
             if (newStatusCode == null || newStatusCode.isEmpty()) {
                 log.warn("Не удалось получить статус для трекера {} в строке {}", trackingNumber, rowNumber);
                 return false;
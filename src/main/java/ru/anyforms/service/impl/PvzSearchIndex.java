@@ -0,0 +1,303 @@
+package ru.anyforms.service.impl;
+
+import ru.anyforms.dto.cdek.CdekPvzDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Неизменяемый поисковый индекс ПВЗ, строится один раз при загрузке кэша.
+ * <p>
+ * Текст: пункты заранее отсортированы (город, адрес) и нумеруются в этом порядке; слова адреса,
+ * полного адреса, города и названия лежат в отсортированном словаре с постинг-листами номеров пунктов.
+ * Слово запроса совпадает с пунктом, если является префиксом какого-то его слова. Поиск идёт от самого
+ * редкого слова запроса, остальные проверяются бинарным поиском по словам пункта; постинги уже
+ * в порядке выдачи, поэтому сортировки на запрос нет и обход останавливается на {@code limit}.
+ * <p>
+ * Гео: сетка {@value #CELL_DEG}° × {@value #CELL_DEG}°; ближайшие пункты ищутся расширяющимися
+ * кольцами клеток, пока следующее кольцо не может быть ближе уже найденного N-го.
+ */
+final class PvzSearchIndex {
+
+    static final PvzSearchIndex EMPTY = new PvzSearchIndex(List.of());
+
+    private static final double CELL_DEG = 0.25;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEG = Math.PI * EARTH_RADIUS_KM / 180;
+
+    private static final Comparator<CdekPvzDTO> ORDER = Comparator
+            .comparing((CdekPvzDTO p) -> p.getCity() == null ? "" : p.getCity())
+            .thenComparing(p -> p.getAddress() == null ? "" : p.getAddress());
+
+    private final CdekPvzDTO[] points;
+    /** Отсортированные различные слова пункта — для проверки остальных слов запроса. */
+    private final String[][] pointWords;
+    /** Словарь всех слов по возрастанию и номера пунктов для каждого слова (по возрастанию). */
+    private final String[] words;
+    private final int[][] postings;
+
+    private final Map<Long, int[]> cells;
+    private final int minLatCell;
+    private final int maxLatCell;
+    private final int minLonCell;
+    private final int maxLonCell;
+
+    PvzSearchIndex(List<CdekPvzDTO> source) {
+        points = source.toArray(new CdekPvzDTO[0]);
+        Arrays.sort(points, ORDER);
+
+        pointWords = new String[points.length][];
+        TreeMap<String, List<Integer>> dictionary = new TreeMap<>();
+        for (int i = 0; i < points.length; i++) {
+            CdekPvzDTO p = points[i];
+            String[] tokens = distinctSorted(tokenize(String.join(" ",
+                    nullToEmpty(p.getAddress()), nullToEmpty(p.getFullAddress()),
+                    nullToEmpty(p.getCity()), nullToEmpty(p.getName()))));
+            pointWords[i] = tokens;
+            for (String token : tokens) {
+                dictionary.computeIfAbsent(token, t -> new ArrayList<>()).add(i);
+            }
+        }
+        words = dictionary.keySet().toArray(new String[0]);
+        postings = new int[words.length][];
+        int w = 0;
+        for (List<Integer> ids : dictionary.values()) {
+            postings[w++] = ids.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        Map<Long, List<Integer>> grid = new HashMap<>();
+        int minLat = Integer.MAX_VALUE, maxLat = Integer.MIN_VALUE;
+        int minLon = Integer.MAX_VALUE, maxLon = Integer.MIN_VALUE;
+        for (int i = 0; i < points.length; i++) {
+            Double lat = points[i].getLatitude();
+            Double lon = points[i].getLongitude();
+            if (lat == null || lon == null) {
+                continue;
+            }
+            int latCell = cell(lat);
+            int lonCell = cell(lon);
+            minLat = Math.min(minLat, latCell);
+            maxLat = Math.max(maxLat, latCell);
+            minLon = Math.min(minLon, lonCell);
+            maxLon = Math.max(maxLon, lonCell);
+            grid.computeIfAbsent(key(latCell, lonCell), k -> new ArrayList<>()).add(i);
+        }
+        cells = new HashMap<>(grid.size() * 2);
+        grid.forEach((k, ids) -> cells.put(k, ids.stream().mapToInt(Integer::intValue).toArray()));
+        minLatCell = minLat;
+        maxLatCell = maxLat;
+        minLonCell = minLon;
+        maxLonCell = maxLon;
+    }
+
+    int size() {
+        return points.length;
+    }
+
+    /**
+     * @return до {@code limit} пунктов, где каждое слово запроса — префикс какого-то слова пункта,
+     * в порядке (город, адрес)
+     */
+    List<CdekPvzDTO> search(String query, int limit) {
+        String[] tokens = tokenize(query);
+        if (tokens.length == 0 || points.length == 0) {
+            return List.of();
+        }
+        // Ведущее слово — с наименьшим числом кандидатов
+        int driver = -1;
+        int driverFrom = 0;
+        int driverTo = 0;
+        long driverCount = Long.MAX_VALUE;
+        for (int t = 0; t < tokens.length; t++) {
+            int from = lowerBound(words, tokens[t]);
+            int to = prefixEnd(words, from, tokens[t]);
+            if (from == to) {
+                return List.of();
+            }
+            long count = 0;
+            for (int w = from; w < to && count < driverCount; w++) {
+                count += postings[w].length;
+            }
+            if (count < driverCount) {
+                driver = t;
+                driverFrom = from;
+                driverTo = to;
+                driverCount = count;
+            }
+        }
+
+        List<CdekPvzDTO> result = new ArrayList<>(Math.min(limit, 16));
+        if (driverTo - driverFrom == 1) {
+            for (int id : postings[driverFrom]) {
+                if (matchesOthers(id, tokens, driver) && addAndCheckFull(result, id, limit)) {
+                    break;
+                }
+            }
+            return result;
+        }
+        // Несколько слов с этим префиксом: объединяем постинги битсетом, обход битов идёт по возрастанию
+        BitSet candidates = new BitSet(points.length);
+        for (int w = driverFrom; w < driverTo; w++) {
+            for (int id : postings[w]) {
+                candidates.set(id);
+            }
+        }
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            if (matchesOthers(id, tokens, driver) && addAndCheckFull(result, id, limit)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return до {@code limit} ближайших к точке пунктов по расстоянию на сфере, от ближнего к дальнему
+     */
+    List<CdekPvzDTO> nearest(double latitude, double longitude, int limit) {
+        if (cells.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        // Макс-куча по расстоянию: вершина — самый дальний из найденных
+        PriorityQueue<double[]> best = new PriorityQueue<>(limit + 1, (a, b) -> Double.compare(b[0], a[0]));
+        int latCell = cell(latitude);
+        int lonCell = cell(longitude);
+        int maxRing = Math.max(
+                Math.max(Math.abs(latCell - minLatCell), Math.abs(latCell - maxLatCell)),
+                Math.max(Math.abs(lonCell - minLonCell), Math.abs(lonCell - maxLonCell)));
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (best.size() == limit && ringLowerBoundKm(latitude, ring) > best.peek()[0]) {
+                break;
+            }
+            for (int dLat = -ring; dLat <= ring; dLat++) {
+                boolean edgeRow = Math.abs(dLat) == ring;
+                for (int dLon = -ring; dLon <= ring; dLon += edgeRow ? 1 : 2 * Math.max(ring, 1)) {
+                    int[] ids = cells.get(key(latCell + dLat, lonCell + dLon));
+                    if (ids == null) {
+                        continue;
+                    }
+                    for (int id : ids) {
+                        double d = distanceKm(latitude, longitude, points[id].getLatitude(), points[id].getLongitude());
+                        if (best.size() < limit) {
+                            best.add(new double[]{d, id});
+                        } else if (d < best.peek()[0]) {
+                            best.poll();
+                            best.add(new double[]{d, id});
+                        }
+                    }
+                }
+            }
+        }
+        CdekPvzDTO[] ordered = new CdekPvzDTO[best.size()];
+        for (int i = ordered.length - 1; i >= 0; i--) {
+            ordered[i] = points[(int) best.poll()[1]];
+        }
+        return List.of(ordered);
+    }
+
+    private boolean matchesOthers(int id, String[] tokens, int skip) {
+        String[] own = pointWords[id];
+        for (int t = 0; t < tokens.length; t++) {
+            if (t == skip) {
+                continue;
+            }
+            int at = lowerBound(own, tokens[t]);
+            if (at == own.length || !own[at].startsWith(tokens[t])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean addAndCheckFull(List<CdekPvzDTO> result, int id, int limit) {
+        result.add(points[id]);
+        return result.size() >= limit;
+    }
+
+    /**
+     * Минимальное расстояние до клеток кольца {@code ring}: между точкой и ними не меньше
+     * {@code ring - 1} целых клеток по широте или долготе. Долгота сжата на cos широты —
+     * берём самую «узкую» широту в пределах кольца.
+     */
+    private static double ringLowerBoundKm(double latitude, int ring) {
+        if (ring <= 1) {
+            return 0;
+        }
+        double spanDeg = (ring - 1) * CELL_DEG;
+        double farthestLat = Math.min(90, Math.abs(latitude) + (ring + 1) * CELL_DEG);
+        return spanDeg * KM_PER_DEG * Math.cos(Math.toRadians(farthestLat));
+    }
+
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Нижний регистр, «ё» → «е», разбиение по всему, что не буква и не цифра
+     */
+    static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        return Arrays.stream(text.toLowerCase().replace('ё', 'е').split("[^\\p{L}\\p{N}]+"))
+                .filter(s -> !s.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    private static String[] distinctSorted(String[] tokens) {
+        return Arrays.stream(tokens).distinct().sorted().toArray(String[]::new);
+    }
+
+    /** Первый индекс, где {@code sorted[i] >= key}. */
+    private static int lowerBound(String[] sorted, String key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Конец диапазона слов с префиксом {@code prefix}, начиная с {@code from}. */
+    private static int prefixEnd(String[] sorted, int from, String prefix) {
+        int lo = from;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid].startsWith(prefix)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int cell(double degrees) {
+        return (int) Math.floor(degrees / CELL_DEG);
+    }
+
+    private static long key(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+}
@@ -0,0 +1,109 @@
+package ru.anyforms.service.impl;
+
+import ru.anyforms.dto.cdek.CdekPvzDTO;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Компактный снимок списка ПВЗ: gzip поверх {@link DataOutputStream} — версия формата, число пунктов,
+ * затем поля каждого пункта подряд (флаг наличия + значение). Без имён полей и JSON-разметки
+ * снимок на порядок меньше ответа СДЭК и читается без промежуточного дерева.
+ */
+final class PvzSnapshotCodec {
+
+    /** Меняется при любом изменении набора/порядка полей — старый снимок тогда просто игнорируется. */
+    private static final int VERSION = 1;
+
+    private PvzSnapshotCodec() {
+    }
+
+    static byte[] encode(List<CdekPvzDTO> points) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(points.size() * 64);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(bytes)))) {
+            out.writeInt(VERSION);
+            out.writeInt(points.size());
+            for (CdekPvzDTO p : points) {
+                writeString(out, p.getCode());
+                writeString(out, p.getName());
+                writeString(out, p.getCity());
+                writeString(out, p.getAddress());
+                writeString(out, p.getFullAddress());
+                writeString(out, p.getWorkTime());
+                writeDouble(out, p.getLongitude());
+                writeDouble(out, p.getLatitude());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IOException если снимок повреждён или записан другой версией формата
+     */
+    static List<CdekPvzDTO> decode(byte[] snapshot) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new ByteArrayInputStream(snapshot))))) {
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported PVZ snapshot version " + version);
+            }
+            int count = in.readInt();
+            List<CdekPvzDTO> points = new ArrayList<>(count);
+            // Городов на порядки меньше, чем пунктов — держим по одной копии строки
+            Map<String, String> cities = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                points.add(CdekPvzDTO.builder()
+                        .code(readString(in))
+                        .name(readString(in))
+                        .city(dedupe(cities, readString(in)))
+                        .address(readString(in))
+                        .fullAddress(readString(in))
+                        .workTime(readString(in))
+                        .longitude(readDouble(in))
+                        .latitude(readDouble(in))
+                        .build());
+            }
+            return points;
+        }
+    }
+
+    static String dedupe(Map<String, String> pool, String value) {
+        return value == null ? null : pool.computeIfAbsent(value, v -> v);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDouble(DataOutputStream out, Double value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static Double readDouble(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+}
@@ -0,0 +1,91 @@
+package ru.anyforms.service.impl;
+
+import com.google.common.hash.Hashing;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.anyforms.dto.webhook.WebhookTaskPayload;
+import ru.anyforms.model.webhook.WebhookSource;
+import ru.anyforms.repository.WebhookInbox;
+import ru.anyforms.service.WebhookIntake;
+import ru.anyforms.service.task.TaskAdder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Запись в inbox и постановка таски — одна транзакция: либо вебхук принят и будет обработан,
+ * либо отправитель получает 500 и повторяет доставку. Дубликат (тот же sha256 тела от того же
+ * отправителя) — дешёвый INSERT … ON CONFLICT DO NOTHING без таски.
+ * <p>
+ * Обработанные записи старше {@code webhooks.inbox.keep-days} ночью удаляются пачками —
+ * в пределах этого окна повторы отправителя отсекаются.
+ */
+@Log4j2
+@Service
+class WebhookIntakeImpl implements WebhookIntake {
+
+    /** Предохранитель: за один прогон не больше стольких пачек, остальное доберёт следующая ночь. */
+    private static final int MAX_BATCHES_PER_RUN = 1000;
+
+    private final WebhookInbox webhookInbox;
+    private final TaskAdder taskAdder;
+    private final Duration keep;
+    private final int batchSize;
+
+    WebhookIntakeImpl(WebhookInbox webhookInbox,
+                      TaskAdder taskAdder,
+                      @Value("${webhooks.inbox.keep-days:7}") int keepDays,
+                      @Value("${webhooks.inbox.retention.batch-size:1000}") int batchSize) {
+        this.webhookInbox = webhookInbox;
+        this.taskAdder = taskAdder;
+        this.keep = Duration.ofDays(keepDays);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional
+    public boolean accept(WebhookSource source, String payload) {
+        String hash = Hashing.sha256().hashString(payload, StandardCharsets.UTF_8).toString();
+        Optional<Long> inboxId = webhookInbox.accept(source, hash, payload);
+        if (inboxId.isEmpty()) {
+            log.info("Duplicate {} webhook {} skipped", source, hash);
+            return false;
+        }
+        taskAdder.addTask(WebhookTaskPayload.builder().inboxId(inboxId.get()).build());
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public void splitByLeads(Long inboxId, List<Long> leadIds) {
+        for (Long leadId : leadIds) {
+            taskAdder.addTask(WebhookTaskPayload.builder().inboxId(inboxId).leadId(leadId).build());
+        }
+        webhookInbox.markProcessed(inboxId, Instant.now());
+    }
+
+    @Scheduled(cron = "${webhooks.inbox.retention.cron:0 45 3 * * *}", zone = "Europe/Moscow")
+    public void deleteOldEntries() {
+        Instant before = Instant.now().minus(keep);
+        int total = 0;
+        try {
+            for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                int deleted = webhookInbox.deleteProcessedBefore(before, batchSize);
+                total += deleted;
+                if (deleted < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Очистка webhook_inbox прервана, удалено {}", total, e);
+            return;
+        }
+        log.info("Deleted {} processed webhook_inbox entr(ies) received before {}", total, before);
+    }
+}
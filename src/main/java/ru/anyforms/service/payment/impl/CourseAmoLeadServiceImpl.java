@@ -52,6 +52,10 @@ class CourseAmoLeadServiceImpl implements CourseAmoLeadService {
                 && !amoCrmGateway.updateLeadStatus(leadId, AmoLeadStatus.REALIZED.getStatusId(), educationPipelineId)) {
             throw new IllegalStateException("Не удалось перевести сделку " + leadId + " в «Реализовано»");
         }
+        // Бюджет, тег и статус копятся в буфере шлюза — дожидаемся подтверждения amo, иначе задача не повторится
+        if (!amoCrmGateway.flushLeadWrites(leadId)) {
+            throw new IllegalStateException("amo не принял правки сделки " + leadId);
+        }
         log.info("Курс: сделка {} закрыта в «Реализовано» с бюджетом {} ₽ и тегом «{}» (транзакция {})",
                 leadId, priceRub, TAG, transaction.getId());
     }
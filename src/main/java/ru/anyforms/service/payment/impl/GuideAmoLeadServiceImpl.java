@@ -60,7 +60,8 @@ class GuideAmoLeadServiceImpl implements GuideAmoLeadService {
         log.info("Гайд: у клиента уже есть активная сделка {} в воронке обучения — переводим в «Гайд куплен» (транзакция {})",
                 leadId, transaction.getId());
         if (!amoCrmGateway.updateLeadStatus(leadId, guideBoughtStatusId, educationPipelineId,
-                AmoTaskResponsibleUser.IRINA.getResponsibleUserId())) {
+                AmoTaskResponsibleUser.IRINA.getResponsibleUserId())
+                || !amoCrmGateway.flushLeadWrites(leadId)) {
             throw new IllegalStateException("Не удалось перевести сделку " + leadId + " в статус «Гайд куплен»");
         }
         return leadId;
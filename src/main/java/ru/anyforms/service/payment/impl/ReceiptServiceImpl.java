@@ -12,8 +12,10 @@ import ru.anyforms.dto.payment.ReceiptTaskDTO;
 import ru.anyforms.dto.payment.ReceiptTransactionDTO;
 import ru.anyforms.model.payment.PaymentProduct;
 import ru.anyforms.model.payment.PaymentProvider;
+import ru.anyforms.model.payment.PaymentTransaction;
 import ru.anyforms.model.payment.PaymentTransactionStatus;
 import ru.anyforms.model.task.Task;
+import ru.anyforms.model.task.TaskCursor;
 import ru.anyforms.model.task.TaskStatus;
 import ru.anyforms.model.task.TaskType;
 import ru.anyforms.repository.GetterPaymentProduct;
@@ -22,9 +24,12 @@ import ru.anyforms.repository.GetterTransaction;
 import ru.anyforms.service.payment.ReceiptService;
 import ru.anyforms.service.task.TaskAdder;
 
+import java.time.Instant;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -45,6 +50,12 @@ class ReceiptServiceImpl implements ReceiptService {
     private final TaskAdder taskAdder;
     private final Gson gson = new Gson();
 
+    /** Страница keyset-выборки RECEIPT_EMAIL при сверке «чек отправлен». */
+    private static final int RECEIPT_PAGE_SIZE = 200;
+
+    /** Сколько страниц чеков смотреть, если у транзакций нет ни одной даты и окна по времени нет. */
+    private static final int RECEIPT_FALLBACK_PAGES = 10;
+
     @Override
     public void sendReceipt(ReceiptSendRequest request) {
         String link = request.getLink().trim();
@@ -72,12 +83,14 @@ class ReceiptServiceImpl implements ReceiptService {
     @Override
     public List<ReceiptTransactionDTO> paidTransactions(int limit) {
         Map<String, String> titlesByCode = productTitlesByCode();
+        List<PaymentTransaction> transactions = getterTransaction.getRecentByProviderStatusAndProductCodes(
+                PaymentProvider.YOOKASSA, PaymentTransactionStatus.SUCCEEDED, TRAINING_PRODUCT_CODES, limit);
         Set<String> sentEmailProductPairs = new HashSet<>();
         Set<String> sentLegacyEmails = new HashSet<>();
-        collectSentReceipts(sentEmailProductPairs, sentLegacyEmails);
-        return getterTransaction.getRecentByProviderStatusAndProductCodes(
-                        PaymentProvider.YOOKASSA, PaymentTransactionStatus.SUCCEEDED, TRAINING_PRODUCT_CODES, limit)
-                .stream()
+        if (!transactions.isEmpty()) {
+            collectSentReceipts(oldestCreatedAt(transactions), sentEmailProductPairs, sentLegacyEmails);
+        }
+        return transactions.stream()
                 .map(t -> ReceiptTransactionDTO.from(
                         t,
                         titlesByCode.get(t.getProductCode()),
@@ -85,22 +98,51 @@ class ReceiptServiceImpl implements ReceiptService {
                 .toList();
     }
 
-    private void collectSentReceipts(Set<String> emailProductPairs, Set<String> legacyEmails) {
-        for (Task task : getterTask.getAllByType(TaskType.RECEIPT_EMAIL)) {
-            if (task.getStatus() == TaskStatus.FAILED) {
-                continue;
+    /**
+     * Чек шлют после оплаты, поэтому для страницы транзакций достаточно чеков, созданных не раньше
+     * самой старой из них: листаем RECEIPT_EMAIL от новых к старым keyset-страницами и
+     * останавливаемся на {@code since} — стоимость зависит от окна страницы, а не от всей истории.
+     * Без {@code since} (у транзакций нет дат) смотрим последние {@link #RECEIPT_FALLBACK_PAGES} страниц.
+     */
+    private void collectSentReceipts(Instant since, Set<String> emailProductPairs, Set<String> legacyEmails) {
+        TaskCursor cursor = null;
+        for (int pages = 0; since != null || pages < RECEIPT_FALLBACK_PAGES; pages++) {
+            List<Task> page = getterTask.getPageByType(TaskType.RECEIPT_EMAIL, cursor, RECEIPT_PAGE_SIZE);
+            for (Task task : page) {
+                if (since != null && task.getCreatedAt().isBefore(since)) {
+                    return;
+                }
+                collectSentReceipt(task, emailProductPairs, legacyEmails);
             }
-            ReceiptEmailTaskPayload payload = parsePayload(task.getPayload());
-            if (payload == null || payload.getTo() == null || payload.getTo().isBlank()) {
-                continue;
-            }
-            String email = payload.getTo().trim().toLowerCase();
-            if (payload.getProductCode() == null || payload.getProductCode().isBlank()) {
-                legacyEmails.add(email);
-            } else {
-                emailProductPairs.add(email + "|" + payload.getProductCode().trim());
+            if (page.size() < RECEIPT_PAGE_SIZE) {
+                return;
             }
+            cursor = TaskCursor.after(page.get(page.size() - 1));
+        }
+    }
+
+    private void collectSentReceipt(Task task, Set<String> emailProductPairs, Set<String> legacyEmails) {
+        if (task.getStatus() == TaskStatus.DEAD) {
+            return;
+        }
+        ReceiptEmailTaskPayload payload = parsePayload(task.getPayload());
+        if (payload == null || payload.getTo() == null || payload.getTo().isBlank()) {
+            return;
         }
+        String email = payload.getTo().trim().toLowerCase();
+        if (payload.getProductCode() == null || payload.getProductCode().isBlank()) {
+            legacyEmails.add(email);
+        } else {
+            emailProductPairs.add(email + "|" + payload.getProductCode().trim());
+        }
+    }
+
+    private static Instant oldestCreatedAt(List<PaymentTransaction> transactions) {
+        return transactions.stream()
+                .map(t -> t.getCreatedAt() != null ? t.getCreatedAt() : t.getUpdatedAt())
+                .filter(Objects::nonNull)
+                .min(Comparator.naturalOrder())
+                .orElse(null);
     }
 
     private boolean receiptSent(Set<String> emailProductPairs, Set<String> legacyEmails, String email, String productCode) {
@@ -3,6 +3,7 @@ package ru.anyforms.service.salesbot;
 import ru.anyforms.model.salesbot.OrderType;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -28,6 +29,16 @@ public interface BotExecutionReader {
      */
     boolean alreadySentToday(Long leadId, Instant now);
 
+    /**
+     * Пакетный вариант {@link #successPositions} и {@link #alreadySentToday} для пачки лидов
+     * (страницы amo): один запрос к БД вместо двух на каждого лида.
+     *
+     * @param leadIds лиды пачки
+     * @param type    тип заказа, по которому считаются позиции
+     * @param now     текущий момент (для дневного guard'а)
+     */
+    ExecutionProgress progressOf(Collection<Long> leadIds, OrderType type, Instant now);
+
     /**
      * Был ли указанный бот уже успешно запущен для указанного лида.
      * Дедуп ручного массового запуска (вне дрип-цепочки): бот не уходит лиду дважды.
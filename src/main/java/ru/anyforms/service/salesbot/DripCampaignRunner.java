@@ -7,9 +7,9 @@ package ru.anyforms.service.salesbot;
  * настроенному типу достаёт лидов (запрос №1), для каждого вычисляет следующего бота,
  * перепроверяет статус, запускает бота (запрос №2) и пишет результат в лог.
  * <p>
- * Зависит только от портов ({@link OrderTypeFunnelDirectory}, {@link LeadProvider},
- * {@link NextBotResolver}, {@link LeadStatusVerifier}, {@link SalesbotTrigger},
- * {@link BotExecutionRecorder}) — ничего не знает про amoCRM/БД напрямую.
+ * Зависит только от портов ({@link OrderTypeFunnelDirectory}, {@link BotSequenceProvider},
+ * {@link LeadProvider}, {@link NextBotResolver}, {@link LeadStatusVerifier}, {@link SalesbotTrigger},
+ * {@link BotExecutionRecorder}, {@link BotExecutionReader}) — ничего не знает про amoCRM/БД напрямую.
  */
 public interface DripCampaignRunner {
 
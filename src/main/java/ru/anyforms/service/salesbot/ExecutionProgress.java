@@ -0,0 +1,32 @@
+package ru.anyforms.service.salesbot;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Снимок прогресса цепочки для пачки лидов прогона (до 250): загружается из лога одним
+ * запросом на пачку ({@link BotExecutionReader#progressOf}), дальше следующий бот и дневной guard
+ * считаются в памяти. Значение-объект (immutable).
+ *
+ * @param successPositionsByLead lead_id → позиции типа со статусом success
+ * @param sentToday              лиды, которым сегодня (UTC) уже успешно уходил бот любого типа
+ */
+public record ExecutionProgress(Map<Long, Set<Integer>> successPositionsByLead, Set<Long> sentToday) {
+
+    public static final ExecutionProgress EMPTY = new ExecutionProgress(Map.of(), Set.of());
+
+    public ExecutionProgress {
+        successPositionsByLead = Map.copyOf(successPositionsByLead);
+        sentToday = Set.copyOf(sentToday);
+    }
+
+    /** @see BotExecutionReader#successPositions */
+    public Set<Integer> successPositions(Long leadId) {
+        return successPositionsByLead.getOrDefault(leadId, Set.of());
+    }
+
+    /** @see BotExecutionReader#alreadySentToday */
+    public boolean alreadySentToday(Long leadId) {
+        return sentToday.contains(leadId);
+    }
+}
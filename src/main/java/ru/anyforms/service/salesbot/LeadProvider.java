@@ -9,10 +9,11 @@ import java.util.List;
 public interface LeadProvider {
 
     /**
-     * Возвращает ID всех лидов, находящихся в заданной воронке/статусе.
-     * <p>
-     * TODO(пагинация): сейчас без постраничной выборки (лидов десятки). При росте объёма
-     * добавить пагинацию по amoCRM ({@code page}/{@code limit}).
+     * Возвращает ID всех лидов, находящихся в заданной воронке/статусе. Список снимается целиком
+     * до начала обработки: боты, запущенные по первым страницам, выводят лиды из статуса и сдвигали бы
+     * следующие страницы amo (обход идёт по смещению) — часть лидов пропускалась бы.
+     *
+     * @throws RuntimeException если список не удалось получить целиком
      *
      * @param target целевая воронка/статус
      * @return список lead_id (может быть пустым)
@@ -1,5 +1,8 @@
 package ru.anyforms.service.salesbot;
 
+import java.util.Collection;
+import java.util.Set;
+
 /**
  * Перепроверка актуального статуса лида непосредственно перед запуском бота.
  * <p>
@@ -8,9 +11,21 @@ package ru.anyforms.service.salesbot;
  */
 public interface LeadStatusVerifier {
 
+    /** Сколько лидов перепроверяется за один запрос к amoCRM (максимум страницы amo). */
+    int BATCH_SIZE = 250;
+
     /**
      * @return {@code true}, если лид прямо сейчас находится в целевой воронке и статусе.
      *         {@code false} — если вышел из статуса (или статус не удалось прочитать).
      */
     boolean isInTargetStatus(Long leadId, FunnelTarget target);
+
+    /**
+     * Пакетная перепроверка: статусы всех переданных лидов перечитываются одним запросом
+     * (до {@value #BATCH_SIZE} лидов), а не по запросу на лид.
+     *
+     * @return подмножество {@code leadIds}, которое прямо сейчас в целевой воронке и статусе.
+     *         Лиды, статус которых прочитать не удалось, в результат не попадают.
+     */
+    Set<Long> leadsInTargetStatus(Collection<Long> leadIds, FunnelTarget target);
 }
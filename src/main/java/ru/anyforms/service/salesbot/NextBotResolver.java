@@ -2,7 +2,9 @@ package ru.anyforms.service.salesbot;
 
 import ru.anyforms.model.salesbot.OrderType;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Доменный сервис выбора следующего бота для лида.
@@ -18,4 +20,13 @@ public interface NextBotResolver {
      *         уже отработала (все позиции success) — тогда лиду больше ничего не шлём.
      */
     Optional<BotStep> nextBot(OrderType type, Long leadId);
+
+    /**
+     * То же правило без обращений к БД: цепочка и прогресс уже загружены на весь прогон
+     * (см. {@link ExecutionProgress}).
+     *
+     * @param sequence      цепочка типа, отсортированная по позиции
+     * @param donePositions позиции лида со статусом success
+     */
+    Optional<BotStep> nextBot(List<BotStep> sequence, Set<Integer> donePositions);
 }
@@ -7,12 +7,18 @@ import org.springframework.transaction.annotation.Transactional;
 import ru.anyforms.model.salesbot.BotExecutionStatus;
 import ru.anyforms.model.salesbot.OrderType;
 import ru.anyforms.repository.BotExecutionLogRepository;
+import ru.anyforms.repository.BotExecutionProgressRow;
 import ru.anyforms.service.salesbot.BotExecutionReader;
 import ru.anyforms.service.salesbot.BotExecutionRecorder;
 import ru.anyforms.service.salesbot.BotStep;
+import ru.anyforms.service.salesbot.ExecutionProgress;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -39,6 +45,26 @@ class BotExecutionLogStore implements BotExecutionReader, BotExecutionRecorder {
                 leadId, BotExecutionStatus.SUCCESS, dayStart);
     }
 
+    @Override
+    public ExecutionProgress progressOf(Collection<Long> leadIds, OrderType type, Instant now) {
+        if (leadIds == null || leadIds.isEmpty()) {
+            return ExecutionProgress.EMPTY;
+        }
+        Instant dayStart = now.truncatedTo(ChronoUnit.DAYS); // UTC-полночь текущих суток
+        Map<Long, Set<Integer>> positions = new HashMap<>();
+        Set<Long> sentToday = new HashSet<>();
+        for (BotExecutionProgressRow row : repository.findSuccessRows(leadIds.toArray(Long[]::new), dayStart)) {
+            // Позиции считаются в рамках типа, дневной guard — по любому типу (как alreadySentToday).
+            if (type.name().equals(row.getType())) {
+                positions.computeIfAbsent(row.getLeadId(), id -> new HashSet<>()).add(row.getPosition());
+            }
+            if (Boolean.TRUE.equals(row.getSentToday())) {
+                sentToday.add(row.getLeadId());
+            }
+        }
+        return new ExecutionProgress(positions, sentToday);
+    }
+
     @Override
     public boolean alreadyExecuted(Long leadId, Long botId) {
         return repository.existsByLeadIdAndBotIdAndStatus(leadId, botId, BotExecutionStatus.SUCCESS);
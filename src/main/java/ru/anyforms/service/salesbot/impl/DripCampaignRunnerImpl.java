@@ -1,52 +1,81 @@
 package ru.anyforms.service.salesbot.impl;
 
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import ru.anyforms.model.salesbot.OrderType;
 import ru.anyforms.service.salesbot.*;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Реализация одного прогона дрип-кампании. Зависит только от портов (DIP):
  * ничего не знает про amoCRM/БД напрямую.
  * <p>
  * Троттлинг под лимит amoCRM здесь НЕ делается — он живёт в самом {@link ru.anyforms.integration.AmoCrmGateway}
- * (rate-limited декоратор), поэтому бизнес-логика просто зовёт порты последовательно.
+ * (token bucket на каждый HTTP-запрос). Типы, пачки и лиды обрабатываются параллельно в
+ * пуле прогона ({@link DripRun}); одновременно в amo ходят не больше
+ * {@code salesbot.drip.concurrency} лидов, при {@code 1} прогон фактически последовательный.
  */
 @Slf4j
 @Component
-@AllArgsConstructor
 class DripCampaignRunnerImpl implements DripCampaignRunner {
 
     private final OrderTypeFunnelDirectory funnelDirectory;
+    private final BotSequenceProvider sequenceProvider;
     private final LeadProvider leadProvider;
     private final NextBotResolver nextBotResolver;
     private final LeadStatusVerifier leadStatusVerifier;
     private final SalesbotTrigger salesbotTrigger;
     private final BotExecutionRecorder executionRecorder;
     private final BotExecutionReader executionReader;
+    private final int concurrency;
+
+    DripCampaignRunnerImpl(OrderTypeFunnelDirectory funnelDirectory,
+                           BotSequenceProvider sequenceProvider,
+                           LeadProvider leadProvider,
+                           NextBotResolver nextBotResolver,
+                           LeadStatusVerifier leadStatusVerifier,
+                           SalesbotTrigger salesbotTrigger,
+                           BotExecutionRecorder executionRecorder,
+                           BotExecutionReader executionReader,
+                           @Value("${salesbot.drip.concurrency}") int concurrency) {
+        this.funnelDirectory = funnelDirectory;
+        this.sequenceProvider = sequenceProvider;
+        this.leadProvider = leadProvider;
+        this.nextBotResolver = nextBotResolver;
+        this.leadStatusVerifier = leadStatusVerifier;
+        this.salesbotTrigger = salesbotTrigger;
+        this.executionRecorder = executionRecorder;
+        this.executionReader = executionReader;
+        this.concurrency = Math.max(1, concurrency);
+    }
 
     @Override
     public void runOnce() {
         Instant now = Instant.now();
         List<OrderType> types = funnelDirectory.configuredTypes();
-        log.info("Drip campaign run started for {} type(s): {}", types.size(), types);
+        log.info("Drip campaign run started for {} type(s): {}, concurrency={}", types.size(), types, concurrency);
 
-        for (OrderType type : types) {
-            try {
-                processType(type, now);
-            } catch (Exception e) {
-                log.error("Drip campaign failed for type {}", type, e);
-            }
+        try (DripRun run = new DripRun(concurrency)) {
+            run.forEachParallel(types, type -> {
+                try {
+                    processType(run, type, now);
+                } catch (Exception e) {
+                    log.error("Drip campaign failed for type {}", type, e);
+                }
+            });
+            log.info("Drip campaign run finished: {}", run.summary());
         }
-        log.info("Drip campaign run finished");
     }
 
-    private void processType(OrderType type, Instant now) {
+    private void processType(DripRun run, OrderType type, Instant now) {
         Optional<FunnelTarget> target = funnelDirectory.targetFor(type);
         if (target.isEmpty()) {
             log.warn("No funnel configured for type {}, skipping", type);
@@ -54,36 +83,82 @@ class DripCampaignRunnerImpl implements DripCampaignRunner {
         }
         FunnelTarget funnel = target.get();
 
-        // Запрос №1: лиды в целевом статусе (с пагинацией — все, не только первые 250).
+        // Цепочка читается один раз на тип за прогон, а не на каждого лида.
+        List<BotStep> sequence = sequenceProvider.sequenceFor(type);
+        if (sequence.isEmpty()) {
+            log.warn("No bot sequence configured for type {}, skipping", type);
+            return;
+        }
+
+        // Запрос №1: лиды в целевом статусе — весь список до запуска первого бота, иначе боты
+        // сдвигали бы страницы amo. Сбой страницы роняет тип целиком (см. runOnce), а не обрезает список.
+        // Слот amo на обход не берём: запросы страниц и так проходят через token bucket.
         List<Long> leads = leadProvider.leadsInStatus(funnel);
         log.info("Type {}: {} lead(s) in target status", type, leads.size());
+        run.leadsSeen(leads.size());
 
-        for (Long leadId : leads) {
+        List<List<Long>> batches = new ArrayList<>();
+        for (int i = 0; i < leads.size(); i += LeadStatusVerifier.BATCH_SIZE) {
+            batches.add(leads.subList(i, Math.min(i + LeadStatusVerifier.BATCH_SIZE, leads.size())));
+        }
+        run.forEachParallel(batches, batch -> {
             try {
-                processLead(type, funnel, leadId, now);
+                processBatch(run, type, now, funnel, sequence, batch);
+            } catch (Exception e) {
+                log.error("Failed to process batch of {} lead(s) (type {})", batch.size(), type, e);
+            }
+        });
+    }
+
+    /**
+     * Пачка лидов (одна страница amo): прогресс всей пачки одним запросом к БД, по нему выбираем,
+     * кому сегодня положен бот, затем ОДНИМ запросом перечитываем их статусы в amo и сразу
+     * запускаем ботов — окно гонки остаётся коротким.
+     */
+    private void processBatch(DripRun run, OrderType type, Instant now, FunnelTarget funnel,
+                              List<BotStep> sequence, List<Long> batch) {
+        ExecutionProgress progress = executionReader.progressOf(batch, type, now);
+        Map<Long, BotStep> due = new LinkedHashMap<>();
+        for (Long leadId : batch) {
+            try {
+                nextDueStep(sequence, progress, leadId).ifPresent(step -> due.put(leadId, step));
             } catch (Exception e) {
                 log.error("Failed to process lead {} (type {})", leadId, type, e);
             }
         }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        // Перечитываем актуальный статус: лид мог выйти из статуса между запросом №1 и сейчас.
+        Set<Long> stillInStatus = run.withAmoSlot(() -> leadStatusVerifier.leadsInTargetStatus(due.keySet(), funnel));
+
+        run.forEachParallel(due.entrySet(), entry -> {
+            Long leadId = entry.getKey();
+            try {
+                run.withAmoSlot(() -> {
+                    fire(run, type, leadId, entry.getValue(), stillInStatus.contains(leadId));
+                    return null;
+                });
+            } catch (Exception e) {
+                log.error("Failed to process lead {} (type {})", leadId, type, e);
+            }
+        });
     }
 
-    private void processLead(OrderType type, FunnelTarget funnel, Long leadId, Instant now) {
+    private Optional<BotStep> nextDueStep(List<BotStep> sequence, ExecutionProgress progress, Long leadId) {
         // Дневной guard: если лиду сегодня уже успешно отправляли бота — не шлём повторно
         // (защита от случайного двойного прогона за сутки: рестарт/catch-up). Только по нашей БД.
-        if (executionReader.alreadySentToday(leadId, now)) {
+        if (progress.alreadySentToday(leadId)) {
             log.info("Lead {} already received a bot today — skipping (per-day guard)", leadId);
-            return;
+            return Optional.empty();
         }
+        // Пусто — вся цепочка уже отработала: ничего не делаем, лид остаётся.
+        return nextBotResolver.nextBot(sequence, progress.successPositions(leadId));
+    }
 
-        Optional<BotStep> next = nextBotResolver.nextBot(type, leadId);
-        if (next.isEmpty()) {
-            // Вся цепочка уже отработала — ничего не делаем, лид остаётся.
-            return;
-        }
-        BotStep step = next.get();
-
-        // Перечитываем актуальный статус: лид мог выйти из статуса между запросом №1 и сейчас.
-        if (!leadStatusVerifier.isInTargetStatus(leadId, funnel)) {
+    private void fire(DripRun run, OrderType type, Long leadId, BotStep step, boolean inTargetStatus) {
+        if (!inTargetStatus) {
             log.info("Lead {} left target status before bot {} (pos {}); recording FAILED, skipping",
                     leadId, step.botId(), step.position());
             executionRecorder.recordFailed(leadId, type, step);
@@ -91,7 +166,7 @@ class DripCampaignRunnerImpl implements DripCampaignRunner {
         }
 
         // Запрос №2: запуск бота (fire-and-forget, без ретраев).
-        boolean ok = salesbotTrigger.run(leadId, step.botId());
+        boolean ok = run.timedTrigger(() -> salesbotTrigger.run(leadId, step.botId()));
         if (ok) {
             executionRecorder.recordSuccess(leadId, type, step);
         } else {
@@ -0,0 +1,132 @@
+package ru.anyforms.service.salesbot.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Контекст одного прогона дрип-кампании: пул потоков, ограничение параллелизма
+ * и метрики прогона.
+ * <p>
+ * Пул фиксированный ({@code salesbot.drip.concurrency} потоков). Задачи верхних уровней (типы, пачки)
+ * ждут дочерние, но ещё не взятые пулом дочерние задачи выполняют сами — ожидание не занимает потоки
+ * пула впустую и не может исчерпать его. Семафор
+ * ({@code salesbot.drip.concurrency}) берут лишь «листья», которые ходят в amo — поэтому
+ * вложенный параллелизм не может заблокироваться. Общий лимит amo по-прежнему соблюдает
+ * token bucket в {@link ru.anyforms.integration.AmoCrmGateway}: параллелизм лишь не даёт ему простаивать.
+ */
+@Slf4j
+final class DripRun implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Semaphore amoSlots;
+    private final long startedAtNanos = System.nanoTime();
+
+    private final AtomicInteger leads = new AtomicInteger();
+    private final AtomicInteger triggered = new AtomicInteger();
+    private final Queue<Long> triggerLatenciesNanos = new ConcurrentLinkedQueue<>();
+
+    DripRun(int concurrency) {
+        this.amoSlots = new Semaphore(Math.max(1, concurrency));
+        this.executor = Executors.newFixedThreadPool(Math.max(1, concurrency),
+                new ThreadFactoryBuilder().setNameFormat("drip-%d").setDaemon(true).build());
+    }
+
+    /** Выполняет {@code action} для всех элементов параллельно и ждёт завершения всех. */
+    <T> void forEachParallel(Collection<T> items, Consumer<T> action) {
+        List<Future<?>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(executor.submit(() -> action.accept(item)));
+        }
+        awaitAll(futures);
+    }
+
+    private void awaitAll(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            // Задача ещё в очереди — выполняем её в текущем потоке; взятая пулом просто не запустится повторно.
+            if (future instanceof RunnableFuture<?> task) {
+                task.run();
+            }
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.error("Drip task failed", e.getCause());
+            }
+        }
+    }
+
+    /** Обращение к amo под семафором параллелизма прогона. */
+    <T> T withAmoSlot(Supplier<T> call) {
+        amoSlots.acquireUninterruptibly();
+        try {
+            return call.get();
+        } finally {
+            amoSlots.release();
+        }
+    }
+
+    /** Запуск бота с замером латентности (для p99 в итогах прогона). */
+    boolean timedTrigger(BooleanSupplier trigger) {
+        long start = System.nanoTime();
+        try {
+            return trigger.getAsBoolean();
+        } finally {
+            triggerLatenciesNanos.add(System.nanoTime() - start);
+            triggered.incrementAndGet();
+        }
+    }
+
+    void leadsSeen(int count) {
+        leads.addAndGet(count);
+    }
+
+    /** Итоги прогона: лидов, лидов в секунду, запусков ботов и p99 латентности запуска. */
+    String summary() {
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startedAtNanos);
+        double seconds = Math.max(elapsed.toMillis(), 1) / 1000d;
+        return String.format("%d lead(s) in %d ms (%.1f leads/s), %d bot trigger(s), trigger p99=%d ms",
+                leads.get(), elapsed.toMillis(), leads.get() / seconds, triggered.get(), p99TriggerMillis());
+    }
+
+    private long p99TriggerMillis() {
+        long[] sorted = triggerLatenciesNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(sorted.length * 0.99) - 1;
+        return Duration.ofNanos(sorted[Math.max(index, 0)]).toMillis();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -8,11 +8,16 @@ import ru.anyforms.model.amo.AmoLead;
 import ru.anyforms.service.salesbot.FunnelTarget;
 import ru.anyforms.service.salesbot.LeadStatusVerifier;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Адаптер {@link LeadStatusVerifier} поверх {@link AmoCrmGateway}: перечитывает сделку
- * и сверяет её текущую воронку/статус с целевыми.
+ * (или пачку сделок через {@link AmoCrmGateway#getLeadsByIds}) и сверяет текущую
+ * воронку/статус с целевыми.
  */
 @Slf4j
 @Component
@@ -24,16 +29,34 @@ class LeadStatusVerifierAmoAdapter implements LeadStatusVerifier {
     @Override
     public boolean isInTargetStatus(Long leadId, FunnelTarget target) {
         try {
-            AmoLead lead = amoCrmGateway.getLead(leadId);
-            if (lead == null) {
-                return false;
-            }
-            return Objects.equals(lead.getPipelineId(), target.pipelineId())
-                    && Objects.equals(lead.getStatusId(), target.statusId());
+            return inTarget(amoCrmGateway.getLead(leadId), target);
         } catch (Exception e) {
             // Не удалось прочитать статус — безопаснее не слать бота.
             log.warn("Failed to verify status for lead {}: {}", leadId, e.getMessage());
             return false;
         }
     }
+
+    @Override
+    public Set<Long> leadsInTargetStatus(Collection<Long> leadIds, FunnelTarget target) {
+        if (leadIds == null || leadIds.isEmpty()) {
+            return Set.of();
+        }
+        try {
+            return amoCrmGateway.getLeadsByIds(List.copyOf(leadIds)).stream()
+                    .filter(lead -> inTarget(lead, target))
+                    .map(AmoLead::getId)
+                    .collect(Collectors.toSet());
+        } catch (Exception e) {
+            // Не удалось прочитать статусы — безопаснее не слать ботов всей пачке.
+            log.warn("Failed to verify status for {} lead(s): {}", leadIds.size(), e.getMessage());
+            return Set.of();
+        }
+    }
+
+    private static boolean inTarget(AmoLead lead, FunnelTarget target) {
+        return lead != null
+                && Objects.equals(lead.getPipelineId(), target.pipelineId())
+                && Objects.equals(lead.getStatusId(), target.statusId());
+    }
 }
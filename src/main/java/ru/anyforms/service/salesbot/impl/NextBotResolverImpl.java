@@ -32,9 +32,13 @@ class NextBotResolverImpl implements NextBotResolver {
         if (sequence.isEmpty()) {
             return Optional.empty();
         }
-        Set<Integer> done = executionReader.successPositions(leadId, type);
+        return nextBot(sequence, executionReader.successPositions(leadId, type));
+    }
+
+    @Override
+    public Optional<BotStep> nextBot(List<BotStep> sequence, Set<Integer> donePositions) {
         return sequence.stream()
-                .filter(step -> !done.contains(step.position()))
+                .filter(step -> !donePositions.contains(step.position()))
                 .findFirst();
     }
 }
@@ -0,0 +1,39 @@
+package ru.anyforms.service.sheets;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Зеркало листа заказов ({@code google.sheets.sheet.name}) в памяти.
+ * <p>
+ * Поиск строки по ID сделки (из ссылки в колонке E) и по трекеру (колонка I) идёт по
+ * хеш-индексам, без запроса в Google. Новые строки подтягиваются пробой длины колонки A
+ * и дочитыванием хвоста; собственные записи через зеркало сразу отражаются в индексах.
+ */
+public interface OrderSheetMirror {
+
+    Optional<SheetRow> findByLeadId(Long leadId);
+
+    /**
+     * Трекер сравнивается без пробелов и дефисов, как в таблице его вводят вручную
+     */
+    Optional<SheetRow> findByTracker(String tracker);
+
+    Optional<SheetRow> findByRowNumber(int rowNumber);
+
+    /**
+     * Перечитывает лист целиком и возвращает все строки, начиная со второй (без заголовка)
+     */
+    List<SheetRow> reload();
+
+    /**
+     * Записывает ячейку сразу (один запрос в Google) и обновляет зеркало
+     */
+    void writeCell(int rowNumber, int columnIndex, String value);
+
+    /**
+     * Ставит запись ячейки в буфер шлюза и обновляет зеркало
+     * ({@link ru.anyforms.integration.GoogleSheetsGateway#bufferCell})
+     */
+    void bufferCell(int rowNumber, int columnIndex, String value);
+}
@@ -0,0 +1,24 @@
+package ru.anyforms.service.sheets;
+
+import java.util.List;
+
+/**
+ * Строка таблицы заказов.
+ *
+ * @param rowNumber номер строки в таблице (1-based)
+ * @param cells     значения колонок A..Z; хвостовые пустые ячейки Google не возвращает
+ */
+public record SheetRow(int rowNumber, List<Object> cells) {
+
+    /**
+     * Значение ячейки по индексу колонки ({@link ru.anyforms.util.sheets.GoogleSheetsColumnIndex}),
+     * пустая строка для отсутствующей ячейки
+     */
+    public String cell(int columnIndex) {
+        if (cells == null || columnIndex < 0 || columnIndex >= cells.size()) {
+            return "";
+        }
+        Object value = cells.get(columnIndex);
+        return value != null ? value.toString().trim() : "";
+    }
+}
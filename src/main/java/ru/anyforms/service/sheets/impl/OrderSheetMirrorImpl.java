@@ -0,0 +1,266 @@
+package ru.anyforms.service.sheets.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.anyforms.integration.GoogleSheetsGateway;
+import ru.anyforms.service.sheets.OrderSheetMirror;
+import ru.anyforms.service.sheets.SheetRow;
+import ru.anyforms.util.LeadUrlExtractor;
+import ru.anyforms.util.sheets.GoogleSheetsColumnIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Зеркало листа заказов.
+ * <p>
+ * Строки хранятся списком (индекс = номер строки - 1), индексы — {@code leadId -> строка} и
+ * {@code трекер -> строка}; при дублях выигрывает верхняя строка, как при линейном поиске.
+ * <p>
+ * Свежесть:
+ * <ul>
+ *     <li>промах по индексу — проба длины колонки A (не чаще {@code google.sheets.mirror.probe-ms})
+ *     и дочитывание только новых строк;</li>
+ *     <li>если после этого промах остался — полное перечитывание, не чаще
+ *     {@code google.sheets.mirror.miss-reload-ms} (ловит правки и вставки в середину листа);</li>
+ *     <li>раз в {@code google.sheets.mirror.full-reload-ms} лист перечитывается целиком при первом обращении;</li>
+ *     <li>попадание по индексу (leadId/трекер) сверяется с самой строкой листа — одно чтение строки:
+ *     после сортировки или вставки строк выше индекс указывает на чужой заказ, и запись ушла бы не туда.
+ *     Не совпало — полное перечитывание.</li>
+ * </ul>
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+class OrderSheetMirrorImpl implements OrderSheetMirror {
+
+    private static final int HEADER_ROWS = 1;
+
+    private final GoogleSheetsGateway googleSheetsGateway;
+
+    @Value("${google.sheets.sheet.name}")
+    private String sheetName;
+
+    @Value("${google.sheets.mirror.probe-ms:5000}")
+    private long probeMs;
+
+    @Value("${google.sheets.mirror.miss-reload-ms:60000}")
+    private long missReloadMs;
+
+    @Value("${google.sheets.mirror.full-reload-ms:600000}")
+    private long fullReloadMs;
+
+    private final List<List<Object>> rows = new ArrayList<>();
+    private final Map<Long, Integer> rowByLeadId = new HashMap<>();
+    private final Map<String, Integer> rowByTracker = new HashMap<>();
+
+    /** Длина колонки A на момент последнего чтения — с ней сравнивается проба. */
+    private int columnALength;
+    private long loadedAt;
+    private long probedAt;
+
+    @Override
+    public synchronized Optional<SheetRow> findByLeadId(Long leadId) {
+        if (leadId == null) {
+            return Optional.empty();
+        }
+        return lookup(() -> rowByLeadId.get(leadId),
+                cells -> leadId.equals(LeadUrlExtractor.extract(cell(cells, GoogleSheetsColumnIndex.COLUMN_E_INDEX))));
+    }
+
+    @Override
+    public synchronized Optional<SheetRow> findByTracker(String tracker) {
+        String key = normalizeTracker(tracker);
+        if (key.isEmpty()) {
+            return Optional.empty();
+        }
+        return lookup(() -> rowByTracker.get(key),
+                cells -> key.equals(normalizeTracker(cell(cells, GoogleSheetsColumnIndex.COLUMN_I_INDEX))));
+    }
+
+    @Override
+    public synchronized Optional<SheetRow> findByRowNumber(int rowNumber) {
+        if (rowNumber <= HEADER_ROWS) {
+            return Optional.empty();
+        }
+        return lookup(() -> rowNumber <= rows.size() ? rowNumber : null, null);
+    }
+
+    @Override
+    public synchronized List<SheetRow> reload() {
+        loadAll();
+        List<SheetRow> result = new ArrayList<>(Math.max(rows.size() - HEADER_ROWS, 0));
+        for (int rowNumber = HEADER_ROWS + 1; rowNumber <= rows.size(); rowNumber++) {
+            result.add(rowAt(rowNumber));
+        }
+        return result;
+    }
+
+    @Override
+    public void writeCell(int rowNumber, int columnIndex, String value) {
+        googleSheetsGateway.writeCell(sheetName, rowNumber, columnIndex, value);
+        applyWrite(rowNumber, columnIndex, value);
+    }
+
+    @Override
+    public void bufferCell(int rowNumber, int columnIndex, String value) {
+        googleSheetsGateway.bufferCell(sheetName, rowNumber, columnIndex, value);
+        applyWrite(rowNumber, columnIndex, value);
+    }
+
+    /**
+     * @param key проверка, что строка всё ещё та, что искали; {@code null} — искали по номеру строки
+     */
+    private Optional<SheetRow> lookup(Supplier<Integer> index, Predicate<List<Object>> key) {
+        long now = System.currentTimeMillis();
+        boolean fresh = false;
+        if (loadedAt == 0 || now - loadedAt >= fullReloadMs) {
+            loadAll();
+            fresh = true;
+        }
+        Integer rowNumber = index.get();
+        if (rowNumber == null && probeTail(now)) {
+            rowNumber = index.get();
+        }
+        if (rowNumber == null && now - loadedAt >= missReloadMs) {
+            loadAll();
+            fresh = true;
+            rowNumber = index.get();
+        }
+        if (rowNumber != null && key != null && !fresh && !key.test(readRow(rowNumber))) {
+            log.info("Sheet '{}' row {} no longer holds the looked-up order, reloading mirror", sheetName, rowNumber);
+            loadAll();
+            rowNumber = index.get();
+        }
+        return rowNumber != null ? Optional.of(rowAt(rowNumber)) : Optional.empty();
+    }
+
+    /** Строка прямо из листа, мимо зеркала. */
+    private List<Object> readRow(int rowNumber) {
+        List<List<Object>> read = googleSheetsGateway.readRows(sheetName, rowNumber, rowNumber);
+        return read.isEmpty() || read.get(0) == null ? List.of() : read.get(0);
+    }
+
+    /**
+     * Проба длины колонки A и дочитывание хвоста.
+     * @return true, если зеркало изменилось
+     */
+    private boolean probeTail(long now) {
+        if (now - probedAt < probeMs) {
+            return false;
+        }
+        probedAt = now;
+        int length = googleSheetsGateway.countRows(sheetName);
+        if (length == columnALength) {
+            return false;
+        }
+        if (length < columnALength) {
+            // Строки удалили — номера сдвинулись, хвостом не обойтись
+            log.info("Sheet '{}' shrank from {} to {} rows, reloading mirror", sheetName, columnALength, length);
+            loadAll();
+            return true;
+        }
+        List<List<Object>> tail = googleSheetsGateway.readRows(sheetName, columnALength + 1, length);
+        for (int i = 0; i < length - columnALength; i++) {
+            List<Object> cells = i < tail.size() ? tail.get(i) : List.of();
+            replaceRow(columnALength + 1 + i, cells);
+        }
+        log.debug("Sheet '{}' mirror read {} new row(s)", sheetName, length - columnALength);
+        columnALength = length;
+        return true;
+    }
+
+    private void loadAll() {
+        List<List<Object>> all = googleSheetsGateway.readAllRows(sheetName);
+        rows.clear();
+        rowByLeadId.clear();
+        rowByTracker.clear();
+        columnALength = 0;
+        for (int i = 0; i < all.size(); i++) {
+            List<Object> cells = all.get(i) != null ? all.get(i) : List.of();
+            rows.add(cells);
+            index(i + 1, cells);
+            if (!cell(cells, GoogleSheetsColumnIndex.COLUMN_A_INDEX).isEmpty()) {
+                columnALength = i + 1;
+            }
+        }
+        loadedAt = probedAt = System.currentTimeMillis();
+        log.debug("Sheet '{}' mirror loaded: {} rows", sheetName, rows.size());
+    }
+
+    private synchronized void applyWrite(int rowNumber, int columnIndex, String value) {
+        if (loadedAt == 0 || rowNumber <= 0) {
+            return;
+        }
+        List<Object> cells = rowNumber <= rows.size() ? new ArrayList<>(rows.get(rowNumber - 1)) : new ArrayList<>();
+        while (cells.size() <= columnIndex) {
+            cells.add("");
+        }
+        cells.set(columnIndex, value);
+        replaceRow(rowNumber, cells);
+        if (columnIndex == GoogleSheetsColumnIndex.COLUMN_A_INDEX && value != null && !value.isBlank()) {
+            columnALength = Math.max(columnALength, rowNumber);
+        }
+    }
+
+    private void replaceRow(int rowNumber, List<Object> cells) {
+        while (rows.size() < rowNumber) {
+            rows.add(List.of());
+        }
+        unindex(rowNumber, rows.get(rowNumber - 1));
+        rows.set(rowNumber - 1, cells);
+        index(rowNumber, cells);
+    }
+
+    private void index(int rowNumber, List<Object> cells) {
+        if (rowNumber <= HEADER_ROWS) {
+            return;
+        }
+        Long leadId = LeadUrlExtractor.extract(cell(cells, GoogleSheetsColumnIndex.COLUMN_E_INDEX));
+        if (leadId != null) {
+            rowByLeadId.merge(leadId, rowNumber, Math::min);
+        }
+        String tracker = normalizeTracker(cell(cells, GoogleSheetsColumnIndex.COLUMN_I_INDEX));
+        if (!tracker.isEmpty()) {
+            rowByTracker.merge(tracker, rowNumber, Math::min);
+        }
+    }
+
+    private void unindex(int rowNumber, List<Object> cells) {
+        Long leadId = LeadUrlExtractor.extract(cell(cells, GoogleSheetsColumnIndex.COLUMN_E_INDEX));
+        if (leadId != null) {
+            rowByLeadId.remove(leadId, rowNumber);
+        }
+        String tracker = normalizeTracker(cell(cells, GoogleSheetsColumnIndex.COLUMN_I_INDEX));
+        if (!tracker.isEmpty()) {
+            rowByTracker.remove(tracker, rowNumber);
+        }
+    }
+
+    private SheetRow rowAt(int rowNumber) {
+        return new SheetRow(rowNumber, Collections.unmodifiableList(new ArrayList<>(rows.get(rowNumber - 1))));
+    }
+
+    private static String cell(List<Object> cells, int columnIndex) {
+        if (cells == null || columnIndex >= cells.size()) {
+            return "";
+        }
+        Object value = cells.get(columnIndex);
+        return value != null ? value.toString().trim() : "";
+    }
+
+    /**
+     * Очищаем трекер для сравнения (убираем пробелы и дефисы)
+     */
+    private static String normalizeTracker(String tracker) {
+        return tracker == null ? "" : tracker.trim().replaceAll("[\\s-]", "");
+    }
+}
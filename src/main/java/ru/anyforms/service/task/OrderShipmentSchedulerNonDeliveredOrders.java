@@ -4,9 +4,14 @@ import lombok.AllArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import ru.anyforms.model.CdekOrderStatus;
 import ru.anyforms.model.Order;
 import ru.anyforms.repository.GetterOrder;
+import ru.anyforms.service.CdekStatusSweep;
 import ru.anyforms.service.DeliveryProcessor;
+import ru.anyforms.util.TrackerCustomFields;
+
+import java.util.Map;
 
 @Log4j2
 @Component
@@ -15,29 +20,48 @@ public class OrderShipmentSchedulerNonDeliveredOrders {
 
     private final GetterOrder getterOrder;
     private final DeliveryProcessor deliveryProcessor;
+    private final CdekStatusSweep cdekStatusSweep;
 
     /**
      * Периодическая проверка всех заказов на отправку
      * Выполняется каждый час (3600000 миллисекунд)
      * Первый запуск через 1 минуту (60000 мс) после старта
+     * Статусы СДЭК запрашиваются разом и параллельно ({@link CdekStatusSweep}); в медленную обработку
+     * (amo, БД) уходят только заказы, чей статус изменился, и заказы без сделки
      */
     @Scheduled(
             fixedRate = 3_600_000,      // раз в час
             initialDelay = 5_000       // первый запуск через 1 минуту
     )
     public void process() {
-        var orders = getterOrder.getNonDeliveredOrders();
+        var orders = getterOrder.getNonDeliveredOrders().stream()
+                .filter(order -> order.getTracker() != null
+                        && !TrackerCustomFields.READY_KEYWORDS.contains(order.getTracker()))
+                .toList();
+        var statuses = cdekStatusSweep.fetchStatuses(orders.stream().map(Order::getTracker).toList());
+        int processed = 0;
         for (var order : orders) {
             try {
-                processOrder(order);
+                if (processOrder(order, statuses)) {
+                    processed++;
+                }
             } catch (Exception e) {
                 log.error(e);
             }
         }
+        log.info("Non-delivered orders sweep: {} order(s), {} sent to processing", orders.size(), processed);
     }
 
-    private void processOrder(Order order) {
-        deliveryProcessor.updateStatus(order.getTracker());
+    private boolean processOrder(Order order, Map<String, String> statuses) {
+        String status = statuses.get(order.getTracker());
+        // Без сделки процессор сначала создаёт её — это нужно даже при неизменном статусе
+        boolean changed = status != null
+                && CdekOrderStatus.fromCode(order.getDeliveryStatus()) != CdekOrderStatus.fromCode(status);
+        if (!changed && order.getLeadId() != null) {
+            return false;
+        }
+        deliveryProcessor.updateStatus(order.getTracker(), status);
+        return true;
     }
 }
 
@@ -0,0 +1,14 @@
+package ru.anyforms.service.task;
+
+import ru.anyforms.model.task.TaskType;
+
+public interface TaskRequeuer {
+
+    /**
+     * Возвращает в очередь таски, исчерпавшие попытки (DEAD).
+     *
+     * @param type тип тасок; {@code null} — все типы
+     * @return сколько тасок возвращено
+     */
+    int requeueDead(TaskType type);
+}
@@ -0,0 +1,67 @@
+package ru.anyforms.service.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.anyforms.model.task.TaskType;
+import ru.anyforms.repository.TaskArchiver;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ночной перенос старых DONE-тасок в {@code task_archive}: пачками по
+ * {@code tasks.retention.batch-size}, каждая — отдельная короткая транзакция, чтобы не держать
+ * блокировки и не раздувать WAL одним гигантским DELETE.
+ * <p>
+ * Архивируются только типы из {@code tasks.retention.types}: RECEIPT_EMAIL в task остаётся —
+ * по нему админка сверяет, отправлялся ли чек.
+ */
+@Slf4j
+@Component
+public class TaskRetentionJob {
+
+    /** Предохранитель: за один прогон не больше стольких пачек, остальное доберёт следующая ночь. */
+    private static final int MAX_BATCHES_PER_RUN = 1000;
+
+    private final TaskArchiver taskArchiver;
+    private final List<TaskType> types;
+    private final Duration keep;
+    private final int batchSize;
+
+    public TaskRetentionJob(TaskArchiver taskArchiver,
+                            @Value("${tasks.retention.types}") String types,
+                            @Value("${tasks.retention.keep-days}") int keepDays,
+                            @Value("${tasks.retention.batch-size}") int batchSize) {
+        this.taskArchiver = taskArchiver;
+        this.types = Arrays.stream(types.split(","))
+                .map(String::trim)
+                .filter(t -> !t.isEmpty())
+                .map(TaskType::valueOf)
+                .toList();
+        this.keep = Duration.ofDays(keepDays);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${tasks.retention.cron}", zone = "Europe/Moscow")
+    public void archiveOldTasks() {
+        Instant before = Instant.now().minus(keep);
+        int total = 0;
+        try {
+            for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                int moved = taskArchiver.archiveDone(types, before, batchSize);
+                total += moved;
+                if (moved < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Архивация тасок прервана, перенесено {}", total, e);
+            return;
+        }
+        log.info("Archived {} DONE task(s) created before {}", total, before);
+    }
+}
@@ -7,31 +7,52 @@ import ru.anyforms.model.task.Task;
 import ru.anyforms.model.task.TaskStatus;
 import ru.anyforms.model.task.TaskType;
 import ru.anyforms.repository.SaverTask;
+import ru.anyforms.repository.TaskQueue;
 import ru.anyforms.service.task.TaskAdder;
 
+import java.time.Instant;
+
 @Service
 @Slf4j
 class TaskAdderService implements TaskAdder {
 
     private final SaverTask saverTask;
+    private final TaskQueue taskQueue;
     private final Gson gson = new Gson();
 
-    TaskAdderService(SaverTask saverTask) {
+    TaskAdderService(SaverTask saverTask, TaskQueue taskQueue) {
         this.saverTask = saverTask;
+        this.taskQueue = taskQueue;
     }
 
     @Override
     public void addTask(Object payload) {
+        TaskType taskType;
         try {
-            TaskType taskType = TaskType.fromObject(payload);
+            taskType = TaskType.fromObject(payload);
             Task task = Task.builder()
                     .type(taskType)
                     .payload(gson.toJson(payload))
                     .status(TaskStatus.NEW)
+                    .nextAttemptAt(Instant.now())
                     .build();
             saverTask.save(task);
         } catch (Exception e) {
             log.error("Ошибка добавления таски", e);
+            return;
+        }
+        wakeRunner(taskType);
+    }
+
+    /**
+     * NOTIFY будит раннер типа сразу. Внутри внешней транзакции PostgreSQL доставит его только
+     * после коммита, т.е. когда таска уже видна. Если NOTIFY не ушёл — таску заберёт резервный опрос.
+     */
+    private void wakeRunner(TaskType taskType) {
+        try {
+            taskQueue.notifyAdded(taskType);
+        } catch (Exception e) {
+            log.warn("Не удалось разбудить раннер тасок {}, таска дождётся резервного опроса", taskType, e);
         }
     }
 }
@@ -0,0 +1,25 @@
+package ru.anyforms.service.task.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.anyforms.model.task.TaskType;
+import ru.anyforms.repository.TaskQueue;
+import ru.anyforms.service.task.TaskRequeuer;
+
+@Service
+@Slf4j
+class TaskRequeuerService implements TaskRequeuer {
+
+    private final TaskQueue taskQueue;
+
+    TaskRequeuerService(TaskQueue taskQueue) {
+        this.taskQueue = taskQueue;
+    }
+
+    @Override
+    public int requeueDead(TaskType type) {
+        int requeued = taskQueue.requeueDead(type);
+        log.info("Requeued {} dead task(s) of type {}", requeued, type == null ? "ALL" : type);
+        return requeued;
+    }
+}
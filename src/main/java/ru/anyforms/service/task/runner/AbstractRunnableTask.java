@@ -1,52 +1,261 @@
 package ru.anyforms.service.task.runner;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
+import ru.anyforms.model.task.RetryPolicy;
 import ru.anyforms.model.task.Task;
 import ru.anyforms.model.task.TaskStatus;
-import ru.anyforms.repository.SaverTask;
+import ru.anyforms.model.task.TaskType;
+import ru.anyforms.repository.TaskQueue;
 
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Исполнитель тасок одного {@link TaskType}.
+ * <p>
+ * Пачка захватывается через {@link TaskQueue#claim} ({@code FOR UPDATE SKIP LOCKED} + lease),
+ * поэтому несколько инстансов не возьмут одну таску дважды. Таски пачки исполняются пулом
+ * воркеров типа ({@code tasks.worker-pools}, по умолчанию 1). Пока пачка в работе, lease
+ * незавершённых тасок продлевается каждую треть {@code tasks.lease-ms}; если процесс упал,
+ * lease истекает и таски перехватывает следующий захват. Результаты пишутся пакетно:
+ * DONE — одним UPDATE раз в {@code tasks.done-flush-ms} и в конце пачки. Интервал короткий: таска,
+ * выполненная, но не отмеченная до падения инстанса, после lease выполнится повторно.
+ * <p>
+ * Новые таски раннер забирает сразу по NOTIFY ({@link TaskWakeupListener}); плановый опрос
+ * {@code tasks.fallback-poll-ms} остаётся страховкой и подбирает наступившие повторы.
+ * <p>
+ * Упавшая таска уходит в {@code FAILED} и повторяется по {@link RetryPolicy} своего типа
+ * (экспонента с jitter); после {@code maxAttempts} попыток — {@code DEAD}.
+ */
 @Slf4j
 public abstract class AbstractRunnableTask {
 
-    private final SaverTask saverTask;
+    /** Владелец lease — pid@host: по строке в task видно, какой инстанс её держит. */
+    private static final String OWNER = ManagementFactory.getRuntimeMXBean().getName();
+    private static final Duration DEFAULT_LEASE = Duration.ofMinutes(5);
+
+    private final TaskQueue taskQueue;
+    private final TaskType type;
 
     @Value("${tasks.batch-size}")
     private int batchSize;
 
-    protected AbstractRunnableTask(SaverTask saverTask) {
-        this.saverTask = saverTask;
-    }
+    @Value("${tasks.lease-ms}")
+    private long leaseMs;
+
+    /** Как часто сохранять DONE уже выполненных тасок пачки. */
+    @Value("${tasks.done-flush-ms:1000}")
+    private long doneFlushMs;
+
+    /** Размеры пулов по типам: {@code EMAIL=4,RECEIPT_EMAIL=2}; не указанный тип — 1 воркер. */
+    @Value("${tasks.worker-pools:}")
+    private String workerPools;
+
+    private ExecutorService workers;
+    /** Дренирование по NOTIFY — вне потока слушателя; один поток, лишние пробуждения схлопывает {@link #pending}. */
+    private final ExecutorService waker = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("task-wake-%d").setDaemon(true).build());
+
+    /** Есть запрос на выборку (плановый опрос или NOTIFY), ещё не обслуженный. */
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final ReentrantLock draining = new ReentrantLock();
 
-    protected abstract List<Task> fetchBatch(int batchSize);
+    protected AbstractRunnableTask(TaskQueue taskQueue, TaskType type) {
+        this.taskQueue = taskQueue;
+        this.type = type;
+    }
 
     protected abstract void process(Task task) throws Exception;
 
-    @Scheduled(fixedRateString = "${tasks.fixed-rate-ms}", initialDelayString = "${tasks.initial-delay-ms}")
+    /**
+     * Резервный опрос — на случай потерянного NOTIFY и для тасок, чей повтор наступил по расписанию.
+     * Новые таски забираются сразу по {@link #wake()}.
+     */
+    @Scheduled(fixedDelayString = "${tasks.fallback-poll-ms}", initialDelayString = "${tasks.initial-delay-ms}")
     public void runBatch() {
-        List<Task> tasks = fetchBatch(batchSize);
-        for (Task t : tasks) {
-            runOne(t);
+        pending.set(true);
+        drain();
+    }
+
+    /** Будит раннер (пришёл NOTIFY о таске его типа): пачка забирается сразу в отдельном потоке. */
+    void wake() {
+        pending.set(true);
+        waker.execute(this::drain);
+    }
+
+    TaskType type() {
+        return type;
+    }
+
+    /**
+     * Забирает пачки, пока есть запрос на выборку. Одновременно дренирует один поток: остальные
+     * только поднимают {@link #pending} — его увидит держатель лока (повторная проверка после unlock
+     * закрывает гонку). Полная пачка — признак, что в очереди есть ещё, берём следующую сразу.
+     */
+    private void drain() {
+        while (pending.get() && draining.tryLock()) {
+            try {
+                while (pending.getAndSet(false)) {
+                    if (claimAndRun() >= batchSize) {
+                        pending.set(true);
+                    }
+                }
+            } finally {
+                draining.unlock();
+            }
         }
     }
 
-    private void runOne(Task t) {
+    /** @return сколько тасок было захвачено */
+    private int claimAndRun() {
+        List<Task> tasks = taskQueue.claim(type, batchSize, OWNER, lease());
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+
+        Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+        Queue<UUID> done = new ConcurrentLinkedQueue<>();
+        Queue<Task> failed = new ConcurrentLinkedQueue<>();
+        CountDownLatch finished = new CountDownLatch(tasks.size());
+        ExecutorService pool = workers();
+        for (Task t : tasks) {
+            inFlight.add(t.getId());
+            pool.execute(() -> {
+                try {
+                    runOne(t, done, failed);
+                } finally {
+                    inFlight.remove(t.getId());
+                    finished.countDown();
+                }
+            });
+        }
+
+        long heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(lease().toMillis() / 3, 1));
+        long flushMs = Math.max(1, Math.min(doneFlushMs, TimeUnit.NANOSECONDS.toMillis(heartbeatNanos)));
+        long nextHeartbeat = System.nanoTime() + heartbeatNanos;
         try {
-            t.setStatus(TaskStatus.RUNNING);
-            saverTask.save(t);
+            while (!finished.await(flushMs, TimeUnit.MILLISECONDS)) {
+                flush(done, failed);
+                if (System.nanoTime() - nextHeartbeat >= 0) {
+                    heartbeat(inFlight);
+                    nextHeartbeat = System.nanoTime() + heartbeatNanos;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(done, failed);
+        return tasks.size();
+    }
 
+    private void runOne(Task t, Queue<UUID> done, Queue<Task> failed) {
+        try {
             process(t);
-
             t.setStatus(TaskStatus.DONE);
-            saverTask.save(t);
+            done.add(t.getId());
         } catch (Exception ex) {
-            log.error("Ошибка во время исполнения таски {}", t.getId(), ex);
-            t.setStatus(TaskStatus.FAILED);
             t.setComment(crop(ex.getMessage()));
-            saverTask.save(t);
+            RetryPolicy retry = type.getRetryPolicy();
+            if (retry.exhausted(t.getAttempts())) {
+                log.error("Таска {} упала на попытке {}/{}, попытки исчерпаны — DEAD",
+                        t.getId(), t.getAttempts(), retry.maxAttempts(), ex);
+                t.setStatus(TaskStatus.DEAD);
+            } else {
+                Duration pause = retry.backoff(t.getAttempts(), ThreadLocalRandom.current().nextDouble());
+                log.warn("Таска {} упала на попытке {}/{}, повтор через {} с",
+                        t.getId(), t.getAttempts(), retry.maxAttempts(), pause.toSeconds(), ex);
+                t.setStatus(TaskStatus.FAILED);
+                t.setNextAttemptAt(Instant.now().plus(pause));
+            }
+            failed.add(t);
+        }
+    }
+
+    /** Пакетно сохраняет накопленные результаты. Ошибка БД не роняет пачку: таски доберёт истёкший lease. */
+    private void flush(Queue<UUID> done, Queue<Task> failed) {
+        List<UUID> doneIds = new ArrayList<>();
+        for (UUID id = done.poll(); id != null; id = done.poll()) {
+            doneIds.add(id);
+        }
+        try {
+            taskQueue.markDone(doneIds, OWNER);
+        } catch (Exception e) {
+            log.error("Не удалось отметить {} таск(и) {} как DONE", doneIds.size(), type, e);
+        }
+        for (Task t = failed.poll(); t != null; t = failed.poll()) {
+            try {
+                if (t.getStatus() == TaskStatus.DEAD) {
+                    taskQueue.markDead(t.getId(), OWNER, t.getComment());
+                } else {
+                    taskQueue.markFailed(t.getId(), OWNER, t.getComment(), t.getNextAttemptAt());
+                }
+            } catch (Exception e) {
+                log.error("Не удалось отметить таску {} как {}", t.getId(), t.getStatus(), e);
+            }
+        }
+    }
+
+    private void heartbeat(Set<UUID> inFlight) {
+        try {
+            taskQueue.extendLease(Set.copyOf(inFlight), OWNER, lease());
+        } catch (Exception e) {
+            log.error("Не удалось продлить lease {} таск(и) {}", inFlight.size(), type, e);
+        }
+    }
+
+    private Duration lease() {
+        return leaseMs > 0 ? Duration.ofMillis(leaseMs) : DEFAULT_LEASE;
+    }
+
+    private synchronized ExecutorService workers() {
+        if (workers == null) {
+            workers = Executors.newFixedThreadPool(poolSize(),
+                    new ThreadFactoryBuilder().setNameFormat("task-" + type.name().toLowerCase() + "-%d").build());
+        }
+        return workers;
+    }
+
+    private int poolSize() {
+        if (workerPools == null || workerPools.isBlank()) {
+            return 1;
+        }
+        for (String entry : workerPools.split(",")) {
+            String[] kv = entry.trim().split("=");
+            if (kv.length == 2 && kv[0].trim().equals(type.name())) {
+                try {
+                    return Math.max(1, Integer.parseInt(kv[1].trim()));
+                } catch (NumberFormatException e) {
+                    log.warn("Некорректный размер пула в tasks.worker-pools: '{}'", entry);
+                }
+            }
+        }
+        return 1;
+    }
+
+    @PreDestroy
+    synchronized void shutdownWorkers() {
+        waker.shutdown();
+        if (workers != null) {
+            workers.shutdown();
         }
     }
 
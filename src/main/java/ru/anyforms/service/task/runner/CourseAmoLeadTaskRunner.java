@@ -5,38 +5,26 @@ import org.springframework.stereotype.Component;
 import ru.anyforms.dto.amo.CourseAmoLeadTaskPayload;
 import ru.anyforms.model.payment.PaymentTransaction;
 import ru.anyforms.model.task.Task;
-import ru.anyforms.model.task.TaskStatus;
 import ru.anyforms.model.task.TaskType;
-import ru.anyforms.repository.GetterTaskByStatus;
 import ru.anyforms.repository.GetterTransaction;
-import ru.anyforms.repository.SaverTask;
+import ru.anyforms.repository.TaskQueue;
 import ru.anyforms.service.payment.CourseAmoLeadService;
 
-import java.util.List;
-
 @Component
 class CourseAmoLeadTaskRunner extends AbstractRunnableTask {
 
-    private final GetterTaskByStatus getterTaskByStatus;
     private final GetterTransaction getterTransaction;
     private final CourseAmoLeadService courseAmoLeadService;
     private final Gson gson = new Gson();
 
-    CourseAmoLeadTaskRunner(GetterTaskByStatus getterTaskByStatus,
-                            GetterTransaction getterTransaction,
+    CourseAmoLeadTaskRunner(GetterTransaction getterTransaction,
                             CourseAmoLeadService courseAmoLeadService,
-                            SaverTask saverTask) {
-        super(saverTask);
-        this.getterTaskByStatus = getterTaskByStatus;
+                            TaskQueue taskQueue) {
+        super(taskQueue, TaskType.AMO_COURSE_BOUGHT);
         this.getterTransaction = getterTransaction;
         this.courseAmoLeadService = courseAmoLeadService;
     }
 
-    @Override
-    protected List<Task> fetchBatch(int batchSize) {
-        return getterTaskByStatus.getByTaskTypeAndStatus(TaskType.AMO_COURSE_BOUGHT, TaskStatus.NEW, batchSize);
-    }
-
     @Override
     protected void process(Task task) {
         CourseAmoLeadTaskPayload payload = gson.fromJson(task.getPayload(), CourseAmoLeadTaskPayload.class);
@@ -5,38 +5,26 @@ import org.springframework.stereotype.Component;
 import ru.anyforms.dto.amo.GuideAmoLeadTaskPayload;
 import ru.anyforms.model.payment.PaymentTransaction;
 import ru.anyforms.model.task.Task;
-import ru.anyforms.model.task.TaskStatus;
 import ru.anyforms.model.task.TaskType;
-import ru.anyforms.repository.GetterTaskByStatus;
 import ru.anyforms.repository.GetterTransaction;
-import ru.anyforms.repository.SaverTask;
+import ru.anyforms.repository.TaskQueue;
 import ru.anyforms.service.payment.GuideAmoLeadService;
 
-import java.util.List;
-
 @Component
 class GuideAmoLeadTaskRunner extends AbstractRunnableTask {
 
-    private final GetterTaskByStatus getterTaskByStatus;
     private final GetterTransaction getterTransaction;
     private final GuideAmoLeadService guideAmoLeadService;
     private final Gson gson = new Gson();
 
-    GuideAmoLeadTaskRunner(GetterTaskByStatus getterTaskByStatus,
-                           GetterTransaction getterTransaction,
+    GuideAmoLeadTaskRunner(GetterTransaction getterTransaction,
                            GuideAmoLeadService guideAmoLeadService,
-                           SaverTask saverTask) {
-        super(saverTask);
-        this.getterTaskByStatus = getterTaskByStatus;
+                           TaskQueue taskQueue) {
+        super(taskQueue, TaskType.AMO_GUIDE_LEAD);
         this.getterTransaction = getterTransaction;
         this.guideAmoLeadService = guideAmoLeadService;
     }
 
-    @Override
-    protected List<Task> fetchBatch(int batchSize) {
-        return getterTaskByStatus.getByTaskTypeAndStatus(TaskType.AMO_GUIDE_LEAD, TaskStatus.NEW, batchSize);
-    }
-
     @Override
     protected void process(Task task) {
         GuideAmoLeadTaskPayload payload = gson.fromJson(task.getPayload(), GuideAmoLeadTaskPayload.class);
@@ -6,14 +6,11 @@ import org.springframework.stereotype.Component;
 import ru.anyforms.dto.email.MarketplaceOrderEmailPayload;
 import ru.anyforms.model.marketplace.Shop;
 import ru.anyforms.model.task.Task;
-import ru.anyforms.model.task.TaskStatus;
 import ru.anyforms.model.task.TaskType;
-import ru.anyforms.repository.GetterTaskByStatus;
-import ru.anyforms.repository.SaverTask;
+import ru.anyforms.repository.TaskQueue;
 import ru.anyforms.service.email.EmailService;
 import ru.anyforms.service.email.EmailTemplate;
 
-import java.util.List;
 
 /**
  * Раннер писем-чеков заказа маркетплейса (таски {@link TaskType#MARKETPLACE_ORDER_EMAIL}).
@@ -24,23 +21,15 @@ import java.util.List;
 @Component
 class MarketplaceOrderEmailTaskRunner extends AbstractRunnableTask {
 
-    private final GetterTaskByStatus getterTaskByStatus;
     private final EmailService emailService;
     private final Gson gson = new Gson();
 
-    MarketplaceOrderEmailTaskRunner(GetterTaskByStatus getterTaskByStatus,
-                                    EmailService emailService,
-                                    SaverTask saverTask) {
-        super(saverTask);
-        this.getterTaskByStatus = getterTaskByStatus;
+    MarketplaceOrderEmailTaskRunner(EmailService emailService,
+                                    TaskQueue taskQueue) {
+        super(taskQueue, TaskType.MARKETPLACE_ORDER_EMAIL);
         this.emailService = emailService;
     }
 
-    @Override
-    protected List<Task> fetchBatch(int batchSize) {
-        return getterTaskByStatus.getByTaskTypeAndStatus(TaskType.MARKETPLACE_ORDER_EMAIL, TaskStatus.NEW, batchSize);
-    }
-
     @Override
     protected void process(Task task) {
         MarketplaceOrderEmailPayload payload = gson.fromJson(task.getPayload(), MarketplaceOrderEmailPayload.class);
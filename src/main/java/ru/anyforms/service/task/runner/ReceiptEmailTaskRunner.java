@@ -5,10 +5,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import ru.anyforms.dto.email.ReceiptEmailTaskPayload;
 import ru.anyforms.model.task.Task;
-import ru.anyforms.model.task.TaskStatus;
 import ru.anyforms.model.task.TaskType;
-import ru.anyforms.repository.GetterTaskByStatus;
-import ru.anyforms.repository.SaverTask;
+import ru.anyforms.repository.TaskQueue;
 import ru.anyforms.service.email.EmailService;
 import ru.anyforms.service.email.EmailTemplate;
 
@@ -18,7 +16,6 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,7 +27,6 @@ class ReceiptEmailTaskRunner extends AbstractRunnableTask {
     private static final Pattern META_TAG = Pattern.compile("<meta[^>]*>", Pattern.CASE_INSENSITIVE);
     private static final Pattern META_CONTENT = Pattern.compile("content\\s*=\\s*\"([^\"]+)\"", Pattern.CASE_INSENSITIVE);
 
-    private final GetterTaskByStatus getterTaskByStatus;
     private final EmailService emailService;
     private final Gson gson = new Gson();
     private final HttpClient httpClient = HttpClient.newBuilder()
@@ -38,19 +34,12 @@ class ReceiptEmailTaskRunner extends AbstractRunnableTask {
             .connectTimeout(Duration.ofSeconds(3))
             .build();
 
-    ReceiptEmailTaskRunner(GetterTaskByStatus getterTaskByStatus,
-                           EmailService emailService,
-                           SaverTask saverTask) {
-        super(saverTask);
-        this.getterTaskByStatus = getterTaskByStatus;
+    ReceiptEmailTaskRunner(EmailService emailService,
+                           TaskQueue taskQueue) {
+        super(taskQueue, TaskType.RECEIPT_EMAIL);
         this.emailService = emailService;
     }
 
-    @Override
-    protected List<Task> fetchBatch(int batchSize) {
-        return getterTaskByStatus.getByTaskTypeAndStatus(TaskType.RECEIPT_EMAIL, TaskStatus.NEW, batchSize);
-    }
-
     @Override
     protected void process(Task task) {
         ReceiptEmailTaskPayload payload = gson.fromJson(task.getPayload(), ReceiptEmailTaskPayload.class);
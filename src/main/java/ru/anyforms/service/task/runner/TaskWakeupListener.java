@@ -0,0 +1,113 @@
+package ru.anyforms.service.task.runner;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.anyforms.model.task.TaskType;
+import ru.anyforms.repository.TaskQueue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Слушает {@code LISTEN task_added} и будит раннер типа новой таски — задержка подхвата
+ * падает с интервала опроса до миллисекунд, а простаивающие раннеры не ходят в БД.
+ * <p>
+ * Держит своё соединение мимо пула Hikari: LISTEN-соединение живёт бесконечно и не должно
+ * отнимать слот у запросов и попадать под ротацию пула. При обрыве переподключается и будит
+ * всех раннеров — NOTIFY, пришедшие в разрыв, потеряны.
+ */
+@Slf4j
+@Component
+class TaskWakeupListener {
+
+    /** Сколько ждать уведомлений за один вызов драйвера — заодно период проверки остановки. */
+    private static final int POLL_TIMEOUT_MS = 10_000;
+    private static final long RECONNECT_DELAY_MS = 5_000;
+
+    private final Map<TaskType, AbstractRunnableTask> runners = new EnumMap<>(TaskType.class);
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private volatile boolean running = true;
+    private Thread thread;
+
+    TaskWakeupListener(List<AbstractRunnableTask> runners,
+                       @Value("${spring.datasource.url}") String url,
+                       @Value("${spring.datasource.username}") String username,
+                       @Value("${spring.datasource.password}") String password) {
+        runners.forEach(runner -> this.runners.put(runner.type(), runner));
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    @PostConstruct
+    void start() {
+        thread = new Thread(this::listenLoop, "task-wakeup-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + TaskQueue.WAKEUP_CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                log.info("Listening for task wake-ups on channel {}", TaskQueue.WAKEUP_CHANNEL);
+                runners.values().forEach(AbstractRunnableTask::wake);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        wake(notification.getParameter());
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Task wake-up listener lost its connection, reconnecting in {} ms", RECONNECT_DELAY_MS, e);
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void wake(String typeName) {
+        try {
+            AbstractRunnableTask runner = runners.get(TaskType.valueOf(typeName));
+            if (runner != null) {
+                runner.wake();
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Task wake-up for unknown type '{}'", typeName);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.anyforms.service.task.runner;
+
+import com.google.gson.Gson;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import ru.anyforms.dto.webhook.WebhookTaskPayload;
+import ru.anyforms.model.task.Task;
+import ru.anyforms.model.task.TaskType;
+import ru.anyforms.model.webhook.WebhookInboxEntry;
+import ru.anyforms.model.webhook.WebhookSource;
+import ru.anyforms.repository.TaskQueue;
+import ru.anyforms.repository.WebhookInbox;
+import ru.anyforms.service.CdekWebhookService;
+import ru.anyforms.service.WebhookIntake;
+import ru.anyforms.service.amo.AmoCrmWebhookService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Обрабатывает записи {@code webhook_inbox}. Задержка от приёма до конца обработки пишется в
+ * таймер {@code webhook.inbox.lag} с тегом {@code source} ({@code /api/actuator/metrics}).
+ * <p>
+ * Вебхук amo обрабатывается в две стадии: таска записи разбирает его и раскладывает на таски
+ * по сделкам ({@link WebhookIntake#splitByLeads}), каждая сделка дальше повторяется отдельно.
+ */
+@Component
+class WebhookTaskRunner extends AbstractRunnableTask {
+
+    private final WebhookInbox webhookInbox;
+    private final WebhookIntake webhookIntake;
+    private final AmoCrmWebhookService amoCrmWebhookService;
+    private final CdekWebhookService cdekWebhookService;
+    private final Map<WebhookSource, Timer> lag = new EnumMap<>(WebhookSource.class);
+    private final Gson gson = new Gson();
+
+    WebhookTaskRunner(WebhookInbox webhookInbox,
+                      WebhookIntake webhookIntake,
+                      AmoCrmWebhookService amoCrmWebhookService,
+                      CdekWebhookService cdekWebhookService,
+                      MeterRegistry meterRegistry,
+                      TaskQueue taskQueue) {
+        super(taskQueue, TaskType.WEBHOOK);
+        this.webhookInbox = webhookInbox;
+        this.webhookIntake = webhookIntake;
+        this.amoCrmWebhookService = amoCrmWebhookService;
+        this.cdekWebhookService = cdekWebhookService;
+        for (WebhookSource source : WebhookSource.values()) {
+            lag.put(source, Timer.builder("webhook.inbox.lag")
+                    .description("Время от приёма вебхука до конца его обработки")
+                    .tag("source", source.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected void process(Task task) {
+        WebhookTaskPayload payload = gson.fromJson(task.getPayload(), WebhookTaskPayload.class);
+        if (payload.getLeadId() != null) {
+            amoCrmWebhookService.processLead(payload.getLeadId());
+            // Запись могла уже уйти в очистку inbox — тогда просто без метрики
+            webhookInbox.getById(payload.getInboxId()).ifPresent(entry -> recordLag(entry, Instant.now()));
+            return;
+        }
+        WebhookInboxEntry entry = webhookInbox.getById(payload.getInboxId())
+                .orElseThrow(() -> new IllegalStateException(
+                        "Запись webhook_inbox не найдена: " + payload.getInboxId()));
+        if (entry.getProcessedAt() != null) {
+            // Таску перехватили после истёкшего lease, а первый воркер успел доделать
+            return;
+        }
+        switch (entry.getSource()) {
+            case AMO -> {
+                List<Long> leadIds = amoCrmWebhookService.acceptFormDataWebhook(entry.getPayload());
+                if (!leadIds.isEmpty()) {
+                    webhookIntake.splitByLeads(entry.getId(), leadIds);
+                    return;
+                }
+            }
+            case CDEK -> cdekWebhookService.processWebhook(entry.getPayload());
+        }
+        Instant now = Instant.now();
+        webhookInbox.markProcessed(entry.getId(), now);
+        recordLag(entry, now);
+    }
+
+    private void recordLag(WebhookInboxEntry entry, Instant processedAt) {
+        lag.get(entry.getSource()).record(Duration.between(entry.getReceivedAt(), processedAt));
+    }
+}
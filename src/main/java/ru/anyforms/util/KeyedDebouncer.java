@@ -0,0 +1,131 @@
+package ru.anyforms.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.log4j.Log4j2;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Склеивает частые события по ключу в один запуск.
+ * <p>
+ * Каждое {@link #submit} откладывает запуск ключа на {@code window} от последнего события
+ * (но не дальше {@code maxWait} от первого из пачки — чтобы непрерывные правки не откладывали
+ * запуск бесконечно). Выполняется действие последнего события. Запуски одного ключа не
+ * пересекаются: событие, пришедшее во время запуска, порождает ещё один запуск после него,
+ * так что последнее состояние никогда не пропускается. Разные ключи идут параллельно на
+ * пуле из {@code workers} потоков.
+ * <p>
+ * Отложенные события живут только в памяти: рестарт в пределах окна их теряет.
+ */
+@Log4j2
+public final class KeyedDebouncer<K> implements AutoCloseable {
+
+    private final long windowNanos;
+    private final long maxWaitNanos;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService workers;
+    private final Map<K, Slot> slots = new ConcurrentHashMap<>();
+
+    /** Состояние ключа; меняется только внутри {@code slots.compute*}, т.е. под блокировкой ключа. */
+    private static final class Slot {
+        Runnable action;
+        long firstEventAt;
+        ScheduledFuture<?> scheduled;
+        /** Номер последнего планирования: у сработавшего отменённого таймера он устарел. */
+        long generation;
+        boolean running;
+        boolean rerun;
+    }
+
+    public KeyedDebouncer(String name, Duration window, Duration maxWait, int workers) {
+        this.windowNanos = window.toNanos();
+        this.maxWaitNanos = Math.max(maxWait.toNanos(), windowNanos);
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat(name + "-timer").setDaemon(true).build());
+        // Рабочие потоки не демоны: начатый запуск доработает при остановке.
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workers),
+                new ThreadFactoryBuilder().setNameFormat(name + "-%d").build());
+    }
+
+    /**
+     * Планирует {@code action} для ключа, заменяя ещё не запущенное действие того же ключа.
+     */
+    public void submit(K key, Runnable action) {
+        slots.compute(key, (k, slot) -> {
+            if (slot == null) {
+                slot = new Slot();
+            }
+            slot.action = action;
+            if (slot.running) {
+                slot.rerun = true;
+                return slot;
+            }
+            long now = System.nanoTime();
+            if (slot.scheduled == null) {
+                slot.firstEventAt = now;
+            } else {
+                slot.scheduled.cancel(false);
+            }
+            schedule(k, slot, Math.min(windowNanos, slot.firstEventAt + maxWaitNanos - now));
+            return slot;
+        });
+    }
+
+    /** Сколько ключей сейчас ждут запуска или выполняются. */
+    public int pending() {
+        return slots.size();
+    }
+
+    private void schedule(K key, Slot slot, long delayNanos) {
+        long generation = ++slot.generation;
+        slot.scheduled = timer.schedule(() -> fire(key, generation), Math.max(0, delayNanos), TimeUnit.NANOSECONDS);
+    }
+
+    private void fire(K key, long generation) {
+        Runnable[] action = new Runnable[1];
+        slots.computeIfPresent(key, (k, slot) -> {
+            if (slot.generation != generation || slot.running) {
+                return slot;
+            }
+            slot.scheduled = null;
+            slot.running = true;
+            action[0] = slot.action;
+            return slot;
+        });
+        if (action[0] != null) {
+            workers.execute(() -> run(key, action[0]));
+        }
+    }
+
+    private void run(K key, Runnable action) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            log.error("Debounced action for key {} failed", key, e);
+        } finally {
+            slots.computeIfPresent(key, (k, slot) -> {
+                slot.running = false;
+                if (!slot.rerun) {
+                    return null;
+                }
+                slot.rerun = false;
+                slot.firstEventAt = System.nanoTime();
+                schedule(k, slot, windowNanos);
+                return slot;
+            });
+        }
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        workers.shutdown();
+    }
+}
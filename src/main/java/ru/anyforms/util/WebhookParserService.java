@@ -35,5 +35,13 @@ public class WebhookParserService {
     public Map<String, Object> extractLeadsFromFormData(Map<String, Object> parsed) {
         return (Map<String, Object>) parsed.get("leads");
     }
+
+    /**
+     * Извлекает секцию contacts из распарсенного form-data
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> extractContactsFromFormData(Map<String, Object> parsed) {
+        return (Map<String, Object>) parsed.get("contacts");
+    }
 }
 
@@ -102,6 +102,34 @@ public class JsonLeadIdExtractionService {
         return leadIds;
     }
 
+    /**
+     * Извлекает ID контактов из form-data структуры для событий "update" и "delete"
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> extractContactIdsFromFormDataChanges(Map<String, Object> contacts) {
+        List<Long> contactIds = new ArrayList<>();
+
+        if (contacts == null) {
+            return contactIds;
+        }
+
+        for (String eventType : new String[]{"update", "delete"}) {
+            Object eventData = contacts.get(eventType);
+            if (eventData instanceof List) {
+                for (Object event : (List<Object>) eventData) {
+                    if (event instanceof Map) {
+                        Long contactId = extractIdFromMap((Map<String, Object>) event);
+                        if (contactId != null) {
+                            contactIds.add(contactId);
+                        }
+                    }
+                }
+            }
+        }
+
+        return contactIds;
+    }
+
     /**
      * Извлекает ID из Map структуры, обрабатывая вложенные Map
      */
@@ -0,0 +1,12 @@
+-- Очередь тасок: захват через FOR UPDATE SKIP LOCKED с lease.
+-- locked_by   — инстанс (pid@host), который исполняет таску;
+-- lease_until — до какого момента таска за ним. Истёкший lease у RUNNING = воркер упал,
+--               таску можно перехватить.
+ALTER TABLE task ADD COLUMN locked_by VARCHAR(255);
+ALTER TABLE task ADD COLUMN lease_until TIMESTAMP(6) WITH TIME ZONE;
+
+-- Зависшие до перехода на lease RUNNING-таски (упавший процесс) снова становятся доступны.
+UPDATE task SET lease_until = now() WHERE status = 'RUNNING';
+
+-- Захват смотрит только на живые таски: NEW по порядку создания и RUNNING по lease.
+CREATE INDEX idx_task_claim ON task (type, created_at) WHERE status IN ('NEW', 'RUNNING');
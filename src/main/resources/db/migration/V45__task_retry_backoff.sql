@@ -0,0 +1,20 @@
+-- Повторы тасок с экспоненциальной паузой.
+-- attempts        — сколько раз таску брали в работу;
+-- next_attempt_at — когда её можно брать: NEW — сразу, FAILED — по расписанию повторов типа.
+--                   Есть у каждой строки: вставка без значения получает now(), иначе таска
+--                   выпала бы из захвата навсегда (NULL <= now() — не истина).
+-- DEAD            — попытки исчерпаны, вернуть в очередь только вручную.
+ALTER TABLE task ADD COLUMN attempts INT NOT NULL DEFAULT 0;
+ALTER TABLE task ADD COLUMN next_attempt_at TIMESTAMP(6) WITH TIME ZONE;
+
+UPDATE task SET next_attempt_at = COALESCE(created_at, now());
+ALTER TABLE task ALTER COLUMN next_attempt_at SET DEFAULT now();
+ALTER TABLE task ALTER COLUMN next_attempt_at SET NOT NULL;
+
+-- Старые FAILED сразу после выката повторно не шлём (письма могли устареть) — только ручной requeue.
+UPDATE task SET status = 'DEAD' WHERE status = 'FAILED';
+
+-- Захват: NEW/FAILED по сроку попытки и RUNNING по истёкшему lease — два узких частичных индекса.
+DROP INDEX IF EXISTS idx_task_claim;
+CREATE INDEX idx_task_due ON task (type, status, next_attempt_at) WHERE status IN ('NEW', 'FAILED');
+CREATE INDEX idx_task_lease ON task (type, lease_until) WHERE status = 'RUNNING';
@@ -0,0 +1,27 @@
+-- История тасок: индексы под выборки по типу и архив для старых DONE.
+
+-- created_at участвует в keyset-пагинации (created_at, id) — NULL в ней не сравним.
+-- Таких строк быть не должно (@CreationTimestamp), но на всякий случай уводим их в самый низ истории.
+UPDATE task SET created_at = to_timestamp(0) WHERE created_at IS NULL;
+ALTER TABLE task ALTER COLUMN created_at SET NOT NULL;
+
+-- «Последние N тасок типа» и keyset-страницы: ORDER BY created_at DESC, id DESC LIMIT N.
+CREATE INDEX idx_task_type_created ON task (type, created_at DESC, id DESC);
+
+-- Ретеншн: самые старые DONE без полного прохода по таблице.
+CREATE INDEX idx_task_done_created ON task (created_at) WHERE status = 'DONE';
+
+-- Архив выполненных тасок: раннеры и админка его не читают, таблица task остаётся
+-- размером с «живую» очередь плюс окно ретеншна.
+CREATE TABLE task_archive (
+    id          UUID PRIMARY KEY,
+    type        VARCHAR(255) NOT NULL,
+    payload     TEXT,
+    status      VARCHAR(255) NOT NULL,
+    comment     TEXT,
+    created_at  TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    attempts    INT NOT NULL DEFAULT 0,
+    archived_at TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_task_archive_type_created ON task_archive (type, created_at);
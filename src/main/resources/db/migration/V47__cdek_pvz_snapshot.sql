@@ -0,0 +1,9 @@
+-- Снимок полного списка ПВЗ СДЭК: старт приложения поднимает поиск из него,
+-- не дожидаясь выгрузки /v2/deliverypoints. Одна строка (id = 1), перезаписывается при обновлении.
+CREATE TABLE cdek_pvz_snapshot (
+    id           SMALLINT PRIMARY KEY,
+    loaded_at    TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    points_count INT NOT NULL,
+    -- gzip бинарного формата PvzSnapshotCodec
+    payload      BYTEA NOT NULL
+);
@@ -0,0 +1,17 @@
+-- Входящие вебхуки amoCRM и СДЭК: контроллер только сохраняет тело и ставит таску WEBHOOK,
+-- обработка идёт раннером тасок. Повторная доставка того же тела (ретраи отправителя)
+-- упирается в уникальный (source, payload_hash) и не порождает вторую обработку.
+CREATE TABLE webhook_inbox (
+    id           BIGSERIAL PRIMARY KEY,
+    source       VARCHAR(32) NOT NULL,
+    -- sha256(payload) в hex
+    payload_hash CHAR(64) NOT NULL,
+    payload      TEXT NOT NULL,
+    received_at  TIMESTAMP(6) WITH TIME ZONE NOT NULL DEFAULT now(),
+    processed_at TIMESTAMP(6) WITH TIME ZONE
+);
+
+CREATE UNIQUE INDEX uq_webhook_inbox_source_hash ON webhook_inbox (source, payload_hash);
+
+-- Ретеншн обработанных записей по возрасту.
+CREATE INDEX idx_webhook_inbox_processed_received ON webhook_inbox (received_at) WHERE processed_at IS NOT NULL;
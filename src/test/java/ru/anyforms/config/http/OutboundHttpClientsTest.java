@@ -0,0 +1,43 @@
+package ru.anyforms.config.http;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты фабрики исходящих клиентов: настройки пула перекрывают общие, пул на имя создаётся один раз.
+ */
+class OutboundHttpClientsTest {
+
+    @Test
+    void poolSettingOverridesCommonOneAndCommonOverridesDefault() {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("outbound-http.max-connections", "20")
+                .withProperty("outbound-http.pools.cdek.max-connections", "8")
+                .withProperty("outbound-http.pools.notisend.dns.system-resolver", "true");
+        OutboundHttpClients clients = new OutboundHttpClients(env);
+
+        OutboundHttpClients.PoolSettings cdek = clients.settings(OutboundHttpClients.CDEK);
+        OutboundHttpClients.PoolSettings amo = clients.settings(OutboundHttpClients.AMO);
+
+        assertEquals(8, cdek.maxConnections());
+        assertEquals(20, amo.maxConnections());
+        assertEquals(Duration.ofSeconds(30), amo.responseTimeout());
+        assertFalse(amo.systemResolver());
+        assertTrue(clients.settings(OutboundHttpClients.NOTISEND).systemResolver());
+    }
+
+    @Test
+    void samePoolNameSharesOneClient() {
+        OutboundHttpClients clients = new OutboundHttpClients(new MockEnvironment());
+        try {
+            assertSame(clients.httpClient(OutboundHttpClients.CDEK), clients.httpClient(OutboundHttpClients.CDEK));
+            assertNotSame(clients.httpClient(OutboundHttpClients.CDEK), clients.httpClient(OutboundHttpClients.AMO));
+        } finally {
+            clients.shutdown();
+        }
+    }
+}
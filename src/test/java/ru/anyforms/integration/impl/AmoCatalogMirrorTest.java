@@ -0,0 +1,70 @@
+package ru.anyforms.integration.impl;
+
+import org.junit.jupiter.api.Test;
+import ru.anyforms.model.amo.AmoProduct;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты копии каталога amo: полная загрузка, дообновление по updated_at, сброс.
+ */
+class AmoCatalogMirrorTest {
+
+    private static final Long CATALOG = 7L;
+
+    @Test
+    void incrementalMergeUpdatesInPlaceAndAppendsNew() {
+        AmoCatalogMirror mirror = new AmoCatalogMirror();
+        mirror.replace(CATALOG, new AmoCatalogMirror.Load(List.of(element(1L, "Форма"), element(2L, "Штамп")), 100),
+                Instant.EPOCH);
+
+        mirror.merge(CATALOG, List.of(element(1L, "Форма 2.0"), element(3L, "Нож")), 150);
+
+        AmoCatalogMirror.Snapshot snapshot = mirror.get(CATALOG);
+        assertTrue(snapshot.complete());
+        assertEquals(List.of(1L, 2L, 3L), List.copyOf(snapshot.elements().keySet()));
+        assertEquals("Форма 2.0", snapshot.elements().get(1L).getName());
+        assertEquals(150, snapshot.maxUpdatedAt());
+    }
+
+    @Test
+    void lookupByIdDoesNotMoveCursorOrMarkCatalogComplete() {
+        AmoCatalogMirror mirror = new AmoCatalogMirror();
+
+        mirror.merge(CATALOG, List.of(element(5L, "Форма")), 0);
+
+        AmoCatalogMirror.Snapshot snapshot = mirror.get(CATALOG);
+        assertFalse(snapshot.complete());
+        assertEquals(0, snapshot.maxUpdatedAt());
+        assertEquals("Форма", snapshot.elements().get(5L).getName());
+
+        mirror.replace(CATALOG, new AmoCatalogMirror.Load(List.of(element(1L, "Штамп")), 200), Instant.EPOCH);
+        mirror.merge(CATALOG, List.of(), 50);
+        assertEquals(200, mirror.get(CATALOG).maxUpdatedAt());
+    }
+
+    @Test
+    void invalidateForcesFullReload() {
+        AmoCatalogMirror mirror = new AmoCatalogMirror();
+        mirror.replace(CATALOG, new AmoCatalogMirror.Load(List.of(element(1L, "Форма")), 100), Instant.EPOCH);
+
+        mirror.invalidate(CATALOG);
+
+        assertFalse(mirror.get(CATALOG).complete());
+        assertTrue(mirror.get(CATALOG).elements().isEmpty());
+        assertTrue(mirror.catalogIds().isEmpty());
+    }
+
+    private static AmoProduct element(Long id, String name) {
+        AmoProduct product = new AmoProduct();
+        product.setId(id);
+        product.setName(name);
+        product.setCatalogId(CATALOG);
+        return product;
+    }
+}
@@ -0,0 +1,98 @@
+package ru.anyforms.integration.impl;
+
+import org.junit.jupiter.api.Test;
+import ru.anyforms.model.amo.AmoContact;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Тесты кэша контактов amo: повторные чтения без запросов, нормализация телефона/email, сброс,
+ * в том числе во время загрузки.
+ */
+class AmoContactCacheTest {
+
+    private final AmoContactCache cache = new AmoContactCache(120, 600, 100);
+
+    @Test
+    void contactIsLoadedOnce_untilInvalidated() {
+        AtomicInteger loads = new AtomicInteger();
+        AmoContact contact = contact(5L, "+7 (912) 345-67-89");
+
+        assertSame(contact, cache.getContact(5L, id -> { loads.incrementAndGet(); return contact; }));
+        assertSame(contact, cache.getContact(5L, id -> { loads.incrementAndGet(); return contact; }));
+        cache.invalidate(5L);
+        cache.getContact(5L, id -> { loads.incrementAndGet(); return contact; });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void loadStartedBeforeInvalidate_isNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        AmoContact stale = contact(5L, "+7 (912) 345-67-89");
+
+        // пока шёл GET, контакт изменили (PATCH/вебхук) — прочитанная копия уже старая
+        cache.getContact(5L, id -> { loads.incrementAndGet(); cache.invalidate(5L); return stale; });
+        cache.getContact(5L, id -> { loads.incrementAndGet(); return stale; });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void missingContactIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.getContact(5L, id -> { loads.incrementAndGet(); return null; }));
+        assertNull(cache.getContact(5L, id -> { loads.incrementAndGet(); return null; }));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void phoneQueriesShareLastTenDigits() {
+        AtomicInteger searches = new AtomicInteger();
+
+        assertEquals(7L, cache.findContactId("89123456789", q -> { searches.incrementAndGet(); return 7L; }));
+        assertEquals(7L, cache.findContactId("+7 912 345-67-89", q -> { searches.incrementAndGet(); return 8L; }));
+
+        assertEquals(1, searches.get());
+    }
+
+    @Test
+    void loadedContactAnswersSearchByItsPhone_untilInvalidated() {
+        cache.getContact(5L, id -> contact(5L, "+7 (912) 345-67-89"));
+        AtomicInteger searches = new AtomicInteger();
+
+        assertEquals(5L, cache.findContactId("79123456789", q -> { searches.incrementAndGet(); return null; }));
+        cache.invalidate(5L);
+        assertNull(cache.findContactId("79123456789", q -> { searches.incrementAndGet(); return null; }));
+
+        assertEquals(1, searches.get());
+    }
+
+    @Test
+    void queryKeyNormalization() {
+        assertEquals("email:shop@example.ru", AmoContactCache.queryKey(" Shop@Example.RU "));
+        assertEquals("phone:9123456789", AmoContactCache.queryKey("8 (912) 345-67-89"));
+        assertNull(AmoContactCache.queryKey("12345"));
+        assertNull(AmoContactCache.queryKey("Иванов 9123456789"));
+        assertNull(AmoContactCache.queryKey(null));
+    }
+
+    private static AmoContact contact(Long id, String phone) {
+        AmoContact.CustomField.Value value = new AmoContact.CustomField.Value();
+        value.setValue(phone);
+        AmoContact.CustomField field = new AmoContact.CustomField();
+        field.setFieldCode("PHONE");
+        field.setValues(List.of(value));
+        AmoContact contact = new AmoContact();
+        contact.setId(id);
+        contact.setCustomFieldsValues(List.of(field));
+        return contact;
+    }
+}
@@ -0,0 +1,43 @@
+package ru.anyforms.integration.impl;
+
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты потокового разбора страницы лидов amo: берём только {@code _embedded.leads[].id},
+ * остальное пропускаем.
+ */
+class AmoLeadIdReaderTest {
+
+    @Test
+    void readsIdsAndSkipsEverythingElse() {
+        String page = """
+                {"_page": 1,
+                 "_links": {"self": {"href": "https://x.amocrm.ru/api/v4/leads?page=1"}},
+                 "_embedded": {"leads": [
+                    {"id": 11, "name": "A", "custom_fields_values": [{"field_id": 1, "values": [{"value": "x"}]}]},
+                    {"name": "без id"},
+                    {"id": null},
+                    {"_embedded": {"tags": [{"id": 999}]}, "id": 12}
+                 ]}}
+                """;
+
+        assertEquals(List.of(11L, 12L), AmoLeadIdReader.read(page));
+    }
+
+    @Test
+    void emptyBodyOrNoEmbedded_givesNoIds() {
+        assertEquals(List.of(), AmoLeadIdReader.read(""));
+        assertEquals(List.of(), AmoLeadIdReader.read(null));
+        assertEquals(List.of(), AmoLeadIdReader.read("{\"_page\": 3}"));
+    }
+
+    @Test
+    void malformedBody_throws() {
+        assertThrows(JsonParseException.class, () -> AmoLeadIdReader.read("<html>502</html>"));
+    }
+}
@@ -0,0 +1,195 @@
+package ru.anyforms.integration.impl;
+
+import org.junit.jupiter.api.Test;
+import ru.anyforms.model.amo.AmoLead;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты буфера правок сделок amo: слияние по сделке, пачки, возврат после ошибки, read-your-writes,
+ * исход отправок в полёте.
+ */
+class AmoLeadWriteBufferTest {
+
+    private static final long DELIVERY_STATUS = 1L;
+    private static final long TRACKER = 2L;
+
+    @Test
+    void writesToSameLeadMergeIntoOneMutation() {
+        AmoLeadWriteBuffer buffer = new AmoLeadWriteBuffer();
+        buffer.put(field(10L, DELIVERY_STATUS, "ACCEPTED"));
+        buffer.put(field(10L, TRACKER, "1234567890"));
+        buffer.put(field(10L, DELIVERY_STATUS, "DELIVERED"));
+        buffer.put(status(10L, 142L, 5L));
+        buffer.put(tag(10L, "Курс"));
+        buffer.put(tag(10L, "Курс"));
+
+        List<AmoLeadWriteBuffer.Mutation> batch = buffer.drain(50);
+
+        assertEquals(1, batch.size());
+        AmoLeadWriteBuffer.Mutation mutation = batch.get(0);
+        assertEquals(Map.of(DELIVERY_STATUS, "DELIVERED", TRACKER, "1234567890"), mutation.customFields);
+        assertEquals(142L, mutation.statusId);
+        assertEquals(5L, mutation.pipelineId);
+        assertEquals(Set.of("Курс"), mutation.tagsToAdd);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void drainTakesLeadsInFirstWriteOrderUpToLimit() {
+        AmoLeadWriteBuffer buffer = new AmoLeadWriteBuffer();
+        buffer.put(field(3L, TRACKER, "a"));
+        buffer.put(field(1L, TRACKER, "b"));
+        buffer.put(field(2L, TRACKER, "c"));
+        buffer.put(field(3L, TRACKER, "d"));
+
+        assertEquals(List.of(3L, 1L), buffer.drain(2).stream().map(m -> m.leadId).toList());
+        assertEquals(List.of(2L), buffer.drain(2).stream().map(m -> m.leadId).toList());
+        assertEquals(List.of(), buffer.drain(2));
+    }
+
+    @Test
+    void restore_keepsWritesMadeDuringFailedSend() {
+        AmoLeadWriteBuffer buffer = new AmoLeadWriteBuffer();
+        buffer.put(field(10L, DELIVERY_STATUS, "ACCEPTED"));
+        buffer.put(field(10L, TRACKER, "1234567890"));
+        AmoLeadWriteBuffer.Mutation sent = buffer.drain(10L);
+        buffer.put(field(10L, DELIVERY_STATUS, "DELIVERED"));
+
+        buffer.restore(sent);
+
+        AmoLeadWriteBuffer.Mutation retried = buffer.drain(10L);
+        assertSame(sent, retried);
+        assertEquals(1, retried.failures);
+        assertEquals(Map.of(DELIVERY_STATUS, "DELIVERED", TRACKER, "1234567890"), retried.customFields);
+    }
+
+    @Test
+    void leadWithWritesInFlight_staysQueuedUntilTheirOutcome() {
+        AmoLeadWriteBuffer buffer = new AmoLeadWriteBuffer();
+        buffer.put(field(10L, DELIVERY_STATUS, "ACCEPTED"));
+        AmoLeadWriteBuffer.Mutation stale = buffer.drain(50).get(0);
+        buffer.put(field(10L, DELIVERY_STATUS, "DELIVERED"));
+        buffer.put(field(11L, DELIVERY_STATUS, "ACCEPTED"));
+
+        // Вторая пачка (по размеру буфера) и синхронный сброс не обгоняют правку в полёте
+        assertEquals(List.of(11L), buffer.drain(50).stream().map(m -> m.leadId).toList());
+        assertNull(buffer.drain(10L));
+        assertEquals(1, buffer.size());
+
+        // Неудачная старая отправка возвращается под более свежим значением
+        buffer.restore(stale);
+
+        AmoLeadWriteBuffer.Mutation retried = buffer.drain(10L);
+        assertEquals(Map.of(DELIVERY_STATUS, "DELIVERED"), retried.customFields);
+        buffer.complete(retried);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void overlayShowsQueuedAndInFlightWrites_untilCompleted() {
+        AmoLeadWriteBuffer buffer = new AmoLeadWriteBuffer();
+        buffer.put(field(10L, DELIVERY_STATUS, "DELIVERED"));
+        AmoLeadWriteBuffer.Mutation sent = buffer.drain(10L);
+        buffer.put(status(10L, 142L, 5L));
+
+        AmoLead lead = buffer.overlay(lead(10L, 100L, "ACCEPTED"));
+        assertEquals("DELIVERED", lead.getCustomFieldValue(DELIVERY_STATUS));
+        assertEquals(142L, lead.getStatusId());
+        assertEquals("1234567890", lead.getCustomFieldValue(TRACKER));
+
+        buffer.complete(sent);
+        buffer.drain(50).forEach(buffer::complete);
+        AmoLead fresh = buffer.overlay(lead(10L, 100L, "ACCEPTED"));
+        assertEquals("ACCEPTED", fresh.getCustomFieldValue(DELIVERY_STATUS));
+        assertEquals(100L, fresh.getStatusId());
+    }
+
+    @Test
+    void sendingExposesInFlightWritesAndTheirOutcome() {
+        AmoLeadWriteBuffer buffer = new AmoLeadWriteBuffer();
+        buffer.put(field(10L, DELIVERY_STATUS, "DELIVERED"));
+        buffer.put(field(11L, DELIVERY_STATUS, "ACCEPTED"));
+        List<AmoLeadWriteBuffer.Mutation> batch = buffer.drain(50);
+
+        List<AmoLeadWriteBuffer.Mutation> sending = buffer.sending(10L);
+        assertEquals(List.of(batch.get(0)), sending);
+        assertFalse(sending.get(0).attempt.isDone());
+
+        buffer.complete(batch.get(0));
+        buffer.drop(batch.get(1));
+
+        assertTrue(sending.get(0).attempt.isDone());
+        assertFalse(sending.get(0).dropped);
+        assertTrue(batch.get(1).attempt.isDone());
+        assertTrue(batch.get(1).dropped);
+        assertEquals(List.of(), buffer.sending(10L));
+        assertEquals(List.of(), buffer.sending(11L));
+    }
+
+    @Test
+    void restoredWriteFinishesAttempt_andNextDrainStartsNewOne() {
+        AmoLeadWriteBuffer buffer = new AmoLeadWriteBuffer();
+        buffer.put(field(10L, DELIVERY_STATUS, "DELIVERED"));
+        AmoLeadWriteBuffer.Mutation sent = buffer.drain(10L);
+        var firstAttempt = sent.attempt;
+
+        buffer.restore(sent);
+
+        assertTrue(firstAttempt.isDone());
+        assertFalse(sent.dropped);
+        assertSame(sent, buffer.drain(10L));
+        assertFalse(sent.attempt.isDone());
+    }
+
+    @Test
+    void overlayIgnoresMissingLead() {
+        assertNull(new AmoLeadWriteBuffer().overlay(null));
+    }
+
+    private static AmoLeadWriteBuffer.Mutation field(Long leadId, Long fieldId, String value) {
+        AmoLeadWriteBuffer.Mutation mutation = new AmoLeadWriteBuffer.Mutation(leadId);
+        mutation.customFields.put(fieldId, value);
+        return mutation;
+    }
+
+    private static AmoLeadWriteBuffer.Mutation status(Long leadId, Long statusId, Long pipelineId) {
+        AmoLeadWriteBuffer.Mutation mutation = new AmoLeadWriteBuffer.Mutation(leadId);
+        mutation.statusId = statusId;
+        mutation.pipelineId = pipelineId;
+        return mutation;
+    }
+
+    private static AmoLeadWriteBuffer.Mutation tag(Long leadId, String tag) {
+        AmoLeadWriteBuffer.Mutation mutation = new AmoLeadWriteBuffer.Mutation(leadId);
+        mutation.tagsToAdd.add(tag);
+        return mutation;
+    }
+
+    private static AmoLead lead(Long id, Long statusId, String deliveryStatus) {
+        AmoLead.CustomField.Value trackerValue = new AmoLead.CustomField.Value();
+        trackerValue.setValue("1234567890");
+        AmoLead.CustomField tracker = new AmoLead.CustomField();
+        tracker.setFieldId(TRACKER);
+        tracker.setValues(List.of(trackerValue));
+        AmoLead.CustomField.Value statusValue = new AmoLead.CustomField.Value();
+        statusValue.setValue(deliveryStatus);
+        AmoLead.CustomField status = new AmoLead.CustomField();
+        status.setFieldId(DELIVERY_STATUS);
+        status.setValues(List.of(statusValue));
+
+        AmoLead lead = new AmoLead();
+        lead.setId(id);
+        lead.setStatusId(statusId);
+        lead.setCustomFieldsValues(List.of(tracker, status));
+        return lead;
+    }
+}
@@ -0,0 +1,150 @@
+package ru.anyforms.integration.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import ru.anyforms.model.amo.AmoLead;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Аллокации на одну страницу ответа amo (250 сделок): прежний путь — тело в {@code String}, дерево
+ * {@code JsonObject}, {@code gson.fromJson} по поддеревьям — против декодирования из {@link DataBuffer}
+ * прямо в DTO ({@link AmoResponses#decode}, {@link AmoLeadIdReader}).
+ * <p>
+ * Смотреть на {@code gc.alloc.rate.norm} (байт на операцию = на страницу). Surefire класс не запускает:
+ * <pre>
+ * mvn test-compile
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *   ru.anyforms.integration.impl.AmoPageDecodeBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AmoPageDecodeBenchmark {
+
+    private static final int LEADS_PER_PAGE = 250;
+    /** Размер куска тела, каким его отдаёт Netty. */
+    private static final int CHUNK_BYTES = 8 * 1024;
+    private static final int MAX_IN_MEMORY_SIZE = 16 * 1024 * 1024;
+
+    private final Gson gson = new Gson();
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private byte[] page;
+
+    @Setup
+    public void setUp() {
+        StringBuilder json = new StringBuilder("{\"_page\":1,\"_links\":{\"self\":{\"href\":\"https://x.amocrm.ru/api/v4/leads?page=1\"}},"
+                + "\"_embedded\":{\"leads\":[");
+        for (int i = 0; i < LEADS_PER_PAGE; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            long id = 30_000_000L + i;
+            json.append("{\"id\":").append(id)
+                    .append(",\"name\":\"Сделка #").append(id).append("\",\"price\":4900,\"responsible_user_id\":8123456")
+                    .append(",\"group_id\":0,\"status_id\":142,\"pipeline_id\":7654321,\"loss_reason_id\":null")
+                    .append(",\"created_by\":0,\"updated_by\":8123456,\"created_at\":1721900000,\"updated_at\":1722000000")
+                    .append(",\"closed_at\":null,\"closest_task_at\":null,\"is_deleted\":false,\"score\":null,\"account_id\":29876543")
+                    .append(",\"custom_fields_values\":[")
+                    .append("{\"field_id\":2601105,\"field_name\":\"Статус доставки\",\"field_code\":null,\"field_type\":\"text\",\"values\":[{\"value\":\"ACCEPTED\"}]},")
+                    .append("{\"field_id\":2601107,\"field_name\":\"Трекер\",\"field_code\":null,\"field_type\":\"text\",\"values\":[{\"value\":\"1234567890\"}]},")
+                    .append("{\"field_id\":2601109,\"field_name\":\"Тип заказа\",\"field_code\":null,\"field_type\":\"select\",\"values\":[{\"value\":\"Розница\",\"enum_id\":4100001}]}")
+                    .append("],\"_links\":{\"self\":{\"href\":\"https://x.amocrm.ru/api/v4/leads/").append(id).append("\"}}")
+                    .append(",\"_embedded\":{\"tags\":[{\"id\":1,\"name\":\"Курс\",\"color\":null}],\"companies\":[]}}");
+        }
+        json.append("]}}");
+        page = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Тело ответа кусками, как оно приходит из сети; буферы одноразовые — чтение сдвигает позицию. */
+    private Flux<DataBuffer> body() {
+        List<DataBuffer> chunks = new ArrayList<>(page.length / CHUNK_BYTES + 1);
+        for (int from = 0; from < page.length; from += CHUNK_BYTES) {
+            chunks.add(bufferFactory.wrap(ByteBuffer.wrap(page, from, Math.min(CHUNK_BYTES, page.length - from))));
+        }
+        return Flux.fromIterable(chunks);
+    }
+
+    /** Как {@code bodyToMono(String.class)}: склеить и раскодировать в строку. */
+    private String bodyAsString() {
+        return DataBufferUtils.join(body(), MAX_IN_MEMORY_SIZE)
+                .map(buffer -> {
+                    try {
+                        return buffer.toString(StandardCharsets.UTF_8);
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                })
+                .block();
+    }
+
+    @Benchmark
+    public List<AmoLead> leadsViaStringAndTree() {
+        JsonObject json = JsonParser.parseString(bodyAsString()).getAsJsonObject();
+        JsonArray leads = json.getAsJsonObject("_embedded").getAsJsonArray("leads");
+        List<AmoLead> result = new ArrayList<>(leads.size());
+        for (JsonElement lead : leads) {
+            result.add(gson.fromJson(lead, AmoLead.class));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<AmoLead> leadsViaDataBufferToDto() {
+        return AmoResponses.decode(body(), MAX_IN_MEMORY_SIZE, reader -> gson.fromJson(reader, AmoResponses.Page.class))
+                .block()
+                .embedded.leads;
+    }
+
+    @Benchmark
+    public List<Long> leadIdsViaStringAndTree() {
+        JsonObject json = JsonParser.parseString(bodyAsString()).getAsJsonObject();
+        JsonArray leads = json.getAsJsonObject("_embedded").getAsJsonArray("leads");
+        List<Long> ids = new ArrayList<>(leads.size());
+        for (JsonElement lead : leads) {
+            ids.add(lead.getAsJsonObject().get("id").getAsLong());
+        }
+        return ids;
+    }
+
+    @Benchmark
+    public List<Long> leadIdsViaDataBufferReader() {
+        return AmoResponses.decode(body(), MAX_IN_MEMORY_SIZE, AmoLeadIdReader::readFrom).block();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AmoPageDecodeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,103 @@
+package ru.anyforms.integration.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты token bucket перед amoCRM: всплеск до ёмкости, равномерная выдача после него,
+ * не больше requests-per-second в любую секунду, бюджеты эндпоинтов и пауза по 429.
+ */
+class AmoRateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(0);
+
+    @Test
+    void burstUpToCapacity_thenEvenSpacing() {
+        AmoRateLimiter limiter = new AmoRateLimiter(5, 2, "", clock::get);
+
+        assertEquals(Duration.ZERO, limiter.reserve("/api/v4/leads"));
+        assertEquals(Duration.ZERO, limiter.reserve("/api/v4/leads"));
+        assertEquals(Duration.ofMillis(200), limiter.reserve("/api/v4/leads"));
+        assertEquals(Duration.ofMillis(400), limiter.reserve("/api/v4/leads"));
+    }
+
+    @Test
+    void fullBurst_isNotFollowedByRefillInTheSameSecond() {
+        AmoRateLimiter limiter = new AmoRateLimiter(7, 7, "", clock::get);
+
+        for (int i = 0; i < 7; i++) {
+            assertEquals(Duration.ZERO, limiter.reserve("/api/v4/leads"));
+        }
+        // жетон пополнился бы через 1/7 с, но секунда уже выбрана всплеском
+        assertEquals(Duration.ofSeconds(1), limiter.reserve("/api/v4/leads"));
+    }
+
+    @Test
+    void anySecond_getsAtMostRequestsPerSecond() {
+        AmoRateLimiter limiter = new AmoRateLimiter(7, 7, "", clock::get);
+        List<Long> sentAt = new ArrayList<>();
+        long[] pauses = {0, 0, 300, 0, 1_500, 50, 0, 900, 0, 0, 2_000, 10, 0, 0, 0, 0, 120, 0, 700, 0};
+        for (int round = 0; round < 3; round++) {
+            for (long pauseMs : pauses) {
+                clock.addAndGet(pauseMs * 1_000_000L);
+                sentAt.add(clock.get() + limiter.reserve("/api/v4/leads").toNanos());
+            }
+        }
+
+        sentAt.sort(null);
+        for (int i = 0; i + 7 < sentAt.size(); i++) {
+            assertTrue(sentAt.get(i + 7) - sentAt.get(i) >= SECOND,
+                    "8 requests within one second, starting at #" + i);
+        }
+    }
+
+    @Test
+    void idleBucketRefills() {
+        AmoRateLimiter limiter = new AmoRateLimiter(5, 5, "", clock::get);
+        for (int i = 0; i < 5; i++) {
+            limiter.reserve("/api/v4/leads");
+        }
+
+        clock.addAndGet(SECOND); // за секунду простоя накопилось 5 жетонов
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Duration.ZERO, limiter.reserve("/api/v4/leads"));
+        }
+        assertTrue(limiter.reserve("/api/v4/leads").compareTo(Duration.ZERO) > 0);
+    }
+
+    @Test
+    void endpointBudget_appliesOnlyToMatchingPrefix() {
+        AmoRateLimiter limiter = new AmoRateLimiter(100, 100, "/api/v2/salesbot=1", clock::get);
+
+        assertEquals(Duration.ZERO, limiter.reserve("/api/v2/salesbot/run"));
+        assertEquals(Duration.ofSeconds(1), limiter.reserve("/api/v2/salesbot/run"));
+        // Остальные эндпоинты бюджет salesbot не задевает.
+        assertEquals(Duration.ZERO, limiter.reserve("/api/v4/leads/1"));
+    }
+
+    @Test
+    void tooManyRequests_pausesEveryoneForRetryAfter() {
+        AmoRateLimiter limiter = new AmoRateLimiter(5, 5, "", clock::get);
+
+        Duration pause = limiter.onTooManyRequests("2");
+
+        assertEquals(Duration.ofSeconds(2), pause);
+        assertEquals(Duration.ofSeconds(2), limiter.reserve("/api/v4/leads"));
+    }
+
+    @Test
+    void retryAfter_fallsBackToDefaultWhenMissingOrBroken() {
+        assertEquals(Duration.ofSeconds(1), AmoRateLimiter.parseRetryAfter(null));
+        assertEquals(Duration.ofSeconds(1), AmoRateLimiter.parseRetryAfter("soon"));
+        assertEquals(Duration.ofSeconds(3), AmoRateLimiter.parseRetryAfter(" 3 "));
+    }
+}
@@ -0,0 +1,83 @@
+package ru.anyforms.integration.impl;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты потокового декодирования ответов amo в типизированные конверты.
+ */
+class AmoResponsesTest {
+
+    private final Gson gson = new Gson();
+
+    @Test
+    void leadWithContactsAndCatalogElementsDecodesInOnePass() {
+        String body = """
+                {"id": 100, "status_id": 142, "pipeline_id": 5,
+                 "custom_fields_values": [{"field_id": 7, "values": [{"value": "DELIVERED"}]}],
+                 "_links": {"self": {"href": "https://x.amocrm.ru/api/v4/leads/100"}},
+                 "_embedded": {
+                    "tags": [{"id": 1, "name": "Курс"}],
+                    "contacts": [{"id": 55, "is_main": true}, {"id": 56, "is_main": false}],
+                    "catalog_elements": [{"id": 9, "metadata": {"quantity": 2.0, "catalog_id": 3, "price_id": 1}}]
+                 }}
+                """;
+
+        AmoResponses.LeadResponse lead = gson.fromJson(new StringReader(body), AmoResponses.LeadResponse.class);
+
+        assertEquals(100L, lead.getId());
+        assertEquals("DELIVERED", lead.getCustomFieldValue(7L));
+        assertEquals(55L, lead.embedded.contacts.get(0).getId());
+        AmoResponses.LinkedCatalogElement element = lead.embedded.catalogElements.get(0);
+        assertEquals(9L, element.id);
+        assertEquals(2, element.metadata.quantity.intValue());
+        assertEquals(3L, element.metadata.catalogId);
+    }
+
+    @Test
+    void catalogPageKeepsOnlyIdNameAndUpdatedAt() {
+        String body = """
+                {"_page": 1, "_embedded": {"elements": [
+                    {"id": 1, "name": "Форма", "updated_at": 1700000000, "custom_fields_values": null},
+                    {"id": 2, "name": "Штамп", "updated_at": 1700000500}
+                ]}}
+                """;
+
+        AmoResponses.Page page = gson.fromJson(new StringReader(body), AmoResponses.Page.class);
+
+        assertEquals(2, page.embedded.elements.size());
+        assertEquals("Штамп", page.embedded.elements.get(1).name);
+        assertEquals(1700000500L, page.embedded.elements.get(1).updatedAt);
+        assertNull(page.embedded.leads);
+    }
+
+    @Test
+    void decodeReadsBodySplitAcrossBuffers() {
+        byte[] bytes = "{\"_embedded\": {\"leads\": [{\"id\": 11, \"name\": \"Заказ\"}, {\"id\": 12}]}}"
+                .getBytes(StandardCharsets.UTF_8);
+        // разрез внутри многобайтового символа
+        int cut = 46;
+        Flux<DataBuffer> chunks = Flux.just(
+                DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes, 0, cut)),
+                DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes, cut, bytes.length)));
+
+        List<Long> ids = AmoResponses.decode(chunks, 1024, AmoLeadIdReader::readFrom).block();
+
+        assertEquals(List.of(11L, 12L), ids);
+    }
+
+    @Test
+    void emptyBodyGivesEmptyMono() {
+        assertNull(AmoResponses.decode(Flux.empty(), 1024, AmoLeadIdReader::readFrom).block());
+    }
+}
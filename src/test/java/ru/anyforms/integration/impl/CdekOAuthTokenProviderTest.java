@@ -0,0 +1,102 @@
+package ru.anyforms.integration.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.anyforms.config.http.OutboundHttpClients;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Тесты токена СДЭК: одно обновление на всех, раннее обновление в фоне, ожидание при истёкшем токене.
+ */
+class CdekOAuthTokenProviderTest {
+
+    private final CdekOAuthTokenProvider provider =
+            spy(new CdekOAuthTokenProvider(new OutboundHttpClients(new MockEnvironment())));
+
+    @Test
+    void concurrentCallersWithoutTokenShareOneFetch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return provider.token("fresh", 3600, Instant.now());
+        }).when(provider).fetchToken();
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(callers.submit(provider::getAccessToken));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("fresh", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        verify(provider, times(1)).fetchToken();
+    }
+
+    @Test
+    void tokenPastRefreshRatioIsServedWhileRefreshRunsInBackground() {
+        // выдан 50 минут назад на час: 80% срока прошло, но до истечения ещё ~9 минут
+        CdekOAuthTokenProvider.Token old = provider.token("old", 3600, Instant.now().minusSeconds(50 * 60));
+        CdekOAuthTokenProvider.Token fresh = provider.token("new", 3600, Instant.now());
+        doReturn(old).doReturn(fresh).when(provider).fetchToken();
+        provider.refreshIfDue();
+        awaitRefresh();
+
+        assertEquals("old", provider.getAccessToken());
+
+        awaitRefresh();
+        verify(provider, times(2)).fetchToken();
+        assertEquals("new", provider.getAccessToken());
+    }
+
+    @Test
+    void expiredTokenWaitsForRefresh() {
+        CdekOAuthTokenProvider.Token expired = provider.token("expired", 3600, Instant.now().minusSeconds(2 * 3600));
+        CdekOAuthTokenProvider.Token fresh = provider.token("fresh", 3600, Instant.now());
+        doReturn(expired).doReturn(fresh).when(provider).fetchToken();
+        provider.refreshIfDue();
+        awaitRefresh();
+
+        assertEquals("fresh", provider.getAccessToken());
+    }
+
+    @Test
+    void failedFetchGivesNoToken() {
+        doReturn(null).when(provider).fetchToken();
+
+        assertNull(provider.getAccessToken());
+    }
+
+    /** Фоновое обновление завершается асинхронно — ждём, пока оно закончится. */
+    private void awaitRefresh() {
+        AtomicReference<?> inFlight = (AtomicReference<?>) ReflectionTestUtils.getField(provider, "inFlight");
+        long deadline = System.currentTimeMillis() + 2000;
+        while (inFlight.get() != null && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertNull(inFlight.get());
+    }
+}
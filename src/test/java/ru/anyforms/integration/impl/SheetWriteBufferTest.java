@@ -0,0 +1,69 @@
+package ru.anyforms.integration.impl;
+
+import com.google.api.services.sheets.v4.model.ValueRange;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты склейки буферизованных записей в диапазоны для {@code values.batchUpdate}.
+ */
+class SheetWriteBufferTest {
+
+    @Test
+    void mergesRowNeighboursAndColumnRuns() {
+        SheetWriteBuffer buffer = new SheetWriteBuffer();
+        buffer.put("Лист", 5, 9, "CREATED");
+        buffer.put("Лист", 6, 9, "DELIVERED");
+        buffer.put("Лист", 7, 9, "ACCEPTED");
+        buffer.put("Лист", 10, 9, "HANDED_TO");
+        buffer.put("Лист", 3, 8, "1234567890");
+        buffer.put("Лист", 3, 9, "CREATED");
+
+        Map<String, List<List<Object>>> ranges = byRange(buffer.drain());
+
+        assertEquals(Map.of(
+                "Лист!J5:J7", List.of(List.of("CREATED"), List.of("DELIVERED"), List.of("ACCEPTED")),
+                "Лист!J10", List.of(List.of("HANDED_TO")),
+                "Лист!I3:J3", List.of(List.of("1234567890", "CREATED"))
+        ), ranges);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void lastWriteToSameCellWins() {
+        SheetWriteBuffer buffer = new SheetWriteBuffer();
+        buffer.put("Лист", 2, 9, "CREATED");
+        buffer.put("Лист", 2, 9, "DELIVERED");
+
+        assertEquals(Map.of("Лист!J2", List.of(List.of("DELIVERED"))), byRange(buffer.drain()));
+    }
+
+    @Test
+    void restore_keepsNewerWrites() {
+        SheetWriteBuffer buffer = new SheetWriteBuffer();
+        buffer.put("Лист", 2, 8, "tracker");
+        buffer.put("Лист", 2, 9, "CREATED");
+        List<ValueRange> failed = buffer.drain();
+
+        buffer.put("Лист", 2, 9, "DELIVERED");
+        buffer.restore(failed);
+
+        assertEquals(Map.of("Лист!I2:J2", List.of(List.of("tracker", "DELIVERED"))), byRange(buffer.drain()));
+    }
+
+    @Test
+    void columnLetter_handlesTwoLetterColumns() {
+        assertEquals("A", SheetWriteBuffer.columnLetter(0));
+        assertEquals("J", SheetWriteBuffer.columnLetter(9));
+        assertEquals("AA", SheetWriteBuffer.columnLetter(26));
+    }
+
+    private static Map<String, List<List<Object>>> byRange(List<ValueRange> ranges) {
+        return ranges.stream().collect(Collectors.toMap(ValueRange::getRange, ValueRange::getValues));
+    }
+}
@@ -0,0 +1,35 @@
+package ru.anyforms.model.task;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты расписания повторов: экспонента, потолок и разброс jitter в верхней половине интервала.
+ */
+class RetryPolicyTest {
+
+    private final RetryPolicy policy = new RetryPolicy(5, Duration.ofSeconds(30), Duration.ofMinutes(10));
+
+    @Test
+    void backoffDoublesPerAttempt_withinJitterBounds() {
+        assertEquals(Duration.ofSeconds(15), policy.backoff(1, 0));
+        assertEquals(Duration.ofSeconds(30), policy.backoff(2, 0));
+        assertEquals(Duration.ofSeconds(60), policy.backoff(3, 0));
+        assertTrue(policy.backoff(3, 0.999).compareTo(Duration.ofSeconds(120)) < 0);
+    }
+
+    @Test
+    void backoffIsCappedByMaxDelay() {
+        assertEquals(Duration.ofMinutes(5), policy.backoff(30, 0));
+        assertTrue(policy.backoff(30, 0.999).compareTo(Duration.ofMinutes(10)) < 0);
+    }
+
+    @Test
+    void exhaustedAfterMaxAttempts() {
+        assertFalse(policy.exhausted(4));
+        assertTrue(policy.exhausted(5));
+    }
+}
@@ -0,0 +1,88 @@
+package ru.anyforms.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+import ru.anyforms.model.salesbot.BotExecutionLog;
+import ru.anyforms.model.salesbot.BotExecutionStatus;
+import ru.anyforms.model.salesbot.OrderType;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Пакетная загрузка прогресса дрип-прогона на живом Postgres: привязка массива к
+ * {@code lead_id = ANY(:leadIds)}, отбор только SUCCESS, граница суток для {@code sentToday}.
+ * <p>
+ * Требует поднятую БД, поэтому по умолчанию выключен. Запуск:
+ * <pre>
+ * mvn test -Dtest=BotExecutionLogRepositoryProgressTest -DbotLogDb=true \
+ *   -Dbot.log.db.url=jdbc:postgresql://localhost:5432/anyforms_test
+ * </pre>
+ */
+@DataJpaTest
+@EnabledIfSystemProperty(named = "botLogDb", matches = "true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=${bot.log.db.url:jdbc:postgresql://localhost:5471/anyforms_test}",
+        "spring.datasource.username=postgres",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.postgresql.Driver",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.jdbc.time_zone=UTC",
+})
+class BotExecutionLogRepositoryProgressTest {
+
+    private static final Instant DAY_START = Instant.parse("2026-07-28T00:00:00Z");
+
+    @Autowired
+    private BotExecutionLogRepository repository;
+
+    private void save(long leadId, long botId, int position, OrderType type, BotExecutionStatus status,
+                      Instant executedAt) {
+        BotExecutionLog log = new BotExecutionLog();
+        log.setLeadId(leadId);
+        log.setBotId(botId);
+        log.setPosition(position);
+        log.setType(type);
+        log.setStatus(status);
+        log.setDateExecuted(executedAt);
+        repository.saveAndFlush(log);
+    }
+
+    @Test
+    void loadsSuccessRowsOfRequestedLeadsOnly() {
+        save(1L, 101L, 1, OrderType.RETAIL, BotExecutionStatus.SUCCESS, DAY_START.minusSeconds(3600));
+        save(1L, 102L, 2, OrderType.RETAIL, BotExecutionStatus.SUCCESS, DAY_START.plusSeconds(60));
+        save(2L, 101L, 1, OrderType.RETAIL, BotExecutionStatus.FAILED, DAY_START.plusSeconds(60));
+        save(3L, 201L, 1, OrderType.CUSTOM, BotExecutionStatus.SUCCESS, DAY_START);
+        save(4L, 101L, 1, OrderType.RETAIL, BotExecutionStatus.SUCCESS, DAY_START.plusSeconds(60));
+
+        List<BotExecutionProgressRow> rows = repository.findSuccessRows(new Long[]{1L, 2L, 3L}, DAY_START)
+                .stream()
+                .sorted(Comparator.comparing(BotExecutionProgressRow::getLeadId)
+                        .thenComparing(BotExecutionProgressRow::getPosition))
+                .toList();
+
+        // лид 2 — только FAILED, лид 4 в пачку не входит
+        assertEquals(List.of(1L, 1L, 3L), rows.stream().map(BotExecutionProgressRow::getLeadId).toList());
+        assertEquals(List.of(1, 2, 1), rows.stream().map(BotExecutionProgressRow::getPosition).toList());
+        assertEquals(List.of("RETAIL", "RETAIL", "CUSTOM"), rows.stream().map(BotExecutionProgressRow::getType).toList());
+        // граница суток включительно
+        assertEquals(List.of(false, true, true), rows.stream().map(BotExecutionProgressRow::getSentToday).toList());
+    }
+
+    @Test
+    void emptyBatchReturnsNothing() {
+        save(1L, 101L, 1, OrderType.RETAIL, BotExecutionStatus.SUCCESS, DAY_START);
+
+        assertTrue(repository.findSuccessRows(new Long[0], DAY_START).isEmpty());
+    }
+}
@@ -0,0 +1,136 @@
+package ru.anyforms.repository.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+import ru.anyforms.model.task.Task;
+import ru.anyforms.model.task.TaskStatus;
+import ru.anyforms.model.task.TaskType;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Запросы очереди тасок на живом Postgres: захват по сроку попытки и по истёкшему lease,
+ * перевод в DEAD «осиротевших» тасок с исчерпанными попытками, keyset-страницы истории.
+ * <p>
+ * Требует поднятую БД, поэтому по умолчанию выключен. Запуск:
+ * <pre>
+ * mvn test -Dtest=TaskRepoQueueTest -DtaskQueueDb=true \
+ *   -Dtask.queue.db.url=jdbc:postgresql://localhost:5432/anyforms_test
+ * </pre>
+ */
+@DataJpaTest
+@EnabledIfSystemProperty(named = "taskQueueDb", matches = "true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=${task.queue.db.url:jdbc:postgresql://localhost:5471/anyforms_test}",
+        "spring.datasource.username=postgres",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.postgresql.Driver",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.jdbc.time_zone=UTC",
+})
+class TaskRepoQueueTest {
+
+    private static final TaskType TYPE = TaskType.AMO_GUIDE_LEAD;
+    private static final Instant NOW = Instant.parse("2026-07-28T12:00:00Z");
+
+    @Autowired
+    private TaskRepo taskRepo;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private UUID save(TaskStatus status, int attempts, Instant nextAttemptAt, Instant leaseUntil) {
+        Task task = Task.builder()
+                .type(TYPE)
+                .payload("{}")
+                .status(status)
+                .attempts(attempts)
+                .nextAttemptAt(nextAttemptAt)
+                .lockedBy(leaseUntil == null ? null : "crashed@host")
+                .leaseUntil(leaseUntil)
+                .build();
+        taskRepo.saveAndFlush(task);
+        entityManager.clear();
+        return task.getId();
+    }
+
+    private void setCreatedAt(UUID id, Instant createdAt) {
+        entityManager.createNativeQuery("UPDATE task SET created_at = ?1 WHERE id = ?2")
+                .setParameter(1, createdAt)
+                .setParameter(2, id)
+                .executeUpdate();
+        entityManager.clear();
+    }
+
+    @Test
+    void keysetPagesCoverEqualCreatedAtWithoutGapsOrRepeats() {
+        // 7 тасок с одинаковым created_at между двумя с разным: граница страниц (по 3) режет группу
+        List<UUID> saved = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            UUID id = save(TaskStatus.DONE, 1, NOW, null);
+            setCreatedAt(id, i == 0 ? NOW.plusSeconds(60) : i == 8 ? NOW.minusSeconds(60) : NOW);
+            saved.add(id);
+        }
+
+        List<Task> all = new ArrayList<>();
+        List<Task> page = taskRepo.findFirstPage(TYPE.name(), 3);
+        while (!page.isEmpty()) {
+            all.addAll(page);
+            Task last = page.get(page.size() - 1);
+            page = taskRepo.findPageAfter(TYPE.name(), last.getCreatedAt(), last.getId(), 3);
+        }
+
+        assertEquals(9, all.size());
+        assertEquals(new HashSet<>(saved), new HashSet<>(all.stream().map(Task::getId).toList()));
+        assertEquals(saved.get(0), all.get(0).getId());
+        assertEquals(saved.get(8), all.get(8).getId());
+        for (int i = 1; i < all.size(); i++) {
+            Task prev = all.get(i - 1);
+            Task cur = all.get(i);
+            int byTime = cur.getCreatedAt().compareTo(prev.getCreatedAt());
+            assertTrue(byTime < 0 || (byTime == 0 && cur.getId().compareTo(prev.getId()) != 0));
+        }
+    }
+
+    @Test
+    void claimsDueAndOrphanedTasksWithAttemptsLeft() {
+        UUID due = save(TaskStatus.NEW, 0, NOW.minusSeconds(1), null);
+        UUID notYet = save(TaskStatus.FAILED, 1, NOW.plusSeconds(60), null);
+        UUID orphan = save(TaskStatus.RUNNING, 2, NOW.minusSeconds(600), NOW.minusSeconds(1));
+        UUID leased = save(TaskStatus.RUNNING, 2, NOW.minusSeconds(600), NOW.plusSeconds(60));
+
+        List<UUID> claimed = taskRepo.lockClaimable(TYPE.name(), NOW, 3, 10).stream().map(Task::getId).toList();
+
+        assertTrue(claimed.containsAll(List.of(due, orphan)));
+        assertFalse(claimed.contains(notYet));
+        assertFalse(claimed.contains(leased));
+    }
+
+    @Test
+    void orphanOnLastAttemptGoesDeadInsteadOfBeingReclaimed() {
+        UUID exhausted = save(TaskStatus.RUNNING, 3, NOW.minusSeconds(600), NOW.minusSeconds(1));
+
+        assertTrue(taskRepo.lockClaimable(TYPE.name(), NOW, 3, 10).isEmpty());
+        assertEquals(1, taskRepo.markExpiredExhaustedDead(TYPE.name(), NOW, 3));
+        entityManager.clear();
+
+        Task task = taskRepo.findById(exhausted).orElseThrow();
+        assertEquals(TaskStatus.DEAD, task.getStatus());
+        assertNull(task.getLockedBy());
+        assertNull(task.getLeaseUntil());
+    }
+}
@@ -0,0 +1,84 @@
+package ru.anyforms.service.amo.impl;
+
+import org.junit.jupiter.api.Test;
+import ru.anyforms.dto.ApiResponseDTO;
+import ru.anyforms.integration.AmoCrmGateway;
+import ru.anyforms.model.amo.AmoContact;
+import ru.anyforms.model.amo.AmoLead;
+import ru.anyforms.model.amo.AmoLeadAggregate;
+import ru.anyforms.repository.OrderRepository;
+import ru.anyforms.service.OrderService;
+import ru.anyforms.service.amo.LeadAmoCrmStatusUpdater;
+import ru.anyforms.service.telegram.TelegramNotificationQueue;
+import ru.anyforms.util.WebhookParserService;
+import ru.anyforms.util.amo.JsonLeadIdExtractionService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты form-data вебхука amo: разбор отдаёт сделки без повторов и сам их не синкает; сбой синка
+ * сделки или отказ amo принять её правки уходит вызывающему — раннер повторит таску этой сделки.
+ */
+class AmoCrmWebhookServiceImplTest {
+
+    private final OrderService orderService = mock(OrderService.class);
+    private final AmoCrmGateway amoCrmGateway = mock(AmoCrmGateway.class);
+    private final LeadAmoCrmStatusUpdater statusUpdater = mock(LeadAmoCrmStatusUpdater.class);
+    private final AmoCrmWebhookServiceImpl service = new AmoCrmWebhookServiceImpl(
+            new WebhookParserService(), new JsonLeadIdExtractionService(), statusUpdater,
+            orderService, amoCrmGateway, mock(OrderRepository.class), mock(TelegramNotificationQueue.class));
+
+    private void retailLead(Long leadId) {
+        AmoLead lead = new AmoLead();
+        lead.setPrice(1000L);
+        AmoContact contact = new AmoContact();
+        contact.setId(7L);
+        when(orderService.syncOrder(leadId)).thenReturn(new ApiResponseDTO(true, null, leadId, null, 2));
+        when(amoCrmGateway.getLeadAggregate(leadId)).thenReturn(new AmoLeadAggregate(lead, 7L, contact, List.of()));
+    }
+
+    @Test
+    void accept_returnsDistinctLeadIds_withoutSyncing() {
+        List<Long> leadIds = service.acceptFormDataWebhook(
+                "leads[add][0][id]=101&leads[status][0][id]=101&leads[status][1][id]=102");
+
+        assertEquals(List.of(101L, 102L), leadIds);
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    void failedLeadSync_propagates() {
+        doThrow(new RuntimeException("amo down")).when(orderService).syncOrder(101L);
+
+        assertThrows(RuntimeException.class, () -> service.processLead(101L));
+        verify(orderService).syncOrder(101L);
+    }
+
+    @Test
+    void retailLead_isDoneOnlyAfterAmoAcceptsItsWrites() {
+        retailLead(101L);
+        when(amoCrmGateway.flushLeadWrites(101L)).thenReturn(true);
+
+        service.processLead(101L);
+
+        verify(statusUpdater).moveToReadyToDeliver(101L);
+        verify(amoCrmGateway).flushLeadWrites(101L);
+    }
+
+    @Test
+    void rejectedLeadWrites_failTheLead() {
+        retailLead(101L);
+        when(amoCrmGateway.flushLeadWrites(101L)).thenReturn(false);
+
+        assertThrows(IllegalStateException.class, () -> service.processLead(101L));
+        verify(statusUpdater).moveToReadyToDeliver(101L);
+    }
+}
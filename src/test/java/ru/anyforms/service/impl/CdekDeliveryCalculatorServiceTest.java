@@ -0,0 +1,91 @@
+package ru.anyforms.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import ru.anyforms.config.http.OutboundHttpClients;
+import ru.anyforms.integration.CdekTokenProvider;
+import ru.anyforms.service.impl.CdekDeliveryCalculatorService.DeliveryCalculationResult;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты кэша расчётов доставки: повторный расчёт не ходит в СДЭК, вес округляется вверх,
+ * ошибки не кэшируются, одновременные одинаковые расчёты делят один запрос.
+ */
+class CdekDeliveryCalculatorServiceTest {
+
+    private final CdekDeliveryCalculatorService service =
+            spy(new CdekDeliveryCalculatorService(mock(CdekTokenProvider.class),
+                    new OutboundHttpClients(new MockEnvironment()), 60, 100, 100));
+
+    @Test
+    void sameDestinationAndParcel_servedFromCache() {
+        doReturn(new DeliveryCalculationResult(450.0, 2, 4))
+                .when(service).requestTariff(any(), any(), anyInt(), anyInt(), anyInt(), anyInt());
+
+        DeliveryCalculationResult first = service.calculateDelivery("Пермь", 614000, 1210, 30, 20, 10);
+        DeliveryCalculationResult second = service.calculateDelivery(" пермь ", 614000, 1290, 30, 20, 10);
+
+        assertSame(first, second);
+        // 1210 и 1290 г — одна ступень 1300 г, она же уходит в запрос
+        verify(service, times(1)).requestTariff("Пермь", 614000, 1300, 30, 20, 10);
+    }
+
+    @Test
+    void differentParcel_isSeparateEntry() {
+        doReturn(new DeliveryCalculationResult(450.0, 2, 4))
+                .when(service).requestTariff(any(), any(), anyInt(), anyInt(), anyInt(), anyInt());
+
+        service.calculateDelivery("Пермь", null, 1000, 30, 20, 10);
+        service.calculateDelivery("Пермь", null, 1000, 40, 20, 10);
+
+        verify(service, times(2)).requestTariff(any(), any(), anyInt(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void errors_areNotCached() {
+        doReturn(new DeliveryCalculationResult("timeout"))
+                .doReturn(new DeliveryCalculationResult(450.0, 2, 4))
+                .when(service).requestTariff(any(), any(), anyInt(), anyInt(), anyInt(), anyInt());
+
+        assertEquals("timeout", service.calculateDelivery("Пермь", null, 1000, 30, 20, 10).getError());
+        assertTrue(service.calculateDelivery("Пермь", null, 1000, 30, 20, 10).isSuccess());
+
+        verify(service, times(2)).requestTariff(any(), any(), anyInt(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void concurrentIdenticalRequests_shareOneUpstreamCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new DeliveryCalculationResult(450.0, 2, 4);
+        }).when(service).requestTariff(any(), any(), anyInt(), anyInt(), anyInt(), anyInt());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] calls = new Future<?>[4];
+            for (int i = 0; i < calls.length; i++) {
+                calls[i] = executor.submit(() -> service.calculateDelivery("Пермь", null, 1000, 30, 20, 10));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<?> call : calls) {
+                assertTrue(((DeliveryCalculationResult) call.get(5, TimeUnit.SECONDS)).isSuccess());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(service, times(1)).requestTariff(any(), any(), anyInt(), anyInt(), anyInt(), anyInt());
+    }
+}
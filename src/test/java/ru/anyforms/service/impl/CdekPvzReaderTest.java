@@ -0,0 +1,52 @@
+package ru.anyforms.service.impl;
+
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.Test;
+import ru.anyforms.dto.cdek.CdekPvzDTO;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты потокового разбора {@code /v2/deliverypoints}.
+ */
+class CdekPvzReaderTest {
+
+    private static final String RESPONSE = """
+            [
+              {"code": "PRM12", "name": "На Грибоедова", "work_time": "Пн-Пт 10:00-20:00",
+               "office_image_list": [{"url": "https://x/1.jpg"}], "weight_max": 30,
+               "location": {"country_code": "RU", "city": "Пермь", "address": "ул. Грибоедова, 135",
+                            "address_full": "Россия, Пермь, ул. Грибоедова, 135",
+                            "longitude": 56.25, "latitude": 58.01}},
+              {"name": "без кода", "location": {"city": "Пермь"}},
+              {"code": "PRM13", "name": null, "location": {"city": "Пермь", "address": "ул. Ленина, 10"}},
+              "мусор"
+            ]
+            """;
+
+    @Test
+    void readsPointFieldsAndSkipsEverythingElse() {
+        List<CdekPvzDTO> points = CdekPvzReader.read(new StringReader(RESPONSE));
+
+        assertEquals(List.of("PRM12", "PRM13"), points.stream().map(CdekPvzDTO::getCode).toList());
+        CdekPvzDTO first = points.get(0);
+        assertEquals("На Грибоедова", first.getName());
+        assertEquals("Пн-Пт 10:00-20:00", first.getWorkTime());
+        assertEquals("ул. Грибоедова, 135", first.getAddress());
+        assertEquals("Россия, Пермь, ул. Грибоедова, 135", first.getFullAddress());
+        assertEquals(58.01, first.getLatitude());
+        assertEquals(56.25, first.getLongitude());
+        assertNull(points.get(1).getName());
+        assertNull(points.get(1).getLatitude());
+        // Один город — одна строка на все пункты
+        assertSame(first.getCity(), points.get(1).getCity());
+    }
+
+    @Test
+    void malformedBody_throws() {
+        assertThrows(JsonParseException.class, () -> CdekPvzReader.read(new StringReader("{\"error\": 1}")));
+    }
+}
@@ -0,0 +1,81 @@
+package ru.anyforms.service.impl;
+
+import org.junit.jupiter.api.Test;
+import ru.anyforms.integration.CdekTrackingGateway;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты массового получения статусов СДЭК: кэш вебхуков, один запрос на трекер, параллелизм.
+ */
+class CdekStatusSweepImplTest {
+
+    private final CdekTrackingGateway gateway = mock(CdekTrackingGateway.class);
+
+    @Test
+    void webhookStatusIsUsedWithoutCallingCdek() {
+        CdekStatusSweepImpl sweep = new CdekStatusSweepImpl(gateway, 4, 30);
+        sweep.remember("1234-567-890", "DELIVERED");
+        when(gateway.getOrderStatus("5555555555")).thenReturn("ACCEPTED");
+
+        Map<String, String> statuses = sweep.fetchStatuses(List.of("1234567890", "5555555555"));
+
+        assertEquals(Map.of("1234567890", "DELIVERED", "5555555555", "ACCEPTED"), statuses);
+        verify(gateway, never()).getOrderStatus("1234567890");
+    }
+
+    @Test
+    void sameTrackerIsFetchedOnce_andReusedByNextSweep() {
+        CdekStatusSweepImpl sweep = new CdekStatusSweepImpl(gateway, 4, 30);
+        when(gateway.getOrderStatus("1234567890")).thenReturn("CREATED");
+
+        Map<String, String> statuses = sweep.fetchStatuses(List.of("1234567890", "1234 567 890"));
+        sweep.fetchStatuses(List.of("1234567890"));
+
+        assertEquals(Map.of("1234567890", "CREATED", "1234 567 890", "CREATED"), statuses);
+        verify(gateway, times(1)).getOrderStatus(anyString());
+    }
+
+    @Test
+    void trackerWithoutAnswerIsOmitted() {
+        CdekStatusSweepImpl sweep = new CdekStatusSweepImpl(gateway, 4, 30);
+        when(gateway.getOrderStatus("1111111111")).thenReturn(null);
+        when(gateway.getOrderStatus("2222222222")).thenThrow(new RuntimeException("timeout"));
+
+        assertTrue(sweep.fetchStatuses(List.of("1111111111", "2222222222")).isEmpty());
+    }
+
+    @Test
+    void fetchesInParallel_upToConcurrency() {
+        CdekStatusSweepImpl sweep = new CdekStatusSweepImpl(gateway, 2, 30);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        when(gateway.getOrderStatus(anyString())).thenAnswer(inv -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            bothStarted.countDown();
+            bothStarted.await(1, TimeUnit.SECONDS);
+            inFlight.decrementAndGet();
+            return "CREATED";
+        });
+
+        Map<String, String> statuses = sweep.fetchStatuses(
+                List.of("1000000001", "1000000002", "1000000003", "1000000004", "1000000005"));
+
+        assertEquals(5, statuses.size());
+        assertEquals(2, maxInFlight.get());
+    }
+}
@@ -0,0 +1,50 @@
+package ru.anyforms.service.impl;
+
+import org.junit.jupiter.api.Test;
+import ru.anyforms.service.CdekStatusSweep;
+import ru.anyforms.service.DeliveryProcessor;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Тесты вебхука СДЭК: сбой обновления статуса уходит вызывающему (таска вебхука повторится),
+ * битое или чужое тело пропускается без повтора.
+ */
+class CdekWebhookServiceImplTest {
+
+    private static final String ORDER_STATUS = """
+            {"type":"ORDER_STATUS","attributes":{"cdek_number":"1234567890","code":"DELIVERED","name":"Вручен"}}
+            """;
+
+    private final DeliveryProcessor deliveryProcessor = mock(DeliveryProcessor.class);
+    private final CdekStatusSweep cdekStatusSweep = mock(CdekStatusSweep.class);
+    private final CdekWebhookServiceImpl service = new CdekWebhookServiceImpl(deliveryProcessor, cdekStatusSweep);
+
+    @Test
+    void orderStatus_updatesDeliveryWithoutSwallowingErrors() {
+        service.processWebhook(ORDER_STATUS);
+
+        verify(cdekStatusSweep).remember("1234567890", "DELIVERED");
+        verify(deliveryProcessor).applyStatus("1234567890", "Вручен");
+    }
+
+    @Test
+    void failedStatusUpdate_propagates() {
+        doThrow(new RuntimeException("amo down")).when(deliveryProcessor).applyStatus(anyString(), anyString());
+
+        assertThrows(RuntimeException.class, () -> service.processWebhook(ORDER_STATUS));
+    }
+
+    @Test
+    void malformedOrForeignWebhook_isSkipped() {
+        service.processWebhook("{not json");
+        service.processWebhook("{\"type\":\"PRINT_FORM\"}");
+
+        verifyNoInteractions(deliveryProcessor);
+    }
+}
@@ -0,0 +1,73 @@
+package ru.anyforms.service.impl;
+
+import org.junit.jupiter.api.Test;
+import ru.anyforms.integration.AmoCrmGateway;
+import ru.anyforms.integration.CdekTrackingGateway;
+import ru.anyforms.model.CdekOrderStatus;
+import ru.anyforms.model.Order;
+import ru.anyforms.repository.GetterOrderByTracker;
+import ru.anyforms.repository.SaverOrder;
+import ru.anyforms.service.CustomProductItemService;
+import ru.anyforms.service.DeliveryBotNotifier;
+import ru.anyforms.service.OrderService;
+import ru.anyforms.service.sheets.OrderSheetMirror;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты статуса доставки по вебхуку СДЭК: заказ сохраняется и клиент уведомляется только после того,
+ * как amo принял правки сделки; отказ amo уходит вызывающему, чтобы вебхук ушёл на повтор.
+ */
+class DeliveryProcessorImplTest {
+
+    private static final String TRACKER = "CDEK123";
+
+    private final AmoCrmGateway amoCrmGateway = mock(AmoCrmGateway.class);
+    private final GetterOrderByTracker getterOrder = mock(GetterOrderByTracker.class);
+    private final SaverOrder saverOrder = mock(SaverOrder.class);
+    private final DeliveryBotNotifier notifier = mock(DeliveryBotNotifier.class);
+    private final DeliveryProcessorImpl processor = new DeliveryProcessorImpl(mock(OrderSheetMirror.class),
+            amoCrmGateway, mock(OrderService.class), getterOrder, mock(CdekTrackingGateway.class), saverOrder,
+            mock(CustomProductItemService.class), notifier);
+
+    private Order createdOrder() {
+        Order order = new Order();
+        order.setLeadId(101L);
+        order.setDeliveryStatus(CdekOrderStatus.CREATED.getCode());
+        when(getterOrder.getOptionalOrderByTracker(TRACKER)).thenReturn(Optional.of(order));
+        return order;
+    }
+
+    @Test
+    void acceptedWrites_saveOrderAndNotify() {
+        Order order = createdOrder();
+        when(amoCrmGateway.flushLeadWrites(101L)).thenReturn(true);
+
+        processor.applyStatus(TRACKER, CdekOrderStatus.RECEIVED_AT_SHIPMENT_WAREHOUSE.getCode());
+
+        assertEquals(CdekOrderStatus.RECEIVED_AT_SHIPMENT_WAREHOUSE.getCode(), order.getDeliveryStatus());
+        verify(saverOrder).save(order);
+        verify(notifier).notifyShipped(101L, TRACKER);
+    }
+
+    @Test
+    void rejectedWrites_propagate_withoutSavingOrNotifying() {
+        Order order = createdOrder();
+        when(amoCrmGateway.flushLeadWrites(101L)).thenReturn(false);
+
+        assertThrows(IllegalStateException.class,
+                () -> processor.applyStatus(TRACKER, CdekOrderStatus.RECEIVED_AT_SHIPMENT_WAREHOUSE.getCode()));
+
+        assertEquals(CdekOrderStatus.CREATED.getCode(), order.getDeliveryStatus());
+        verify(saverOrder, never()).save(any());
+        verify(notifier, never()).notifyShipped(any(), any());
+    }
+}
@@ -0,0 +1,125 @@
+package ru.anyforms.service.impl;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import ru.anyforms.integration.AmoCrmGateway;
+import ru.anyforms.integration.CdekTrackingGateway;
+import ru.anyforms.integration.ReactiveAmoCrmGateway;
+import ru.anyforms.model.Order;
+import ru.anyforms.model.amo.AmoContact;
+import ru.anyforms.model.amo.AmoCrmFieldId;
+import ru.anyforms.model.amo.AmoLead;
+import ru.anyforms.model.amo.AmoLeadAggregate;
+import ru.anyforms.model.amo.AmoLeadStatus;
+import ru.anyforms.model.amo.AmoProduct;
+import ru.anyforms.repository.OrderRepository;
+import ru.anyforms.service.DeliveryBotNotifier;
+import ru.anyforms.service.sheets.OrderSheetMirror;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты синхронизации заказа из amo: одна выборка сделки и запись обратно только изменившихся полей.
+ */
+class OrderServiceImplTest {
+
+    private static final long LEAD_ID = 100L;
+    private static final long CONTACT_ID = 200L;
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final AmoCrmGateway amoCrmGateway = mock(AmoCrmGateway.class);
+    private final ReactiveAmoCrmGateway reactiveAmoCrmGateway = mock(ReactiveAmoCrmGateway.class);
+    private final CdekTrackingGateway cdekTrackingGateway = mock(CdekTrackingGateway.class);
+    private final OrderServiceImpl service = new OrderServiceImpl(orderRepository, amoCrmGateway,
+            reactiveAmoCrmGateway, mock(OrderSheetMirror.class), cdekTrackingGateway, mock(DeliveryBotNotifier.class));
+
+    @Test
+    void unchangedLead_isNotWrittenBack() {
+        givenLead(lead(AmoLeadStatus.SENT, "1234567890", "ACCEPTED"));
+        when(cdekTrackingGateway.getOrderStatus("1234567890")).thenReturn("ACCEPTED");
+
+        Order order = service.syncOrderFromAmoCrm(LEAD_ID);
+
+        assertNotNull(order);
+        assertEquals("ACCEPTED", order.getDeliveryStatus());
+        assertEquals(1, order.getItems().size());
+        verify(amoCrmGateway, never()).updateLeadFields(anyLong(), anyMap());
+        verify(amoCrmGateway, never()).updateLeadCustomField(anyLong(), anyLong(), anyString());
+        verify(amoCrmGateway, never()).updateLeadStatus(anyLong(), any());
+        verify(amoCrmGateway, never()).getLead(anyLong());
+        verify(amoCrmGateway, never()).getLeadProducts(anyLong());
+    }
+
+    @Test
+    void changedFields_areWrittenInOneRequest() {
+        givenLead(lead(AmoLeadStatus.SENT, "...", null));
+
+        service.syncOrderFromAmoCrm(LEAD_ID);
+
+        verify(amoCrmGateway).updateLeadFields(LEAD_ID, Map.of(AmoCrmFieldId.TRACKER.getId(), ""));
+        verify(amoCrmGateway, never()).updateLeadCustomField(anyLong(), anyLong(), anyString());
+    }
+
+    @Test
+    void delivered_movesLeadToRealizedOnce() {
+        givenLead(lead(AmoLeadStatus.SENT, "1234567890", "ACCEPTED"));
+        when(cdekTrackingGateway.getOrderStatus("1234567890")).thenReturn("DELIVERED");
+
+        service.syncOrderFromAmoCrm(LEAD_ID);
+
+        verify(amoCrmGateway).updateLeadFields(LEAD_ID, Map.of(AmoCrmFieldId.DELIVERY_STATUS.getId(), "DELIVERED"));
+        verify(amoCrmGateway).updateLeadStatus(LEAD_ID, AmoLeadStatus.REALIZED);
+    }
+
+    @Test
+    void realizedLead_isNotMovedAgain() {
+        givenLead(lead(AmoLeadStatus.REALIZED, "1234567890", "DELIVERED"));
+
+        service.syncOrderFromAmoCrm(LEAD_ID);
+
+        verify(cdekTrackingGateway, never()).getOrderStatus(anyString());
+        verify(amoCrmGateway, never()).updateLeadFields(anyLong(), anyMap());
+        verify(amoCrmGateway, never()).updateLeadStatus(anyLong(), any());
+    }
+
+    private void givenLead(AmoLead lead) {
+        AmoContact contact = new AmoContact();
+        contact.setId(CONTACT_ID);
+        AmoProduct product = new AmoProduct();
+        product.setId(7L);
+        product.setName("Форма");
+        product.setQuantity(2);
+        when(reactiveAmoCrmGateway.leadAggregate(LEAD_ID))
+                .thenReturn(Mono.just(new AmoLeadAggregate(lead, CONTACT_ID, contact, List.of(product))));
+        when(orderRepository.findByLeadId(LEAD_ID)).thenReturn(Optional.empty());
+        when(orderRepository.save(any(Order.class))).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    private static AmoLead lead(AmoLeadStatus status, String tracker, String deliveryStatus) {
+        StringBuilder fields = new StringBuilder();
+        fields.append(field(AmoCrmFieldId.TRACKER.getId(), tracker));
+        if (deliveryStatus != null) {
+            fields.append(',').append(field(AmoCrmFieldId.DELIVERY_STATUS.getId(), deliveryStatus));
+        }
+        return new Gson().fromJson("{\"id\":" + LEAD_ID + ",\"status_id\":" + status.getStatusId()
+                + ",\"custom_fields_values\":[" + fields + "]}", AmoLead.class);
+    }
+
+    private static String field(Long fieldId, String value) {
+        return "{\"field_id\":" + fieldId + ",\"values\":[{\"value\":\"" + value + "\"}]}";
+    }
+}
@@ -0,0 +1,90 @@
+package ru.anyforms.service.impl;
+
+import org.junit.jupiter.api.Test;
+import ru.anyforms.dto.cdek.CdekPvzDTO;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты индекса ПВЗ: префиксный поиск по словам с порядком (город, адрес) и ближайшие пункты к точке.
+ */
+class PvzSearchIndexTest {
+
+    private static CdekPvzDTO point(String code, String city, String address, double lat, double lon) {
+        return CdekPvzDTO.builder()
+                .code(code)
+                .name(city + ", " + address)
+                .city(city)
+                .address(address)
+                .fullAddress("Россия, г. " + city + ", " + address)
+                .latitude(lat)
+                .longitude(lon)
+                .build();
+    }
+
+    private final PvzSearchIndex index = new PvzSearchIndex(List.of(
+            point("PRM2", "Пермь", "ул. Грибоедова, 135", 58.01, 56.25),
+            point("MSK1", "Москва", "ул. Грибоедова, 7", 55.75, 37.61),
+            point("PRM1", "Пермь", "ул. Ленина, 10", 58.00, 56.23),
+            point("SPB1", "Санкт-Петербург", "наб. канала Грибоедова, 20", 59.93, 30.32),
+            point("EKB1", "Екатеринбург", "ул. Ёлочная, 3", 56.84, 60.60)));
+
+    private static List<String> codes(List<CdekPvzDTO> points) {
+        return points.stream().map(CdekPvzDTO::getCode).toList();
+    }
+
+    @Test
+    void singleWord_matchesByPrefix_sortedByCityThenAddress() {
+        assertEquals(List.of("MSK1", "PRM2", "SPB1"), codes(index.search("грибоед", 50)));
+    }
+
+    @Test
+    void multipleWords_mustAllMatch_caseAndPunctuationIgnored() {
+        assertEquals(List.of("PRM2"), codes(index.search("Грибоедова, 135 ПЕРМЬ", 50)));
+        assertEquals(List.of(), codes(index.search("грибоедова ленина", 50)));
+    }
+
+    @Test
+    void yoIsNormalized() {
+        assertEquals(List.of("EKB1"), codes(index.search("елочная", 50)));
+    }
+
+    @Test
+    void limitStopsEarly() {
+        assertEquals(List.of("MSK1", "PRM2"), codes(index.search("грибоедова", 2)));
+    }
+
+    @Test
+    void unknownWord_givesNothing() {
+        assertTrue(index.search("зеленоград", 50).isEmpty());
+        assertTrue(PvzSearchIndex.EMPTY.search("грибоедова", 50).isEmpty());
+    }
+
+    @Test
+    void nearest_returnsClosestFirst() {
+        // Точка в Перми — два пермских пункта, затем Екатеринбург
+        assertEquals(List.of("PRM1", "PRM2", "EKB1"), codes(index.nearest(58.0, 56.22, 3)));
+    }
+
+    @Test
+    void nearest_findsFarPointsAcrossManyRings() {
+        // Из Владивостока ближе всего Екатеринбург, до него сотни клеток сетки
+        assertEquals(List.of("EKB1"), codes(index.nearest(43.12, 131.89, 1)));
+    }
+
+    @Test
+    void nearest_matchesBruteForce() {
+        double lat = 57.3;
+        double lon = 45.1;
+        List<String> expected = index.search("россия", 50).stream()
+                .sorted((a, b) -> Double.compare(
+                        PvzSearchIndex.distanceKm(lat, lon, a.getLatitude(), a.getLongitude()),
+                        PvzSearchIndex.distanceKm(lat, lon, b.getLatitude(), b.getLongitude())))
+                .limit(4)
+                .map(CdekPvzDTO::getCode)
+                .toList();
+        assertEquals(expected, codes(index.nearest(lat, lon, 4)));
+    }
+}
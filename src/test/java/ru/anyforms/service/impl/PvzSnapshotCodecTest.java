@@ -0,0 +1,77 @@
+package ru.anyforms.service.impl;
+
+import org.junit.jupiter.api.Test;
+import ru.anyforms.dto.cdek.CdekPvzDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты бинарного снимка ПВЗ: encode → decode возвращает те же пункты, а повреждённый,
+ * обрезанный или чужой версии снимок отклоняется с {@link IOException}.
+ */
+class PvzSnapshotCodecTest {
+
+    private static final CdekPvzDTO FULL = CdekPvzDTO.builder()
+            .code("PRM12")
+            .name("На Грибоедова")
+            .city("Пермь")
+            .address("ул. Грибоедова, 135")
+            .fullAddress("Россия, Пермь, ул. Грибоедова, 135")
+            .workTime("Пн-Пт 10:00-20:00")
+            .longitude(56.25)
+            .latitude(58.01)
+            .build();
+
+    private static final CdekPvzDTO SPARSE = CdekPvzDTO.builder()
+            .code("PRM13")
+            .city("Пермь")
+            .build();
+
+    @Test
+    void roundTripsAllFieldsIncludingNulls() throws IOException {
+        List<CdekPvzDTO> points = List.of(FULL, SPARSE);
+
+        List<CdekPvzDTO> decoded = PvzSnapshotCodec.decode(PvzSnapshotCodec.encode(points));
+
+        assertEquals(points, decoded);
+        // Один город — одна строка на все пункты
+        assertSame(decoded.get(0).getCity(), decoded.get(1).getCity());
+    }
+
+    @Test
+    void roundTripsEmptyList() throws IOException {
+        assertEquals(List.of(), PvzSnapshotCodec.decode(PvzSnapshotCodec.encode(List.of())));
+    }
+
+    @Test
+    void truncatedSnapshot_throwsIOException() {
+        byte[] snapshot = PvzSnapshotCodec.encode(List.of(FULL, SPARSE));
+
+        assertThrows(IOException.class, () -> PvzSnapshotCodec.decode(Arrays.copyOf(snapshot, snapshot.length / 2)));
+    }
+
+    @Test
+    void corruptedSnapshot_throwsIOException() {
+        assertThrows(IOException.class, () -> PvzSnapshotCodec.decode(new byte[]{1, 2, 3}));
+        assertThrows(IOException.class, () -> PvzSnapshotCodec.decode(new byte[0]));
+    }
+
+    @Test
+    void otherFormatVersion_throwsIOException() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(99);
+            out.writeInt(0);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> PvzSnapshotCodec.decode(bytes.toByteArray()));
+        assertTrue(e.getMessage().contains("version 99"));
+    }
+}
@@ -63,6 +63,7 @@ class CourseAmoLeadServiceImplTest {
         when(amoCrmGateway.addTagToLead(anyLong(), anyString())).thenReturn(true);
         when(amoCrmGateway.addNoteToLead(anyLong(), anyString())).thenReturn(true);
         when(amoCrmGateway.updateLeadStatus(anyLong(), anyLong(), anyLong())).thenReturn(true);
+        when(amoCrmGateway.flushLeadWrites(anyLong())).thenReturn(true);
     }
 
     @Test
@@ -82,6 +83,7 @@ class CourseAmoLeadServiceImplTest {
         inOrder.verify(amoCrmGateway).addNoteToLead(10L,
                 "Курс куплен на сумму 9900.00 ₽ (COURSE, почта buyer@mail.ru)");
         inOrder.verify(amoCrmGateway).updateLeadStatus(10L, REALIZED_STATUS_ID, EDUCATION_PIPELINE_ID);
+        inOrder.verify(amoCrmGateway).flushLeadWrites(10L);
     }
 
     @Test
@@ -176,6 +178,18 @@ class CourseAmoLeadServiceImplTest {
         verify(amoCrmGateway, never()).updateLeadStatus(anyLong(), anyLong(), anyLong());
     }
 
+    @Test
+    void failsWhenAmoRejectsBufferedLeadWrites() {
+        when(amoCrmGateway.findContactIdByQuery("buyer@mail.ru")).thenReturn(CONTACT_ID);
+        when(amoCrmGateway.getLeadIdsByContact(CONTACT_ID)).thenReturn(List.of(10L));
+        when(amoCrmGateway.getLead(10L)).thenReturn(lead(EDUCATION_PIPELINE_ID, 85479838L));
+        amoUpdatesSucceed();
+        when(amoCrmGateway.flushLeadWrites(10L)).thenReturn(false);
+
+        assertThrows(IllegalStateException.class,
+                () -> service.pushCoursePurchase(transaction("COURSE", 990000L)));
+    }
+
     @Test
     void noteMentionsCoursePurchaseDetails() {
         when(amoCrmGateway.findContactIdByQuery("buyer@mail.ru")).thenReturn(CONTACT_ID);
@@ -143,6 +143,7 @@ class GuideAmoLeadServiceImplTest {
         when(amoCrmGateway.getLead(10L)).thenReturn(lead(EDUCATION_PIPELINE_ID, 77900786L));
         when(amoCrmGateway.getLead(30L)).thenReturn(lead(EDUCATION_PIPELINE_ID, 142L));
         when(amoCrmGateway.updateLeadStatus(10L, GUIDE_BOUGHT_STATUS_ID, EDUCATION_PIPELINE_ID, IRINA_ID)).thenReturn(true);
+        when(amoCrmGateway.flushLeadWrites(10L)).thenReturn(true);
 
         service.pushGuidePurchase(transaction("Иванов Иван", "+79001234567", "buyer@mail.ru"));
 
@@ -0,0 +1,126 @@
+package ru.anyforms.service.payment.impl;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import ru.anyforms.dto.email.ReceiptEmailTaskPayload;
+import ru.anyforms.dto.payment.ReceiptTransactionDTO;
+import ru.anyforms.model.payment.PaymentProduct;
+import ru.anyforms.model.payment.PaymentTransaction;
+import ru.anyforms.model.task.Task;
+import ru.anyforms.model.task.TaskCursor;
+import ru.anyforms.model.task.TaskStatus;
+import ru.anyforms.model.task.TaskType;
+import ru.anyforms.repository.GetterPaymentProduct;
+import ru.anyforms.repository.GetterTask;
+import ru.anyforms.repository.GetterTransaction;
+import ru.anyforms.service.task.TaskAdder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты сверки «чек отправлен»: чеки листаются keyset-страницами только до самой старой
+ * транзакции страницы, а без дат у транзакций — ограниченное число страниц.
+ */
+class ReceiptServiceImplTest {
+
+    private static final Instant PAID_AT = Instant.parse("2026-07-28T12:00:00Z");
+
+    private final GetterTransaction getterTransaction = mock(GetterTransaction.class);
+    private final GetterTask getterTask = mock(GetterTask.class);
+    private final GetterPaymentProduct getterPaymentProduct = mock(GetterPaymentProduct.class);
+    private final ReceiptServiceImpl service = new ReceiptServiceImpl(
+            getterTransaction, getterTask, getterPaymentProduct, mock(TaskAdder.class));
+
+    private static PaymentTransaction paid(String email, Instant createdAt) {
+        return PaymentTransaction.builder()
+                .email(email)
+                .productCode(PaymentProduct.CODE_GUIDE)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+    }
+
+    private static Task receipt(String email, Instant createdAt) {
+        return Task.builder()
+                .id(UUID.randomUUID())
+                .type(TaskType.RECEIPT_EMAIL)
+                .status(TaskStatus.DONE)
+                .payload(new Gson().toJson(new ReceiptEmailTaskPayload(email, "https://check", PaymentProduct.CODE_GUIDE)))
+                .createdAt(createdAt)
+                .build();
+    }
+
+    /** Полная страница (200) чеков, все новее оплаты. */
+    private static List<Task> fullPage(String email, Instant createdAt) {
+        List<Task> page = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            page.add(receipt(email, createdAt));
+        }
+        return page;
+    }
+
+    private void givenPaid(PaymentTransaction... transactions) {
+        when(getterTransaction.getRecentByProviderStatusAndProductCodes(any(), any(), any(), anyInt()))
+                .thenReturn(List.of(transactions));
+    }
+
+    @Test
+    void stopsPagingAtOldestTransaction() {
+        givenPaid(paid("a@x.ru", PAID_AT), paid("b@x.ru", PAID_AT));
+        when(getterTask.getPageByType(eq(TaskType.RECEIPT_EMAIL), isNull(), anyInt()))
+                .thenReturn(fullPage("a@x.ru", PAID_AT.plusSeconds(3600)));
+        // вторая страница: первый чек ещё в окне, второй — старше оплаты, на нём обход заканчивается
+        when(getterTask.getPageByType(eq(TaskType.RECEIPT_EMAIL), notNull(), anyInt()))
+                .thenReturn(List.of(receipt("a@x.ru", PAID_AT.plusSeconds(1)), receipt("b@x.ru", PAID_AT.minusSeconds(1)),
+                        receipt("b@x.ru", PAID_AT.minusSeconds(2))));
+
+        List<ReceiptTransactionDTO> result = service.paidTransactions(50);
+
+        assertTrue(result.get(0).receiptSent());
+        assertFalse(result.get(1).receiptSent()); // чек b@x.ru старше оплаты — вне окна
+        verify(getterTask, times(2)).getPageByType(eq(TaskType.RECEIPT_EMAIL), any(), anyInt());
+    }
+
+    @Test
+    void nextPageStartsAfterLastTaskOfPrevious() {
+        givenPaid(paid("a@x.ru", PAID_AT));
+        List<Task> first = fullPage("a@x.ru", PAID_AT.plusSeconds(3600));
+        when(getterTask.getPageByType(eq(TaskType.RECEIPT_EMAIL), isNull(), anyInt())).thenReturn(first);
+        when(getterTask.getPageByType(eq(TaskType.RECEIPT_EMAIL), notNull(), anyInt())).thenReturn(List.of());
+
+        service.paidTransactions(50);
+
+        verify(getterTask).getPageByType(TaskType.RECEIPT_EMAIL, TaskCursor.after(first.get(199)), 200);
+    }
+
+    @Test
+    void withoutTransactionDatesScansBoundedNumberOfPages() {
+        givenPaid(paid("a@x.ru", null));
+        when(getterTask.getPageByType(eq(TaskType.RECEIPT_EMAIL), any(), anyInt()))
+                .thenReturn(fullPage("a@x.ru", PAID_AT));
+
+        List<ReceiptTransactionDTO> result = service.paidTransactions(50);
+
+        assertTrue(result.get(0).receiptSent());
+        verify(getterTask, times(10)).getPageByType(eq(TaskType.RECEIPT_EMAIL), any(), anyInt());
+    }
+
+    @Test
+    void noTransactionsNoReceiptLookup() {
+        givenPaid();
+
+        assertTrue(service.paidTransactions(50).isEmpty());
+        verifyNoInteractions(getterTask);
+    }
+}
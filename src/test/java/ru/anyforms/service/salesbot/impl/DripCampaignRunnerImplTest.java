@@ -4,55 +4,64 @@ import org.junit.jupiter.api.Test;
 import ru.anyforms.model.salesbot.OrderType;
 import ru.anyforms.service.salesbot.*;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 /**
  * Тесты оркестрации одного прогона: ветки success / выход из статуса / ошибка запуска /
- * завершённая цепочка.
+ * завершённая цепочка. Выбор следующего бота — настоящий {@link NextBotResolverImpl}
+ * поверх снимка прогресса пачки, поэтому по-лидовых обращений к логу быть не должно.
  */
 class DripCampaignRunnerImplTest {
 
     private final OrderTypeFunnelDirectory funnelDirectory = mock(OrderTypeFunnelDirectory.class);
+    private final BotSequenceProvider sequenceProvider = mock(BotSequenceProvider.class);
     private final LeadProvider leadProvider = mock(LeadProvider.class);
-    private final NextBotResolver nextBotResolver = mock(NextBotResolver.class);
     private final LeadStatusVerifier statusVerifier = mock(LeadStatusVerifier.class);
     private final SalesbotTrigger trigger = mock(SalesbotTrigger.class);
     private final BotExecutionRecorder recorder = mock(BotExecutionRecorder.class);
     private final BotExecutionReader reader = mock(BotExecutionReader.class);
+    private final NextBotResolver nextBotResolver = new NextBotResolverImpl(sequenceProvider, reader);
 
-    private final DripCampaignRunner runner = new DripCampaignRunnerImpl(
-            funnelDirectory, leadProvider, nextBotResolver, statusVerifier, trigger, recorder, reader);
+    private final DripCampaignRunner runner = runnerWithConcurrency(1);
+
+    private DripCampaignRunner runnerWithConcurrency(int concurrency) {
+        return new DripCampaignRunnerImpl(funnelDirectory, sequenceProvider, leadProvider, nextBotResolver,
+                statusVerifier, trigger, recorder, reader, concurrency);
+    }
 
     private static final FunnelTarget TARGET = new FunnelTarget(900L, 142L);
     private static final BotStep STEP = new BotStep(101L, 1);
 
-    @Test
-    void runsBot_recordsSuccess_verifiesStatus_skipsFinishedChains() {
+    private void givenRetailFunnel(List<Long> leads, ExecutionProgress progress) {
         when(funnelDirectory.configuredTypes()).thenReturn(List.of(OrderType.RETAIL));
         when(funnelDirectory.targetFor(OrderType.RETAIL)).thenReturn(Optional.of(TARGET));
-        when(leadProvider.leadsInStatus(TARGET)).thenReturn(List.of(1L, 2L, 3L, 4L));
+        when(sequenceProvider.sequenceFor(OrderType.RETAIL)).thenReturn(List.of(STEP));
+        when(leadProvider.leadsInStatus(TARGET)).thenReturn(leads);
+        when(reader.progressOf(any(), eq(OrderType.RETAIL), any())).thenReturn(progress);
+    }
+
+    @Test
+    void runsBot_recordsSuccess_verifiesStatus_skipsFinishedChains() {
+        // lead 4: цепочка завершена (позиция 1 уже success)
+        givenRetailFunnel(List.of(1L, 2L, 3L, 4L), new ExecutionProgress(Map.of(4L, Set.of(1)), Set.of()));
+
+        // Пакетная перепроверка статусов: в статусе остались только 1 и 3.
+        when(statusVerifier.leadsInTargetStatus(any(), eq(TARGET))).thenReturn(Set.of(1L, 3L));
 
         // lead 1: следующий есть, в статусе, запуск успешен -> SUCCESS
-        when(nextBotResolver.nextBot(OrderType.RETAIL, 1L)).thenReturn(Optional.of(STEP));
-        when(statusVerifier.isInTargetStatus(1L, TARGET)).thenReturn(true);
         when(trigger.run(1L, 101L)).thenReturn(true);
-
         // lead 2: вышел из статуса между запросом №1 и запуском -> FAILED, бот не запускаем
-        when(nextBotResolver.nextBot(OrderType.RETAIL, 2L)).thenReturn(Optional.of(STEP));
-        when(statusVerifier.isInTargetStatus(2L, TARGET)).thenReturn(false);
-
         // lead 3: в статусе, но запрос на запуск упал -> FAILED
-        when(nextBotResolver.nextBot(OrderType.RETAIL, 3L)).thenReturn(Optional.of(STEP));
-        when(statusVerifier.isInTargetStatus(3L, TARGET)).thenReturn(true);
         when(trigger.run(3L, 101L)).thenReturn(false);
 
-        // lead 4: цепочка завершена -> ничего не делаем
-        when(nextBotResolver.nextBot(OrderType.RETAIL, 4L)).thenReturn(Optional.empty());
-
         runner.runOnce();
 
         verify(trigger).run(1L, 101L);
@@ -64,11 +73,28 @@ class DripCampaignRunnerImplTest {
         verify(trigger).run(3L, 101L); // бот для lead 3 запускался, но запрос упал
         verify(recorder).recordFailed(3L, OrderType.RETAIL, STEP);
 
-        // lead 4: статус даже не перечитываем, ничего не пишем
-        verify(statusVerifier, never()).isInTargetStatus(eq(4L), any());
+        // статусы перечитаны ОДНИМ пакетом; lead 4 в него даже не попал, ничего не пишем
+        verify(statusVerifier).leadsInTargetStatus(argThat(ids -> ids.containsAll(List.of(1L, 2L, 3L))
+                && !ids.contains(4L)), eq(TARGET));
+        verify(statusVerifier, never()).isInTargetStatus(anyLong(), any());
         verifyNoMoreInteractions(trigger);
     }
 
+    @Test
+    void loadsProgressPerBatch_insteadOfPerLeadQueries() {
+        givenRetailFunnel(List.of(1L, 2L, 3L), ExecutionProgress.EMPTY);
+        when(statusVerifier.leadsInTargetStatus(any(), eq(TARGET))).thenReturn(Set.of(1L, 2L, 3L));
+        when(trigger.run(anyLong(), eq(101L))).thenReturn(true);
+
+        runner.runOnce();
+
+        verify(sequenceProvider, times(1)).sequenceFor(OrderType.RETAIL);
+        verify(reader, times(1)).progressOf(any(), eq(OrderType.RETAIL), any()); // одна пачка — один запрос
+        verify(reader, never()).successPositions(anyLong(), any());
+        verify(reader, never()).alreadySentToday(anyLong(), any());
+        verify(recorder, times(3)).recordSuccess(anyLong(), eq(OrderType.RETAIL), eq(STEP));
+    }
+
     @Test
     void skipsType_whenNoFunnelConfigured() {
         when(funnelDirectory.configuredTypes()).thenReturn(List.of(OrderType.CUSTOM));
@@ -76,37 +102,85 @@ class DripCampaignRunnerImplTest {
 
         runner.runOnce();
 
-        verifyNoInteractions(leadProvider, nextBotResolver, statusVerifier, trigger, recorder, reader);
+        verifyNoInteractions(sequenceProvider, leadProvider, statusVerifier, trigger, recorder, reader);
+    }
+
+    @Test
+    void skipsType_whenSequenceIsEmpty() {
+        when(funnelDirectory.configuredTypes()).thenReturn(List.of(OrderType.CUSTOM));
+        when(funnelDirectory.targetFor(OrderType.CUSTOM)).thenReturn(Optional.of(TARGET));
+        when(sequenceProvider.sequenceFor(OrderType.CUSTOM)).thenReturn(List.of());
+
+        runner.runOnce();
+
+        // цепочки нет — даже лидов у amo не спрашиваем
+        verifyNoInteractions(leadProvider, statusVerifier, trigger, recorder, reader);
     }
 
     @Test
     void skipsLead_whenAlreadySentToday() {
-        when(funnelDirectory.configuredTypes()).thenReturn(List.of(OrderType.RETAIL));
-        when(funnelDirectory.targetFor(OrderType.RETAIL)).thenReturn(Optional.of(TARGET));
-        when(leadProvider.leadsInStatus(TARGET)).thenReturn(List.of(1L));
-        when(reader.alreadySentToday(eq(1L), any())).thenReturn(true); // лиду уже слали сегодня
+        givenRetailFunnel(List.of(1L), new ExecutionProgress(Map.of(), Set.of(1L))); // лиду уже слали сегодня
+
+        runner.runOnce();
+
+        // ничего больше не делаем: ни проверки статуса, ни отправки/записи
+        verifyNoInteractions(statusVerifier, trigger, recorder);
+    }
+
+    @Test
+    void failedLeadListSkipsType_insteadOfRunningOnPartialList() {
+        givenRetailFunnel(List.of(), ExecutionProgress.EMPTY);
+        when(leadProvider.leadsInStatus(TARGET)).thenThrow(new IllegalStateException("page 3 failed"));
 
         runner.runOnce();
 
-        // ничего больше не делаем: ни выбора бота, ни проверки статуса, ни отправки/записи
-        verify(nextBotResolver, never()).nextBot(any(), anyLong());
+        // неполный список не обрабатываем: ни ботов, ни записей в журнал
         verifyNoInteractions(statusVerifier, trigger, recorder);
     }
 
     @Test
     void oneFailingLeadDoesNotAbortTheRest() {
-        when(funnelDirectory.configuredTypes()).thenReturn(List.of(OrderType.RETAIL));
-        when(funnelDirectory.targetFor(OrderType.RETAIL)).thenReturn(Optional.of(TARGET));
-        when(leadProvider.leadsInStatus(TARGET)).thenReturn(List.of(1L, 2L));
+        givenRetailFunnel(List.of(1L, 2L), ExecutionProgress.EMPTY);
+        when(statusVerifier.leadsInTargetStatus(any(), eq(TARGET))).thenReturn(Set.of(1L, 2L));
 
-        // lead 1 кидает исключение, lead 2 должен всё равно обработаться
-        when(nextBotResolver.nextBot(OrderType.RETAIL, 1L)).thenThrow(new RuntimeException("boom"));
-        when(nextBotResolver.nextBot(OrderType.RETAIL, 2L)).thenReturn(Optional.of(STEP));
-        when(statusVerifier.isInTargetStatus(2L, TARGET)).thenReturn(true);
+        // запуск для lead 1 кидает исключение, lead 2 должен всё равно обработаться
+        when(trigger.run(1L, 101L)).thenThrow(new RuntimeException("boom"));
         when(trigger.run(2L, 101L)).thenReturn(true);
 
         runner.runOnce();
 
         verify(recorder).recordSuccess(2L, OrderType.RETAIL, STEP);
     }
+
+    @Test
+    void verifiesStatusesInBatchesOfAmoPageSize() {
+        List<Long> leads = LongStream.rangeClosed(1, 300).boxed().toList();
+        givenRetailFunnel(leads, ExecutionProgress.EMPTY);
+        when(statusVerifier.leadsInTargetStatus(any(), eq(TARGET))).thenReturn(Set.of());
+
+        runner.runOnce();
+
+        // 300 лидов -> 2 запроса перепроверки (250 + 50), а не 300
+        verify(statusVerifier).leadsInTargetStatus(argThat(ids -> ids.size() == LeadStatusVerifier.BATCH_SIZE), eq(TARGET));
+        verify(statusVerifier).leadsInTargetStatus(argThat(ids -> ids.size() == 50), eq(TARGET));
+        verifyNoInteractions(trigger);
+    }
+
+    @Test
+    void concurrentMode_processesEveryLeadExactlyOnce() {
+        List<Long> leads = LongStream.rangeClosed(1, 600).boxed().toList();
+        givenRetailFunnel(leads, ExecutionProgress.EMPTY);
+        when(statusVerifier.leadsInTargetStatus(any(), eq(TARGET)))
+                .thenAnswer(inv -> Set.copyOf(inv.<Collection<Long>>getArgument(0)));
+        when(trigger.run(anyLong(), eq(101L))).thenReturn(true);
+
+        runnerWithConcurrency(8).runOnce();
+
+        for (Long leadId : leads) {
+            verify(trigger).run(leadId, 101L);
+            verify(recorder).recordSuccess(leadId, OrderType.RETAIL, STEP);
+        }
+        verify(statusVerifier, times(3)).leadsInTargetStatus(any(), eq(TARGET));
+        verify(reader, times(3)).progressOf(any(), eq(OrderType.RETAIL), any()); // по запросу на пачку
+    }
 }
@@ -0,0 +1,126 @@
+package ru.anyforms.service.sheets.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.anyforms.integration.GoogleSheetsGateway;
+import ru.anyforms.service.sheets.SheetRow;
+import ru.anyforms.util.sheets.GoogleSheetsColumnIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты зеркала листа заказов: поиск по индексам без перечитывания листа (только сверка найденной
+ * строки), дочитывание хвоста по пробе длины, учёт собственных записей и перечитывание после сортировки.
+ */
+class OrderSheetMirrorImplTest {
+
+    private static final String SHEET = "Лошадки";
+
+    private final GoogleSheetsGateway gateway = mock(GoogleSheetsGateway.class);
+    private final OrderSheetMirrorImpl mirror = new OrderSheetMirrorImpl(gateway);
+
+    private static final List<Object> IVAN = row("Иван", "https://x.amocrm.ru/leads/detail/101", "1234 567-890");
+    private static final List<Object> PETR = row("Пётр", "https://x.amocrm.ru/leads/detail/102", "");
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(mirror, "sheetName", SHEET);
+        ReflectionTestUtils.setField(mirror, "probeMs", 0L);
+        ReflectionTestUtils.setField(mirror, "missReloadMs", 60_000L);
+        ReflectionTestUtils.setField(mirror, "fullReloadMs", 600_000L);
+        when(gateway.readAllRows(SHEET)).thenReturn(List.of(
+                row("ФИО", "ссылка", "трекер"),
+                IVAN,
+                PETR
+        ));
+        when(gateway.readRows(SHEET, 2, 2)).thenReturn(List.of(IVAN));
+        when(gateway.readRows(SHEET, 3, 3)).thenReturn(List.of(PETR));
+        when(gateway.countRows(SHEET)).thenReturn(3);
+    }
+
+    @Test
+    void findsRowsByLeadIdAndTracker_withSingleSheetRead() {
+        assertEquals(2, mirror.findByLeadId(101L).orElseThrow().rowNumber());
+        assertEquals(3, mirror.findByLeadId(102L).orElseThrow().rowNumber());
+        assertEquals(2, mirror.findByTracker("1234567890").orElseThrow().rowNumber());
+        assertEquals("Пётр", mirror.findByRowNumber(3).orElseThrow().cell(GoogleSheetsColumnIndex.COLUMN_A_INDEX));
+
+        verify(gateway, times(1)).readAllRows(SHEET);
+        verify(gateway, never()).countRows(anyString());
+    }
+
+    @Test
+    void cachedHit_onRowThatNowHoldsAnotherOrder_reloadsMirror() {
+        mirror.findByLeadId(101L);
+        // лист отсортировали: Пётр поднялся на 2-ю строку, Иван ушёл на 3-ю
+        when(gateway.readRows(SHEET, 2, 2)).thenReturn(List.of(PETR));
+        when(gateway.readRows(SHEET, 3, 3)).thenReturn(List.of(IVAN));
+        when(gateway.readAllRows(SHEET)).thenReturn(List.of(row("ФИО", "ссылка", "трекер"), PETR, IVAN));
+
+        assertEquals(3, mirror.findByLeadId(101L).orElseThrow().rowNumber());
+        assertEquals(3, mirror.findByTracker("1234567890").orElseThrow().rowNumber());
+        verify(gateway, times(2)).readAllRows(SHEET);
+    }
+
+    @Test
+    void miss_probesLengthAndReadsOnlyTail() {
+        mirror.findByLeadId(101L);
+        when(gateway.countRows(SHEET)).thenReturn(4);
+        when(gateway.readRows(SHEET, 4, 4)).thenReturn(List.of(
+                row("Анна", "https://x.amocrm.ru/leads/detail/103", "555")));
+
+        SheetRow found = mirror.findByLeadId(103L).orElseThrow();
+
+        assertEquals(4, found.rowNumber());
+        assertEquals(4, mirror.findByTracker("555").orElseThrow().rowNumber());
+        verify(gateway, times(1)).readAllRows(SHEET);
+    }
+
+    @Test
+    void headerIsNotIndexed_andUnknownLeadIsEmpty() {
+        assertTrue(mirror.findByTracker("трекер").isEmpty());
+        assertTrue(mirror.findByLeadId(999L).isEmpty());
+        verify(gateway, never()).readRows(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void ownWrites_updateIndexes() {
+        mirror.findByLeadId(102L);
+
+        mirror.writeCell(3, GoogleSheetsColumnIndex.COLUMN_I_INDEX, "777-888");
+
+        verify(gateway).writeCell(eq(SHEET), eq(3), eq(GoogleSheetsColumnIndex.COLUMN_I_INDEX), eq("777-888"));
+        when(gateway.readRows(SHEET, 3, 3)).thenReturn(List.of(row("Пётр", "https://x.amocrm.ru/leads/detail/102", "777-888")));
+        assertEquals(3, mirror.findByTracker("777888").orElseThrow().rowNumber());
+
+        mirror.bufferCell(2, GoogleSheetsColumnIndex.COLUMN_I_INDEX, "");
+
+        assertTrue(mirror.findByTracker("1234567890").isEmpty());
+        verify(gateway, times(1)).readAllRows(SHEET);
+    }
+
+    /** Строка листа: A — ФИО, E — ссылка на сделку, I — трекер. */
+    private static List<Object> row(String name, String dealLink, String tracker) {
+        List<Object> cells = new ArrayList<>();
+        for (int i = 0; i <= GoogleSheetsColumnIndex.COLUMN_I_INDEX; i++) {
+            cells.add("");
+        }
+        cells.set(GoogleSheetsColumnIndex.COLUMN_A_INDEX, name);
+        cells.set(GoogleSheetsColumnIndex.COLUMN_E_INDEX, dealLink);
+        cells.set(GoogleSheetsColumnIndex.COLUMN_I_INDEX, tracker);
+        return cells;
+    }
+}
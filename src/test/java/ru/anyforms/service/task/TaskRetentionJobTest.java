@@ -0,0 +1,51 @@
+package ru.anyforms.service.task;
+
+import org.junit.jupiter.api.Test;
+import ru.anyforms.model.task.TaskType;
+import ru.anyforms.repository.TaskArchiver;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты ночной архивации: пачки идут, пока переносится полная пачка, и обрываются на ошибке БД.
+ */
+class TaskRetentionJobTest {
+
+    private final TaskArchiver taskArchiver = mock(TaskArchiver.class);
+    private final TaskRetentionJob job = new TaskRetentionJob(taskArchiver, "AMO_GUIDE_LEAD, EMAIL", 30, 100);
+
+    @Test
+    void archivesUntilShortBatch() {
+        when(taskArchiver.archiveDone(any(), any(), eq(100))).thenReturn(100, 100, 37, 100);
+
+        job.archiveOldTasks();
+
+        // третья пачка неполная — больше DONE-тасок старше порога нет, четвёртой не будет
+        verify(taskArchiver, times(3))
+                .archiveDone(eq(List.of(TaskType.AMO_GUIDE_LEAD, TaskType.EMAIL)), any(), eq(100));
+    }
+
+    @Test
+    void emptyFirstBatchEndsRun() {
+        when(taskArchiver.archiveDone(any(), any(), eq(100))).thenReturn(0);
+
+        job.archiveOldTasks();
+
+        verify(taskArchiver, times(1)).archiveDone(any(), any(), eq(100));
+    }
+
+    @Test
+    void databaseErrorStopsRun() {
+        when(taskArchiver.archiveDone(any(), any(), eq(100)))
+                .thenReturn(100)
+                .thenThrow(new RuntimeException("Database exception"));
+
+        job.archiveOldTasks();
+
+        verify(taskArchiver, times(2)).archiveDone(any(), any(), eq(100));
+    }
+}
@@ -7,9 +7,8 @@ import ru.anyforms.model.payment.PaymentTransaction;
 import ru.anyforms.model.task.Task;
 import ru.anyforms.model.task.TaskStatus;
 import ru.anyforms.model.task.TaskType;
-import ru.anyforms.repository.GetterTaskByStatus;
 import ru.anyforms.repository.GetterTransaction;
-import ru.anyforms.repository.SaverTask;
+import ru.anyforms.repository.TaskQueue;
 import ru.anyforms.service.payment.CourseAmoLeadService;
 
 import java.util.List;
@@ -19,6 +18,7 @@ import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -27,12 +27,11 @@ import static org.mockito.Mockito.when;
 
 class CourseAmoLeadTaskRunnerTest {
 
-    private final GetterTaskByStatus getterTaskByStatus = mock(GetterTaskByStatus.class);
     private final GetterTransaction getterTransaction = mock(GetterTransaction.class);
     private final CourseAmoLeadService courseAmoLeadService = mock(CourseAmoLeadService.class);
-    private final SaverTask saverTask = mock(SaverTask.class);
+    private final TaskQueue taskQueue = mock(TaskQueue.class);
     private final CourseAmoLeadTaskRunner runner =
-            new CourseAmoLeadTaskRunner(getterTaskByStatus, getterTransaction, courseAmoLeadService, saverTask);
+            new CourseAmoLeadTaskRunner(getterTransaction, courseAmoLeadService, taskQueue);
 
     @BeforeEach
     void setUp() {
@@ -54,14 +53,14 @@ class CourseAmoLeadTaskRunnerTest {
         Task task = task(transactionId);
         PaymentTransaction transaction = PaymentTransaction.builder().id(transactionId).build();
 
-        when(getterTaskByStatus.getByTaskTypeAndStatus(TaskType.AMO_COURSE_BOUGHT, TaskStatus.NEW, 10))
-                .thenReturn(List.of(task));
+        when(taskQueue.claim(eq(TaskType.AMO_COURSE_BOUGHT), eq(10), any(), any())).thenReturn(List.of(task));
         when(getterTransaction.getById(transactionId)).thenReturn(Optional.of(transaction));
 
         runner.runBatch();
 
         verify(courseAmoLeadService).pushCoursePurchase(transaction);
         assertEquals(TaskStatus.DONE, task.getStatus());
+        verify(taskQueue).markDone(eq(List.of(task.getId())), any());
     }
 
     @Test
@@ -69,8 +68,7 @@ class CourseAmoLeadTaskRunnerTest {
         UUID transactionId = UUID.randomUUID();
         Task task = task(transactionId);
 
-        when(getterTaskByStatus.getByTaskTypeAndStatus(TaskType.AMO_COURSE_BOUGHT, TaskStatus.NEW, 10))
-                .thenReturn(List.of(task));
+        when(taskQueue.claim(eq(TaskType.AMO_COURSE_BOUGHT), eq(10), any(), any())).thenReturn(List.of(task));
         when(getterTransaction.getById(transactionId)).thenReturn(Optional.empty());
 
         runner.runBatch();
@@ -86,8 +84,7 @@ class CourseAmoLeadTaskRunnerTest {
         Task task = task(transactionId);
         PaymentTransaction transaction = PaymentTransaction.builder().id(transactionId).build();
 
-        when(getterTaskByStatus.getByTaskTypeAndStatus(TaskType.AMO_COURSE_BOUGHT, TaskStatus.NEW, 10))
-                .thenReturn(List.of(task));
+        when(taskQueue.claim(eq(TaskType.AMO_COURSE_BOUGHT), eq(10), any(), any())).thenReturn(List.of(task));
         when(getterTransaction.getById(transactionId)).thenReturn(Optional.of(transaction));
         doThrow(new IllegalStateException("нет активной сделки")).when(courseAmoLeadService)
                 .pushCoursePurchase(transaction);
@@ -7,37 +7,43 @@ import ru.anyforms.model.payment.PaymentTransaction;
 import ru.anyforms.model.task.Task;
 import ru.anyforms.model.task.TaskStatus;
 import ru.anyforms.model.task.TaskType;
-import ru.anyforms.repository.GetterTaskByStatus;
 import ru.anyforms.repository.GetterTransaction;
-import ru.anyforms.repository.SaverTask;
+import ru.anyforms.repository.TaskQueue;
 import ru.anyforms.service.payment.GuideAmoLeadService;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class GuideAmoLeadTaskRunnerTest {
 
-    private final GetterTaskByStatus getterTaskByStatus = mock(GetterTaskByStatus.class);
     private final GetterTransaction getterTransaction = mock(GetterTransaction.class);
     private final GuideAmoLeadService guideAmoLeadService = mock(GuideAmoLeadService.class);
-    private final SaverTask saverTask = mock(SaverTask.class);
+    private final TaskQueue taskQueue = mock(TaskQueue.class);
     private final GuideAmoLeadTaskRunner runner =
-            new GuideAmoLeadTaskRunner(getterTaskByStatus, getterTransaction, guideAmoLeadService, saverTask);
+            new GuideAmoLeadTaskRunner(getterTransaction, guideAmoLeadService, taskQueue);
 
     @BeforeEach
     void setUp() {
         ReflectionTestUtils.setField(runner, "batchSize", 10);
+        ReflectionTestUtils.setField(runner, "doneFlushMs", 60_000L);
     }
 
     private static Task task(UUID transactionId) {
@@ -55,14 +61,14 @@ class GuideAmoLeadTaskRunnerTest {
         Task task = task(transactionId);
         PaymentTransaction transaction = PaymentTransaction.builder().id(transactionId).build();
 
-        when(getterTaskByStatus.getByTaskTypeAndStatus(TaskType.AMO_GUIDE_LEAD, TaskStatus.NEW, 10))
-                .thenReturn(List.of(task));
+        when(taskQueue.claim(eq(TaskType.AMO_GUIDE_LEAD), eq(10), any(), any())).thenReturn(List.of(task));
         when(getterTransaction.getById(transactionId)).thenReturn(Optional.of(transaction));
 
         runner.runBatch();
 
         verify(guideAmoLeadService).pushGuidePurchase(transaction);
         assertEquals(TaskStatus.DONE, task.getStatus());
+        verify(taskQueue).markDone(eq(List.of(task.getId())), any());
     }
 
     @Test
@@ -70,8 +76,7 @@ class GuideAmoLeadTaskRunnerTest {
         UUID transactionId = UUID.randomUUID();
         Task task = task(transactionId);
 
-        when(getterTaskByStatus.getByTaskTypeAndStatus(TaskType.AMO_GUIDE_LEAD, TaskStatus.NEW, 10))
-                .thenReturn(List.of(task));
+        when(taskQueue.claim(eq(TaskType.AMO_GUIDE_LEAD), eq(10), any(), any())).thenReturn(List.of(task));
         when(getterTransaction.getById(transactionId)).thenReturn(Optional.empty());
 
         runner.runBatch();
@@ -79,7 +84,7 @@ class GuideAmoLeadTaskRunnerTest {
         verify(guideAmoLeadService, never()).pushGuidePurchase(any());
         assertEquals(TaskStatus.FAILED, task.getStatus());
         assertTrue(task.getComment().contains(transactionId.toString()));
-        verify(saverTask, times(2)).save(task);
+        verify(taskQueue).markFailed(eq(task.getId()), any(), eq(task.getComment()), any());
     }
 
     @Test
@@ -88,8 +93,7 @@ class GuideAmoLeadTaskRunnerTest {
         Task task = task(transactionId);
         PaymentTransaction transaction = PaymentTransaction.builder().id(transactionId).build();
 
-        when(getterTaskByStatus.getByTaskTypeAndStatus(TaskType.AMO_GUIDE_LEAD, TaskStatus.NEW, 10))
-                .thenReturn(List.of(task));
+        when(taskQueue.claim(eq(TaskType.AMO_GUIDE_LEAD), eq(10), any(), any())).thenReturn(List.of(task));
         when(getterTransaction.getById(transactionId)).thenReturn(Optional.of(transaction));
         doThrow(new RuntimeException("amo down")).when(guideAmoLeadService).pushGuidePurchase(transaction);
 
@@ -97,5 +101,80 @@ class GuideAmoLeadTaskRunnerTest {
 
         assertEquals(TaskStatus.FAILED, task.getStatus());
         assertEquals("amo down", task.getComment());
+        // повтор по расписанию amo, а не сразу
+        assertTrue(task.getNextAttemptAt().isAfter(Instant.now().plusSeconds(29)));
+    }
+
+    @Test
+    void marksTaskDeadWhenAttemptsExhausted() {
+        UUID transactionId = UUID.randomUUID();
+        Task task = task(transactionId);
+        task.setAttempts(TaskType.AMO_GUIDE_LEAD.getRetryPolicy().maxAttempts());
+
+        when(taskQueue.claim(eq(TaskType.AMO_GUIDE_LEAD), eq(10), any(), any())).thenReturn(List.of(task));
+        when(getterTransaction.getById(transactionId)).thenReturn(Optional.empty());
+
+        runner.runBatch();
+
+        assertEquals(TaskStatus.DEAD, task.getStatus());
+        verify(taskQueue).markDead(eq(task.getId()), any(), eq(task.getComment()));
+        verify(taskQueue, never()).markFailed(any(), any(), any(), any());
+    }
+
+    @Test
+    void runsBatchOnWorkerPool_andMarksDoneInOneUpdate() {
+        ReflectionTestUtils.setField(runner, "workerPools", "EMAIL=2,AMO_GUIDE_LEAD=4");
+        List<Task> tasks = List.of(task(UUID.randomUUID()), task(UUID.randomUUID()), task(UUID.randomUUID()));
+        when(taskQueue.claim(eq(TaskType.AMO_GUIDE_LEAD), eq(10), any(), any())).thenReturn(tasks);
+        when(getterTransaction.getById(any())).thenAnswer(inv ->
+                Optional.of(PaymentTransaction.builder().id(inv.getArgument(0)).build()));
+
+        runner.runBatch();
+
+        // статусы не сохраняются по одному: вся пачка уходит в DONE одним запросом
+        verify(taskQueue).markDone(argThat(ids -> ids.size() == 3), any());
+        verify(taskQueue, never()).markFailed(any(), any(), any(), any());
+        tasks.forEach(t -> assertEquals(TaskStatus.DONE, t.getStatus()));
+    }
+
+    @Test
+    void finishedTaskIsMarkedDoneWhileSlowNeighbourStillRuns() throws Exception {
+        ReflectionTestUtils.setField(runner, "workerPools", "AMO_GUIDE_LEAD=2");
+        ReflectionTestUtils.setField(runner, "doneFlushMs", 20L);
+        UUID slowTransaction = UUID.randomUUID();
+        Task fast = task(UUID.randomUUID());
+        Task slow = task(slowTransaction);
+        CountDownLatch release = new CountDownLatch(1);
+        when(taskQueue.claim(eq(TaskType.AMO_GUIDE_LEAD), eq(10), any(), any())).thenReturn(List.of(fast, slow));
+        when(getterTransaction.getById(any())).thenAnswer(inv -> {
+            if (slowTransaction.equals(inv.getArgument(0))) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return Optional.of(PaymentTransaction.builder().id(inv.getArgument(0)).build());
+        });
+
+        Thread batch = new Thread(runner::runBatch);
+        batch.start();
+
+        // выполненная таска не ждёт конца пачки: упади инстанс сейчас — она не повторится
+        verify(taskQueue, timeout(2000)).markDone(eq(List.of(fast.getId())), any());
+        release.countDown();
+        batch.join(5000);
+        verify(taskQueue).markDone(eq(List.of(slow.getId())), any());
+    }
+
+    @Test
+    void fullBatch_claimsNextBatchWithoutWaitingForPoll() {
+        List<Task> full = Stream.generate(() -> task(UUID.randomUUID())).limit(10).toList();
+        when(taskQueue.claim(eq(TaskType.AMO_GUIDE_LEAD), eq(10), any(), any()))
+                .thenReturn(full)
+                .thenReturn(List.of());
+        when(getterTransaction.getById(any())).thenAnswer(inv ->
+                Optional.of(PaymentTransaction.builder().id(inv.getArgument(0)).build()));
+
+        runner.runBatch();
+
+        // пачка была полной — в очереди может быть ещё, вторая выборка сразу же
+        verify(taskQueue, times(2)).claim(eq(TaskType.AMO_GUIDE_LEAD), eq(10), any(), any());
     }
 }
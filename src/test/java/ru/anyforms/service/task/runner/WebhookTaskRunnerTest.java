@@ -0,0 +1,199 @@
+package ru.anyforms.service.task.runner;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.anyforms.model.task.Task;
+import ru.anyforms.model.task.TaskStatus;
+import ru.anyforms.model.task.TaskType;
+import ru.anyforms.model.webhook.WebhookInboxEntry;
+import ru.anyforms.model.webhook.WebhookSource;
+import ru.anyforms.repository.TaskQueue;
+import ru.anyforms.repository.WebhookInbox;
+import ru.anyforms.service.CdekWebhookService;
+import ru.anyforms.service.WebhookIntake;
+import ru.anyforms.service.amo.AmoCrmWebhookService;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты раннера вебхуков: запись inbox уходит в сервис своего отправителя, отмечается
+ * обработанной, задержка попадает в метрику по source; уже обработанная запись не повторяется.
+ * Вебхук amo раскладывается на таски по сделкам, и таска сделки обрабатывает только её.
+ */
+class WebhookTaskRunnerTest {
+
+    private final WebhookInbox webhookInbox = mock(WebhookInbox.class);
+    private final WebhookIntake webhookIntake = mock(WebhookIntake.class);
+    private final AmoCrmWebhookService amoCrmWebhookService = mock(AmoCrmWebhookService.class);
+    private final CdekWebhookService cdekWebhookService = mock(CdekWebhookService.class);
+    private final TaskQueue taskQueue = mock(TaskQueue.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WebhookTaskRunner runner = new WebhookTaskRunner(
+            webhookInbox, webhookIntake, amoCrmWebhookService, cdekWebhookService, meterRegistry, taskQueue);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(runner, "batchSize", 10);
+    }
+
+    private static Task task(long inboxId) {
+        return task("{\"inboxId\":" + inboxId + "}");
+    }
+
+    private static Task leadTask(long inboxId, long leadId) {
+        return task("{\"inboxId\":" + inboxId + ",\"leadId\":" + leadId + "}");
+    }
+
+    private static Task task(String payload) {
+        return Task.builder()
+                .id(UUID.randomUUID())
+                .type(TaskType.WEBHOOK)
+                .status(TaskStatus.NEW)
+                .payload(payload)
+                .build();
+    }
+
+    private static WebhookInboxEntry entry(long id, WebhookSource source, String payload) {
+        WebhookInboxEntry entry = new WebhookInboxEntry();
+        entry.setId(id);
+        entry.setSource(source);
+        entry.setPayload(payload);
+        entry.setReceivedAt(Instant.now().minusSeconds(2));
+        return entry;
+    }
+
+    @Test
+    void amoEntry_isSplitIntoOneTaskPerLead() {
+        Task task = task(7);
+        String body = "leads[add][0][id]=1&leads[status][0][id]=2";
+        when(taskQueue.claim(eq(TaskType.WEBHOOK), eq(10), any(), any())).thenReturn(List.of(task));
+        when(webhookInbox.getById(7L)).thenReturn(Optional.of(entry(7, WebhookSource.AMO, body)));
+        when(amoCrmWebhookService.acceptFormDataWebhook(body)).thenReturn(List.of(1L, 2L));
+
+        runner.runBatch();
+
+        verify(webhookIntake).splitByLeads(7L, List.of(1L, 2L));
+        verify(amoCrmWebhookService, never()).processLead(anyLong());
+        verify(cdekWebhookService, never()).processWebhook(anyString());
+        // запись отмечает splitByLeads в одной транзакции с тасками сделок
+        verify(webhookInbox, never()).markProcessed(any(), any());
+        assertEquals(TaskStatus.DONE, task.getStatus());
+    }
+
+    @Test
+    void amoEntryWithoutLeads_isMarkedProcessed() {
+        Task task = task(12);
+        when(taskQueue.claim(eq(TaskType.WEBHOOK), eq(10), any(), any())).thenReturn(List.of(task));
+        when(webhookInbox.getById(12L)).thenReturn(Optional.of(entry(12, WebhookSource.AMO, "contacts[update][0][id]=5")));
+        when(amoCrmWebhookService.acceptFormDataWebhook(anyString())).thenReturn(List.of());
+
+        runner.runBatch();
+
+        verify(webhookIntake, never()).splitByLeads(any(), any());
+        verify(webhookInbox).markProcessed(eq(12L), any());
+        assertEquals(1, meterRegistry.get("webhook.inbox.lag").tag("source", "AMO").timer().count());
+    }
+
+    @Test
+    void leadTask_processesOnlyItsLead() {
+        Task task = leadTask(7, 2);
+        when(taskQueue.claim(eq(TaskType.WEBHOOK), eq(10), any(), any())).thenReturn(List.of(task));
+        WebhookInboxEntry entry = entry(7, WebhookSource.AMO, "leads[add][0][id]=1&leads[status][0][id]=2");
+        entry.setProcessedAt(Instant.now());
+        when(webhookInbox.getById(7L)).thenReturn(Optional.of(entry));
+
+        runner.runBatch();
+
+        verify(amoCrmWebhookService).processLead(2L);
+        verify(amoCrmWebhookService, never()).processLead(1L);
+        verify(amoCrmWebhookService, never()).acceptFormDataWebhook(anyString());
+        verify(webhookInbox, never()).markProcessed(any(), any());
+        assertEquals(TaskStatus.DONE, task.getStatus());
+        assertEquals(1, meterRegistry.get("webhook.inbox.lag").tag("source", "AMO").timer().count());
+    }
+
+    @Test
+    void failedLead_retriesOnlyItsOwnTask() {
+        Task task = leadTask(7, 2);
+        when(taskQueue.claim(eq(TaskType.WEBHOOK), eq(10), any(), any())).thenReturn(List.of(task));
+        doThrow(new RuntimeException("amo down")).when(amoCrmWebhookService).processLead(2L);
+
+        runner.runBatch();
+
+        assertEquals(TaskStatus.FAILED, task.getStatus());
+        verify(taskQueue).markFailed(eq(task.getId()), any(), eq("amo down"), any());
+    }
+
+    @Test
+    void cdekEntry_goesToCdekService() {
+        Task task = task(8);
+        when(taskQueue.claim(eq(TaskType.WEBHOOK), eq(10), any(), any())).thenReturn(List.of(task));
+        when(webhookInbox.getById(8L)).thenReturn(Optional.of(entry(8, WebhookSource.CDEK, "{\"type\":\"ORDER_STATUS\"}")));
+
+        runner.runBatch();
+
+        verify(cdekWebhookService).processWebhook("{\"type\":\"ORDER_STATUS\"}");
+        assertEquals(1, meterRegistry.get("webhook.inbox.lag").tag("source", "CDEK").timer().count());
+    }
+
+    @Test
+    void alreadyProcessedEntry_isNotProcessedAgain() {
+        Task task = task(9);
+        WebhookInboxEntry entry = entry(9, WebhookSource.AMO, "x=1");
+        entry.setProcessedAt(Instant.now());
+        when(taskQueue.claim(eq(TaskType.WEBHOOK), eq(10), any(), any())).thenReturn(List.of(task));
+        when(webhookInbox.getById(9L)).thenReturn(Optional.of(entry));
+
+        runner.runBatch();
+
+        verify(amoCrmWebhookService, never()).acceptFormDataWebhook(anyString());
+        verify(webhookInbox, never()).markProcessed(any(), any());
+        assertEquals(TaskStatus.DONE, task.getStatus());
+    }
+
+    @Test
+    void processingFailure_leavesEntryUnprocessed_andTaskIsRetried() {
+        Task task = task(10);
+        when(taskQueue.claim(eq(TaskType.WEBHOOK), eq(10), any(), any())).thenReturn(List.of(task));
+        when(webhookInbox.getById(10L)).thenReturn(Optional.of(entry(10, WebhookSource.AMO, "x=1")));
+        when(amoCrmWebhookService.acceptFormDataWebhook("x=1")).thenThrow(new RuntimeException("amo down"));
+
+        runner.runBatch();
+
+        verify(webhookInbox, never()).markProcessed(any(), any());
+        assertEquals(TaskStatus.FAILED, task.getStatus());
+        verify(taskQueue).markFailed(eq(task.getId()), any(), eq("amo down"), any());
+    }
+
+    @Test
+    void cdekProcessingFailure_leavesEntryUnprocessed_andTaskIsRetried() {
+        Task task = task(11);
+        when(taskQueue.claim(eq(TaskType.WEBHOOK), eq(10), any(), any())).thenReturn(List.of(task));
+        when(webhookInbox.getById(11L)).thenReturn(Optional.of(entry(11, WebhookSource.CDEK, "{}")));
+        doThrow(new RuntimeException("order save failed")).when(cdekWebhookService).processWebhook("{}");
+
+        runner.runBatch();
+
+        verify(webhookInbox, never()).markProcessed(any(), any());
+        assertEquals(TaskStatus.FAILED, task.getStatus());
+        verify(taskQueue).markFailed(eq(task.getId()), any(), eq("order save failed"), any());
+        verify(taskQueue, never()).markDone(argThat(ids -> ids.contains(task.getId())), any());
+    }
+}
@@ -0,0 +1,113 @@
+package ru.anyforms.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты склейки событий по ключу: серия событий — один запуск с последним действием,
+ * событие во время запуска — ещё один запуск после него, разные ключи независимы.
+ */
+class KeyedDebouncerTest {
+
+    private final KeyedDebouncer<Long> debouncer =
+            new KeyedDebouncer<>("test", Duration.ofMillis(100), Duration.ofSeconds(5), 4);
+
+    @AfterEach
+    void tearDown() {
+        debouncer.close();
+    }
+
+    private static void awaitIdle(KeyedDebouncer<?> debouncer) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (debouncer.pending() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, debouncer.pending());
+    }
+
+    @Test
+    void burstForOneKey_runsOnceWithLastAction() throws Exception {
+        List<Integer> runs = new CopyOnWriteArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            int version = i;
+            debouncer.submit(1L, () -> runs.add(version));
+            Thread.sleep(20);
+        }
+
+        awaitIdle(debouncer);
+        assertEquals(List.of(5), runs);
+    }
+
+    @Test
+    void eventDuringRun_triggersOneMoreRunAfterIt() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> runs = new CopyOnWriteArrayList<>();
+        debouncer.submit(1L, () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            runs.add("first");
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        debouncer.submit(1L, () -> runs.add("stale"));
+        debouncer.submit(1L, () -> runs.add("last"));
+        release.countDown();
+
+        awaitIdle(debouncer);
+        assertEquals(List.of("first", "last"), runs);
+    }
+
+    @Test
+    void differentKeys_runIndependently() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        for (long key = 1; key <= 10; key++) {
+            debouncer.submit(key, runs::incrementAndGet);
+        }
+
+        awaitIdle(debouncer);
+        assertEquals(10, runs.get());
+    }
+
+    @Test
+    void continuousEvents_runNoLaterThanMaxWait() throws Exception {
+        try (KeyedDebouncer<Long> bounded =
+                     new KeyedDebouncer<>("bounded", Duration.ofMillis(100), Duration.ofMillis(250), 1)) {
+            AtomicInteger runs = new AtomicInteger();
+            long until = System.currentTimeMillis() + 600;
+            while (System.currentTimeMillis() < until) {
+                bounded.submit(1L, runs::incrementAndGet);
+                Thread.sleep(30);
+            }
+
+            // Пауз длиннее окна не было, но запуски всё равно случились
+            assertTrue(runs.get() >= 1);
+        }
+    }
+
+    @Test
+    void failingAction_doesNotBlockKey() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        debouncer.submit(1L, () -> {
+            throw new IllegalStateException("amo down");
+        });
+        awaitIdle(debouncer);
+
+        debouncer.submit(1L, runs::incrementAndGet);
+        awaitIdle(debouncer);
+        assertEquals(1, runs.get());
+    }
+}